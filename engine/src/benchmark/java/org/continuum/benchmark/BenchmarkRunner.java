@@ -0,0 +1,118 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.benchmark;
+
+import javolution.util.FastMap;
+
+import java.util.Map;
+
+/**
+ * Runs the rounds of a benchmark and reports the average time of its measurements per round. The first rounds
+ * warm up and are not measured.
+ * <p/>
+ * The compared implementations should take turns within each round, so they are measured under the same
+ * conditions.
+ */
+public final class BenchmarkRunner {
+
+    /**
+     * A single round of a benchmark.
+     */
+    public interface Round {
+        /**
+         * @param round The number of the round, negative while warming up
+         */
+        void run(int round);
+    }
+
+    private final String _title;
+    private final int _warmUpRounds, _rounds;
+
+    private final FastMap<String, Long> _times = new FastMap<String, Long>();
+    private int _round;
+
+    /**
+     * @param title        The title of the report
+     * @param warmUpRounds The amount of rounds which are not measured
+     * @param rounds       The amount of measured rounds
+     */
+    public BenchmarkRunner(String title, int warmUpRounds, int rounds) {
+        _title = title;
+        _warmUpRounds = warmUpRounds;
+        _rounds = rounds;
+    }
+
+    /**
+     * Runs the warm-up rounds followed by the measured rounds.
+     *
+     * @param round The round to run
+     */
+    public void run(Round round) {
+        for (_round = -_warmUpRounds; _round < _rounds; _round++) {
+            round.run(_round);
+        }
+    }
+
+    /**
+     * Adds the time passed since the given start to a measurement. Ignored while warming up.
+     *
+     * @param name      The name of the measurement
+     * @param timeStart The start of the measured code as returned by {@link System#nanoTime()}
+     */
+    public void record(String name, long timeStart) {
+        long time = System.nanoTime() - timeStart;
+
+        if (_round < 0)
+            return;
+
+        Long total = _times.get(name);
+        _times.put(name, total != null ? total + time : time);
+    }
+
+    /**
+     * Returns the average time of a measurement per round.
+     *
+     * @param name The name of the measurement
+     * @return The average time in milliseconds
+     */
+    public double getAverage(String name) {
+        Long total = _times.get(name);
+        return total != null ? total / (double) _rounds / 1e6 : 0;
+    }
+
+    /**
+     * Prints the average time of each measurement, followed by the given notes.
+     *
+     * @param notes Further results of the benchmark
+     */
+    public void report(String... notes) {
+        int width = 0;
+
+        for (String name : _times.keySet()) {
+            width = Math.max(width, name.length() + 1);
+        }
+
+        System.out.println(_title + ":");
+
+        for (Map.Entry<String, Long> entry : _times.entrySet()) {
+            System.out.println(String.format("%-" + width + "s %.3fms", entry.getKey() + ":", getAverage(entry.getKey())));
+        }
+
+        for (String note : notes) {
+            System.out.println(note);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.datastructures;
+
+import org.continuum.benchmark.BenchmarkRunner;
+import org.continuum.main.Configuration;
+import org.continuum.utilities.FastRandom;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Reads the sunlight and block light of all blocks of a chunk, once from a {@link BlockmaniaLightArray} storing
+ * both in one value and once from two {@link BlockmaniaSmartArray}s, the layout the light array replaced. Both
+ * hold the same light: Random values in the lower half of the chunk and open sky above, which the light array
+ * keeps in implicit sections.
+ */
+public class BlockmaniaLightArrayBenchmark {
+
+    private static final int WARM_UP_ROUNDS = 50;
+    private static final int ROUNDS = 200;
+
+    private static final int SIZE_X = (int) Configuration.CHUNK_DIMENSIONS.x;
+    private static final int SIZE_Y = (int) Configuration.CHUNK_DIMENSIONS.y;
+    private static final int SIZE_Z = (int) Configuration.CHUNK_DIMENSIONS.z;
+
+    /**
+     * The blocks below this height have random light values.
+     */
+    private static final int SKY_HEIGHT = SIZE_Y / 2;
+
+    private final BlockmaniaLightArray _combined = new BlockmaniaLightArray(SIZE_X, SIZE_Y, SIZE_Z);
+    private final BlockmaniaSmartArray _sunlight = new BlockmaniaSmartArray(SIZE_X, SIZE_Y, SIZE_Z);
+    private final BlockmaniaSmartArray _blockLight = new BlockmaniaSmartArray(SIZE_X, SIZE_Y, SIZE_Z);
+
+    @Before
+    public void setUp() {
+        FastRandom random = new FastRandom(42);
+
+        for (int x = 0; x < SIZE_X; x++) {
+            for (int z = 0; z < SIZE_Z; z++) {
+                for (int y = 0; y < SIZE_Y; y++) {
+                    byte sunlight = y < SKY_HEIGHT ? (byte) random.randomInt(16) : Configuration.MAX_LIGHT;
+                    byte blockLight = y < SKY_HEIGHT ? (byte) random.randomInt(16) : 0;
+
+                    _sunlight.set(x, y, z, sunlight);
+                    _blockLight.set(x, y, z, blockLight);
+
+                    // White block light
+                    _combined.setSunlight(x, y, z, sunlight);
+                    _combined.setBlockLight(x, y, z, (short) (blockLight | (blockLight << 4) | (blockLight << 8)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testReadLight() {
+        BenchmarkRunner runner = new BenchmarkRunner(String.format("reading the light of a %dx%dx%d chunk", SIZE_X, SIZE_Y, SIZE_Z), WARM_UP_ROUNDS, ROUNDS);
+        long[] sums = new long[2];
+
+        runner.run(round -> {
+            long timeStart = System.nanoTime();
+            sums[0] = readCombined();
+            runner.record("combined", timeStart);
+
+            timeStart = System.nanoTime();
+            sums[1] = readSeparate();
+            runner.record("separate", timeStart);
+        });
+
+        runner.report();
+
+        assertEquals("Different light read.", sums[1], sums[0]);
+    }
+
+    /**
+     * Sums the sunlight and the intensity of the block light of all blocks, read as one value per block.
+     */
+    private long readCombined() {
+        long sum = 0;
+
+        for (int x = 0; x < SIZE_X; x++) {
+            for (int z = 0; z < SIZE_Z; z++) {
+                for (int y = 0; y < SIZE_Y; y++) {
+                    short value = _combined.getUnchecked(x, y, z);
+                    sum += (value & 0x0F) + ((value >> 4) & 0x0F);
+                }
+            }
+        }
+
+        return sum;
+    }
+
+    /**
+     * Sums the sunlight and the intensity of the block light of all blocks, read from both arrays.
+     */
+    private long readSeparate() {
+        long sum = 0;
+
+        for (int x = 0; x < SIZE_X; x++) {
+            for (int z = 0; z < SIZE_Z; z++) {
+                for (int y = 0; y < SIZE_Y; y++) {
+                    sum += _sunlight.get(x, y, z) + _blockLight.get(x, y, z);
+                }
+            }
+        }
+
+        return sum;
+    }
+}
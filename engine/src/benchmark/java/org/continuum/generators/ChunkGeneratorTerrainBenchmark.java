@@ -0,0 +1,155 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.generators;
+
+import org.continuum.benchmark.BenchmarkRunner;
+import org.continuum.main.Configuration;
+import org.continuum.world.WorldFixture;
+import org.continuum.world.WorldProvider;
+import org.continuum.world.chunk.Chunk;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.util.vector.Vector3f;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Generates the terrain of the chunks of a fixed-seed world with and without caves and compares the generation
+ * time. The chunks are centered on the first chunk east of the spawning point which contains caves.
+ */
+public class ChunkGeneratorTerrainBenchmark {
+
+    private static final int WARM_UP_ROUNDS = 5;
+    private static final int ROUNDS = 20;
+
+    /**
+     * The amount of chunks generated in each direction of the center chunk.
+     */
+    private static final int RADIUS = 2;
+    private static final int SIDE = 2 * RADIUS + 1;
+
+    /**
+     * The amount of chunks searched for caves.
+     */
+    private static final int SEARCH_DISTANCE = 64;
+
+    private WorldProvider _world;
+    private ChunkGeneratorTerrain _generator;
+    private int _chunkX, _chunkZ;
+
+    @Before
+    public void setUp() {
+        _world = WorldFixture.createWorld();
+        _generator = (ChunkGeneratorTerrain) _world.getChunkGenerator("terrain");
+
+        Chunk c = WorldFixture.getSpawningChunk(_world);
+        _chunkZ = (int) c.getPosition().z;
+
+        for (int x = (int) c.getPosition().x; x < c.getPosition().x + SEARCH_DISTANCE; x++) {
+            if (countCarvedBlocks(generate(x, _chunkZ, false), generate(x, _chunkZ, true)) > 0) {
+                _chunkX = x;
+                return;
+            }
+        }
+
+        throw new IllegalStateException("No caves found.");
+    }
+
+    @After
+    public void tearDown() {
+        Configuration.setSetting("CAVES", true);
+        WorldFixture.dispose(_world);
+    }
+
+    @Test
+    public void testCaves() {
+        BenchmarkRunner runner = new BenchmarkRunner(String.format("terrain of %d chunks around chunk (%d, %d) (seed \"%s\")", SIDE * SIDE, _chunkX, _chunkZ, WorldFixture.SEED), WARM_UP_ROUNDS, ROUNDS);
+        Chunk[] withoutCaves = new Chunk[SIDE * SIDE];
+        Chunk[] withCaves = new Chunk[SIDE * SIDE];
+
+        runner.run(round -> {
+            measure(runner, "without caves", false, withoutCaves);
+            measure(runner, "with caves", true, withCaves);
+        });
+
+        int carvedBlocks = 0;
+
+        for (int i = 0; i < SIDE * SIDE; i++) {
+            carvedBlocks += countCarvedBlocks(withoutCaves[i], withCaves[i]);
+        }
+
+        runner.report(String.format("per chunk: %.3fms without caves, %.3fms with caves, %d blocks carved", runner.getAverage("without caves") / (SIDE * SIDE), runner.getAverage("with caves") / (SIDE * SIDE), carvedBlocks));
+
+        assertTrue(carvedBlocks > 0);
+    }
+
+    /**
+     * Generates the terrain of fresh chunks, which are not added to the chunk cache of the world.
+     *
+     * @param chunks Receives the generated chunks
+     */
+    private void measure(BenchmarkRunner runner, String name, boolean caves, Chunk[] chunks) {
+        for (int x = 0; x < SIDE; x++) {
+            for (int z = 0; z < SIDE; z++) {
+                Chunk c = createChunk(_chunkX + x - RADIUS, _chunkZ + z - RADIUS);
+
+                Configuration.setSetting("CAVES", caves);
+
+                long timeStart = System.nanoTime();
+                _generator.generate(c);
+                runner.record(name, timeStart);
+
+                chunks[x * SIDE + z] = c;
+            }
+        }
+    }
+
+    private Chunk createChunk(int x, int z) {
+        Chunk c = new Chunk(_world, new Vector3f(x, 0, z));
+        c.setCached(true);
+
+        return c;
+    }
+
+    private Chunk generate(int x, int z, boolean caves) {
+        Chunk c = createChunk(x, z);
+
+        Configuration.setSetting("CAVES", caves);
+        _generator.generate(c);
+
+        return c;
+    }
+
+    /**
+     * Counts the blocks which differ between the terrain generated without and with caves. Caves below
+     * the sea level are filled with water.
+     */
+    private static int countCarvedBlocks(Chunk withoutCaves, Chunk withCaves) {
+        int count = 0;
+
+        for (int x = 0; x < Configuration.CHUNK_DIMENSIONS.x; x++) {
+            for (int z = 0; z < Configuration.CHUNK_DIMENSIONS.z; z++) {
+                for (int y = 0; y < Configuration.CHUNK_DIMENSIONS.y; y++) {
+                    if (withoutCaves.getBlock(x, y, z) != withCaves.getBlock(x, y, z))
+                        count++;
+                }
+            }
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.world.chunk;
+
+import org.continuum.benchmark.BenchmarkRunner;
+import org.continuum.main.Configuration;
+import org.continuum.rendering.NullRenderDevice;
+import org.continuum.rendering.RenderDeviceManager;
+import org.continuum.world.WorldFixture;
+import org.continuum.world.WorldProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Meshes a chunk of a fixed-seed world with and without greedy meshing and compares the amount of quads, the
+ * time to build the meshes and the size of the uploaded buffers. The chunk is meshed once as generated and
+ * once flattened to a grass plain, where nearly all faces can be merged.
+ */
+public class ChunkMeshGeneratorBenchmark {
+
+    private static final int WARM_UP_ROUNDS = 20;
+    private static final int ROUNDS = 50;
+
+    private static final byte GRASS = 1;
+    private static final byte DIRT = 2;
+
+    /**
+     * The height of the surface of the flattened chunks.
+     */
+    private static final int FLAT_HEIGHT = 64;
+    /**
+     * The factor greedy meshing has to reduce the quads of the flattened chunk by at least.
+     */
+    private static final int MIN_FLAT_REDUCTION = 8;
+
+    private final NullRenderDevice _device = new NullRenderDevice();
+
+    private WorldProvider _world;
+    private Chunk _chunk;
+
+    /**
+     * The amount of quads drawn and bytes uploaded for the meshes of a chunk.
+     */
+    private static class MeshSize {
+        int quads;
+        long bytes;
+
+        @Override
+        public String toString() {
+            return String.format("%d quads, %dKB", quads, bytes / 1024);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        RenderDeviceManager.setDevice(_device);
+
+        _world = WorldFixture.createWorld();
+        _chunk = WorldFixture.getSpawningChunk(_world);
+
+        WorldFixture.generateAround(_chunk, 1);
+    }
+
+    @After
+    public void tearDown() {
+        Configuration.setSetting("GREEDY_MESHING", false);
+        WorldFixture.dispose(_world);
+    }
+
+    @Test
+    public void testGreedyMeshing() {
+        MeshSize faces = new MeshSize();
+        MeshSize greedy = new MeshSize();
+
+        compare(String.format("meshing chunk %s (seed \"%s\")", _chunk, WorldFixture.SEED), faces, greedy);
+
+        assertTrue(greedy.quads < faces.quads);
+        assertTrue(greedy.bytes < faces.bytes);
+    }
+
+    @Test
+    public void testGreedyMeshingFlat() {
+        MeshSize faces = new MeshSize();
+        MeshSize greedy = new MeshSize();
+
+        flatten(1);
+        compare(String.format("meshing chunk %s flattened (seed \"%s\")", _chunk, WorldFixture.SEED), faces, greedy);
+
+        assertTrue("Too few faces merged.", greedy.quads * MIN_FLAT_REDUCTION <= faces.quads);
+    }
+
+    /**
+     * Meshes the chunk with and without greedy meshing and reports the results.
+     */
+    private void compare(String title, MeshSize faces, MeshSize greedy) {
+        BenchmarkRunner runner = new BenchmarkRunner(title, WARM_UP_ROUNDS, ROUNDS);
+
+        runner.run(round -> {
+            measure(runner, "per face", false, round == 0 ? faces : null);
+            measure(runner, "greedy", true, round == 0 ? greedy : null);
+        });
+
+        runner.report("per face: " + faces, "greedy:   " + greedy);
+    }
+
+    /**
+     * Replaces the terrain of the chunks around the benchmarked chunk by a grass plain lit by the sun.
+     *
+     * @param radius The amount of chunks flattened in each direction
+     */
+    private void flatten(int radius) {
+        int chunkX = (int) _chunk.getPosition().x, chunkZ = (int) _chunk.getPosition().z;
+
+        for (int cX = chunkX - radius; cX <= chunkX + radius; cX++) {
+            for (int cZ = chunkZ - radius; cZ <= chunkZ + radius; cZ++) {
+                Chunk c = _world.getChunkCache().loadOrCreateChunk(cX, cZ);
+
+                for (int x = 0; x < Configuration.CHUNK_DIMENSIONS.x; x++) {
+                    for (int z = 0; z < Configuration.CHUNK_DIMENSIONS.z; z++) {
+                        for (int y = 0; y < Configuration.CHUNK_DIMENSIONS.y; y++) {
+                            c.setBlock(x, y, z, y < FLAT_HEIGHT ? DIRT : y == FLAT_HEIGHT ? GRASS : 0x0);
+
+                            if (c.getLightValue(x, y, z, Chunk.LIGHT_TYPE.BLOCK) != 0)
+                                c.setLightRaw(x, y, z, 0, Chunk.LIGHT_TYPE.BLOCK);
+                        }
+
+                        c.refreshSunlightAtLocalPos(x, z, false);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Meshes all sections of the chunk once.
+     *
+     * @param size Receives the size of the meshes if not null
+     */
+    private void measure(BenchmarkRunner runner, String name, boolean greedy, MeshSize size) {
+        Configuration.setSetting("GREEDY_MESHING", greedy);
+
+        ChunkMeshGenerator generator = new ChunkMeshGenerator(_chunk);
+
+        long timeStart = System.nanoTime();
+        ChunkMesh[] meshes = generator.generateMeshes(Chunk.ALL_SECTIONS);
+        runner.record(name, timeStart);
+
+        if (size != null)
+            count(meshes, size);
+
+        for (ChunkMesh mesh : meshes) {
+            mesh.freeBuffers();
+        }
+    }
+
+    /**
+     * Uploads and renders the meshes through the null device, which counts the uploaded bytes and the drawn quads.
+     */
+    private void count(ChunkMesh[] meshes, MeshSize size) {
+        for (ChunkMesh mesh : meshes) {
+            _device.reset();
+            mesh.generateVBOs();
+            size.bytes += _device.getUploadedBytes();
+
+            _device.reset();
+
+            for (ChunkMesh.RENDER_TYPE type : ChunkMesh.RENDER_TYPE.values()) {
+                mesh.render(type);
+            }
+
+            size.quads += _device.getDrawnElements() / 6;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.world.light;
+
+import org.continuum.main.Configuration;
+import org.continuum.world.WorldFixture;
+import org.continuum.world.WorldProvider;
+import org.continuum.world.chunk.Chunk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Two identical fixed-seed worlds with a closed cave carved below their spawning point, shared by the light
+ * benchmarks. One world is lit by the {@link LightPropagator}, the other one by the reference implementation
+ * of a benchmark. The cave is carved with the light propagator in both worlds, so they start from the same light.
+ */
+final class CaveFixture {
+
+    /* CAVE DIMENSIONS */
+    static final int RADIUS = 3;
+    static final int SIZE_Y = 4;
+    static final int CEILING = 10;
+
+    private static final int CHUNK_SIZE_X = (int) Configuration.CHUNK_DIMENSIONS.x;
+    private static final int CHUNK_SIZE_Y = (int) Configuration.CHUNK_DIMENSIONS.y;
+    private static final int CHUNK_SIZE_Z = (int) Configuration.CHUNK_DIMENSIONS.z;
+
+    private final WorldProvider _world, _referenceWorld;
+    private final int _x, _y, _z, _surfaceY;
+
+    /**
+     * Generates both worlds and carves the cave below the center of the spawning chunk, so that its ceiling is
+     * {@link #CEILING} blocks thick.
+     */
+    CaveFixture() {
+        _world = WorldFixture.createWorld();
+        _referenceWorld = WorldFixture.createWorld();
+
+        Chunk c = WorldFixture.getSpawningChunk(_world);
+
+        WorldFixture.generateAround(c, 2);
+        WorldFixture.generateAround(WorldFixture.getSpawningChunk(_referenceWorld), 2);
+
+        _x = c.getBlockWorldPosX(CHUNK_SIZE_X / 2);
+        _z = c.getBlockWorldPosZ(CHUNK_SIZE_Z / 2);
+        _surfaceY = _world.maxHeightAt(_x, _z);
+        _y = _surfaceY - CEILING - SIZE_Y;
+
+        assertTrue("Terrain too low for the cave.", _y > 0);
+
+        for (WorldProvider world : new WorldProvider[]{_world, _referenceWorld}) {
+            LightPropagator propagator = world.getLightPropagator();
+
+            LightScheduler.runAsWorker(() -> {
+                propagator.beginBatch();
+
+                for (int x = _x - RADIUS; x <= _x + RADIUS; x++) {
+                    for (int z = _z - RADIUS; z <= _z + RADIUS; z++) {
+                        for (int y = _y; y < _y + SIZE_Y; y++) {
+                            world.setBlock(x, y, z, (byte) 0x0, false, true);
+                            propagator.queueBlockChange(x, y, z);
+                        }
+                    }
+                }
+
+                propagator.endBatch();
+            });
+        }
+
+        assertEquals("Cave is not dark.", 0, _world.getLight(_x, _y, _z, Chunk.LIGHT_TYPE.SUN));
+    }
+
+    void dispose() {
+        WorldFixture.dispose(_world);
+        WorldFixture.dispose(_referenceWorld);
+    }
+
+    /**
+     * @return The world lit by the light propagator
+     */
+    WorldProvider getWorld() {
+        return _world;
+    }
+
+    /**
+     * @return The world lit by the reference implementation
+     */
+    WorldProvider getReferenceWorld() {
+        return _referenceWorld;
+    }
+
+    /**
+     * @return The world position of the center of the cave floor on the x-axis
+     */
+    int getX() {
+        return _x;
+    }
+
+    /**
+     * @return The height of the cave floor
+     */
+    int getY() {
+        return _y;
+    }
+
+    /**
+     * @return The world position of the center of the cave floor on the z-axis
+     */
+    int getZ() {
+        return _z;
+    }
+
+    /**
+     * @return The height of the surface above the center of the cave
+     */
+    int getSurfaceY() {
+        return _surfaceY;
+    }
+
+    /**
+     * Compares the light of the chunks around the cave in both worlds.
+     *
+     * @param step   The step of the benchmark, reported on a mismatch
+     * @param colors If set, the packed colours of the block light are compared, otherwise only the intensities
+     */
+    void assertLightEquals(String step, boolean colors) {
+        int chunkX = _world.calcChunkPosX(_x), chunkZ = _world.calcChunkPosZ(_z);
+
+        for (int cX = chunkX - 1; cX <= chunkX + 1; cX++) {
+            for (int cZ = chunkZ - 1; cZ <= chunkZ + 1; cZ++) {
+                Chunk actual = _world.getChunkCache().loadOrCreateChunk(cX, cZ);
+                Chunk expected = _referenceWorld.getChunkCache().loadOrCreateChunk(cX, cZ);
+
+                for (int x = 0; x < CHUNK_SIZE_X; x++) {
+                    for (int z = 0; z < CHUNK_SIZE_Z; z++) {
+                        for (int y = 0; y < CHUNK_SIZE_Y; y++) {
+                            for (Chunk.LIGHT_TYPE type : Chunk.LIGHT_TYPE.values()) {
+                                int expectedValue = colors ? expected.getLightValue(x, y, z, type) : expected.getLight(x, y, z, type);
+                                int actualValue = colors ? actual.getLightValue(x, y, z, type) : actual.getLight(x, y, z, type);
+
+                                if (expectedValue != actualValue) {
+                                    fail(String.format("%s light at (%d, %d, %d) after %s expected:<%d> but was:<%d>", type, actual.getBlockWorldPosX(x), y, actual.getBlockWorldPosZ(z), step, expectedValue, actualValue));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
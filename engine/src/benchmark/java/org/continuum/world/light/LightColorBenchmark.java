@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.world.light;
+
+import org.continuum.benchmark.BenchmarkRunner;
+import org.continuum.blocks.BlockRegistry;
+import org.continuum.world.WorldFixture;
+import org.continuum.world.WorldProvider;
+import org.continuum.world.chunk.Chunk;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Places and removes two coloured torches in the cave of the {@link CaveFixture}. One world propagates all
+ * channels of the block light at once with the packed arithmetic of the {@link LightPropagator}, the other one
+ * runs one scalar pass per channel (see {@link ScalarLight}). After each change the packed light of both
+ * worlds has to be equal.
+ * <p/>
+ * The light of the second torch overlaps the light of the first one, so removing the first torch refills
+ * the gap from the second one.
+ */
+public class LightColorBenchmark {
+
+    private static final int WARM_UP_ROUNDS = 20;
+    private static final int ROUNDS = 100;
+
+    private static final byte TORCH = 13;
+    private static final int CHANNELS = 3;
+
+    private CaveFixture _cave;
+    private WorldProvider _packed, _scalar;
+    private final ScalarLight[] _channels = new ScalarLight[CHANNELS];
+
+    /* THE TORCHES */
+    private int[] _torchA, _torchB;
+
+    @Before
+    public void setUp() {
+        _cave = new CaveFixture();
+        _packed = _cave.getWorld();
+        _scalar = _cave.getReferenceWorld();
+
+        for (int i = 0; i < CHANNELS; i++) {
+            _channels[i] = new ScalarLight(_scalar, i);
+        }
+
+        int offset = CaveFixture.RADIUS - 1;
+
+        _torchA = new int[]{_cave.getX() - offset, _cave.getY(), _cave.getZ() - offset};
+        _torchB = new int[]{_cave.getX() + offset, _cave.getY(), _cave.getZ() + offset};
+    }
+
+    @After
+    public void tearDown() {
+        _cave.dispose();
+    }
+
+    @Test
+    public void testPackedPropagation() {
+        BenchmarkRunner runner = new BenchmarkRunner(String.format("block light of two torches in the cave at (%d, %d, %d) (seed \"%s\")", _cave.getX(), _cave.getY(), _cave.getZ(), WorldFixture.SEED), WARM_UP_ROUNDS, ROUNDS);
+
+        _cave.assertLightEquals("initial", true);
+
+        runner.run(round -> {
+            setBlock(_torchA, TORCH, runner, "place torches");
+            _cave.assertLightEquals("first torch placed", true);
+
+            setBlock(_torchB, TORCH, runner, "place torches");
+            _cave.assertLightEquals("second torch placed", true);
+
+            setBlock(_torchA, (byte) 0x0, runner, "remove torches");
+            _cave.assertLightEquals("first torch removed", true);
+
+            setBlock(_torchB, (byte) 0x0, runner, "remove torches");
+            _cave.assertLightEquals("second torch removed", true);
+        });
+
+        runner.report(String.format("scalar per channel: %.3fms placing, %.3fms removing", runner.getAverage("place torches (scalar)") / CHANNELS, runner.getAverage("remove torches (scalar)") / CHANNELS));
+    }
+
+    /**
+     * Changes a block in both worlds and updates its block light.
+     */
+    private void setBlock(int[] pos, byte type, BenchmarkRunner runner, String name) {
+        int x = pos[0], y = pos[1], z = pos[2];
+
+        _packed.setBlock(x, y, z, type, false, true);
+        _scalar.setBlock(x, y, z, type, false, true);
+
+        LightPropagator propagator = _packed.getLightPropagator();
+        long timeStart = System.nanoTime();
+
+        propagator.removeLight(x, y, z, Chunk.LIGHT_TYPE.BLOCK);
+        propagator.addLight(x, y, z, BlockRegistry.getLightColor(type), Chunk.LIGHT_TYPE.BLOCK);
+        propagator.propagate(Chunk.LIGHT_TYPE.BLOCK);
+
+        runner.record(name + " (packed)", timeStart);
+        timeStart = System.nanoTime();
+
+        for (ScalarLight channel : _channels) {
+            channel.removeLight(x, y, z);
+            channel.addLight(x, y, z, type);
+            channel.propagate();
+        }
+
+        runner.record(name + " (scalar)", timeStart);
+    }
+}
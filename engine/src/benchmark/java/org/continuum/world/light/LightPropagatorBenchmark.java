@@ -0,0 +1,138 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.world.light;
+
+import org.continuum.benchmark.BenchmarkRunner;
+import org.continuum.blocks.BlockRegistry;
+import org.continuum.world.WorldFixture;
+import org.continuum.world.WorldProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Changes the blocks of two identical fixed-seed worlds, one lit by the batched light propagation and one by
+ * the recursive light spreading it replaced. After each change the light of both worlds has to be equal.
+ * <p/>
+ * Three cases are measured in the cave of the {@link CaveFixture}: A torch is placed in the cave and removed
+ * again, and a skylight is dug from the surface into the cave. The skylight is filled again at the end of
+ * each round, so all rounds start from the same terrain.
+ */
+public class LightPropagatorBenchmark {
+
+    private static final int WARM_UP_ROUNDS = 5;
+    private static final int ROUNDS = 20;
+
+    private static final byte TORCH = 13;
+
+    private CaveFixture _cave;
+    private WorldProvider _batched;
+    private RecursiveLight _reference;
+
+    /* THE SKYLIGHT */
+    private byte[] _ceiling;
+
+    @Before
+    public void setUp() {
+        _cave = new CaveFixture();
+        _batched = _cave.getWorld();
+        _reference = new RecursiveLight(_cave.getReferenceWorld());
+
+        _ceiling = new byte[CaveFixture.CEILING + 1];
+
+        for (int i = 0; i < _ceiling.length; i++) {
+            _ceiling[i] = _batched.getBlock(_cave.getX(), _cave.getSurfaceY() - i, _cave.getZ());
+
+            assertTrue("Ceiling can not be dug.", BlockRegistry.hasFlags(_ceiling[i], BlockRegistry.REMOVABLE) && !BlockRegistry.hasFlags(_ceiling[i], BlockRegistry.FLUID));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        _cave.dispose();
+    }
+
+    @Test
+    public void testLightPropagation() {
+        BenchmarkRunner runner = new BenchmarkRunner(String.format("light of the cave at (%d, %d, %d), %d blocks below the surface (seed \"%s\")", _cave.getX(), _cave.getY(), _cave.getZ(), _cave.getSurfaceY() - _cave.getY(), WorldFixture.SEED), WARM_UP_ROUNDS, ROUNDS);
+
+        _cave.assertLightEquals("initial", false);
+
+        runner.run(round -> {
+            setBlocks(new int[]{_cave.getY()}, new byte[]{TORCH}, runner, "place torch");
+            _cave.assertLightEquals("torch placed", false);
+
+            setBlocks(new int[]{_cave.getY()}, new byte[]{0}, runner, "remove torch");
+            _cave.assertLightEquals("torch removed", false);
+
+            int[] heights = new int[_ceiling.length];
+            byte[] air = new byte[_ceiling.length];
+
+            // The skylight is dug from the top
+            for (int i = 0; i < heights.length; i++) {
+                heights[i] = _cave.getSurfaceY() - i;
+            }
+
+            setBlocks(heights, air, runner, "dig skylight");
+            _cave.assertLightEquals("skylight dug", false);
+
+            // ... and filled from the bottom
+            int[] fillHeights = new int[heights.length];
+            byte[] fill = new byte[heights.length];
+
+            for (int i = 0; i < heights.length; i++) {
+                fillHeights[i] = heights[heights.length - 1 - i];
+                fill[i] = _ceiling[heights.length - 1 - i];
+            }
+
+            setBlocks(fillHeights, fill, runner, "fill skylight");
+            _cave.assertLightEquals("skylight filled", false);
+        });
+
+        runner.report();
+    }
+
+    /**
+     * Changes the blocks of the cave column in both worlds. The batched world updates the light of all
+     * blocks at once, the recursive world after each block.
+     */
+    private void setBlocks(int[] heights, byte[] types, BenchmarkRunner runner, String name) {
+        LightPropagator propagator = _batched.getLightPropagator();
+        long timeStart = System.nanoTime();
+
+        LightScheduler.runAsWorker(() -> {
+            propagator.beginBatch();
+
+            for (int i = 0; i < heights.length; i++) {
+                _batched.setBlock(_cave.getX(), heights[i], _cave.getZ(), types[i], false, true);
+                propagator.queueBlockChange(_cave.getX(), heights[i], _cave.getZ());
+            }
+
+            propagator.endBatch();
+        });
+
+        runner.record(name + " (batched)", timeStart);
+        timeStart = System.nanoTime();
+
+        for (int i = 0; i < heights.length; i++) {
+            _reference.setBlock(_cave.getX(), heights[i], _cave.getZ(), types[i]);
+        }
+
+        runner.record(name + " (recursive)", timeStart);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.world.light;
+
+import javolution.util.FastList;
+import org.continuum.blocks.Block;
+import org.continuum.blocks.BlockRegistry;
+import org.continuum.main.Configuration;
+import org.continuum.world.WorldProvider;
+import org.continuum.world.chunk.Chunk;
+
+/**
+ * The recursive light spreading the light propagation replaced, kept as a reference for the benchmarks.
+ * Blocks are changed one at a time and the light is spread and removed depth-first through the world.
+ * <p/>
+ * Only the intensity of the light is propagated, block light is written white.
+ */
+final class RecursiveLight {
+
+    private static final int[] DIR_X = {1, -1, 0, 0, 0, 0};
+    private static final int[] DIR_Y = {0, 0, 1, -1, 0, 0};
+    private static final int[] DIR_Z = {0, 0, 0, 0, 1, -1};
+
+    private static final int CHUNK_SIZE_Y = (int) Configuration.CHUNK_DIMENSIONS.y;
+
+    private final WorldProvider _parent;
+
+    /**
+     * @param parent The world the light is spread in
+     */
+    RecursiveLight(WorldProvider parent) {
+        _parent = parent;
+    }
+
+    /**
+     * Places a block and updates the sunlight of its column and the block light around it.
+     *
+     * @param x    World position on the x-axis
+     * @param y    World position on the y-axis
+     * @param z    World position on the z-axis
+     * @param type The type of the block
+     */
+    void setBlock(int x, int y, int z, byte type) {
+        byte oldBlock = _parent.getBlock(x, y, z);
+        _parent.setBlock(x, y, z, type, false, true);
+
+        refreshSunlight(x, z);
+
+        byte prev = _parent.getLight(x, y, z, Chunk.LIGHT_TYPE.BLOCK);
+        byte current;
+
+        if (oldBlock == 0x0 && type != 0x0) {
+            // New block placed
+            current = BlockRegistry.getLuminance(type);
+            _parent.setLight(x, y, z, current, Chunk.LIGHT_TYPE.BLOCK);
+        } else {
+            // Block removed
+            _parent.setLight(x, y, z, (byte) 0, Chunk.LIGHT_TYPE.BLOCK);
+            refreshLight(x, y, z, Chunk.LIGHT_TYPE.BLOCK);
+            current = _parent.getLight(x, y, z, Chunk.LIGHT_TYPE.BLOCK);
+        }
+
+        if (current > prev) {
+            spreadLight(x, y, z, current, 0, Chunk.LIGHT_TYPE.BLOCK);
+        } else if (current < prev) {
+            unspreadLight(x, y, z, prev, Chunk.LIGHT_TYPE.BLOCK);
+        }
+    }
+
+    /**
+     * Recalculates the sunlight of a column from top to bottom. Covered blocks are refreshed from their neighbors.
+     */
+    private void refreshSunlight(int x, int z) {
+        int chunkX = _parent.calcChunkPosX(x), chunkZ = _parent.calcChunkPosZ(z);
+        int localX = _parent.calcBlockPosX(x, chunkX), localZ = _parent.calcBlockPosZ(z, chunkZ);
+
+        Chunk c = _parent.getChunkCache().loadOrCreateChunk(chunkX, chunkZ);
+        boolean covered = false;
+
+        for (int y = CHUNK_SIZE_Y - 1; y >= 0; y--) {
+            byte type = c.getBlock(localX, y, localZ);
+            boolean sunlit = BlockRegistry.isInvisible(type) || BlockRegistry.getForm(type) == Block.BLOCK_FORM.BILLBOARD;
+
+            // Remember if this "column" is covered
+            if (!sunlit && !covered) {
+                covered = true;
+            }
+
+            byte oldValue = c.getLight(localX, y, localZ, Chunk.LIGHT_TYPE.SUN);
+
+            if (!covered) {
+                c.setLightRaw(localX, y, localZ, sunlit ? Configuration.MAX_LIGHT : 0, Chunk.LIGHT_TYPE.SUN);
+            } else {
+                c.setLightRaw(localX, y, localZ, 0, Chunk.LIGHT_TYPE.SUN);
+                refreshLight(x, y, z, Chunk.LIGHT_TYPE.SUN);
+            }
+
+            byte newValue = c.getLight(localX, y, localZ, Chunk.LIGHT_TYPE.SUN);
+
+            if (oldValue > newValue) {
+                unspreadLight(x, y, z, oldValue, Chunk.LIGHT_TYPE.SUN);
+            } else if (oldValue < newValue) {
+                spreadLight(x, y, z, newValue, 0, Chunk.LIGHT_TYPE.SUN);
+            }
+        }
+    }
+
+    /**
+     * Sets the light of a translucent block to the light of its brightest neighbor minus one, unless it is
+     * brighter already. Opaque blocks are darkened.
+     */
+    private void refreshLight(int x, int y, int z, Chunk.LIGHT_TYPE type) {
+        if (!BlockRegistry.isTranslucent(_parent.getBlock(x, y, z))) {
+            _parent.setLight(x, y, z, (byte) 0, type);
+            return;
+        }
+
+        byte max = 0;
+
+        for (int i = 0; i < 6; i++) {
+            int nY = y + DIR_Y[i];
+
+            if (nY < 0 || nY >= CHUNK_SIZE_Y)
+                continue;
+
+            max = (byte) Math.max(max, _parent.getLight(x + DIR_X[i], nY, z + DIR_Z[i], type) - 1);
+        }
+
+        _parent.setLight(x, y, z, (byte) Math.max(max, _parent.getLight(x, y, z, type)), type);
+    }
+
+    private void spreadLight(int x, int y, int z, byte lightValue, int depth, Chunk.LIGHT_TYPE type) {
+        if (depth > lightValue || lightValue - depth < 1)
+            return;
+
+        byte newLightValue = (byte) (lightValue - depth);
+        _parent.setLight(x, y, z, newLightValue, type);
+
+        for (int i = 0; i < 6; i++) {
+            int nX = x + DIR_X[i], nY = y + DIR_Y[i], nZ = z + DIR_Z[i];
+
+            if (nY < 0 || nY >= CHUNK_SIZE_Y)
+                continue;
+
+            if (_parent.getLight(nX, nY, nZ, type) < newLightValue - 1 && BlockRegistry.isTranslucent(_parent.getBlock(nX, nY, nZ))) {
+                spreadLight(nX, nY, nZ, lightValue, depth + 1, type);
+            }
+        }
+    }
+
+    private void unspreadLight(int x, int y, int z, byte lightValue, Chunk.LIGHT_TYPE type) {
+        FastList<int[]> brightSpots = new FastList<int[]>();
+        unspreadLight(x, y, z, lightValue, type, brightSpots);
+
+        for (int[] pos : brightSpots) {
+            spreadLight(pos[0], pos[1], pos[2], _parent.getLight(pos[0], pos[1], pos[2], type), 0, type);
+        }
+    }
+
+    private void unspreadLight(int x, int y, int z, byte lightValue, Chunk.LIGHT_TYPE type, FastList<int[]> brightSpots) {
+        // Remove the light at this point
+        _parent.setLight(x, y, z, (byte) 0, type);
+
+        for (int i = 0; i < 6; i++) {
+            int nX = x + DIR_X[i], nY = y + DIR_Y[i], nZ = z + DIR_Z[i];
+
+            if (nY < 0 || nY >= CHUNK_SIZE_Y)
+                continue;
+
+            byte neighborValue = _parent.getLight(nX, nY, nZ, type);
+
+            if (neighborValue < lightValue && neighborValue > 0 && BlockRegistry.isTranslucent(_parent.getBlock(nX, nY, nZ))) {
+                unspreadLight(nX, nY, nZ, (byte) (lightValue - 1), type, brightSpots);
+            } else if (neighborValue >= lightValue) {
+                brightSpots.add(new int[]{nX, nY, nZ});
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.world.light;
+
+import org.continuum.blocks.BlockRegistry;
+import org.continuum.datastructures.LongQueue;
+import org.continuum.main.Configuration;
+import org.continuum.world.WorldProvider;
+import org.continuum.world.chunk.Chunk;
+
+/**
+ * Breadth-first propagation of a single channel of the block light, kept as a scalar reference for the
+ * benchmarks. It follows the {@link LightPropagator} step by step, but compares and decrements plain
+ * intensities. Propagating coloured light this way takes one pass per channel.
+ * <p/>
+ * The touched chunks are not invalidated.
+ */
+final class ScalarLight {
+
+    private static final int[] DIR_X = {1, -1, 0, 0, 0, 0};
+    private static final int[] DIR_Y = {0, 0, 1, -1, 0, 0};
+    private static final int[] DIR_Z = {0, 0, 0, 0, 1, -1};
+
+    private static final int CHUNK_SIZE_X = (int) Configuration.CHUNK_DIMENSIONS.x;
+    private static final int CHUNK_SIZE_Y = (int) Configuration.CHUNK_DIMENSIONS.y;
+    private static final int CHUNK_SIZE_Z = (int) Configuration.CHUNK_DIMENSIONS.z;
+
+    private final WorldProvider _parent;
+    private final int _shift;
+
+    private final LongQueue _increaseQueue = new LongQueue();
+    private final LongQueue _decreaseQueue = new LongQueue();
+
+    /* CHUNK LOOKUP */
+    private Chunk _chunk;
+    private int _chunkX, _chunkZ;
+
+    /**
+     * @param parent  The world the light is propagated in
+     * @param channel The channel of the block light (0 = red, 1 = green, 2 = blue)
+     */
+    ScalarLight(WorldProvider parent, int channel) {
+        _parent = parent;
+        _shift = channel * 4;
+    }
+
+    /**
+     * Adds the light of the channel emitted by the given block type.
+     */
+    void addLight(int x, int y, int z, byte type) {
+        int value = (BlockRegistry.getLightColor(type) >> _shift) & 0xF;
+
+        if (value <= getLight(x, y, z))
+            return;
+
+        setLight(x, y, z, value);
+        _increaseQueue.add(pack(x, y, z, 0));
+    }
+
+    void removeLight(int x, int y, int z) {
+        int oldValue = getLight(x, y, z);
+
+        if (oldValue == 0)
+            return;
+
+        setLight(x, y, z, 0);
+        _decreaseQueue.add(pack(x, y, z, oldValue));
+    }
+
+    void propagate() {
+        while (!_decreaseQueue.isEmpty()) {
+            long node = _decreaseQueue.poll();
+
+            int x = LightPropagator.unpackX(node), y = LightPropagator.unpackY(node), z = LightPropagator.unpackZ(node);
+            int value = unpackValue(node);
+
+            for (int i = 0; i < 6; i++) {
+                int nX = x + DIR_X[i], nY = y + DIR_Y[i], nZ = z + DIR_Z[i];
+
+                if (nY < 0 || nY >= CHUNK_SIZE_Y)
+                    continue;
+
+                int neighborValue = getLight(nX, nY, nZ);
+
+                if (neighborValue == 0)
+                    continue;
+
+                if (neighborValue < value) {
+                    // The neighbor might have been lit by the removed light
+                    setLight(nX, nY, nZ, 0);
+                    _decreaseQueue.add(pack(nX, nY, nZ, neighborValue));
+
+                    // Light sources stay lit
+                    int emitted = (BlockRegistry.getLightColor(getBlock(nX, nY, nZ)) >> _shift) & 0xF;
+
+                    if (emitted != 0) {
+                        setLight(nX, nY, nZ, emitted);
+                        _increaseQueue.add(pack(nX, nY, nZ, 0));
+                    }
+                } else {
+                    // The neighbor is lit by another source, fill the gap from there
+                    _increaseQueue.add(pack(nX, nY, nZ, 0));
+                }
+            }
+        }
+
+        while (!_increaseQueue.isEmpty()) {
+            long node = _increaseQueue.poll();
+
+            int x = LightPropagator.unpackX(node), y = LightPropagator.unpackY(node), z = LightPropagator.unpackZ(node);
+            int newValue = getLight(x, y, z) - 1;
+
+            if (newValue <= 0)
+                continue;
+
+            for (int i = 0; i < 6; i++) {
+                int nX = x + DIR_X[i], nY = y + DIR_Y[i], nZ = z + DIR_Z[i];
+
+                if (nY < 0 || nY >= CHUNK_SIZE_Y)
+                    continue;
+
+                if (getLight(nX, nY, nZ) < newValue && BlockRegistry.isTranslucent(getBlock(nX, nY, nZ))) {
+                    setLight(nX, nY, nZ, newValue);
+                    _increaseQueue.add(pack(nX, nY, nZ, 0));
+                }
+            }
+        }
+
+        _chunk = null;
+    }
+
+    private Chunk getChunk(int x, int z) {
+        int chunkX = _parent.calcChunkPosX(x);
+        int chunkZ = _parent.calcChunkPosZ(z);
+
+        if (_chunk == null || chunkX != _chunkX || chunkZ != _chunkZ) {
+            _chunk = _parent.getChunkCache().loadOrCreateChunk(chunkX, chunkZ);
+            _chunkX = chunkX;
+            _chunkZ = chunkZ;
+        }
+
+        return _chunk;
+    }
+
+    private byte getBlock(int x, int y, int z) {
+        Chunk c = getChunk(x, z);
+        return c.getBlock(x - _chunkX * CHUNK_SIZE_X, y, z - _chunkZ * CHUNK_SIZE_Z);
+    }
+
+    private int getLight(int x, int y, int z) {
+        Chunk c = getChunk(x, z);
+        return (c.getLightValue(x - _chunkX * CHUNK_SIZE_X, y, z - _chunkZ * CHUNK_SIZE_Z, Chunk.LIGHT_TYPE.BLOCK) >> _shift) & 0xF;
+    }
+
+    /**
+     * Replaces the channel within the packed block light.
+     */
+    private void setLight(int x, int y, int z, int value) {
+        Chunk c = getChunk(x, z);
+
+        int localX = x - _chunkX * CHUNK_SIZE_X;
+        int localZ = z - _chunkZ * CHUNK_SIZE_Z;
+
+        int color = c.getLightValue(localX, y, localZ, Chunk.LIGHT_TYPE.BLOCK);
+        c.setLightRaw(localX, y, localZ, (color & ~(0xF << _shift)) | (value << _shift), Chunk.LIGHT_TYPE.BLOCK);
+    }
+
+    /**
+     * Packs a node the same way as the {@link LightPropagator}.
+     */
+    private static long pack(int x, int y, int z, int value) {
+        return ((long) x << 42) | ((z & 0x3FFFFFL) << 20) | ((y & 0xFF) << 12) | (value & 0xFFF);
+    }
+
+    private static int unpackValue(long node) {
+        return (int) (node & 0xFFF);
+    }
+}
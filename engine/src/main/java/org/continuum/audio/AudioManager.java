@@ -19,6 +19,7 @@
 import javolution.util.FastMap;
 import org.newdawn.slick.openal.Audio;
 import org.newdawn.slick.openal.AudioLoader;
+import org.newdawn.slick.openal.NullAudio;
 import org.newdawn.slick.util.ResourceLoader;
 
 import java.io.IOException;
@@ -28,6 +29,7 @@ public class AudioManager {
 
     private FastMap<String, Audio> _audioFiles = new FastMap();
     private static AudioManager _instance = null;
+    private static boolean _enabled = true;
 
     /**
      * Returns (and creates – if necessary) the static instance
@@ -43,6 +45,16 @@ public static AudioManager getInstance() {
         return _instance;
     }
 
+    /**
+     * Enables or disables the audio output. Without audio (e.g. on headless machines without OpenAL) all sounds
+     * are silent. Has to be called before any audio is loaded.
+     *
+     * @param enabled True to enable the audio output
+     */
+    public static void setEnabled(boolean enabled) {
+        _enabled = enabled;
+    }
+
     private AudioManager() {
         loadAudioFiles();
     }
@@ -52,6 +64,10 @@ private void loadAudioFiles() {
     }
 
     public Audio loadAudio(String s) {
+        if (!_enabled) {
+            return new NullAudio();
+        }
+
         try {
             return AudioLoader.getAudio("OGG", ResourceLoader.getResourceAsStream("org/continuum/data/sounds/" + s + ".ogg"));
         } catch (IOException e) {
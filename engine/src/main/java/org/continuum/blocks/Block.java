@@ -16,21 +16,14 @@
 package org.continuum.blocks;
 
 import org.continuum.datastructures.AABB;
-import org.continuum.main.Continuum;
 import org.continuum.rendering.RenderableObject;
 import org.continuum.rendering.TextureManager;
 import org.continuum.utilities.Helper;
+import org.continuum.world.light.LightColor;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.util.vector.Vector2f;
 import org.lwjgl.util.vector.Vector3f;
 import org.lwjgl.util.vector.Vector4f;
-import org.newdawn.slick.util.ResourceLoader;
-
-import javax.imageio.ImageIO;
-import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.util.logging.Level;
 
 import static org.lwjgl.opengl.GL11.*;
 
@@ -73,6 +66,13 @@ public enum BLOCK_FORM {
         NORMAL, CACTUS, LOWERED_BOCK, BILLBOARD
     }
 
+    /**
+     * The colour lookup table used to tint a block depending on the climate.
+     */
+    public enum TINT {
+        NONE, GRASS, FOLIAGE
+    }
+
     private int displayList = -1;
 
     private static final Block[] _blocks = {
@@ -128,9 +128,34 @@ public boolean isBlockTypeTranslucent() {
      * @return The color offset
      */
     public Vector4f getColorOffsetFor(SIDE side, double temperature, double humidity) {
+        switch (getTint()) {
+            case GRASS:
+                return BlockTintTable.toVector(BlockTintTable.scale(BlockTintTable.getGrassColor(temperature, humidity), getTintFactor()));
+            case FOLIAGE:
+                return BlockTintTable.toVector(BlockTintTable.scale(BlockTintTable.getFoliageColor(temperature, humidity), getTintFactor()));
+        }
+
         return _colorOffset;
     }
 
+    /**
+     * Returns the colour lookup table used to tint this block.
+     *
+     * @return The tint
+     */
+    public TINT getTint() {
+        return TINT.NONE;
+    }
+
+    /**
+     * Returns the factor the tint colour is scaled with.
+     *
+     * @return The factor
+     */
+    public float getTintFactor() {
+        return 1.0f;
+    }
+
     /**
      * Calculates the texture offset for a given block type and a specific
      * side of the block.
@@ -187,6 +212,16 @@ public byte getLuminance() {
         return 0;
     }
 
+    /**
+     * Returns the colour of the light emitted by this block, packed as described in {@link LightColor}.
+     * The brightest channel should match the luminance of the block.
+     *
+     * @return The packed light colour
+     */
+    public int getLightColor() {
+        return LightColor.fromIntensity(getLuminance());
+    }
+
     public boolean isRemovable() {
         return true;
     }
@@ -313,30 +348,11 @@ public void update() {
         // Do nothing
     }
 
-    BufferedImage colorLut, foliageLut;
-
-    public Block() {
-        try {
-            colorLut = ImageIO.read(ResourceLoader.getResource("org/continuum/data/textures/grassColor.png").openStream());
-            foliageLut = ImageIO.read(ResourceLoader.getResource("org/continuum/data/textures/foliageColor.png").openStream());
-        } catch (IOException e) {
-            Continuum.getInstance().getLogger().log(Level.SEVERE, e.toString(), e);
-        }
-    }
-
     public Vector4f colorForTemperatureAndHumidity(double temp, double hum) {
-        hum *= temp;
-        int rgbValue = colorLut.getRGB((int) ((1.0 - temp) * 255.0), (int) ((1.0 - hum) * 255.0));
-
-        Color c = new Color(rgbValue);
-        return new Vector4f((float) c.getRed() / 255f, (float) c.getGreen() / 255f, (float) c.getBlue() / 255f, 1.0f);
+        return BlockTintTable.toVector(BlockTintTable.getGrassColor(temp, hum));
     }
 
     public Vector4f foliageColorForTemperatureAndHumidity(double temp, double hum) {
-        hum *= temp;
-        int rgbValue = foliageLut.getRGB((int) ((1.0 - temp) * 255.0), (int) ((1.0 - hum) * 255.0));
-
-        Color c = new Color(rgbValue);
-        return new Vector4f((float) c.getRed() / 255f, (float) c.getGreen() / 255f, (float) c.getBlue() / 255f, 1.0f);
+        return BlockTintTable.toVector(BlockTintTable.getFoliageColor(temp, hum));
     }
 }
@@ -17,7 +17,6 @@
 
 import org.continuum.utilities.Helper;
 import org.lwjgl.util.vector.Vector2f;
-import org.lwjgl.util.vector.Vector4f;
 
 /**
  * A leaf block.
@@ -34,9 +33,14 @@ public boolean isBlockTypeTranslucent() {
         return true;
     }
 
-    public Vector4f getColorOffsetFor(Block.SIDE side, double temp, double hum) {
-        Vector4f leadColor = this.foliageColorForTemperatureAndHumidity(temp, hum);
-        return new Vector4f(leadColor.x * 0.8f, leadColor.y * 0.8f, leadColor.z * 0.8f, 1.0f);
+    @Override
+    public TINT getTint() {
+        return TINT.FOLIAGE;
+    }
+
+    @Override
+    public float getTintFactor() {
+        return 0.8f;
     }
 
     @Override
@@ -17,7 +17,6 @@
 
 import org.continuum.utilities.Helper;
 import org.lwjgl.util.vector.Vector2f;
-import org.lwjgl.util.vector.Vector4f;
 
 /**
  * A large high grass billboard block.
@@ -29,9 +28,8 @@ public boolean isBlockTypeTranslucent() {
     }
 
     @Override
-    public Vector4f getColorOffsetFor(SIDE side, double temperature, double humidity) {
-        Vector4f foliageColor = foliageColorForTemperatureAndHumidity(temperature, humidity);
-        return new Vector4f(foliageColor.x, foliageColor.y, foliageColor.z, 1.0f);
+    public TINT getTint() {
+        return TINT.FOLIAGE;
     }
 
     @Override
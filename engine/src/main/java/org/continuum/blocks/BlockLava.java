@@ -16,8 +16,8 @@
 package org.continuum.blocks;
 
 import org.continuum.utilities.Helper;
+import org.continuum.world.light.LightColor;
 import org.lwjgl.util.vector.Vector2f;
-import org.lwjgl.util.vector.Vector4f;
 
 /**
  * A lava block (light source).
@@ -30,8 +30,8 @@ public boolean isBlockTypeTranslucent() {
     }
 
     @Override
-    public Vector4f getColorOffsetFor(SIDE side, double temp, double hum) {
-        return this.colorForTemperatureAndHumidity(temp, hum);
+    public TINT getTint() {
+        return TINT.GRASS;
     }
 
     @Override
@@ -61,4 +61,9 @@ public boolean isCastingShadows() {
     public byte getLuminance() {
         return 8;
     }
+
+    @Override
+    public int getLightColor() {
+        return LightColor.pack(8, 4, 1);
+    }
 }
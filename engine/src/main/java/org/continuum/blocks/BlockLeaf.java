@@ -17,15 +17,15 @@
 
 import org.continuum.utilities.Helper;
 import org.lwjgl.util.vector.Vector2f;
-import org.lwjgl.util.vector.Vector4f;
 
 /**
  * A leaf block.
  */
 public class BlockLeaf extends Block {
 
-    public Vector4f getColorOffsetFor(Block.SIDE side, double temp, double hum) {
-        return foliageColorForTemperatureAndHumidity(temp, hum);
+    @Override
+    public TINT getTint() {
+        return TINT.FOLIAGE;
     }
 
     @Override
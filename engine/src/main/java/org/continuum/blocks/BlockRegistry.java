@@ -0,0 +1,231 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.blocks;
+
+import org.continuum.world.chunk.ChunkMesh;
+import org.lwjgl.util.vector.Vector2f;
+
+/**
+ * The properties of all block types compiled into flat primitive tables indexed by the block type. Lookups
+ * neither dispatch to the block objects nor allocate, so hot loops like the mesh generation, the light
+ * propagation and the collision detection should prefer them over the methods of {@link Block}.
+ * <p/>
+ * Unknown block types share the properties of the nil block.
+ */
+public final class BlockRegistry {
+
+    /* FLAGS */
+    public static final int TRANSLUCENT = 1;
+    public static final int INVISIBLE = 1 << 1;
+    public static final int PENETRABLE = 1 << 2;
+    public static final int CASTING_SHADOWS = 1 << 3;
+    public static final int DO_NOT_TESSELLATE = 1 << 4;
+    public static final int REMOVABLE = 1 << 5;
+    public static final int SELECTION_RAY_THROUGH = 1 << 6;
+    public static final int RENDER_BOUNDING_BOX = 1 << 7;
+    public static final int PLAYER_CAN_ATTACH_BLOCKS = 1 << 8;
+    public static final int AIR = 1 << 9;
+    public static final int WATER = 1 << 10;
+    public static final int LAVA = 1 << 11;
+    /**
+     * Casts shadows and occludes the adjacent vertices (all forms but billboards).
+     */
+    public static final int OCCLUDER = 1 << 12;
+    /**
+     * Water or lava, generated by the fluid mesher.
+     */
+    public static final int FLUID = 1 << 13;
+
+    private static final int TYPE_COUNT = 256;
+    private static final byte GRASS_TINT = (byte) Block.TINT.GRASS.ordinal();
+    private static final byte FOLIAGE_TINT = (byte) Block.TINT.FOLIAGE.ordinal();
+    private static final int SIDE_COUNT = 6;
+
+    private static final Block.BLOCK_FORM[] FORMS = Block.BLOCK_FORM.values();
+    private static final ChunkMesh.RENDER_TYPE[] RENDER_TYPES = ChunkMesh.RENDER_TYPE.values();
+
+    private static final int[] _flags = new int[TYPE_COUNT];
+    private static final byte[] _forms = new byte[TYPE_COUNT];
+    private static final byte[] _renderTypes = new byte[TYPE_COUNT];
+    private static final byte[] _luminance = new byte[TYPE_COUNT];
+    private static final int[] _lightColors = new int[TYPE_COUNT];
+    private static final byte[] _tiles = new byte[TYPE_COUNT * SIDE_COUNT];
+    private static final byte[] _tints = new byte[TYPE_COUNT];
+    private static final float[] _tintFactors = new float[TYPE_COUNT];
+
+    static {
+        Block.SIDE[] sides = Block.SIDE.values();
+
+        for (int i = 0; i < TYPE_COUNT; i++) {
+            Block block = Block.getBlockForType((byte) i);
+
+            _flags[i] = calcFlags(block);
+            _forms[i] = (byte) block.getBlockForm().ordinal();
+            _renderTypes[i] = (byte) calcRenderType(block).ordinal();
+            _luminance[i] = block.getLuminance();
+            _lightColors[i] = block.getLightColor();
+            _tints[i] = (byte) block.getTint().ordinal();
+            _tintFactors[i] = block.getTintFactor();
+
+            for (Block.SIDE side : sides) {
+                Vector2f texOffset = block.getTextureOffsetFor(side);
+                _tiles[i * SIDE_COUNT + side.ordinal()] = (byte) (Math.round(texOffset.x * 16f) + Math.round(texOffset.y * 16f) * 16);
+            }
+        }
+    }
+
+    private BlockRegistry() {
+    }
+
+    private static int calcFlags(Block block) {
+        int flags = 0;
+
+        if (block.isBlockTypeTranslucent())
+            flags |= TRANSLUCENT;
+        if (block.isBlockInvisible())
+            flags |= INVISIBLE;
+        if (block.isPenetrable())
+            flags |= PENETRABLE;
+        if (block.isCastingShadows())
+            flags |= CASTING_SHADOWS;
+        if (block.doNotTessellate())
+            flags |= DO_NOT_TESSELLATE;
+        if (block.isRemovable())
+            flags |= REMOVABLE;
+        if (block.letSelectionRayThrough())
+            flags |= SELECTION_RAY_THROUGH;
+        if (block.shouldRenderBoundingBox())
+            flags |= RENDER_BOUNDING_BOX;
+        if (block.playerCanAttachBlocks())
+            flags |= PLAYER_CAN_ATTACH_BLOCKS;
+        if (block instanceof BlockAir)
+            flags |= AIR;
+        if (block instanceof BlockWater)
+            flags |= WATER;
+        if (block instanceof BlockLava)
+            flags |= LAVA;
+        if (block instanceof BlockWater || block instanceof BlockLava)
+            flags |= FLUID;
+        if (block.isCastingShadows() && block.getBlockForm() != Block.BLOCK_FORM.BILLBOARD)
+            flags |= OCCLUDER;
+
+        return flags;
+    }
+
+    /**
+     * Determines the render process of a block.
+     */
+    private static ChunkMesh.RENDER_TYPE calcRenderType(Block block) {
+        ChunkMesh.RENDER_TYPE renderType = ChunkMesh.RENDER_TYPE.BILLBOARD_AND_TRANSLUCENT;
+
+        if (!block.isBlockTypeTranslucent())
+            renderType = ChunkMesh.RENDER_TYPE.OPAQUE;
+        if (block instanceof BlockWater)
+            renderType = ChunkMesh.RENDER_TYPE.WATER;
+        if (block instanceof BlockLava)
+            renderType = ChunkMesh.RENDER_TYPE.LAVA;
+
+        return renderType;
+    }
+
+    /**
+     * Returns the flags of the given block type.
+     *
+     * @param type Block type ID
+     * @return The flags
+     */
+    public static int getFlags(byte type) {
+        return _flags[type & 0xFF];
+    }
+
+    /**
+     * Returns true if the given block type has all of the given flags.
+     *
+     * @param type  Block type ID
+     * @param flags The flags to test
+     * @return True if all flags are set
+     */
+    public static boolean hasFlags(byte type, int flags) {
+        return (_flags[type & 0xFF] & flags) == flags;
+    }
+
+    public static boolean isTranslucent(byte type) {
+        return hasFlags(type, TRANSLUCENT);
+    }
+
+    public static boolean isInvisible(byte type) {
+        return hasFlags(type, INVISIBLE);
+    }
+
+    public static boolean isPenetrable(byte type) {
+        return hasFlags(type, PENETRABLE);
+    }
+
+    public static Block.BLOCK_FORM getForm(byte type) {
+        return FORMS[_forms[type & 0xFF]];
+    }
+
+    public static ChunkMesh.RENDER_TYPE getRenderType(byte type) {
+        return RENDER_TYPES[_renderTypes[type & 0xFF]];
+    }
+
+    public static byte getLuminance(byte type) {
+        return _luminance[type & 0xFF];
+    }
+
+    /**
+     * Returns the packed light color of the given block type (see {@link org.continuum.world.light.LightColor}).
+     *
+     * @param type Block type ID
+     * @return The packed light color
+     */
+    public static int getLightColor(byte type) {
+        return _lightColors[type & 0xFF];
+    }
+
+    /**
+     * Returns the index of the texture of the given side within the atlas (16 x 16 textures).
+     *
+     * @param type Block type ID
+     * @param side The side
+     * @return The index of the texture
+     */
+    public static int getTextureTile(byte type, Block.SIDE side) {
+        return _tiles[(type & 0xFF) * SIDE_COUNT + side.ordinal()] & 0xFF;
+    }
+
+    /**
+     * Returns the packed tint colour of the given block type (see {@link BlockTintTable}).
+     *
+     * @param type         Block type ID
+     * @param grassColor   The grass colour of the column
+     * @param foliageColor The foliage colour of the column
+     * @return The packed colour
+     */
+    public static int getTintColor(byte type, int grassColor, int foliageColor) {
+        int i = type & 0xFF;
+        int color;
+
+        if (_tints[i] == GRASS_TINT)
+            color = grassColor;
+        else if (_tints[i] == FOLIAGE_TINT)
+            color = foliageColor;
+        else
+            return BlockTintTable.WHITE;
+
+        return _tintFactors[i] == 1.0f ? color : BlockTintTable.scale(color, _tintFactors[i]);
+    }
+}
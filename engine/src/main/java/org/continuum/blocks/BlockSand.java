@@ -17,7 +17,6 @@
 
 import org.continuum.utilities.Helper;
 import org.lwjgl.util.vector.Vector2f;
-import org.lwjgl.util.vector.Vector4f;
 
 /**
  * A sand block.
@@ -30,8 +29,8 @@ public boolean isBlockTypeTranslucent() {
     }
 
     @Override
-    public Vector4f getColorOffsetFor(SIDE side, double temp, double hum) {
-        return this.colorForTemperatureAndHumidity(temp, hum);
+    public TINT getTint() {
+        return TINT.GRASS;
     }
 
     @Override
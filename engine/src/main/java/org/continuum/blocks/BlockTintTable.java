@@ -0,0 +1,129 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.blocks;
+
+import org.continuum.main.Continuum;
+import org.lwjgl.util.vector.Vector4f;
+import org.newdawn.slick.util.ResourceLoader;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.logging.Level;
+
+/**
+ * The grass and foliage colour lookup tables, decoded once and shared by all blocks.
+ * <p/>
+ * Colours are packed as RGBA with 8 bits per channel (red in the highest byte), the layout used by the
+ * tint palettes of the chunk meshes.
+ */
+public final class BlockTintTable {
+
+    /**
+     * Packed white, the colour of blocks which are not tinted.
+     */
+    public static final int WHITE = 0xFFFFFFFF;
+
+    private static final Table GRASS = new Table("org/continuum/data/textures/grasscolor.png");
+    private static final Table FOLIAGE = new Table("org/continuum/data/textures/foliagecolor.png");
+
+    private BlockTintTable() {
+    }
+
+    /**
+     * @param temp The temperature (0..1)
+     * @param hum  The humidity (0..1)
+     * @return The packed grass colour
+     */
+    public static int getGrassColor(double temp, double hum) {
+        return GRASS.lookup(temp, hum);
+    }
+
+    /**
+     * @param temp The temperature (0..1)
+     * @param hum  The humidity (0..1)
+     * @return The packed foliage colour
+     */
+    public static int getFoliageColor(double temp, double hum) {
+        return FOLIAGE.lookup(temp, hum);
+    }
+
+    /**
+     * Scales the colour channels of a packed colour, leaving alpha untouched.
+     *
+     * @param rgba   The packed colour
+     * @param factor The factor (0..1)
+     * @return The scaled colour
+     */
+    public static int scale(int rgba, float factor) {
+        int r = Math.round(((rgba >>> 24) & 0xFF) * factor);
+        int g = Math.round(((rgba >>> 16) & 0xFF) * factor);
+        int b = Math.round(((rgba >>> 8) & 0xFF) * factor);
+
+        return (r << 24) | (g << 16) | (b << 8) | (rgba & 0xFF);
+    }
+
+    /**
+     * @param rgba The packed colour
+     * @return The colour as a new vector
+     */
+    public static Vector4f toVector(int rgba) {
+        return new Vector4f(((rgba >>> 24) & 0xFF) / 255f, ((rgba >>> 16) & 0xFF) / 255f, ((rgba >>> 8) & 0xFF) / 255f, (rgba & 0xFF) / 255f);
+    }
+
+    /**
+     * A colour map indexed by temperature and humidity.
+     */
+    private static final class Table {
+
+        private final int _width, _height;
+        private final int[] _colors;
+
+        Table(String resource) {
+            BufferedImage image = null;
+
+            try {
+                image = ImageIO.read(ResourceLoader.getResource(resource).openStream());
+            } catch (IOException e) {
+                Continuum.getInstance().getLogger().log(Level.SEVERE, e.toString(), e);
+            }
+
+            if (image == null) {
+                _width = _height = 1;
+                _colors = new int[]{WHITE};
+                return;
+            }
+
+            _width = image.getWidth();
+            _height = image.getHeight();
+            _colors = image.getRGB(0, 0, _width, _height, null, 0, _width);
+
+            // ARGB to RGBA with opaque alpha
+            for (int i = 0; i < _colors.length; i++) {
+                _colors[i] = (_colors[i] << 8) | 0xFF;
+            }
+        }
+
+        int lookup(double temp, double hum) {
+            hum *= temp;
+
+            int x = Math.max(0, Math.min(_width - 1, (int) ((1.0 - temp) * 255.0)));
+            int y = Math.max(0, Math.min(_height - 1, (int) ((1.0 - hum) * 255.0)));
+
+            return _colors[y * _width + x];
+        }
+    }
+}
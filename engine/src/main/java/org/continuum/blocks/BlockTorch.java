@@ -16,6 +16,7 @@
 package org.continuum.blocks;
 
 import org.continuum.utilities.Helper;
+import org.continuum.world.light.LightColor;
 import org.lwjgl.util.vector.Vector2f;
 
 /**
@@ -56,6 +57,11 @@ public byte getLuminance() {
         return 15;
     }
 
+    @Override
+    public int getLightColor() {
+        return LightColor.pack(15, 13, 6);
+    }
+
     @Override
     public BLOCK_FORM getBlockForm() {
         return BLOCK_FORM.BILLBOARD;
@@ -17,7 +17,6 @@
 
 import org.continuum.utilities.Helper;
 import org.lwjgl.util.vector.Vector2f;
-import org.lwjgl.util.vector.Vector4f;
 
 /**
  * A wood block.
@@ -29,9 +28,9 @@ public boolean isBlockTypeTranslucent() {
         return false;
     }
 
-    public Vector4f getColorOffsetFor(Block.SIDE side, double temp, double hum) {
-        Vector4f leadColor = this.foliageColorForTemperatureAndHumidity(temp, hum);
-        return new Vector4f(leadColor.x * 1f, leadColor.y * 1f, leadColor.z * 1f, 1.0f);
+    @Override
+    public TINT getTint() {
+        return TINT.FOLIAGE;
     }
 
     @Override
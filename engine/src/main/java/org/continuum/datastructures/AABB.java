@@ -15,6 +15,8 @@
  */
 package org.continuum.datastructures;
 
+import org.continuum.rendering.RenderDevice;
+import org.continuum.rendering.RenderDeviceManager;
 import org.continuum.rendering.RenderableObject;
 import javolution.util.FastList;
 import org.lwjgl.util.vector.Vector3f;
@@ -151,62 +153,63 @@ public Vector3f[] getVertices() {
     }
 
     public void render() {
-        double offset = 0.01;
+        float offset = 0.01f;
+        RenderDevice device = RenderDeviceManager.getDevice();
 
-        glPushMatrix();
-        glTranslatef(getPosition().x, getPosition().y, getPosition().z);
+        device.pushMatrix();
+        device.translate(getPosition().x, getPosition().y, getPosition().z);
 
-        glLineWidth(6f);
-        glColor4f(0.0f, 0.0f, 0.0f, 1.0f);
+        device.setLineWidth(6f);
+        device.color(0.0f, 0.0f, 0.0f, 1.0f);
 
         // FRONT
-        glBegin(GL_LINE_LOOP);
-        glVertex3d(-_dimensions.x - offset, -_dimensions.y - offset, -_dimensions.z - offset);
-        glVertex3d(+_dimensions.x + offset, -_dimensions.y - offset, -_dimensions.z - offset);
-        glVertex3d(+_dimensions.x + offset, +_dimensions.y + offset, -_dimensions.z - offset);
-        glVertex3d(-_dimensions.x - offset, +_dimensions.y + offset, -_dimensions.z - offset);
-        glEnd();
+        device.begin(GL_LINE_LOOP);
+        device.vertex(-_dimensions.x - offset, -_dimensions.y - offset, -_dimensions.z - offset);
+        device.vertex(+_dimensions.x + offset, -_dimensions.y - offset, -_dimensions.z - offset);
+        device.vertex(+_dimensions.x + offset, +_dimensions.y + offset, -_dimensions.z - offset);
+        device.vertex(-_dimensions.x - offset, +_dimensions.y + offset, -_dimensions.z - offset);
+        device.end();
 
         // BACK
-        glBegin(GL_LINE_LOOP);
-        glVertex3d(-_dimensions.x - offset, -_dimensions.y - offset, +_dimensions.z + offset);
-        glVertex3d(+_dimensions.x + offset, -_dimensions.y - offset, +_dimensions.z + offset);
-        glVertex3d(+_dimensions.x + offset, +_dimensions.y + offset, +_dimensions.z + offset);
-        glVertex3d(-_dimensions.x - offset, +_dimensions.y + offset, +_dimensions.z + offset);
-        glEnd();
+        device.begin(GL_LINE_LOOP);
+        device.vertex(-_dimensions.x - offset, -_dimensions.y - offset, +_dimensions.z + offset);
+        device.vertex(+_dimensions.x + offset, -_dimensions.y - offset, +_dimensions.z + offset);
+        device.vertex(+_dimensions.x + offset, +_dimensions.y + offset, +_dimensions.z + offset);
+        device.vertex(-_dimensions.x - offset, +_dimensions.y + offset, +_dimensions.z + offset);
+        device.end();
 
         // TOP
-        glBegin(GL_LINE_LOOP);
-        glVertex3d(-_dimensions.x - offset, -_dimensions.y - offset, -_dimensions.z - offset);
-        glVertex3d(+_dimensions.x + offset, -_dimensions.y - offset, -_dimensions.z - offset);
-        glVertex3d(+_dimensions.x + offset, -_dimensions.y - offset, +_dimensions.z + offset);
-        glVertex3d(-_dimensions.x - offset, -_dimensions.y - offset, +_dimensions.z + offset);
-        glEnd();
+        device.begin(GL_LINE_LOOP);
+        device.vertex(-_dimensions.x - offset, -_dimensions.y - offset, -_dimensions.z - offset);
+        device.vertex(+_dimensions.x + offset, -_dimensions.y - offset, -_dimensions.z - offset);
+        device.vertex(+_dimensions.x + offset, -_dimensions.y - offset, +_dimensions.z + offset);
+        device.vertex(-_dimensions.x - offset, -_dimensions.y - offset, +_dimensions.z + offset);
+        device.end();
 
         // BOTTOM
-        glBegin(GL_LINE_LOOP);
-        glVertex3d(-_dimensions.x - offset, +_dimensions.y + offset, -_dimensions.z - offset);
-        glVertex3d(+_dimensions.x + offset, +_dimensions.y + offset, -_dimensions.z - offset);
-        glVertex3d(+_dimensions.x + offset, +_dimensions.y + offset, +_dimensions.z + offset);
-        glVertex3d(-_dimensions.x - offset, +_dimensions.y + offset, +_dimensions.z + offset);
-        glEnd();
+        device.begin(GL_LINE_LOOP);
+        device.vertex(-_dimensions.x - offset, +_dimensions.y + offset, -_dimensions.z - offset);
+        device.vertex(+_dimensions.x + offset, +_dimensions.y + offset, -_dimensions.z - offset);
+        device.vertex(+_dimensions.x + offset, +_dimensions.y + offset, +_dimensions.z + offset);
+        device.vertex(-_dimensions.x - offset, +_dimensions.y + offset, +_dimensions.z + offset);
+        device.end();
 
         // LEFT
-        glBegin(GL_LINE_LOOP);
-        glVertex3d(-_dimensions.x - offset, -_dimensions.y - offset, -_dimensions.z - offset);
-        glVertex3d(-_dimensions.x - offset, -_dimensions.y - offset, +_dimensions.z + offset);
-        glVertex3d(-_dimensions.x - offset, +_dimensions.y + offset, +_dimensions.z + offset);
-        glVertex3d(-_dimensions.x - offset, +_dimensions.y + offset, -_dimensions.z - offset);
-        glEnd();
+        device.begin(GL_LINE_LOOP);
+        device.vertex(-_dimensions.x - offset, -_dimensions.y - offset, -_dimensions.z - offset);
+        device.vertex(-_dimensions.x - offset, -_dimensions.y - offset, +_dimensions.z + offset);
+        device.vertex(-_dimensions.x - offset, +_dimensions.y + offset, +_dimensions.z + offset);
+        device.vertex(-_dimensions.x - offset, +_dimensions.y + offset, -_dimensions.z - offset);
+        device.end();
 
         // RIGHT
-        glBegin(GL_LINE_LOOP);
-        glVertex3d(+_dimensions.x + offset, -_dimensions.y - offset, -_dimensions.z - offset);
-        glVertex3d(+_dimensions.x + offset, -_dimensions.y - offset, +_dimensions.z + offset);
-        glVertex3d(+_dimensions.x + offset, +_dimensions.y + offset, +_dimensions.z + offset);
-        glVertex3d(+_dimensions.x + offset, +_dimensions.y + offset, -_dimensions.z - offset);
-        glEnd();
-        glPopMatrix();
+        device.begin(GL_LINE_LOOP);
+        device.vertex(+_dimensions.x + offset, -_dimensions.y - offset, -_dimensions.z - offset);
+        device.vertex(+_dimensions.x + offset, -_dimensions.y - offset, +_dimensions.z + offset);
+        device.vertex(+_dimensions.x + offset, +_dimensions.y + offset, +_dimensions.z + offset);
+        device.vertex(+_dimensions.x + offset, +_dimensions.y + offset, -_dimensions.z - offset);
+        device.end();
+        device.popMatrix();
     }
 
     public void update() {
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Stores the sunlight and the coloured block light of a chunk. All values of a block share one short:
+ * The sunlight is stored in the lowest nibble, followed by the red, green and blue channel of the
+ * block light (see {@link org.continuum.world.light.LightColor}).
+ * <p/>
+ * The array is split into horizontal sections. Sections which are entirely exposed to the sky
+ * (full sunlight, no block light) are not stored at all; they are allocated once a write makes
+ * them non-uniform.
+ * <p/>
+ * The dimensions have to be powers of two, so the index is calculated using shifts only.
+ */
+public class BlockmaniaLightArray {
+
+    public static final int SECTION_HEIGHT = 16;
+    /**
+     * The light values of the blocks within implicit sections: full sunlight and no block light.
+     */
+    public static final short IMPLICIT_VALUE = 0x0F;
+
+    private final short _sections[][];
+    private final int _lX, _lY, _lZ;
+    private final int _shiftX, _shiftY, _shiftSection;
+    private final int _size, _sectionSize;
+
+    public BlockmaniaLightArray(int x, int y, int z) {
+        if (Integer.bitCount(x) != 1 || Integer.bitCount(y) != 1 || Integer.bitCount(z) != 1 || y < SECTION_HEIGHT) {
+            throw new IllegalArgumentException("The dimensions of a light array have to be powers of two.");
+        }
+
+        _lX = x;
+        _lY = y;
+        _lZ = z;
+
+        _shiftY = Integer.numberOfTrailingZeros(_lZ);
+        _shiftX = Integer.numberOfTrailingZeros(SECTION_HEIGHT) + _shiftY;
+        _shiftSection = Integer.numberOfTrailingZeros(SECTION_HEIGHT);
+
+        _size = _lX * _lY * _lZ;
+        _sectionSize = _lX * SECTION_HEIGHT * _lZ;
+        _sections = new short[_lY / SECTION_HEIGHT][];
+    }
+
+    /**
+     * Returns the index of a block within its section. The position has to be within the bounds.
+     */
+    private int index(int x, int y, int z) {
+        return (x << _shiftX) | ((y & (SECTION_HEIGHT - 1)) << _shiftY) | z;
+    }
+
+    public boolean contains(int x, int y, int z) {
+        return x >= 0 && y >= 0 && z >= 0 && x < _lX && y < _lY && z < _lZ;
+    }
+
+    /**
+     * Returns the combined light value at the given position. The position has to be within the bounds.
+     */
+    public short getUnchecked(int x, int y, int z) {
+        short[] section = _sections[y >> _shiftSection];
+
+        if (section == null)
+            return IMPLICIT_VALUE;
+
+        return section[index(x, y, z)];
+    }
+
+    /**
+     * Returns the combined light value at the given position or -1 if the position is out of bounds.
+     */
+    public short get(int x, int y, int z) {
+        if (!contains(x, y, z))
+            return -1;
+
+        return getUnchecked(x, y, z);
+    }
+
+    public byte getSunlight(int x, int y, int z) {
+        if (!contains(x, y, z))
+            return -1;
+
+        return (byte) (getUnchecked(x, y, z) & 0x0F);
+    }
+
+    /**
+     * Returns the packed colour of the block light at the given position or -1 if the position is out of bounds.
+     */
+    public short getBlockLight(int x, int y, int z) {
+        if (!contains(x, y, z))
+            return -1;
+
+        return (short) ((getUnchecked(x, y, z) >> 4) & 0xFFF);
+    }
+
+    public void setSunlight(int x, int y, int z, byte b) {
+        if (!contains(x, y, z))
+            return;
+
+        short value = (short) ((getUnchecked(x, y, z) & 0xFFF0) | (b & 0x0F));
+        setUnchecked(x, y, z, value);
+    }
+
+    /**
+     * Sets the packed colour of the block light at the given position.
+     */
+    public void setBlockLight(int x, int y, int z, short color) {
+        if (!contains(x, y, z))
+            return;
+
+        short value = (short) ((getUnchecked(x, y, z) & 0x0F) | ((color & 0xFFF) << 4));
+        setUnchecked(x, y, z, value);
+    }
+
+    private void setUnchecked(int x, int y, int z, short value) {
+        short[] section = _sections[y >> _shiftSection];
+
+        if (section == null) {
+            if (value == IMPLICIT_VALUE)
+                return;
+
+            section = materializeSection(y >> _shiftSection);
+        }
+
+        section[index(x, y, z)] = value;
+    }
+
+    private short[] materializeSection(int i) {
+        short[] section = new short[_sectionSize];
+        Arrays.fill(section, IMPLICIT_VALUE);
+
+        _sections[i] = section;
+        return section;
+    }
+
+    /**
+     * Returns true if the section containing the given height is implicitly sunlit.
+     *
+     * @param y The height
+     * @return True if the section is not stored
+     */
+    public boolean isImplicit(int y) {
+        return y >= 0 && y < _lY && _sections[y >> _shiftSection] == null;
+    }
+
+    /**
+     * Releases the storage of all sections which are entirely sunlit.
+     */
+    public void compact() {
+        for (int i = 0; i < _sections.length; i++) {
+            short[] section = _sections[i];
+
+            if (section == null)
+                continue;
+
+            boolean uniform = true;
+
+            for (int j = 0; j < section.length && uniform; j++) {
+                uniform = section[j] == IMPLICIT_VALUE;
+            }
+
+            if (uniform)
+                _sections[i] = null;
+        }
+    }
+
+    public int getSize() {
+        return _size;
+    }
+
+    /**
+     * Returns the size of one light channel packed in the layout of {@link BlockmaniaSmartArray}.
+     */
+    public int getPackedSize() {
+        return _size / 2;
+    }
+
+    /**
+     * Returns a byte of one light channel packed in the layout of {@link BlockmaniaSmartArray}
+     * (the blocks at position i and i + size / 2 share one byte). Used to keep the chunk files compatible.
+     *
+     * @param i     The index of the packed byte
+     * @param shift 0 for the sunlight, 4, 8 and 12 for the red, green and blue block light
+     * @return The packed byte
+     */
+    public byte getPackedByte(int i, int shift) {
+        int low = (getPacked(i) >> shift) & 0x0F;
+        int high = (getPacked(i + getPackedSize()) >> shift) & 0x0F;
+
+        return (byte) (low | (high << 4));
+    }
+
+    /**
+     * Sets a byte of one light channel packed in the layout of {@link BlockmaniaSmartArray}.
+     *
+     * @param i     The index of the packed byte
+     * @param b     The packed byte
+     * @param shift 0 for the sunlight, 4, 8 and 12 for the red, green and blue block light
+     */
+    public void setPackedByte(int i, byte b, int shift) {
+        int mask = ~(0x0F << shift);
+
+        setPacked(i, (short) ((getPacked(i) & mask) | ((b & 0x0F) << shift)));
+        setPacked(i + getPackedSize(), (short) ((getPacked(i + getPackedSize()) & mask) | (((b >> 4) & 0x0F) << shift)));
+    }
+
+    /*
+     * Accessors for positions of the BlockmaniaSmartArray layout.
+     */
+    private short getPacked(int pos) {
+        int rest = pos % (_lX * _lY);
+        return getUnchecked(pos / (_lX * _lY), rest / _lX, rest % _lX);
+    }
+
+    private void setPacked(int pos, short value) {
+        int rest = pos % (_lX * _lY);
+        setUnchecked(pos / (_lX * _lY), rest / _lX, rest % _lX, value);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.datastructures;
+
+/**
+ * Growable FIFO queue of primitive long values backed by a ring buffer.
+ */
+public class LongQueue {
+
+    private long[] _array;
+    private int _head, _size;
+
+    public LongQueue() {
+        this(1024);
+    }
+
+    /**
+     * @param capacity The initial capacity (rounded up to the next power of two)
+     */
+    public LongQueue(int capacity) {
+        _array = new long[Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1];
+    }
+
+    public void add(long value) {
+        if (_size == _array.length) {
+            grow();
+        }
+
+        _array[(_head + _size) & (_array.length - 1)] = value;
+        _size++;
+    }
+
+    /**
+     * Removes and returns the head of the queue. The queue must not be empty.
+     *
+     * @return The head of the queue
+     */
+    public long poll() {
+        long value = _array[_head];
+
+        _head = (_head + 1) & (_array.length - 1);
+        _size--;
+
+        return value;
+    }
+
+    public boolean isEmpty() {
+        return _size == 0;
+    }
+
+    public int size() {
+        return _size;
+    }
+
+    public void clear() {
+        _head = 0;
+        _size = 0;
+    }
+
+    private void grow() {
+        long[] array = new long[_array.length * 2];
+
+        int firstPart = Math.min(_size, _array.length - _head);
+        System.arraycopy(_array, _head, array, 0, firstPart);
+        System.arraycopy(_array, 0, array, firstPart, _size - firstPart);
+
+        _array = array;
+        _head = 0;
+    }
+}
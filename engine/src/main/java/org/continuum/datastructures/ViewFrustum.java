@@ -15,15 +15,30 @@
  */
 package org.continuum.datastructures;
 
+import org.continuum.rendering.RenderDevice;
+import org.continuum.rendering.RenderDeviceManager;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.util.vector.Vector3f;
 
 import java.nio.FloatBuffer;
 
 public class ViewFrustum {
 
+    /**
+     * The plane mask selecting all six planes (see {@link #classify}).
+     */
+    public static final int ALL_PLANES = 0x3F;
+
     private final FrustumPlane[] _planes = new FrustumPlane[6];
+
+    /*
+     * The coefficients of the planes as flat arrays, copied from the planes after each update.
+     */
+    private final double[] _planeA = new double[6];
+    private final double[] _planeB = new double[6];
+    private final double[] _planeC = new double[6];
+    private final double[] _planeD = new double[6];
+
     private final FloatBuffer _proj = BufferUtils.createFloatBuffer(16);
     private final FloatBuffer _model = BufferUtils.createFloatBuffer(16);
     private final FloatBuffer _clip = BufferUtils.createFloatBuffer(16);
@@ -37,8 +52,10 @@ public ViewFrustum() {
      * TODO
      */
     public void updateFrustum() {
-        GL11.glGetFloat(GL11.GL_PROJECTION_MATRIX, _proj);
-        GL11.glGetFloat(GL11.GL_MODELVIEW_MATRIX, _model);
+        RenderDevice device = RenderDeviceManager.getDevice();
+
+        device.getMatrix(GL11.GL_PROJECTION_MATRIX, _proj);
+        device.getMatrix(GL11.GL_MODELVIEW_MATRIX, _model);
 
         _clip.put(0, _model.get(0) * _proj.get(0) + _model.get(1) * _proj.get(4) + _model.get(2) * _proj.get(8) + _model.get(3) * _proj.get(12));
         _clip.put(1, _model.get(0) * _proj.get(1) + _model.get(1) * _proj.get(5) + _model.get(2) * _proj.get(9) + _model.get(3) * _proj.get(13));
@@ -101,11 +118,26 @@ public void updateFrustum() {
         _planes[5].setC(_clip.get(11) + _clip.get(10));
         _planes[5].setD(_clip.get(15) + _clip.get(14));
         _planes[5].normalize();
+
+        for (int i = 0; i < 6; i++) {
+            _planeA[i] = _planes[i].getA();
+            _planeB[i] = _planes[i].getB();
+            _planeC[i] = _planes[i].getC();
+            _planeD[i] = _planes[i].getD();
+        }
+    }
+
+    /**
+     * @param i The index of the plane (right, left, bottom, top, far, near)
+     * @return The plane
+     */
+    public FrustumPlane getPlane(int i) {
+        return _planes[i];
     }
 
     public boolean intersects(double x, double y, double z) {
         for (int i = 0; i < 6; i++) {
-            if (_planes[i].getA() * x + _planes[i].getB() * y + _planes[i].getC() * z + _planes[i].getD() <= 0) {
+            if (_planeA[i] * x + _planeB[i] * y + _planeC[i] * z + _planeD[i] <= 0) {
                 return false;
             }
         }
@@ -113,29 +145,35 @@ public boolean intersects(double x, double y, double z) {
     }
 
     public boolean intersects(AABB aabb) {
+        return classify(aabb.minX(), aabb.minY(), aabb.minZ(), aabb.maxX(), aabb.maxY(), aabb.maxZ(), ALL_PLANES) >= 0;
+    }
 
-        Vector3f[] aabbVertices = aabb.getVertices();
-
+    /**
+     * Classifies an axis aligned box against the given planes. For each plane only the corner furthest along the
+     * normal (p-vertex) and the opposite corner (n-vertex) are tested.
+     *
+     * @param planeMask The planes to test (bit i for plane i), planes the box is known to be inside can be skipped
+     * @return -1 if the box is outside of the frustum, otherwise the mask of the planes intersecting the box
+     * (0 if the box is completely inside)
+     */
+    public int classify(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, int planeMask) {
         for (int i = 0; i < 6; i++) {
-            if (_planes[i].getA() * aabbVertices[0].x + _planes[i].getB() * aabbVertices[0].y + _planes[i].getC() * aabbVertices[0].z + _planes[i].getD() > 0)
-                continue;
-            if (_planes[i].getA() * aabbVertices[1].x + _planes[i].getB() * aabbVertices[1].y + _planes[i].getC() * aabbVertices[1].z + _planes[i].getD() > 0)
-                continue;
-            if (_planes[i].getA() * aabbVertices[2].x + _planes[i].getB() * aabbVertices[2].y + _planes[i].getC() * aabbVertices[2].z + _planes[i].getD() > 0)
-                continue;
-            if (_planes[i].getA() * aabbVertices[3].x + _planes[i].getB() * aabbVertices[3].y + _planes[i].getC() * aabbVertices[3].z + _planes[i].getD() > 0)
-                continue;
-            if (_planes[i].getA() * aabbVertices[4].x + _planes[i].getB() * aabbVertices[4].y + _planes[i].getC() * aabbVertices[4].z + _planes[i].getD() > 0)
-                continue;
-            if (_planes[i].getA() * aabbVertices[5].x + _planes[i].getB() * aabbVertices[5].y + _planes[i].getC() * aabbVertices[5].z + _planes[i].getD() > 0)
-                continue;
-            if (_planes[i].getA() * aabbVertices[6].x + _planes[i].getB() * aabbVertices[6].y + _planes[i].getC() * aabbVertices[6].z + _planes[i].getD() > 0)
+            if ((planeMask & (1 << i)) == 0)
                 continue;
-            if (_planes[i].getA() * aabbVertices[7].x + _planes[i].getB() * aabbVertices[7].y + _planes[i].getC() * aabbVertices[7].z + _planes[i].getD() > 0)
-                continue;
-            return false;
+
+            double a = _planeA[i], b = _planeB[i], c = _planeC[i];
+
+            double p = a * (a >= 0 ? maxX : minX) + b * (b >= 0 ? maxY : minY) + c * (c >= 0 ? maxZ : minZ) + _planeD[i];
+
+            if (p <= 0)
+                return -1;
+
+            double n = a * (a >= 0 ? minX : maxX) + b * (b >= 0 ? minY : maxY) + c * (c >= 0 ? minZ : maxZ) + _planeD[i];
+
+            if (n > 0)
+                planeMask &= ~(1 << i);
         }
 
-        return true;
+        return planeMask;
     }
 }
@@ -24,6 +24,14 @@
  */
 public class ChunkGeneratorFlora extends ChunkGeneratorTerrain {
 
+    /**
+     * Size of the cells a single tree placement decision is made for.
+     */
+    private static final int TREE_CELL_SIZE = 4;
+
+    private static final double PROB_HIGH_GRASS = 0.31;
+    private static final double PROB_FLOWER = 0.023;
+
     /**
      * Init. the forest generator.
      *
@@ -40,130 +48,152 @@ public ChunkGeneratorFlora(String seed) {
      */
     @Override
     public void generate(Chunk c) {
-        for (int y = 0; y < Configuration.CHUNK_DIMENSIONS.y; y++) {
-            for (int x = 0; x < Configuration.CHUNK_DIMENSIONS.x; x++) {
-                for (int z = 0; z < Configuration.CHUNK_DIMENSIONS.z; z++) {
-                    generateGrassAndFlowers(c, x, y, z);
-                }
+        ClimateLayer climate = c.getClimate();
+        int[] surfaceHeights = calcSurfaceHeights(c);
+
+        for (int x = 0; x < Configuration.CHUNK_DIMENSIONS.x; x++) {
+            for (int z = 0; z < Configuration.CHUNK_DIMENSIONS.z; z++) {
+                generateGrassAndFlowers(c, climate, x, surfaceHeights[x * (int) Configuration.CHUNK_DIMENSIONS.z + z], z);
             }
         }
 
-        generateTreesAndCacti(c);
+        StructureWriteBuffer buffer = new StructureWriteBuffer(c.getParent(), c);
+        generateTreesAndCacti(c, climate, surfaceHeights, buffer);
+        buffer.flush();
     }
 
-    private void generateTreesAndCacti(Chunk c) {
-        for (int y = 32; y < Configuration.CHUNK_DIMENSIONS.y; y++) {
-            for (int x = 0; x < Configuration.CHUNK_DIMENSIONS.x; x += 4) {
-                for (int z = 0; z < Configuration.CHUNK_DIMENSIONS.z; z += 4) {
-                    double rand = (_rand.randomDouble() + 1.0) / 2.0;
-                    double prob = 1.0;
-
-                    BIOME_TYPE biome = calcBiomeTypeForGlobalPosition(c.getBlockWorldPosX(x), c.getBlockWorldPosX(z));
-                    double humidity = calcHumidityAtGlobalPosition(c.getBlockWorldPosX(x), c.getBlockWorldPosZ(z));
-                    double temperature = calcTemperatureAtGlobalPosition(c.getBlockWorldPosX(x), c.getBlockWorldPosZ(z));
-
-                    switch (biome) {
-                        case PLAINS:
-                            prob = 0.9;
-                            break;
-                        case MOUNTAINS:
-                            prob = 0.8;
-                            break;
-                        case SNOW:
-                            prob = 0.8;
-                            break;
-                        case FOREST:
-                            prob = 0.1;
-                            break;
-                        case DESERT:
-                            prob = 0.9;
-                            break;
-                    }
-
-                    if (rand > prob) {
-                        int randX = x + _rand.randomInt() % 12 + 6;
-                        int randZ = z + _rand.randomInt() % 12 + 6;
-
-                        if (temperature > 0.55 && humidity < 0.33 && (c.getBlock(randX, y, randZ) == 0x1 || c.getBlock(randX, y, randZ) == 0x17 || c.getBlock(randX, y, randZ) == 0x7)) {
-                            c.getParent().getObjectGenerator("cactus").generate(c.getBlockWorldPosX(randX), y + 1, c.getBlockWorldPosZ(randZ), false);
-                        } else if (c.getBlock(randX, y, randZ) == 0x1 || c.getBlock(randX, y, randZ) == 0x17) {
-                            generateTree(c, randX, y, randZ);
-                        }
-                    }
+    /**
+     * Returns the height of the top most solid block for each column of the given chunk.
+     *
+     * @param c The chunk
+     * @return The heights indexed by x * CHUNK_DIMENSIONS.z + z, -1 for empty columns
+     */
+    private int[] calcSurfaceHeights(Chunk c) {
+        int[] heights = new int[(int) Configuration.CHUNK_DIMENSIONS.x * (int) Configuration.CHUNK_DIMENSIONS.z];
+
+        for (int x = 0; x < Configuration.CHUNK_DIMENSIONS.x; x++) {
+            for (int z = 0; z < Configuration.CHUNK_DIMENSIONS.z; z++) {
+                int y = (int) Configuration.CHUNK_DIMENSIONS.y - 1;
+
+                while (y >= 0 && c.getBlock(x, y, z) == 0x0) {
+                    y--;
                 }
+
+                heights[x * (int) Configuration.CHUNK_DIMENSIONS.z + z] = y;
             }
         }
+
+        return heights;
     }
 
     /**
-     * @param c
-     * @param x
-     * @param y
-     * @param z
+     * Makes one placement decision for every cell of 4x4 columns. The probability of a tree
+     * depends on the biome of the chosen column.
+     *
+     * @param c              The chunk
+     * @param climate        The climate of the chunk
+     * @param surfaceHeights The heights of the top most solid blocks
+     * @param buffer         The buffer the structures are written to
      */
-
-    void generateGrassAndFlowers(Chunk c, int x, int y, int z) {
-        if (c.getBlock(x, y, z) == 0x1) {
-            double grassRand = (_rand.randomDouble() + 1.0) / 2.0;
-            double grassProb = 1.0;
-
-            BIOME_TYPE biome = calcBiomeTypeForGlobalPosition(c.getBlockWorldPosX(x), c.getBlockWorldPosX(z));
-
-            switch (biome) {
-                case PLAINS:
-                    grassProb = 0.7;
-                    break;
-                case MOUNTAINS:
-                    grassProb = 0.8;
-                    break;
-                case FOREST:
-                    grassProb = 0.8;
-                    break;
-            }
-
-            if (grassRand > grassProb) {
-                // Generate high grass.
-                double rand = _rand.standNormalDistrDouble();
-                if (rand > -0.4 && rand < 0.4) {
-                    c.setBlock(x, y + 1, z, (byte) 0xB);
-                } else if (rand > -0.8 && rand < -0.8) {
-                    c.setBlock(x, y + 1, z, (byte) 0xC);
+    private void generateTreesAndCacti(Chunk c, ClimateLayer climate, int[] surfaceHeights, StructureWriteBuffer buffer) {
+        for (int cellX = 0; cellX < Configuration.CHUNK_DIMENSIONS.x; cellX += TREE_CELL_SIZE) {
+            for (int cellZ = 0; cellZ < Configuration.CHUNK_DIMENSIONS.z; cellZ += TREE_CELL_SIZE) {
+                int x = cellX + _rand.randomInt(TREE_CELL_SIZE);
+                int z = cellZ + _rand.randomInt(TREE_CELL_SIZE);
+                int y = surfaceHeights[x * (int) Configuration.CHUNK_DIMENSIONS.z + z];
+
+                // No trees below the sea level
+                if (y < 32)
+                    continue;
+
+                double rand = (_rand.randomDouble() + 1.0) / 2.0;
+                double prob = 0.0;
+
+                switch (climate.getBiome(x, z)) {
+                    case PLAINS:
+                    case DESERT:
+                        prob = 0.045;
+                        break;
+                    case MOUNTAINS:
+                    case SNOW:
+                        prob = 0.09;
+                        break;
+                    case FOREST:
+                        prob = 0.4;
+                        break;
                 }
 
-                // Generate flowers
-                if (_rand.standNormalDistrDouble() < -2) {
-                    if (_rand.randomBoolean()) {
-                        c.setBlock(x, y + 1, z, (byte) 0x9);
-                    } else {
-                        c.setBlock(x, y + 1, z, (byte) 0xA);
-                    }
+                if (rand >= prob)
+                    continue;
+
+                byte surface = c.getBlock(x, y, z);
 
+                if (climate.getTemperature(x, z) > 0.55 && climate.getHumidity(x, z) < 0.33 && (surface == 0x1 || surface == 0x17 || surface == 0x7)) {
+                    c.getParent().getObjectGenerator("cactus").generate(buffer, c.getBlockWorldPosX(x), y + 1, c.getBlockWorldPosZ(z));
+                } else if (surface == 0x1 || surface == 0x17) {
+                    generateTree(c, buffer, x, y, z);
                 }
             }
         }
     }
 
+    /**
+     * Places high grass and flowers on top of a grass block.
+     *
+     * @param c       The chunk
+     * @param climate The climate of the chunk
+     * @param x       Local position on the x-axis
+     * @param y       Height of the top most solid block
+     * @param z       Local position on the z-axis
+     */
+    void generateGrassAndFlowers(Chunk c, ClimateLayer climate, int x, int y, int z) {
+        if (y < 0 || c.getBlock(x, y, z) != 0x1)
+            return;
+
+        double grassProb = 0.0;
+
+        switch (climate.getBiome(x, z)) {
+            case PLAINS:
+                grassProb = 0.3;
+                break;
+            case MOUNTAINS:
+            case FOREST:
+                grassProb = 0.2;
+                break;
+        }
+
+        if ((_rand.randomDouble() + 1.0) / 2.0 >= grassProb)
+            return;
+
+        double rand = (_rand.randomDouble() + 1.0) / 2.0;
+
+        if (rand < PROB_FLOWER) {
+            // Generate flowers
+            c.setBlock(x, y + 1, z, _rand.randomBoolean() ? (byte) 0x9 : (byte) 0xA);
+        } else if (rand < PROB_FLOWER + PROB_HIGH_GRASS) {
+            // Generate high grass
+            c.setBlock(x, y + 1, z, (byte) 0xB);
+        }
+    }
+
     /**
      * @param c
+     * @param buffer
      * @param x
      * @param y
      * @param z
      */
-    void generateTree(Chunk c, int x, int y, int z) {
-        // Trees should only be placed in direct sunlight
-        if (!c.canBlockSeeTheSky(x, y + 1, z))
-            return;
-
+    void generateTree(Chunk c, StructureWriteBuffer buffer, int x, int y, int z) {
         double r2 = _rand.standNormalDistrDouble();
         if (r2 > -2 && r2 < -1) {
             c.setBlock(x, y + 1, z, (byte) 0x0);
-            c.getParent().getObjectGenerator("pineTree").generate(c.getBlockWorldPosX(x), y + 1, c.getBlockWorldPosZ(z), false);
+            c.getParent().getObjectGenerator("pineTree").generate(buffer, c.getBlockWorldPosX(x), y + 1, c.getBlockWorldPosZ(z));
         } else if (r2 > 1 && r2 < 2) {
             c.setBlock(x, y + 1, z, (byte) 0x0);
-            c.getParent().getObjectGenerator("firTree").generate(c.getBlockWorldPosX(x), y + 1, c.getBlockWorldPosZ(z), false);
+            c.getParent().getObjectGenerator("firTree").generate(buffer, c.getBlockWorldPosX(x), y + 1, c.getBlockWorldPosZ(z));
         } else {
             c.setBlock(x, y + 1, z, (byte) 0x0);
-            c.getParent().getObjectGenerator("tree").generate(c.getBlockWorldPosX(x), y + 1, c.getBlockWorldPosZ(z), false);
+            c.getParent().getObjectGenerator("tree").generate(buffer, c.getBlockWorldPosX(x), y + 1, c.getBlockWorldPosZ(z));
         }
     }
 }
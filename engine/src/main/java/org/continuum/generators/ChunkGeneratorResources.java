@@ -15,13 +15,67 @@
  */
 package org.continuum.generators;
 
-import org.continuum.blocks.Block;
-import org.continuum.blocks.BlockStone;
 import org.continuum.main.Configuration;
+import org.continuum.utilities.MathHelper;
 import org.continuum.world.chunk.Chunk;
 
+/**
+ * Distributes ore veins within the stone layers of a chunk.
+ * <p/>
+ * Instead of rolling the dice for every single stone block, the amount of veins per section is derived
+ * from the ore probabilities. Only the blocks of the placed veins are touched.
+ */
 public class ChunkGeneratorResources extends ChunkGeneratorTerrain {
 
+    public enum VEIN_SHAPE {
+        /**
+         * Random walk around the origin of the vein.
+         */
+        CLUSTER,
+        /**
+         * Line along a random axis.
+         */
+        STREAK
+    }
+
+    /**
+     * Describes the distribution and the shape of the veins of one ore.
+     */
+    protected static class OreVein {
+        final byte blockType;
+        final int size;
+        final VEIN_SHAPE shape;
+        final double veinsPerSection;
+
+        /**
+         * @param blockType   The block type of the ore
+         * @param probability The probability of a stone block being replaced (as standard normal distributed threshold)
+         * @param size        The amount of blocks per vein
+         * @param shape       The shape of the vein
+         */
+        OreVein(byte blockType, double probability, int size, VEIN_SHAPE shape) {
+            this.blockType = blockType;
+            this.size = size;
+            this.shape = shape;
+
+            double sectionVolume = Configuration.CHUNK_DIMENSIONS.x * SECTION_HEIGHT * Configuration.CHUNK_DIMENSIONS.z;
+            veinsPerSection = MathHelper.standNormalDistrCdf(probability) * sectionVolume / size;
+        }
+    }
+
+    protected static final int SECTION_HEIGHT = 16;
+    private static final byte STONE = 0x3;
+
+    private static final int[][] DIRECTIONS = {{1, 0, 0}, {-1, 0, 0}, {0, 1, 0}, {0, -1, 0}, {0, 0, 1}, {0, 0, -1}};
+
+    private final OreVein[] _veins = {
+            new OreVein((byte) 0x14, Configuration.PROB_COAL, Configuration.VEIN_SIZE_COAL, VEIN_SHAPE.CLUSTER),
+            new OreVein((byte) 0x15, Configuration.PROB_GOLD, Configuration.VEIN_SIZE_GOLD, VEIN_SHAPE.CLUSTER),
+            new OreVein((byte) 35, Configuration.PROB_DIAMOND, Configuration.VEIN_SIZE_DIAMOND, VEIN_SHAPE.CLUSTER),
+            new OreVein((byte) 33, Configuration.PROB_REDSTONE, Configuration.VEIN_SIZE_REDSTONE, VEIN_SHAPE.STREAK),
+            new OreVein((byte) 34, Configuration.PROB_SILVER, Configuration.VEIN_SIZE_SILVER, VEIN_SHAPE.CLUSTER)
+    };
+
     /**
      * @param seed
      */
@@ -34,31 +88,53 @@ public ChunkGeneratorResources(String seed) {
      */
     @Override
     public void generate(Chunk c) {
-        for (int x = 0; x < Configuration.CHUNK_DIMENSIONS.x; x++) {
-            for (int z = 0; z < Configuration.CHUNK_DIMENSIONS.z; z++) {
-                for (int y = 0; y < Configuration.CHUNK_DIMENSIONS.y; y++) {
-                    if (Block.getBlockForType(c.getBlock(x, y, z)).getClass() == BlockStone.class) {
-                        if (_rand.standNormalDistrDouble() < Configuration.PROB_COAL) {
-                            c.setBlock(x, y, z, (byte) 0x14);
-                        }
-
-                        if (_rand.standNormalDistrDouble() < Configuration.PROB_GOLD) {
-                            c.setBlock(x, y, z, (byte) 0x15);
-                        }
-
-                        if (_rand.standNormalDistrDouble() < Configuration.PROB_DIAMOND) {
-                            c.setBlock(x, y, z, (byte) 35);
-                        }
-                        if (_rand.standNormalDistrDouble() < Configuration.PROB_REDSTONE) {
-                            c.setBlock(x, y, z, (byte) 33);
-                        }
-
-                        if (_rand.standNormalDistrDouble() < Configuration.PROB_SILVER) {
-                            c.setBlock(x, y, z, (byte) 34);
-                        }
+        for (int sectionY = 0; sectionY < Configuration.CHUNK_DIMENSIONS.y; sectionY += SECTION_HEIGHT) {
+            for (OreVein vein : _veins) {
+                int count = (int) vein.veinsPerSection;
+
+                // Take care of the fractional part
+                if (Math.abs(_rand.randomDouble()) < vein.veinsPerSection - count) {
+                    count++;
+                }
+
+                for (int i = 0; i < count; i++) {
+                    int x = _rand.randomInt((int) Configuration.CHUNK_DIMENSIONS.x);
+                    int y = sectionY + _rand.randomInt(SECTION_HEIGHT);
+                    int z = _rand.randomInt((int) Configuration.CHUNK_DIMENSIONS.z);
+
+                    // Veins only start within stone
+                    if (c.getBlock(x, y, z) != STONE) {
+                        continue;
                     }
+
+                    placeVein(c, vein, x, y, z);
                 }
             }
         }
     }
+
+    /**
+     * Places a single vein starting at the given local block position. Only stone blocks are replaced.
+     *
+     * @param c    The chunk
+     * @param vein The vein to place
+     * @param x    Local block position on the x-axis
+     * @param y    Local block position on the y-axis
+     * @param z    Local block position on the z-axis
+     */
+    private void placeVein(Chunk c, OreVein vein, int x, int y, int z) {
+        int[] streakDir = DIRECTIONS[_rand.randomInt(DIRECTIONS.length)];
+
+        for (int i = 0; i < vein.size; i++) {
+            if (c.getBlock(x, y, z) == STONE) {
+                c.setBlock(x, y, z, vein.blockType);
+            }
+
+            int[] dir = vein.shape == VEIN_SHAPE.STREAK ? streakDir : DIRECTIONS[_rand.randomInt(DIRECTIONS.length)];
+
+            x += dir[0];
+            y += dir[1];
+            z += dir[2];
+        }
+    }
 }
@@ -26,6 +26,15 @@ public class ChunkGeneratorTerrain extends ChunkGenerator {
 
     protected static final int SAMPLE_RATE_3D_HOR = 8;
     protected static final int SAMPLE_RATE_3D_VERT = 4;
+    /**
+     * Height of the sections the cave density is sampled for. Sections without any solid blocks are skipped.
+     */
+    protected static final int CAVE_SECTION_HEIGHT = 16;
+
+    /**
+     * Sample rates of the cave density lattice.
+     */
+    protected final int _caveSampleRateHor, _caveSampleRateVert;
 
     public enum BIOME_TYPE {
         MOUNTAINS, SNOW, DESERT, PLAINS, FOREST
@@ -35,7 +44,24 @@ public enum BIOME_TYPE {
      * @param seed
      */
     public ChunkGeneratorTerrain(String seed) {
+        this(seed, 4, 4);
+    }
+
+    /**
+     * @param seed
+     * @param caveSampleRateHor  Horizontal sample rate of the cave density (has to divide the chunk dimensions)
+     * @param caveSampleRateVert Vertical sample rate of the cave density (has to divide the section height)
+     */
+    public ChunkGeneratorTerrain(String seed, int caveSampleRateHor, int caveSampleRateVert) {
         super(seed);
+
+        if (caveSampleRateHor <= 0 || Configuration.CHUNK_DIMENSIONS.x % caveSampleRateHor != 0 || Configuration.CHUNK_DIMENSIONS.z % caveSampleRateHor != 0)
+            throw new IllegalArgumentException("Invalid horizontal cave sample rate.");
+        if (caveSampleRateVert <= 0 || CAVE_SECTION_HEIGHT % caveSampleRateVert != 0)
+            throw new IllegalArgumentException("Invalid vertical cave sample rate.");
+
+        _caveSampleRateHor = caveSampleRateHor;
+        _caveSampleRateVert = caveSampleRateVert;
     }
 
     /**
@@ -66,9 +92,15 @@ public void generate(Chunk c) {
         /*
          * Generate the chunk from the density map.
          */
+        ClimateLayer climate = c.getClimate();
+
+        boolean caves = Configuration.getSettingBoolean("CAVES");
+        // The cave density lattice is sampled lazily per section
+        double[][][][] caveSections = new double[(int) Configuration.CHUNK_DIMENSIONS.y / CAVE_SECTION_HEIGHT][][][];
+
         for (int x = 0; x < Configuration.CHUNK_DIMENSIONS.x; x++) {
             for (int z = 0; z < Configuration.CHUNK_DIMENSIONS.z; z++) {
-                BIOME_TYPE type = calcBiomeTypeForGlobalPosition(c.getBlockWorldPosX(x), c.getBlockWorldPosZ(z));
+                BIOME_TYPE type = climate.getBiome(x, z);
                 int firstBlockHeight = -1;
 
                 for (int y = (int) Configuration.CHUNK_DIMENSIONS.y; y >= 0; y--) {
@@ -104,7 +136,7 @@ public void generate(Chunk c) {
                         if (firstBlockHeight == -1)
                             firstBlockHeight = y;
 
-                        if (calcCaveDensity(c.getBlockWorldPosX(x), y, c.getBlockWorldPosZ(z)) > -0.6)
+                        if (!caves || sampleCaveDensity(c, caveSections, x, y, z) > -0.6)
                             GenerateInnerLayer(x, y, z, c, type);
 
                         continue;
@@ -117,10 +149,63 @@ public void generate(Chunk c) {
         }
     }
 
+    /**
+     * Returns the cave density at the given local block position. The density is interpolated from a lattice
+     * which is sampled at a lower resolution for each section on first access.
+     *
+     * @param c            The chunk
+     * @param caveSections The lattices of the sections
+     * @param x            Local block position on the x-axis
+     * @param y            Local block position on the y-axis
+     * @param z            Local block position on the z-axis
+     * @return The interpolated cave density
+     */
+    protected double sampleCaveDensity(Chunk c, double[][][][] caveSections, int x, int y, int z) {
+        int section = y / CAVE_SECTION_HEIGHT;
+
+        if (section >= caveSections.length)
+            return calcCaveDensity(c.getBlockWorldPosX(x), y, c.getBlockWorldPosZ(z));
+
+        double[][][] lattice = caveSections[section];
+        int sectionY = section * CAVE_SECTION_HEIGHT;
+
+        if (lattice == null) {
+            lattice = new double[(int) Configuration.CHUNK_DIMENSIONS.x / _caveSampleRateHor + 1][CAVE_SECTION_HEIGHT / _caveSampleRateVert + 1][(int) Configuration.CHUNK_DIMENSIONS.z / _caveSampleRateHor + 1];
+
+            for (int lx = 0; lx < lattice.length; lx++) {
+                for (int ly = 0; ly < lattice[lx].length; ly++) {
+                    for (int lz = 0; lz < lattice[lx][ly].length; lz++) {
+                        lattice[lx][ly][lz] = calcCaveDensity(c.getBlockWorldPosX(lx * _caveSampleRateHor), sectionY + ly * _caveSampleRateVert, c.getBlockWorldPosZ(lz * _caveSampleRateHor));
+                    }
+                }
+            }
+
+            caveSections[section] = lattice;
+        }
+
+        int lx = x / _caveSampleRateHor;
+        int ly = (y - sectionY) / _caveSampleRateVert;
+        int lz = z / _caveSampleRateHor;
+
+        int offsetX = lx * _caveSampleRateHor;
+        int offsetY = sectionY + ly * _caveSampleRateVert;
+        int offsetZ = lz * _caveSampleRateHor;
+
+        return MathHelper.triLerp(x, y, z, lattice[lx][ly][lz], lattice[lx][ly + 1][lz], lattice[lx][ly][lz + 1], lattice[lx][ly + 1][lz + 1], lattice[lx + 1][ly][lz], lattice[lx + 1][ly + 1][lz], lattice[lx + 1][ly][lz + 1], lattice[lx + 1][ly + 1][lz + 1], offsetX, offsetX + _caveSampleRateHor, offsetY, offsetY + _caveSampleRateVert, offsetZ, offsetZ + _caveSampleRateHor);
+    }
+
     public BIOME_TYPE calcBiomeTypeForGlobalPosition(int x, int z) {
-        double temp = calcTemperatureAtGlobalPosition(x, z);
-        double humidity = calcHumidityAtGlobalPosition(x, z);
+        return calcBiomeType(calcTemperatureAtGlobalPosition(x, z), calcHumidityAtGlobalPosition(x, z));
+    }
 
+    /**
+     * Returns the biome for the given climate.
+     *
+     * @param temp     The temperature
+     * @param humidity The humidity
+     * @return The biome
+     */
+    public static BIOME_TYPE calcBiomeType(double temp, double humidity) {
         if (temp >= 0.6 && humidity < 0.3) {
             return BIOME_TYPE.DESERT;
         }
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.generators;
+
+import org.continuum.main.Configuration;
+
+/**
+ * Caches the climate (temperature, humidity and biome) for every column of one chunk.
+ * <p/>
+ * The climate is based on a couple of fBm evaluations per column, so it is calculated once
+ * and shared by all generators and the mesh generator afterwards.
+ */
+public class ClimateLayer {
+
+    private static final int SIZE_X = (int) Configuration.CHUNK_DIMENSIONS.x;
+    private static final int SIZE_Z = (int) Configuration.CHUNK_DIMENSIONS.z;
+
+    private final float[] _temperature = new float[SIZE_X * SIZE_Z];
+    private final float[] _humidity = new float[SIZE_X * SIZE_Z];
+    private final ChunkGeneratorTerrain.BIOME_TYPE[] _biomes = new ChunkGeneratorTerrain.BIOME_TYPE[SIZE_X * SIZE_Z];
+
+    /**
+     * Calculates the climate of all columns of the chunk starting at the given world position.
+     *
+     * @param generator The terrain generator providing the climate functions
+     * @param worldX    World position of the first column on the x-axis
+     * @param worldZ    World position of the first column on the z-axis
+     */
+    public ClimateLayer(ChunkGeneratorTerrain generator, int worldX, int worldZ) {
+        for (int x = 0; x < SIZE_X; x++) {
+            for (int z = 0; z < SIZE_Z; z++) {
+                int i = x * SIZE_Z + z;
+
+                double temp = generator.calcTemperatureAtGlobalPosition(worldX + x, worldZ + z);
+                double humidity = generator.calcHumidityAtGlobalPosition(worldX + x, worldZ + z);
+
+                _temperature[i] = (float) temp;
+                _humidity[i] = (float) humidity;
+                _biomes[i] = ChunkGeneratorTerrain.calcBiomeType(temp, humidity);
+            }
+        }
+    }
+
+    /**
+     * @param x Local position on the x-axis
+     * @param z Local position on the z-axis
+     * @return The temperature of the column
+     */
+    public double getTemperature(int x, int z) {
+        return _temperature[x * SIZE_Z + z];
+    }
+
+    /**
+     * @param x Local position on the x-axis
+     * @param z Local position on the z-axis
+     * @return The humidity of the column
+     */
+    public double getHumidity(int x, int z) {
+        return _humidity[x * SIZE_Z + z];
+    }
+
+    /**
+     * @param x Local position on the x-axis
+     * @param z Local position on the z-axis
+     * @return The biome of the column
+     */
+    public ChunkGeneratorTerrain.BIOME_TYPE getBiome(int x, int z) {
+        return _biomes[x * SIZE_Z + z];
+    }
+}
@@ -41,13 +41,26 @@ public abstract class ObjectGenerator {
         _worldProvider = w;
     }
 
+    /**
+     * Generates an object at the given position and writes it to the world right away.
+     *
+     * @param posX Position on the x-axis
+     * @param posY Position on the y-axis
+     * @param posZ Position on the z-axis
+     */
+    public void generate(int posX, int posY, int posZ) {
+        StructureWriteBuffer buffer = new StructureWriteBuffer(_worldProvider);
+        generate(buffer, posX, posY, posZ);
+        buffer.flush();
+    }
+
     /**
      * Generates an object at the given position.
      *
+     * @param buffer The buffer the blocks of the object are written to
      * @param posX   Position on the x-axis
      * @param posY   Position on the y-axis
      * @param posZ   Position on the z-axis
-     * @param update If true, the chunk will be queued for updating
      */
-    public abstract void generate(int posX, int posY, int posZ, boolean update);
+    public abstract void generate(StructureWriteBuffer buffer, int posX, int posY, int posZ);
 }
@@ -30,14 +30,15 @@ public ObjectGeneratorCactus(WorldProvider w, String seed) {
     /**
      * Generates the cactus.
      *
-     * @param posX Origin on the x-axis
-     * @param posY Origin on the y-axis
-     * @param posZ Origin on the z-axis
+     * @param buffer The buffer the blocks are written to
+     * @param posX   Origin on the x-axis
+     * @param posY   Origin on the y-axis
+     * @param posZ   Origin on the z-axis
      */
     @Override
-    public void generate(int posX, int posY, int posZ, boolean update) {
+    public void generate(StructureWriteBuffer buffer, int posX, int posY, int posZ) {
         for (int y = posY; y < posY + 3; y++) {
-            _worldProvider.setBlock(posX, y, posZ, (byte) 0x18, update, true);
+            buffer.setBlock(posX, y, posZ, (byte) 0x18, true);
         }
     }
 }
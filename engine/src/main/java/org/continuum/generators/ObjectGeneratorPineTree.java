@@ -34,12 +34,13 @@ public ObjectGeneratorPineTree(WorldProvider w, String seed) {
     /**
      * Generates the tree.
      *
-     * @param posX Origin on the x-axis
-     * @param posY Origin on the y-axis
-     * @param posZ Origin on the z-axis
+     * @param buffer The buffer the blocks are written to
+     * @param posX   Origin on the x-axis
+     * @param posY   Origin on the y-axis
+     * @param posZ   Origin on the z-axis
      */
     @Override
-    public void generate(int posX, int posY, int posZ, boolean update) {
+    public void generate(StructureWriteBuffer buffer, int posX, int posY, int posZ) {
         int height = Math.abs(_rand.randomInt() % 4) + 8;
 
         if (posY + height >= Configuration.CHUNK_DIMENSIONS.y) {
@@ -48,7 +49,7 @@ public void generate(int posX, int posY, int posZ, boolean update) {
 
         // Generate tree trunk
         for (int i = 0; i < height; i++) {
-            _worldProvider.setBlock(posX, posY + i, posZ, (byte) 0x5, update, true);
+            buffer.setBlock(posX, posY + i, posZ, (byte) 0x5, true);
         }
 
         int stage = 2;
@@ -57,8 +58,7 @@ public void generate(int posX, int posY, int posZ, boolean update) {
             for (int x = -(stage / 2); x <= (stage / 2); x++) {
                 for (int z = -(stage / 2); z <= (stage / 2); z++) {
                     if (!(x == 0 && z == 0)) {
-                        _worldProvider.setBlock(posX + x, posY + y, posZ + z, (byte) 0x16, update, false);
-                        _worldProvider.refreshSunlightAt(posX + x, posZ + z, false, true);
+                        buffer.setBlock(posX + x, posY + y, posZ + z, (byte) 0x16, false);
                     }
                 }
             }
@@ -66,6 +66,6 @@ public void generate(int posX, int posY, int posZ, boolean update) {
             stage++;
         }
 
-        _worldProvider.setBlock(posX, posY + height, posZ, (byte) 0x16, update, false);
+        buffer.setBlock(posX, posY + height, posZ, (byte) 0x16, false);
     }
 }
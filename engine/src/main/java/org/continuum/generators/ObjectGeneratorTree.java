@@ -33,12 +33,13 @@ public ObjectGeneratorTree(WorldProvider w, String seed) {
     /**
      * Generates the tree.
      *
-     * @param posX Origin on the x-axis
-     * @param posY Origin on the y-axis
-     * @param posZ Origin on the z-axis
+     * @param buffer The buffer the blocks are written to
+     * @param posX   Origin on the x-axis
+     * @param posY   Origin on the y-axis
+     * @param posZ   Origin on the z-axis
      */
     @Override
-    public void generate(int posX, int posY, int posZ, boolean update) {
+    public void generate(StructureWriteBuffer buffer, int posX, int posY, int posZ) {
         int height = Math.abs(_rand.randomInt() % 4) + 6;
 
         if (posY + height >= Configuration.CHUNK_DIMENSIONS.y) {
@@ -47,7 +48,7 @@ public void generate(int posX, int posY, int posZ, boolean update) {
 
         // Generate tree trunk
         for (int i = 0; i < height; i++) {
-            _worldProvider.setBlock(posX, posY + i, posZ, (byte) 0x5, update, false);
+            buffer.setBlock(posX, posY + i, posZ, (byte) 0x5, false);
         }
 
         // Generate the treetop
@@ -56,8 +57,7 @@ public void generate(int posX, int posY, int posZ, boolean update) {
                 for (int z = -2; z < 3; z++) {
                     if (!(x == -2 && z == -2) && !(x == 2 && z == 2) && !(x == -2 && z == 2) && !(x == 2 && z == -2)) {
                         if (_rand.randomDouble() <= 0.8) {
-                            _worldProvider.setBlock(posX + x, posY + y, posZ + z, (byte) 0x6, update, false);
-                            _worldProvider.refreshSunlightAt(posX + x, posZ + z, false, true);
+                            buffer.setBlock(posX + x, posY + y, posZ + z, (byte) 0x6, false);
                         }
                     }
                 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.generators;
+
+import gnu.trove.list.array.TIntArrayList;
+import javolution.util.FastMap;
+import org.continuum.main.Configuration;
+import org.continuum.utilities.MathHelper;
+import org.continuum.world.WorldProvider;
+import org.continuum.world.chunk.Chunk;
+import org.continuum.world.light.LightPropagator;
+
+/**
+ * Collects the blocks placed by object generators and writes them to their target chunks
+ * in one batch per chunk. Every target chunk is invalidated (dirty flag, light and neighbors) only
+ * once per flush instead of once per block.
+ * <p/>
+ * Writes aimed at chunks which have not been generated yet are parked within those chunks
+ * and applied as soon as they reach their decoration stage.
+ */
+public class StructureWriteBuffer {
+
+    private final WorldProvider _parent;
+    private final Chunk _origin;
+
+    private final FastMap<Integer, TIntArrayList> _writes = new FastMap<Integer, TIntArrayList>();
+    private int _lastChunkId = -1;
+    private TIntArrayList _lastWrites;
+
+    /**
+     * Init. a write buffer for edits which are not tied to the generation of a chunk.
+     *
+     * @param parent The world the blocks are written to
+     */
+    public StructureWriteBuffer(WorldProvider parent) {
+        this(parent, null);
+    }
+
+    /**
+     * Init. a write buffer used while generating the given chunk. Writes aimed at the chunk itself are applied
+     * without any invalidation, since the chunk is still being generated.
+     *
+     * @param parent The world the blocks are written to
+     * @param origin The chunk currently being generated
+     */
+    public StructureWriteBuffer(WorldProvider parent, Chunk origin) {
+        _parent = parent;
+        _origin = origin;
+    }
+
+    /**
+     * Queues a block for the given world position.
+     *
+     * @param x         The X-coordinate
+     * @param y         The Y-coordinate
+     * @param z         The Z-coordinate
+     * @param type      The type of the block to set
+     * @param overwrite If false, the block is only placed if the target position is empty
+     */
+    public void setBlock(int x, int y, int z, byte type, boolean overwrite) {
+        if (y < 0 || y >= Configuration.CHUNK_DIMENSIONS.y) {
+            return;
+        }
+
+        int chunkPosX = _parent.calcChunkPosX(x);
+        int chunkPosZ = _parent.calcChunkPosZ(z);
+
+        int chunkId = MathHelper.cantorize(MathHelper.mapToPositive(chunkPosX), MathHelper.mapToPositive(chunkPosZ));
+
+        if (chunkId != _lastChunkId || _lastWrites == null) {
+            _lastWrites = _writes.get(chunkId);
+
+            if (_lastWrites == null) {
+                _lastWrites = new TIntArrayList();
+                _writes.put(chunkId, _lastWrites);
+            }
+
+            _lastChunkId = chunkId;
+        }
+
+        _lastWrites.add(packWrite(_parent.calcBlockPosX(x, chunkPosX), y, _parent.calcBlockPosZ(z, chunkPosZ), type, overwrite));
+    }
+
+    /**
+     * Writes all queued blocks to their target chunks and clears the buffer.
+     */
+    public void flush() {
+        // Relight all chunks touched by the structures at once
+        LightPropagator propagator = _parent.getLightPropagator();
+        propagator.beginBatch();
+
+        for (FastMap.Entry<Integer, TIntArrayList> e = _writes.head(), end = _writes.tail(); (e = e.getNext()) != end; ) {
+            int chunkPosX = MathHelper.redoMapToPositive(MathHelper.cantorX(e.getKey()));
+            int chunkPosZ = MathHelper.redoMapToPositive(MathHelper.cantorY(e.getKey()));
+
+            if (_origin != null && (int) _origin.getPosition().x == chunkPosX && (int) _origin.getPosition().z == chunkPosZ) {
+                _origin.applyStructureWrites(e.getValue(), false);
+                continue;
+            }
+
+            Chunk c = _parent.getChunkCache().loadOrCreateChunk(chunkPosX, chunkPosZ);
+
+            // Chunks which are not generated yet receive the blocks during their decoration stage
+            if (!c.parkStructureWrites(e.getValue())) {
+                c.applyStructureWrites(e.getValue(), true);
+            }
+        }
+
+        propagator.endBatch();
+
+        _writes.clear();
+        _lastChunkId = -1;
+        _lastWrites = null;
+    }
+
+    /**
+     * Packs a single block write into an integer value.
+     */
+    static int packWrite(int x, int y, int z, byte type, boolean overwrite) {
+        return (x & 0xF) | ((z & 0xF) << 4) | ((y & 0xFF) << 8) | ((type & 0xFF) << 16) | (overwrite ? 1 << 24 : 0);
+    }
+
+    public static int unpackX(int write) {
+        return write & 0xF;
+    }
+
+    public static int unpackZ(int write) {
+        return (write >> 4) & 0xF;
+    }
+
+    public static int unpackY(int write) {
+        return (write >> 8) & 0xFF;
+    }
+
+    public static byte unpackType(int write) {
+        return (byte) ((write >> 16) & 0xFF);
+    }
+
+    public static boolean unpackOverwrite(int write) {
+        return (write & (1 << 24)) != 0;
+    }
+}
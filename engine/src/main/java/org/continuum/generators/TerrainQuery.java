@@ -0,0 +1,257 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.generators;
+
+import org.continuum.main.Configuration;
+import org.continuum.utilities.MathHelper;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Answers approximate questions about the terrain (surface height, biome and water level)
+ * for any position without generating chunks.
+ * <p/>
+ * The surface height is found using a binary search on the density function of the terrain generator.
+ * This is only done on a coarse lattice. The results are stored in tiles which are kept in a LRU cache,
+ * the values in between the lattice points are interpolated.
+ */
+public class TerrainQuery {
+
+    /**
+     * Amount of columns per tile along each axis.
+     */
+    public static final int TILE_SIZE = 32;
+    /**
+     * Distance between two lattice points the density function is evaluated at.
+     */
+    public static final int SAMPLE_RATE = 8;
+    /**
+     * The height of the ocean surface.
+     */
+    public static final int WATER_LEVEL = 32;
+
+    private static final int LATTICE_SIZE = TILE_SIZE / SAMPLE_RATE + 1;
+
+    /**
+     * Coarse height and climate data of a square area of the world.
+     */
+    private static class Tile {
+        final float[] heights = new float[LATTICE_SIZE * LATTICE_SIZE];
+        final float[] temperature = new float[LATTICE_SIZE * LATTICE_SIZE];
+        final float[] humidity = new float[LATTICE_SIZE * LATTICE_SIZE];
+    }
+
+    private final ChunkGeneratorTerrain _generator;
+    private final LinkedHashMap<Long, Tile> _tiles;
+
+    /**
+     * @param generator The terrain generator to query
+     */
+    public TerrainQuery(ChunkGeneratorTerrain generator) {
+        this(generator, 256);
+    }
+
+    /**
+     * @param generator     The terrain generator to query
+     * @param cacheCapacity The maximum amount of cached tiles
+     */
+    public TerrainQuery(ChunkGeneratorTerrain generator, final int cacheCapacity) {
+        _generator = generator;
+        _tiles = new LinkedHashMap<Long, Tile>(cacheCapacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Tile> eldest) {
+                return size() > cacheCapacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the approximate height of the top most solid block at the given world position.
+     *
+     * @param x World position on the x-axis
+     * @param z World position on the z-axis
+     * @return The surface height
+     */
+    public int getSurfaceHeight(int x, int z) {
+        return (int) interpolate(getTile(x, z).heights, x, z);
+    }
+
+    /**
+     * Returns the biome at the given world position.
+     *
+     * @param x World position on the x-axis
+     * @param z World position on the z-axis
+     * @return The biome
+     */
+    public ChunkGeneratorTerrain.BIOME_TYPE getBiome(int x, int z) {
+        Tile tile = getTile(x, z);
+        return ChunkGeneratorTerrain.calcBiomeType(interpolate(tile.temperature, x, z), interpolate(tile.humidity, x, z));
+    }
+
+    /**
+     * Returns the height of the water surface at the given world position.
+     *
+     * @param x World position on the x-axis
+     * @param z World position on the z-axis
+     * @return The height of the water surface or -1 if the position is not covered by water
+     */
+    public int getWaterLevel(int x, int z) {
+        return getSurfaceHeight(x, z) < WATER_LEVEL ? WATER_LEVEL : -1;
+    }
+
+    /**
+     * Returns the surface heights of a rectangular area.
+     *
+     * @param x       World position of the area on the x-axis
+     * @param z       World position of the area on the z-axis
+     * @param sizeX   Size of the area on the x-axis
+     * @param sizeZ   Size of the area on the z-axis
+     * @param heights Receives the heights, indexed by localX * sizeZ + localZ
+     */
+    public void getSurfaceHeights(int x, int z, int sizeX, int sizeZ, int[] heights) {
+        for (int localX = 0; localX < sizeX; localX++) {
+            Tile tile = null;
+            long lastKey = 0;
+
+            for (int localZ = 0; localZ < sizeZ; localZ++) {
+                long key = calcTileKey(x + localX, z + localZ);
+
+                // Only hit the cache if the tile changes
+                if (tile == null || key != lastKey) {
+                    tile = getTile(x + localX, z + localZ);
+                    lastKey = key;
+                }
+
+                heights[localX * sizeZ + localZ] = (int) interpolate(tile.heights, x + localX, z + localZ);
+            }
+        }
+    }
+
+    /**
+     * Returns the biomes of a rectangular area.
+     *
+     * @param x      World position of the area on the x-axis
+     * @param z      World position of the area on the z-axis
+     * @param sizeX  Size of the area on the x-axis
+     * @param sizeZ  Size of the area on the z-axis
+     * @param biomes Receives the biomes, indexed by localX * sizeZ + localZ
+     */
+    public void getBiomes(int x, int z, int sizeX, int sizeZ, ChunkGeneratorTerrain.BIOME_TYPE[] biomes) {
+        for (int localX = 0; localX < sizeX; localX++) {
+            Tile tile = null;
+            long lastKey = 0;
+
+            for (int localZ = 0; localZ < sizeZ; localZ++) {
+                long key = calcTileKey(x + localX, z + localZ);
+
+                if (tile == null || key != lastKey) {
+                    tile = getTile(x + localX, z + localZ);
+                    lastKey = key;
+                }
+
+                biomes[localX * sizeZ + localZ] = ChunkGeneratorTerrain.calcBiomeType(interpolate(tile.temperature, x + localX, z + localZ), interpolate(tile.humidity, x + localX, z + localZ));
+            }
+        }
+    }
+
+    /**
+     * Returns the tile containing the given world position. Missing tiles are calculated.
+     *
+     * @param x World position on the x-axis
+     * @param z World position on the z-axis
+     * @return The tile
+     */
+    private Tile getTile(int x, int z) {
+        long key = calcTileKey(x, z);
+
+        synchronized (_tiles) {
+            Tile tile = _tiles.get(key);
+
+            if (tile != null)
+                return tile;
+        }
+
+        // Tiles are deterministic, calculating one twice is harmless
+        Tile tile = calcTile(Math.floorDiv(x, TILE_SIZE) * TILE_SIZE, Math.floorDiv(z, TILE_SIZE) * TILE_SIZE);
+
+        synchronized (_tiles) {
+            _tiles.put(key, tile);
+        }
+
+        return tile;
+    }
+
+    private Tile calcTile(int tileX, int tileZ) {
+        Tile tile = new Tile();
+
+        for (int lx = 0; lx < LATTICE_SIZE; lx++) {
+            for (int lz = 0; lz < LATTICE_SIZE; lz++) {
+                int x = tileX + lx * SAMPLE_RATE;
+                int z = tileZ + lz * SAMPLE_RATE;
+                int i = lx * LATTICE_SIZE + lz;
+
+                double temp = _generator.calcTemperatureAtGlobalPosition(x, z);
+                double humidity = _generator.calcHumidityAtGlobalPosition(x, z);
+
+                tile.temperature[i] = (float) temp;
+                tile.humidity[i] = (float) humidity;
+                tile.heights[i] = calcSurfaceHeight(x, z, ChunkGeneratorTerrain.calcBiomeType(temp, humidity));
+            }
+        }
+
+        return tile;
+    }
+
+    /**
+     * Searches the highest block with a positive density using a binary search.
+     */
+    private int calcSurfaceHeight(int x, int z, ChunkGeneratorTerrain.BIOME_TYPE biome) {
+        int low = 0;
+        int high = (int) Configuration.CHUNK_DIMENSIONS.y - 1;
+
+        while (low < high) {
+            int mid = (low + high + 1) / 2;
+
+            if (_generator.calcDensity(x, mid, z, biome) >= 0) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return low;
+    }
+
+    private static double interpolate(float[] lattice, int x, int z) {
+        int localX = Math.floorMod(x, TILE_SIZE);
+        int localZ = Math.floorMod(z, TILE_SIZE);
+
+        int lx = localX / SAMPLE_RATE;
+        int lz = localZ / SAMPLE_RATE;
+
+        double q11 = lattice[lx * LATTICE_SIZE + lz];
+        double q12 = lattice[lx * LATTICE_SIZE + lz + 1];
+        double q21 = lattice[(lx + 1) * LATTICE_SIZE + lz];
+        double q22 = lattice[(lx + 1) * LATTICE_SIZE + lz + 1];
+
+        return MathHelper.biLerp(localX, localZ, q11, q12, q21, q22, lx * SAMPLE_RATE, (lx + 1) * SAMPLE_RATE, lz * SAMPLE_RATE, (lz + 1) * SAMPLE_RATE);
+    }
+
+    private static long calcTileKey(int x, int z) {
+        return ((long) Math.floorDiv(x, TILE_SIZE) << 32) | (Math.floorDiv(z, TILE_SIZE) & 0xFFFFFFFFL);
+    }
+}
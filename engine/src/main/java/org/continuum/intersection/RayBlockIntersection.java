@@ -16,6 +16,7 @@
 package org.continuum.intersection;
 
 import org.continuum.blocks.Block;
+import org.continuum.blocks.BlockRegistry;
 import org.continuum.world.World;
 import javolution.util.FastList;
 import org.lwjgl.util.vector.Vector3f;
@@ -111,7 +112,7 @@ public static FastList<Intersection> executeIntersection(World w, int x, int y,
         /*
 * Ignore invisible blocks.
 */
-        if (Block.getBlockForType(w.getBlock(x, y, z)).isBlockInvisible()) {
+        if (BlockRegistry.isInvisible(w.getBlock(x, y, z))) {
             return null;
         }
 
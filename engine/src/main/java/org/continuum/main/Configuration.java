@@ -71,6 +71,11 @@ public final class Configuration {
     public static final double PROB_SILVER = -2.5;
     public static final double PROB_REDSTONE = -3;
     public static final double PROB_DIAMOND = -4;
+    public static final int VEIN_SIZE_COAL = 8;
+    public static final int VEIN_SIZE_GOLD = 4;
+    public static final int VEIN_SIZE_SILVER = 5;
+    public static final int VEIN_SIZE_REDSTONE = 6;
+    public static final int VEIN_SIZE_DIAMOND = 3;
 
     /* -------- */
     private static final FastMap<String, Double> _settingsNumeric = new FastMap<String, Double>();
@@ -145,6 +150,11 @@ private static void loadDefaults() {
         settingsBoolean.put("BOBBING", true);
         settingsBoolean.put("DEMO_FLIGHT", false);
         settingsBoolean.put("GOD_MODE", false);
+        settingsBoolean.put("CAVES", true);
+        settingsBoolean.put("GREEDY_MESHING", false);
+        settingsBoolean.put("MESH_CACHE", true);
+        settingsBoolean.put("HORIZON", true);
+        settingsBoolean.put("BILLBOARD_LOD", true);
         _settingsNumeric.put("JUMP_INTENSITY", 0.125);
         _settingsNumeric.put("MAX_GRAVITY", 0.7);
         _settingsNumeric.put("WALKING_SPEED", 0.03);
@@ -155,6 +165,10 @@ private static void loadDefaults() {
         _settingsNumeric.put("FRICTION", 0.08);
         _settingsNumeric.put("V_DIST_X", 32.0);
         _settingsNumeric.put("V_DIST_Z", 32.0);
+        _settingsNumeric.put("MESH_CACHE_SIZE", 64.0);
+        _settingsNumeric.put("HORIZON_DIST", 128.0);
+        _settingsNumeric.put("HORIZON_BUDGET", 2.0);
+        _settingsNumeric.put("BILLBOARD_LOD_DIST", 48.0);
     }
 
     public static void loadDebug() {
@@ -176,5 +190,6 @@ public static void loadDemo() {
     public static void loadSandboxed() {
         _settingsNumeric.put("V_DIST_X", 8.0);
         _settingsNumeric.put("V_DIST_Z", 8.0);
+        _settingsNumeric.put("HORIZON_DIST", 32.0);
     }
 }
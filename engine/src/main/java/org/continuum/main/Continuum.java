@@ -35,6 +35,7 @@
 import org.continuum.utilities.FastRandom;
 import org.continuum.world.World;
 import org.continuum.world.chunk.Chunk;
+import org.continuum.world.horizon.Horizon;
 import javolution.util.FastList;
 import org.lwjgl.LWJGLException;
 import org.lwjgl.Sys;
@@ -254,6 +255,11 @@ private void render() {
         // Update the viewing distance
         double minDist = Math.min(Configuration.getSettingNumeric("V_DIST_X") * Configuration.CHUNK_DIMENSIONS.x, Configuration.getSettingNumeric("V_DIST_Z") * Configuration.CHUNK_DIMENSIONS.z);
         double viewingDistance = minDist / 2f;
+
+        // The fog has to reach the end of the distant horizon
+        if (Horizon.isEnabled())
+            viewingDistance = Math.max(viewingDistance, Horizon.getRadius());
+
         glFogf(GL_FOG_START, (float) (viewingDistance * 0.25));
         glFogf(GL_FOG_END, (float) viewingDistance);
 
@@ -267,6 +273,18 @@ private void render() {
         renderHUD();
     }
 
+    /**
+     * Returns the distance of the far clipping plane, which has to include the distant horizon.
+     *
+     * @return The distance of the far clipping plane
+     */
+    static float calcFarPlane() {
+        if (Horizon.isEnabled())
+            return (float) Math.max(1024.0, Horizon.getRadius() * 1.5);
+
+        return 1024f;
+    }
+
     /**
      * Resizes the viewport according to the chosen display width and height.
      */
@@ -275,7 +293,7 @@ private void resizeViewport() {
 
         glMatrixMode(GL_PROJECTION);
         glLoadIdentity();
-        gluPerspective(80.0f, (float) Display.getDisplayMode().getWidth() / (float) Display.getDisplayMode().getHeight(), 0.1f, 1024f);
+        gluPerspective(80.0f, (float) Display.getDisplayMode().getWidth() / (float) Display.getDisplayMode().getHeight(), 0.1f, calcFarPlane());
         glPushMatrix();
 
         glMatrixMode(GL_MODELVIEW);
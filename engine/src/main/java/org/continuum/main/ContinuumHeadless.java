@@ -0,0 +1,343 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.main;
+
+import javolution.util.FastList;
+import org.continuum.audio.AudioManager;
+import org.continuum.datastructures.AABB;
+import org.continuum.datastructures.FrustumPlane;
+import org.continuum.datastructures.ViewFrustum;
+import org.continuum.rendering.NullRenderDevice;
+import org.continuum.rendering.RenderDevice;
+import org.continuum.rendering.RenderDeviceManager;
+import org.continuum.world.ChunkGrid;
+import org.continuum.world.World;
+import org.continuum.world.characters.Player;
+import org.continuum.world.chunk.Chunk;
+import org.lwjgl.util.vector.Vector3f;
+
+import java.util.Arrays;
+import java.util.logging.Level;
+
+import static org.lwjgl.opengl.GL11.GL_MODELVIEW;
+import static org.lwjgl.opengl.GL11.GL_PROJECTION;
+
+/**
+ * Runs Continuum without a display: Once the world around the spawning point has been generated, the world is
+ * rendered through the {@link NullRenderDevice} along the scripted flight of the demo mode and the recorded draw
+ * calls, state changes and uploads are reported per frame. Finally the culling of the chunks in proximity is
+ * benchmarked along a scripted camera path.
+ * <p/>
+ * Usage: ContinuumHeadless [frames] [seed]
+ */
+public final class ContinuumHeadless {
+
+    private static final int DEFAULT_FRAMES = 1000;
+    private static final String DEFAULT_SEED = "Blockmania42";
+
+    /* The world has settled when no VBO was uploaded for this many frames */
+    private static final int QUIET_FRAMES = 120;
+    private static final long WARM_UP_TIMEOUT = 60000;
+
+    /* The camera path of the culling benchmark */
+    private static final int CULLING_VIEWS = 360;
+    private static final int CULLING_PASSES = 50;
+
+    private final NullRenderDevice _device = new NullRenderDevice();
+    private final int _frames;
+    private final String _seed;
+
+    private World _world;
+
+    /* STATISTICS */
+    private long _drawCalls, _drawnElements, _stateChanges, _uniformUpdates, _uploads, _uploadedBytes;
+    private long[] _frameTimes;
+
+    public ContinuumHeadless(int frames, String seed) {
+        _frames = frames;
+        _seed = seed;
+    }
+
+    /**
+     * Entry point of the headless harness.
+     *
+     * @param args The number of frames to measure and the seed of the world
+     */
+    public static void main(String[] args) {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_FRAMES;
+        String seed = args.length > 1 ? args[1] : DEFAULT_SEED;
+
+        ContinuumHeadless harness = new ContinuumHeadless(frames, seed);
+
+        try {
+            harness.init();
+            harness.warmUp();
+            harness.run();
+            System.out.println(harness.report());
+            System.out.println(harness.benchmarkCulling());
+        } catch (Exception e) {
+            Continuum.getInstance().getLogger().log(Level.SEVERE, "Headless run failed. " + e.toString(), e);
+        } finally {
+            harness.dispose();
+        }
+
+        System.exit(0);
+    }
+
+    /**
+     * Installs the null device and creates the world and the player of the demo flight.
+     */
+    public void init() {
+        RenderDeviceManager.setDevice(_device);
+        AudioManager.setEnabled(false);
+
+        // Nothing is written to disk and the camera hovers at the spawning point until the world has settled
+        Configuration.setSetting("SANDBOXED", true);
+        Configuration.loadDemo();
+        Configuration.setSetting("DEMO_FLIGHT", false);
+
+        Continuum.getInstance().getLogger().log(Level.INFO, "Creating headless world with seed \"{0}\"...", _seed);
+
+        _world = new World("Headless", _seed);
+        _world.setPlayer(new Player(_world));
+
+        RenderDevice device = RenderDeviceManager.getDevice();
+        device.setMatrixMode(GL_PROJECTION);
+        device.loadIdentity();
+        device.perspective(80.0f, (float) Configuration.DISPLAY_MODE.getWidth() / (float) Configuration.DISPLAY_MODE.getHeight(), 0.1f, Continuum.calcFarPlane());
+        device.setMatrixMode(GL_MODELVIEW);
+        device.loadIdentity();
+
+        _world.startUpdateThread();
+    }
+
+    /**
+     * Renders frames until the chunks and the distant terrain around the hovering player are generated and uploaded.
+     */
+    public void warmUp() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        int quietFrames = 0;
+
+        while (quietFrames < QUIET_FRAMES && System.currentTimeMillis() - start < WARM_UP_TIMEOUT) {
+            _device.reset();
+            renderFrame();
+
+            quietFrames = _device.getUploads() == 0 ? quietFrames + 1 : 0;
+
+            // Leave the CPU to the update thread
+            Thread.sleep(1);
+        }
+
+        Continuum.getInstance().getLogger().log(Level.INFO, "Warm-up took {0}ms.", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Renders the measured frames along the scripted flight of the demo mode.
+     */
+    public void run() {
+        Configuration.setSetting("DEMO_FLIGHT", true);
+        _frameTimes = new long[_frames];
+
+        for (int i = 0; i < _frames; i++) {
+            _device.reset();
+
+            long start = System.nanoTime();
+            renderFrame();
+            _frameTimes[i] = System.nanoTime() - start;
+
+            _drawCalls += _device.getDrawCalls();
+            _drawnElements += _device.getDrawnElements();
+            _stateChanges += _device.getStateChanges();
+            _uniformUpdates += _device.getUniformUpdates();
+            _uploads += _device.getUploads();
+            _uploadedBytes += _device.getUploadedBytes();
+        }
+    }
+
+    private void renderFrame() {
+        _world.update();
+        _world.render();
+    }
+
+    /**
+     * @return The statistics of the measured frames
+     */
+    public String report() {
+        long[] sorted = _frameTimes.clone();
+        Arrays.sort(sorted);
+
+        long total = 0;
+        for (long t : sorted) {
+            total += t;
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("frames: %d (seed: \"%s\")%n", _frames, _seed));
+        report.append(String.format("frame time: %.3fms avg, %.3fms median, %.3fms 95th, %.3fms max%n", total / (double) _frames / 1e6, sorted[_frames / 2] / 1e6, sorted[(int) (_frames * 0.95)] / 1e6, sorted[_frames - 1] / 1e6));
+        report.append(String.format("per frame: %.1f draw calls, %.0f elements, %.1f state changes, %.1f uniform updates%n", _drawCalls / (double) _frames, _drawnElements / (double) _frames, _stateChanges / (double) _frames, _uniformUpdates / (double) _frames));
+        report.append(String.format("uploads: %d (%dKB)%n", _uploads, _uploadedBytes / 1024));
+        report.append(_world);
+
+        return report.toString();
+    }
+
+    /**
+     * Culls the chunks in proximity along a camera path turning twice around the center of the chunks, looking up and
+     * down and moving up and down. The culling of the old renderer (every chunk tested on its own) is compared to the
+     * quadtree culling of the {@link ChunkGrid}.
+     *
+     * @return The duration and the amount of frustum tests of each method
+     */
+    public String benchmarkCulling() {
+        FastList<Chunk> chunks = _world.getChunksInProximity();
+        Chunk[] chunkArray = chunks.toArray(new Chunk[chunks.size()]);
+
+        int minX = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+
+        for (Chunk c : chunkArray) {
+            minX = Math.min(minX, (int) c.getPosition().x);
+            minZ = Math.min(minZ, (int) c.getPosition().z);
+            maxX = Math.max(maxX, (int) c.getPosition().x);
+            maxZ = Math.max(maxZ, (int) c.getPosition().z);
+        }
+
+        ChunkGrid grid = new ChunkGrid(minX, minZ, maxX - minX + 1, maxZ - minZ + 1);
+
+        for (Chunk c : chunkArray) {
+            grid.set((int) c.getPosition().x - minX, (int) c.getPosition().z - minZ, c);
+        }
+
+        float centerX = (minX + maxX + 1) / 2f * Configuration.CHUNK_DIMENSIONS.x;
+        float centerZ = (minZ + maxZ + 1) / 2f * Configuration.CHUNK_DIMENSIONS.z;
+        ViewFrustum[] views = createCameraPath(centerX, centerZ);
+
+        long cornerTime = 0, intersectsTime = 0, gridTime = 0;
+        long cornerTests = 0, gridTests = 0, visible = 0, mismatches = 0;
+        Chunk[] visibleChunks = new Chunk[chunkArray.length];
+
+        // The methods take turns, so they are measured under the same conditions
+        for (int pass = 0; pass < CULLING_PASSES; pass++) {
+            for (ViewFrustum frustum : views) {
+                long start = System.nanoTime();
+                FastList<Chunk> cornerResult = new FastList<Chunk>();
+
+                for (FastList.Node<Chunk> n = chunks.head(), end = chunks.tail(); (n = n.getNext()) != end; ) {
+                    if (intersectsCorners(frustum, n.getValue().getAABB()))
+                        cornerResult.add(n.getValue());
+                }
+
+                cornerTime += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                FastList<Chunk> intersectsResult = new FastList<Chunk>();
+
+                for (FastList.Node<Chunk> n = chunks.head(), end = chunks.tail(); (n = n.getNext()) != end; ) {
+                    if (frustum.intersects(n.getValue().getAABB()))
+                        intersectsResult.add(n.getValue());
+                }
+
+                intersectsTime += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                gridTests += grid.cull(frustum);
+                int count = 0;
+
+                for (FastList.Node<Chunk> n = chunks.head(), end = chunks.tail(); (n = n.getNext()) != end; ) {
+                    if (n.getValue().isVisible())
+                        visibleChunks[count++] = n.getValue();
+                }
+
+                gridTime += System.nanoTime() - start;
+
+                cornerTests += chunkArray.length;
+                visible += count;
+
+                if (count != cornerResult.size() || count != intersectsResult.size())
+                    mismatches++;
+            }
+        }
+
+        int cullings = CULLING_PASSES * views.length;
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("culling: %d chunks, %d views, %.1f visible on average, %d mismatches%n", chunkArray.length, cullings, visible / (double) cullings, mismatches));
+        report.append(String.format("per chunk (8 corners): %.4fms, %d tests%n", cornerTime / (double) cullings / 1e6, cornerTests / cullings));
+        report.append(String.format("per chunk (intersects): %.4fms, %d tests%n", intersectsTime / (double) cullings / 1e6, cornerTests / cullings));
+        report.append(String.format("chunk grid: %.4fms, %d tests", gridTime / (double) cullings / 1e6, gridTests / cullings));
+
+        return report.toString();
+    }
+
+    /**
+     * Creates the view frustums of the camera path of the culling benchmark.
+     */
+    private ViewFrustum[] createCameraPath(float centerX, float centerZ) {
+        RenderDevice device = RenderDeviceManager.getDevice();
+        ViewFrustum[] views = new ViewFrustum[CULLING_VIEWS];
+
+        device.setMatrixMode(GL_MODELVIEW);
+        device.pushMatrix();
+
+        for (int i = 0; i < CULLING_VIEWS; i++) {
+            double t = i / (double) CULLING_VIEWS;
+            double yaw = t * 4.0 * Math.PI;
+            double pitch = Math.sin(t * 6.0 * Math.PI) * Math.toRadians(60.0);
+
+            Vector3f eye = new Vector3f(centerX + (float) (Math.sin(t * 2.0 * Math.PI) * 64.0), 64f + (float) (Math.cos(t * 2.0 * Math.PI) * 48.0), centerZ);
+            Vector3f direction = new Vector3f((float) (Math.cos(pitch) * Math.sin(yaw)), (float) Math.sin(pitch), (float) (Math.cos(pitch) * Math.cos(yaw)));
+
+            device.loadIdentity();
+            device.lookAt(eye.x, eye.y, eye.z, eye.x + direction.x, eye.y + direction.y, eye.z + direction.z, 0, 1, 0);
+
+            views[i] = new ViewFrustum();
+            views[i].updateFrustum();
+        }
+
+        device.popMatrix();
+
+        return views;
+    }
+
+    /**
+     * The box test of the old renderer: A box is outside of the frustum if all eight corners are behind a plane.
+     */
+    private static boolean intersectsCorners(ViewFrustum frustum, AABB aabb) {
+        Vector3f[] corners = aabb.getVertices();
+
+        for (int i = 0; i < 6; i++) {
+            FrustumPlane plane = frustum.getPlane(i);
+            boolean inside = false;
+
+            for (Vector3f corner : corners) {
+                if (plane.getA() * corner.x + plane.getB() * corner.y + plane.getC() * corner.z + plane.getD() > 0) {
+                    inside = true;
+                    break;
+                }
+            }
+
+            if (!inside)
+                return false;
+        }
+
+        return true;
+    }
+
+    public void dispose() {
+        if (_world != null) {
+            _world.dispose();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.rendering;
+
+import javolution.util.FastList;
+import org.lwjgl.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Provides direct buffers which are returned to the pool after use instead of being left to the garbage collector.
+ * The buffers are grouped by size classes (powers of two), so a released buffer can be leased again for any request
+ * of the same size class.
+ */
+public class DirectBufferPool {
+
+    private static final int MIN_SIZE_CLASS = 10;
+    private static final int MAX_SIZE_CLASS = 30;
+
+    /**
+     * Released buffers exceeding this amount of memory are not kept within the pool.
+     */
+    private static final long MAX_POOLED_BYTES = 64L * 1024 * 1024;
+
+    private static final DirectBufferPool _instance = new DirectBufferPool();
+
+    private final FastList<ByteBuffer>[] _pools;
+
+    private final AtomicLong _allocatedBytes = new AtomicLong();
+    private long _pooledBytes;
+
+    public static DirectBufferPool getInstance() {
+        return _instance;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public DirectBufferPool() {
+        _pools = new FastList[MAX_SIZE_CLASS + 1];
+
+        for (int i = MIN_SIZE_CLASS; i <= MAX_SIZE_CLASS; i++) {
+            _pools[i] = new FastList<ByteBuffer>();
+        }
+    }
+
+    /**
+     * Leases a direct buffer in native byte order. The buffer is cleared and its limit is set to the requested size.
+     *
+     * @param size The size in bytes
+     * @return The buffer
+     */
+    public ByteBuffer lease(int size) {
+        int sizeClass = calcSizeClass(size);
+        ByteBuffer buffer = null;
+
+        synchronized (this) {
+            if (!_pools[sizeClass].isEmpty()) {
+                buffer = _pools[sizeClass].removeLast();
+                _pooledBytes -= buffer.capacity();
+            }
+        }
+
+        if (buffer == null) {
+            buffer = BufferUtils.createByteBuffer(1 << sizeClass);
+            _allocatedBytes.addAndGet(buffer.capacity());
+        }
+
+        buffer.clear();
+        buffer.limit(size);
+
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer obtained by {@link #lease} to the pool. The buffer must not be used afterwards.
+     *
+     * @param buffer The buffer
+     */
+    public void release(ByteBuffer buffer) {
+        synchronized (this) {
+            if (_pooledBytes + buffer.capacity() <= MAX_POOLED_BYTES) {
+                _pools[calcSizeClass(buffer.capacity())].addLast(buffer);
+                _pooledBytes += buffer.capacity();
+                return;
+            }
+        }
+
+        // Left to the garbage collector
+        _allocatedBytes.addAndGet(-buffer.capacity());
+    }
+
+    /**
+     * Returns the amount of direct memory allocated by the pool (leased and pooled buffers).
+     */
+    public long getAllocatedBytes() {
+        return _allocatedBytes.get();
+    }
+
+    /**
+     * Returns the amount of direct memory held by buffers which are currently not leased.
+     */
+    public synchronized long getPooledBytes() {
+        return _pooledBytes;
+    }
+
+    private static int calcSizeClass(int size) {
+        int sizeClass = Math.max(MIN_SIZE_CLASS, 32 - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1));
+
+        if (sizeClass > MAX_SIZE_CLASS)
+            throw new IllegalArgumentException("Buffer size exceeds the largest size class: " + size);
+
+        return sizeClass;
+    }
+}
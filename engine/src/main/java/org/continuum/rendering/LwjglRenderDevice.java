@@ -0,0 +1,288 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.rendering;
+
+import org.continuum.main.Continuum;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.util.glu.GLU;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.logging.Level;
+
+import static org.lwjgl.opengl.GL11.*;
+
+/**
+ * Submits the rendering operations to OpenGL using LWJGL. Has to be used by the thread owning the GL context.
+ */
+public class LwjglRenderDevice implements RenderDevice {
+
+    public LwjglRenderDevice() {
+        Continuum.getInstance().getLogger().log(Level.INFO, "GL_VERSION: {0}", GL11.glGetString(GL11.GL_VERSION));
+        Continuum.getInstance().getLogger().log(Level.INFO, "SHADING_LANGUAGE VERSION: {0}", GL11.glGetString(GL20.GL_SHADING_LANGUAGE_VERSION));
+        Continuum.getInstance().getLogger().log(Level.INFO, "EXTENSIONS: {0}", GL11.glGetString(GL11.GL_EXTENSIONS));
+    }
+
+    public void createBuffers(IntBuffer ids) {
+        GL15.glGenBuffers(ids);
+    }
+
+    public void uploadVertexBuffer(int id, ByteBuffer data, int usage) {
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, id);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, data, usage);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+
+    public void uploadVertexBuffer(int id, FloatBuffer data, int usage) {
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, id);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, data, usage);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+
+    public void uploadIndexBuffer(int id, ByteBuffer data, int usage) {
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, id);
+        GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, data, usage);
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+    }
+
+    public void uploadIndexBuffer(int id, IntBuffer data, int usage) {
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, id);
+        GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, data, usage);
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+    }
+
+    public void bindVertexBuffer(int id) {
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, id);
+    }
+
+    public void bindIndexBuffer(int id) {
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, id);
+    }
+
+    public void enableClientState(int state) {
+        glEnableClientState(state);
+    }
+
+    public void disableClientState(int state) {
+        glDisableClientState(state);
+    }
+
+    public void setVertexPointer(int size, int type, int stride, long offset) {
+        glVertexPointer(size, type, stride, offset);
+    }
+
+    public void setColorPointer(int size, int type, int stride, long offset) {
+        glColorPointer(size, type, stride, offset);
+    }
+
+    public void drawElements(int mode, int maxIndex, int count) {
+        GL12.glDrawRangeElements(mode, 0, maxIndex, count, GL_UNSIGNED_INT, 0);
+    }
+
+    public void drawArrays(int mode, int first, int count) {
+        glDrawArrays(mode, first, count);
+    }
+
+    public int compileList(Runnable commands) {
+        int list = glGenLists(1);
+
+        glNewList(list, GL_COMPILE);
+        commands.run();
+        glEndList();
+
+        return list;
+    }
+
+    public void callList(int list) {
+        glCallList(list);
+    }
+
+    public void begin(int mode) {
+        glBegin(mode);
+    }
+
+    public void color(float r, float g, float b) {
+        glColor3f(r, g, b);
+    }
+
+    public void color(float r, float g, float b, float a) {
+        glColor4f(r, g, b, a);
+    }
+
+    public void texCoord(float u, float v) {
+        glTexCoord2f(u, v);
+    }
+
+    public void vertex(float x, float y, float z) {
+        glVertex3f(x, y, z);
+    }
+
+    public void end() {
+        glEnd();
+    }
+
+    public int createTexture() {
+        return glGenTextures();
+    }
+
+    public void setActiveTextureUnit(int unit) {
+        GL13.glActiveTexture(GL13.GL_TEXTURE0 + unit);
+    }
+
+    public void bindTexture(int texture) {
+        glBindTexture(GL_TEXTURE_2D, texture);
+    }
+
+    public void uploadTexture(int width, int height, ByteBuffer rgba) {
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, width, height, 0, GL_RGBA, GL_UNSIGNED_BYTE, rgba);
+    }
+
+    public int createProgram(String vertexSource, String fragmentSource) {
+        int program = GL20.glCreateProgram();
+
+        GL20.glAttachShader(program, createShader(GL20.GL_FRAGMENT_SHADER, fragmentSource));
+        GL20.glAttachShader(program, createShader(GL20.GL_VERTEX_SHADER, vertexSource));
+        GL20.glLinkProgram(program);
+        GL20.glValidateProgram(program);
+
+        return program;
+    }
+
+    private static int createShader(int type, String source) {
+        int shader = GL20.glCreateShader(type);
+
+        GL20.glShaderSource(shader, source);
+        GL20.glCompileShader(shader);
+
+        printLogInfo(shader);
+
+        return shader;
+    }
+
+    private static void printLogInfo(int obj) {
+        IntBuffer intBuffer = BufferUtils.createIntBuffer(1);
+        GL20.glGetShader(obj, GL20.GL_INFO_LOG_LENGTH, intBuffer);
+
+        int length = intBuffer.get();
+
+        if (length <= 1) {
+            return;
+        }
+
+        ByteBuffer infoBuffer = BufferUtils.createByteBuffer(length);
+        intBuffer.flip();
+
+        GL20.glGetShaderInfoLog(obj, intBuffer, infoBuffer);
+
+        int actualLength = intBuffer.get();
+        byte[] infoBytes = new byte[actualLength];
+        infoBuffer.get(infoBytes);
+
+        Continuum.getInstance().getLogger().log(Level.INFO, "{0}", new String(infoBytes));
+    }
+
+    public void useProgram(int program) {
+        GL20.glUseProgram(program);
+    }
+
+    public int getUniformLocation(int program, String name) {
+        return GL20.glGetUniformLocation(program, name);
+    }
+
+    public void setUniform(int location, int value) {
+        GL20.glUniform1i(location, value);
+    }
+
+    public void setUniform(int location, float value) {
+        GL20.glUniform1f(location, value);
+    }
+
+    public void setUniform(int location, float x, float y, float z) {
+        GL20.glUniform3f(location, x, y, z);
+    }
+
+    public void setUniform(int location, float x, float y, float z, float w) {
+        GL20.glUniform4f(location, x, y, z, w);
+    }
+
+    public void enable(int capability) {
+        glEnable(capability);
+    }
+
+    public void disable(int capability) {
+        glDisable(capability);
+    }
+
+    public void setBlendFunc(int source, int destination) {
+        glBlendFunc(source, destination);
+    }
+
+    public void setColorMask(boolean red, boolean green, boolean blue, boolean alpha) {
+        glColorMask(red, green, blue, alpha);
+    }
+
+    public void setLineWidth(float width) {
+        glLineWidth(width);
+    }
+
+    public void setMatrixMode(int mode) {
+        glMatrixMode(mode);
+    }
+
+    public void loadIdentity() {
+        glLoadIdentity();
+    }
+
+    public void pushMatrix() {
+        glPushMatrix();
+    }
+
+    public void popMatrix() {
+        glPopMatrix();
+    }
+
+    public void translate(float x, float y, float z) {
+        glTranslatef(x, y, z);
+    }
+
+    public void rotate(float angle, float x, float y, float z) {
+        glRotatef(angle, x, y, z);
+    }
+
+    public void scale(float x, float y, float z) {
+        glScalef(x, y, z);
+    }
+
+    public void perspective(float fovy, float aspect, float zNear, float zFar) {
+        GLU.gluPerspective(fovy, aspect, zNear, zFar);
+    }
+
+    public void lookAt(float eyeX, float eyeY, float eyeZ, float centerX, float centerY, float centerZ, float upX, float upY, float upZ) {
+        GLU.gluLookAt(eyeX, eyeY, eyeZ, centerX, centerY, centerZ, upX, upY, upZ);
+    }
+
+    public void getMatrix(int matrix, FloatBuffer values) {
+        glGetFloat(matrix, values);
+    }
+}
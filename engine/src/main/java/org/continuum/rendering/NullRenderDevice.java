@@ -0,0 +1,434 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.rendering;
+
+import org.lwjgl.opengl.GL11;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A render device without a graphics card. Nothing is drawn, the device only counts the submitted draw calls,
+ * state changes and uploaded bytes, so the CPU side of a frame can be profiled on machines without a GPU (see
+ * {@link RenderDeviceManager#setDevice}).
+ * <p/>
+ * Display lists are not recorded: Their commands are not run. The matrix stacks are tracked in software, so the
+ * view frustum derived from the matrices matches the one of the OpenGL device.
+ */
+public class NullRenderDevice implements RenderDevice {
+
+    private int _nextName = 1;
+
+    /* STATISTICS */
+    private long _drawCalls, _drawnElements, _stateChanges, _uniformUpdates, _uploadedBytes, _uploads;
+
+    /* MATRICES */
+    private final MatrixStack _projection = new MatrixStack();
+    private final MatrixStack _modelView = new MatrixStack();
+    private MatrixStack _activeStack = _modelView;
+    private final float[] _matrix = new float[16];
+
+    /**
+     * Resets the statistics, usually at the beginning of a frame.
+     */
+    public void reset() {
+        _drawCalls = 0;
+        _drawnElements = 0;
+        _stateChanges = 0;
+        _uniformUpdates = 0;
+        _uploadedBytes = 0;
+        _uploads = 0;
+    }
+
+    public void createBuffers(IntBuffer ids) {
+        while (ids.hasRemaining()) {
+            ids.put(_nextName++);
+        }
+
+        ids.flip();
+    }
+
+    public void uploadVertexBuffer(int id, ByteBuffer data, int usage) {
+        countUpload(data.remaining());
+    }
+
+    public void uploadVertexBuffer(int id, FloatBuffer data, int usage) {
+        countUpload(data.remaining() * 4L);
+    }
+
+    public void uploadIndexBuffer(int id, ByteBuffer data, int usage) {
+        countUpload(data.remaining());
+    }
+
+    public void uploadIndexBuffer(int id, IntBuffer data, int usage) {
+        countUpload(data.remaining() * 4L);
+    }
+
+    private void countUpload(long bytes) {
+        _uploadedBytes += bytes;
+        _uploads++;
+    }
+
+    public void bindVertexBuffer(int id) {
+        _stateChanges++;
+    }
+
+    public void bindIndexBuffer(int id) {
+        _stateChanges++;
+    }
+
+    public void enableClientState(int state) {
+        _stateChanges++;
+    }
+
+    public void disableClientState(int state) {
+        _stateChanges++;
+    }
+
+    public void setVertexPointer(int size, int type, int stride, long offset) {
+        _stateChanges++;
+    }
+
+    public void setColorPointer(int size, int type, int stride, long offset) {
+        _stateChanges++;
+    }
+
+    public void drawElements(int mode, int maxIndex, int count) {
+        _drawCalls++;
+        _drawnElements += count;
+    }
+
+    public void drawArrays(int mode, int first, int count) {
+        _drawCalls++;
+        _drawnElements += count;
+    }
+
+    public int compileList(Runnable commands) {
+        return _nextName++;
+    }
+
+    public void callList(int list) {
+        _drawCalls++;
+    }
+
+    public void begin(int mode) {
+    }
+
+    public void color(float r, float g, float b) {
+    }
+
+    public void color(float r, float g, float b, float a) {
+    }
+
+    public void texCoord(float u, float v) {
+    }
+
+    public void vertex(float x, float y, float z) {
+        _drawnElements++;
+    }
+
+    public void end() {
+        _drawCalls++;
+    }
+
+    public int createTexture() {
+        return _nextName++;
+    }
+
+    public void setActiveTextureUnit(int unit) {
+        _stateChanges++;
+    }
+
+    public void bindTexture(int texture) {
+        _stateChanges++;
+    }
+
+    public void uploadTexture(int width, int height, ByteBuffer rgba) {
+        countUpload(width * height * 4L);
+    }
+
+    public int createProgram(String vertexSource, String fragmentSource) {
+        return _nextName++;
+    }
+
+    public void useProgram(int program) {
+        _stateChanges++;
+    }
+
+    public int getUniformLocation(int program, String name) {
+        return 0;
+    }
+
+    public void setUniform(int location, int value) {
+        _uniformUpdates++;
+    }
+
+    public void setUniform(int location, float value) {
+        _uniformUpdates++;
+    }
+
+    public void setUniform(int location, float x, float y, float z) {
+        _uniformUpdates++;
+    }
+
+    public void setUniform(int location, float x, float y, float z, float w) {
+        _uniformUpdates++;
+    }
+
+    public void enable(int capability) {
+        _stateChanges++;
+    }
+
+    public void disable(int capability) {
+        _stateChanges++;
+    }
+
+    public void setBlendFunc(int source, int destination) {
+        _stateChanges++;
+    }
+
+    public void setColorMask(boolean red, boolean green, boolean blue, boolean alpha) {
+        _stateChanges++;
+    }
+
+    public void setLineWidth(float width) {
+        _stateChanges++;
+    }
+
+    public void setMatrixMode(int mode) {
+        _activeStack = mode == GL11.GL_PROJECTION ? _projection : _modelView;
+    }
+
+    public void loadIdentity() {
+        setIdentity(_activeStack.top());
+    }
+
+    public void pushMatrix() {
+        _activeStack.push();
+    }
+
+    public void popMatrix() {
+        _activeStack.pop();
+    }
+
+    public void translate(float x, float y, float z) {
+        float[] m = identity();
+
+        m[12] = x;
+        m[13] = y;
+        m[14] = z;
+
+        _activeStack.multiply(m);
+    }
+
+    public void rotate(float angle, float x, float y, float z) {
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+
+        if (length == 0)
+            return;
+
+        x /= length;
+        y /= length;
+        z /= length;
+
+        float c = (float) Math.cos(Math.toRadians(angle));
+        float s = (float) Math.sin(Math.toRadians(angle));
+        float t = 1 - c;
+
+        float[] m = identity();
+
+        m[0] = x * x * t + c;
+        m[1] = y * x * t + z * s;
+        m[2] = x * z * t - y * s;
+        m[4] = x * y * t - z * s;
+        m[5] = y * y * t + c;
+        m[6] = y * z * t + x * s;
+        m[8] = x * z * t + y * s;
+        m[9] = y * z * t - x * s;
+        m[10] = z * z * t + c;
+
+        _activeStack.multiply(m);
+    }
+
+    public void scale(float x, float y, float z) {
+        float[] m = identity();
+
+        m[0] = x;
+        m[5] = y;
+        m[10] = z;
+
+        _activeStack.multiply(m);
+    }
+
+    public void perspective(float fovy, float aspect, float zNear, float zFar) {
+        float f = (float) (1.0 / Math.tan(Math.toRadians(fovy) / 2.0));
+        float[] m = identity();
+
+        m[0] = f / aspect;
+        m[5] = f;
+        m[10] = (zFar + zNear) / (zNear - zFar);
+        m[11] = -1;
+        m[14] = 2 * zFar * zNear / (zNear - zFar);
+        m[15] = 0;
+
+        _activeStack.multiply(m);
+    }
+
+    public void lookAt(float eyeX, float eyeY, float eyeZ, float centerX, float centerY, float centerZ, float upX, float upY, float upZ) {
+        float[] forward = normalize(centerX - eyeX, centerY - eyeY, centerZ - eyeZ);
+        float[] side = normalize(forward[1] * upZ - forward[2] * upY, forward[2] * upX - forward[0] * upZ, forward[0] * upY - forward[1] * upX);
+        float[] up = {side[1] * forward[2] - side[2] * forward[1], side[2] * forward[0] - side[0] * forward[2], side[0] * forward[1] - side[1] * forward[0]};
+
+        float[] m = identity();
+
+        for (int i = 0; i < 3; i++) {
+            m[i * 4] = side[i];
+            m[i * 4 + 1] = up[i];
+            m[i * 4 + 2] = -forward[i];
+        }
+
+        _activeStack.multiply(m);
+        translate(-eyeX, -eyeY, -eyeZ);
+    }
+
+    /**
+     * Returns the top of the projection or modelview stack.
+     */
+    public void getMatrix(int matrix, FloatBuffer values) {
+        float[] m = matrix == GL11.GL_PROJECTION_MATRIX ? _projection.top() : _modelView.top();
+
+        for (int i = 0; i < 16; i++) {
+            values.put(i, m[i]);
+        }
+    }
+
+    private float[] identity() {
+        setIdentity(_matrix);
+        return _matrix;
+    }
+
+    private static void setIdentity(float[] m) {
+        for (int i = 0; i < 16; i++) {
+            m[i] = i % 5 == 0 ? 1f : 0f;
+        }
+    }
+
+    private static float[] normalize(float x, float y, float z) {
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+
+        if (length == 0)
+            return new float[]{x, y, z};
+
+        return new float[]{x / length, y / length, z / length};
+    }
+
+    /**
+     * A stack of column major matrices like the OpenGL matrix stacks.
+     */
+    private static class MatrixStack {
+        private static final int MAX_DEPTH = 32;
+
+        private final float[][] _matrices = new float[MAX_DEPTH][16];
+        private final float[] _result = new float[16];
+        private int _depth;
+
+        MatrixStack() {
+            setIdentity(_matrices[0]);
+        }
+
+        float[] top() {
+            return _matrices[_depth];
+        }
+
+        void push() {
+            if (_depth == MAX_DEPTH - 1)
+                throw new IllegalStateException("Matrix stack overflow.");
+
+            System.arraycopy(_matrices[_depth], 0, _matrices[_depth + 1], 0, 16);
+            _depth++;
+        }
+
+        void pop() {
+            if (_depth == 0)
+                throw new IllegalStateException("Matrix stack underflow.");
+
+            _depth--;
+        }
+
+        /**
+         * Multiplies the top of the stack with the given matrix from the right.
+         */
+        void multiply(float[] m) {
+            float[] top = top();
+
+            for (int column = 0; column < 4; column++) {
+                for (int row = 0; row < 4; row++) {
+                    float sum = 0;
+
+                    for (int k = 0; k < 4; k++) {
+                        sum += top[k * 4 + row] * m[column * 4 + k];
+                    }
+
+                    _result[column * 4 + row] = sum;
+                }
+            }
+
+            System.arraycopy(_result, 0, top, 0, 16);
+        }
+    }
+
+    /**
+     * Returns the amount of draw calls (including immediate mode primitives and display lists).
+     */
+    public long getDrawCalls() {
+        return _drawCalls;
+    }
+
+    /**
+     * Returns the amount of indices and vertices submitted by the draw calls.
+     */
+    public long getDrawnElements() {
+        return _drawnElements;
+    }
+
+    /**
+     * Returns the amount of state changes (capabilities, blending, bindings, vertex formats and programs).
+     */
+    public long getStateChanges() {
+        return _stateChanges;
+    }
+
+    public long getUniformUpdates() {
+        return _uniformUpdates;
+    }
+
+    /**
+     * Returns the amount of bytes uploaded to buffers and textures.
+     */
+    public long getUploadedBytes() {
+        return _uploadedBytes;
+    }
+
+    public long getUploads() {
+        return _uploads;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("render-device (draws: %d, elements: %d, state-changes: %d, uniforms: %d, uploads: %d, uploaded: %dKB)", _drawCalls, _drawnElements, _stateChanges, _uniformUpdates, _uploads, _uploadedBytes / 1024);
+    }
+}
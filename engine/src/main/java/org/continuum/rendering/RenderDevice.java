@@ -0,0 +1,195 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.rendering;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * The operations the renderers submit to the graphics card: Buffer creation and upload, draw calls, shader
+ * programs and uniforms, render state and the fixed function matrix stack.
+ * <p/>
+ * Capabilities, client states, primitive modes, data types, blend factors and buffer usages are given as the
+ * OpenGL constants. The active device is provided by {@link RenderDeviceManager}.
+ */
+public interface RenderDevice {
+
+    /* BUFFERS */
+
+    /**
+     * Creates buffer objects.
+     *
+     * @param ids Receives the names of the buffers, one for each remaining element
+     */
+    public abstract void createBuffers(IntBuffer ids);
+
+    public abstract void uploadVertexBuffer(int id, ByteBuffer data, int usage);
+
+    public abstract void uploadVertexBuffer(int id, FloatBuffer data, int usage);
+
+    public abstract void uploadIndexBuffer(int id, ByteBuffer data, int usage);
+
+    public abstract void uploadIndexBuffer(int id, IntBuffer data, int usage);
+
+    /**
+     * Binds a vertex buffer, 0 unbinds the current one.
+     */
+    public abstract void bindVertexBuffer(int id);
+
+    /**
+     * Binds an index buffer, 0 unbinds the current one.
+     */
+    public abstract void bindIndexBuffer(int id);
+
+    /* VERTEX FORMAT */
+
+    public abstract void enableClientState(int state);
+
+    public abstract void disableClientState(int state);
+
+    public abstract void setVertexPointer(int size, int type, int stride, long offset);
+
+    public abstract void setColorPointer(int size, int type, int stride, long offset);
+
+    /* DRAWING */
+
+    /**
+     * Draws primitives using the bound index buffer (unsigned ints).
+     *
+     * @param mode     The primitive mode
+     * @param maxIndex The highest index referenced
+     * @param count    The amount of indices to draw
+     */
+    public abstract void drawElements(int mode, int maxIndex, int count);
+
+    public abstract void drawArrays(int mode, int first, int count);
+
+    /**
+     * Records the given commands into a display list. Backends without a graphics card do not run the commands.
+     *
+     * @param commands Issues the commands
+     * @return The name of the display list
+     */
+    public abstract int compileList(Runnable commands);
+
+    public abstract void callList(int list);
+
+    /*
+     * Immediate mode, only used for a few particles per frame.
+     */
+    public abstract void begin(int mode);
+
+    public abstract void color(float r, float g, float b);
+
+    public abstract void color(float r, float g, float b, float a);
+
+    public abstract void texCoord(float u, float v);
+
+    public abstract void vertex(float x, float y, float z);
+
+    public abstract void end();
+
+    /* TEXTURES */
+
+    public abstract int createTexture();
+
+    public abstract void setActiveTextureUnit(int unit);
+
+    public abstract void bindTexture(int texture);
+
+    /**
+     * Uploads RGBA data with nearest filtering to the texture bound to the active unit.
+     */
+    public abstract void uploadTexture(int width, int height, ByteBuffer rgba);
+
+    /* SHADERS */
+
+    /**
+     * Compiles and links a shader program. Compiler messages are logged.
+     *
+     * @param vertexSource   The source of the vertex shader
+     * @param fragmentSource The source of the fragment shader
+     * @return The name of the program
+     */
+    public abstract int createProgram(String vertexSource, String fragmentSource);
+
+    /**
+     * Activates a shader program, 0 returns to the fixed function pipeline.
+     */
+    public abstract void useProgram(int program);
+
+    public abstract int getUniformLocation(int program, String name);
+
+    public abstract void setUniform(int location, int value);
+
+    public abstract void setUniform(int location, float value);
+
+    public abstract void setUniform(int location, float x, float y, float z);
+
+    public abstract void setUniform(int location, float x, float y, float z, float w);
+
+    /* STATE */
+
+    public abstract void enable(int capability);
+
+    public abstract void disable(int capability);
+
+    public abstract void setBlendFunc(int source, int destination);
+
+    public abstract void setColorMask(boolean red, boolean green, boolean blue, boolean alpha);
+
+    public abstract void setLineWidth(float width);
+
+    /* MATRICES */
+
+    /**
+     * Selects the matrix stack the following matrix operations apply to.
+     *
+     * @param mode The matrix stack (GL_PROJECTION or GL_MODELVIEW)
+     */
+    public abstract void setMatrixMode(int mode);
+
+    public abstract void loadIdentity();
+
+    public abstract void pushMatrix();
+
+    public abstract void popMatrix();
+
+    public abstract void translate(float x, float y, float z);
+
+    public abstract void rotate(float angle, float x, float y, float z);
+
+    public abstract void scale(float x, float y, float z);
+
+    /**
+     * Multiplies the current matrix with a perspective projection (like gluPerspective).
+     */
+    public abstract void perspective(float fovy, float aspect, float zNear, float zFar);
+
+    /**
+     * Multiplies the current matrix with a viewing transformation (like gluLookAt).
+     */
+    public abstract void lookAt(float eyeX, float eyeY, float eyeZ, float centerX, float centerY, float centerZ, float upX, float upY, float upZ);
+
+    /**
+     * Reads the current projection or modelview matrix.
+     *
+     * @param matrix The matrix (GL_PROJECTION_MATRIX or GL_MODELVIEW_MATRIX)
+     * @param values Receives the 16 values in column major order
+     */
+    public abstract void getMatrix(int matrix, FloatBuffer values);
+}
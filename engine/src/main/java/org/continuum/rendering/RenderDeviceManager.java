@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.rendering;
+
+/**
+ * Provides the render device used by all renderers. By default the OpenGL device is created on first use, which
+ * requires the display to be created. Headless environments set a {@link NullRenderDevice} before the managers
+ * and the world are created.
+ */
+public class RenderDeviceManager {
+
+    private static RenderDevice _device = null;
+
+    /**
+     * Returns (and creates – if necessary) the active render device.
+     *
+     * @return The device
+     */
+    public static RenderDevice getDevice() {
+        if (_device == null) {
+            _device = new LwjglRenderDevice();
+        }
+
+        return _device;
+    }
+
+    /**
+     * Sets the render device. Has to be called before any buffer, texture or shader is created.
+     *
+     * @param device The device
+     */
+    public static void setDevice(RenderDevice device) {
+        _device = device;
+    }
+}
@@ -17,22 +17,15 @@
 
 import org.continuum.main.Continuum;
 import javolution.util.FastMap;
-import org.lwjgl.BufferUtils;
-import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL20;
 import org.newdawn.slick.util.ResourceLoader;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
-import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
 import java.util.logging.Level;
 
 public class ShaderManager {
 
     private final FastMap<String, Integer> _shaderPrograms = new FastMap<String, Integer>(32);
-    private final FastMap<String, Integer> _fragmentShader = new FastMap<String, Integer>(32);
-    private final FastMap<String, Integer> _vertexShader = new FastMap<String, Integer>(32);
     private static ShaderManager _instance = null;
 
     /**
@@ -50,110 +43,49 @@ public static ShaderManager getInstance() {
     }
 
     private ShaderManager() {
-        initShader();
-
         Continuum.getInstance().getLogger().log(Level.INFO, "Loading Continuum shader manager...");
-        Continuum.getInstance().getLogger().log(Level.INFO, "GL_VERSION: {0}", GL11.glGetString(GL11.GL_VERSION));
-        Continuum.getInstance().getLogger().log(Level.INFO, "SHADING_LANGUAGE VERSION: {0}", GL11.glGetString(GL20.GL_SHADING_LANGUAGE_VERSION));
-        Continuum.getInstance().getLogger().log(Level.INFO, "EXTENSIONS: {0}", GL11.glGetString(GL11.GL_EXTENSIONS));
+
+        initShader();
     }
 
     private void initShader() {
-        createVertexShader("sky_vert.glsl", "sky");
-        createFragShader("sky_frag.glsl", "sky");
-        createVertexShader("chunk_vert.glsl", "chunk");
-        createFragShader("chunk_frag.glsl", "chunk");
-        createVertexShader("cloud_vert.glsl", "cloud");
-        createFragShader("cloud_frag.glsl", "cloud");
-
-        for (FastMap.Entry<String, Integer> e = _fragmentShader.head(), end = _fragmentShader.tail(); (e = e.getNext()) != end; ) {
-            int shaderProgram = GL20.glCreateProgram();
-
-            GL20.glAttachShader(shaderProgram, _fragmentShader.get(e.getKey()));
-            GL20.glAttachShader(shaderProgram, _vertexShader.get(e.getKey()));
-            GL20.glLinkProgram(shaderProgram);
-            GL20.glValidateProgram(shaderProgram);
-
-            _shaderPrograms.put(e.getKey(), shaderProgram);
-        }
+        createShaderProgram("sky");
+        createShaderProgram("chunk");
+        createShaderProgram("cloud");
+        createShaderProgram("horizon");
     }
 
-    private int createFragShader(String filename, String title) {
-
-        _fragmentShader.put(title, GL20.glCreateShader(GL20.GL_FRAGMENT_SHADER));
-
-        if (_fragmentShader.get(title) == 0) {
-            return 0;
-        }
+    /**
+     * Compiles the vertex shader "title_vert.glsl" and the fragment shader "title_frag.glsl" into a program.
+     *
+     * @param title The name of the program
+     */
+    private void createShaderProgram(String title) {
+        String vertCode = readShaderSource(title + "_vert.glsl");
+        String fragCode = readShaderSource(title + "_frag.glsl");
 
-        String fragCode = "";
-        String line;
-        try {
-            BufferedReader reader = new BufferedReader(new InputStreamReader(ResourceLoader.getResource("org/continuum/data/shaders/" + filename).openStream()));
-            while ((line = reader.readLine()) != null) {
-                fragCode += line + "\n";
-            }
-        } catch (Exception e) {
-            Continuum.getInstance().getLogger().log(Level.SEVERE, "Failed to read fragment shader.");
-            return 0;
+        if (vertCode == null || fragCode == null) {
+            Continuum.getInstance().getLogger().log(Level.SEVERE, "Failed to read shader {0}.", title);
+            return;
         }
 
-        GL20.glShaderSource(_fragmentShader.get(title), fragCode);
-        GL20.glCompileShader(_fragmentShader.get(title));
-
-        printLogInfo(_fragmentShader.get(title));
-
-        return _fragmentShader.get(title);
+        _shaderPrograms.put(title, RenderDeviceManager.getDevice().createProgram(vertCode, fragCode));
     }
 
-    private int createVertexShader(String filename, String title) {
-
-        _vertexShader.put(title, GL20.glCreateShader(GL20.GL_VERTEX_SHADER));
-
-        if (_vertexShader.get(title) == 0) {
-            return 0;
-        }
-
-        String fragCode = "";
+    private static String readShaderSource(String filename) {
+        StringBuilder code = new StringBuilder();
         String line;
+
         try {
             BufferedReader reader = new BufferedReader(new InputStreamReader(ResourceLoader.getResource("org/continuum/data/shaders/" + filename).openStream()));
             while ((line = reader.readLine()) != null) {
-                fragCode += line + "\n";
+                code.append(line).append("\n");
             }
         } catch (Exception e) {
-            Continuum.getInstance().getLogger().log(Level.SEVERE, "Failed to read vertex shader.");
-            return 0;
-        }
-
-        GL20.glShaderSource(_vertexShader.get(title), fragCode);
-        GL20.glCompileShader(_vertexShader.get(title));
-
-        printLogInfo(_vertexShader.get(title));
-
-        return _vertexShader.get(title);
-    }
-
-    private static void printLogInfo(int obj) {
-        IntBuffer intBuffer = BufferUtils.createIntBuffer(1);
-        GL20.glGetShader(obj, GL20.GL_INFO_LOG_LENGTH, intBuffer);
-
-        int length = intBuffer.get();
-
-        if (length <= 1) {
-            return;
+            return null;
         }
 
-        ByteBuffer infoBuffer = BufferUtils.createByteBuffer(length);
-        intBuffer.flip();
-
-        GL20.glGetShaderInfoLog(obj, intBuffer, infoBuffer);
-
-        int actualLength = intBuffer.get();
-        byte[] infoBytes = new byte[actualLength];
-        infoBuffer.get(infoBytes);
-
-        Continuum.getInstance().getLogger().log(Level.INFO, "{0}", new String(infoBytes));
+        return code.toString();
     }
 
     /**
@@ -161,12 +93,12 @@ private static void printLogInfo(int obj) {
      */
     public void enableShader(@org.jetbrains.annotations.Nullable String s) {
         if (s == null) {
-            GL20.glUseProgram(0);
+            RenderDeviceManager.getDevice().useProgram(0);
             return;
         }
 
         int shader = getShader(s);
-        GL20.glUseProgram(shader);
+        RenderDeviceManager.getDevice().useProgram(shader);
     }
 
     /**
@@ -17,19 +17,26 @@
 
 import org.continuum.main.Continuum;
 import javolution.util.FastMap;
-import org.newdawn.slick.opengl.Texture;
-import org.newdawn.slick.opengl.TextureLoader;
+import org.lwjgl.BufferUtils;
+import org.newdawn.slick.opengl.TextureImpl;
 import org.newdawn.slick.util.ResourceLoader;
 
-import static org.lwjgl.opengl.GL11.GL_NEAREST;
-
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.logging.Level;
 
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
+
+/**
+ * Loads the textures and uploads them through the render device, so they are also available on devices without
+ * a graphics card.
+ */
 public class TextureManager {
 
     private static TextureManager _instance;
-    private final FastMap<String, Texture> _textures = new FastMap<String, Texture>();
+    private final FastMap<String, Integer> _textures = new FastMap<String, Integer>();
 
     public static TextureManager getInstance() {
         if (_instance == null)
@@ -42,14 +49,14 @@ public TextureManager() {
         try {
             Continuum.getInstance().getLogger().log(Level.FINE, "Loading textures...");
 
-            _textures.put("custom_lava_still", TextureLoader.getTexture("png", ResourceLoader.getResource("org/continuum/data/textures/custom_lava_still.png").openStream(), GL_NEAREST));
-            _textures.put("custom_water_still", TextureLoader.getTexture("png", ResourceLoader.getResource("org/continuum/data/textures/custom_water_still.png").openStream(), GL_NEAREST));
-            _textures.put("custom_lava_flowing", TextureLoader.getTexture("png", ResourceLoader.getResource("org/continuum/data/textures/custom_lava_flowing.png").openStream(), GL_NEAREST));
-            _textures.put("custom_water_flowing", TextureLoader.getTexture("png", ResourceLoader.getResource("org/continuum/data/textures/custom_water_flowing.png").openStream(), GL_NEAREST));
-            _textures.put("terrain", TextureLoader.getTexture("png", ResourceLoader.getResource("org/continuum/data/textures/terrain.png").openStream(), GL_NEAREST));
-            _textures.put("sun", TextureLoader.getTexture("png", ResourceLoader.getResource("org/continuum/data/textures/sun.png").openStream(), GL_NEAREST));
-            _textures.put("moon", TextureLoader.getTexture("png", ResourceLoader.getResource("org/continuum/data/textures/moon.png").openStream(), GL_NEAREST));
-            _textures.put("slime", TextureLoader.getTexture("png", ResourceLoader.getResource("org/continuum/data/textures/slime.png").openStream(), GL_NEAREST));
+            loadTexture("custom_lava_still");
+            loadTexture("custom_water_still");
+            loadTexture("custom_lava_flowing");
+            loadTexture("custom_water_flowing");
+            loadTexture("terrain");
+            loadTexture("sun");
+            loadTexture("moon");
+            loadTexture("slime");
 
             Continuum.getInstance().getLogger().log(Level.FINE, "Finished loading textures!");
         } catch (IOException ex) {
@@ -57,7 +64,62 @@ public TextureManager() {
         }
     }
 
+    /**
+     * Loads the image "title.png" into a texture. Like the textures loaded by Slick before, the image is padded to
+     * a power of two size (the texture coordinates of the animated fluids depend on it).
+     *
+     * @param title The name of the texture
+     * @throws IOException If the image can not be read
+     */
+    private void loadTexture(String title) throws IOException {
+        BufferedImage image = ImageIO.read(ResourceLoader.getResource("org/continuum/data/textures/" + title + ".png"));
+
+        if (image == null)
+            throw new IOException("Unsupported image format: " + title);
+
+        int width = calcPowerOfTwo(image.getWidth());
+        int height = calcPowerOfTwo(image.getHeight());
+
+        ByteBuffer data = BufferUtils.createByteBuffer(width * height * 4);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int argb = x < image.getWidth() && y < image.getHeight() ? image.getRGB(x, y) : 0;
+
+                data.put((byte) (argb >> 16));
+                data.put((byte) (argb >> 8));
+                data.put((byte) argb);
+                data.put((byte) (argb >>> 24));
+            }
+        }
+
+        data.flip();
+
+        RenderDevice device = RenderDeviceManager.getDevice();
+        int texture = device.createTexture();
+
+        device.bindTexture(texture);
+        device.uploadTexture(width, height, data);
+
+        _textures.put(title, texture);
+    }
+
+    private static int calcPowerOfTwo(int size) {
+        int result = 1;
+
+        while (result < size)
+            result <<= 1;
+
+        return result;
+    }
+
     public void bindTexture(String s) {
-        _textures.get(s).bind();
+        RenderDevice device = RenderDeviceManager.getDevice();
+
+        // Slick skips binding the texture last bound through it (fonts), which is no longer bound afterwards
+        TextureImpl.unbind();
+
+        device.enable(GL_TEXTURE_2D);
+        device.bindTexture(_textures.get(s));
     }
 }
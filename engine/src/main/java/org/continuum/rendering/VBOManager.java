@@ -17,8 +17,8 @@
 
 import gnu.trove.list.array.TIntArrayList;
 import org.lwjgl.BufferUtils;
-import org.lwjgl.opengl.GL15;
 
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 
@@ -49,7 +49,7 @@ public VBOManager() {
 
     private IntBuffer createVbos(int size) {
         IntBuffer buffer = BufferUtils.createIntBuffer(size);
-        GL15.glGenBuffers(buffer);
+        RenderDeviceManager.getDevice().createBuffers(buffer);
         return buffer;
     }
 
@@ -66,14 +66,18 @@ public synchronized void putVboId(int vboId) {
     }
 
     public void bufferVboData(int id, FloatBuffer buffer, int drawMode) {
-        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, id);
-        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, buffer, drawMode);
-        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        RenderDeviceManager.getDevice().uploadVertexBuffer(id, buffer, drawMode);
+    }
+
+    public void bufferVboData(int id, ByteBuffer buffer, int drawMode) {
+        RenderDeviceManager.getDevice().uploadVertexBuffer(id, buffer, drawMode);
+    }
+
+    public void bufferVboElementData(int id, ByteBuffer buffer, int drawMode) {
+        RenderDeviceManager.getDevice().uploadIndexBuffer(id, buffer, drawMode);
     }
 
     public void bufferVboElementData(int id, IntBuffer buffer, int drawMode) {
-        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, id);
-        GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, buffer, drawMode);
-        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+        RenderDeviceManager.getDevice().uploadIndexBuffer(id, buffer, drawMode);
     }
 }
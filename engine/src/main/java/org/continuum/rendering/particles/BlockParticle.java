@@ -16,6 +16,9 @@
 package org.continuum.rendering.particles;
 
 import org.continuum.blocks.Block;
+import org.continuum.blocks.BlockRegistry;
+import org.continuum.rendering.RenderDevice;
+import org.continuum.rendering.RenderDeviceManager;
 import org.continuum.world.chunk.Chunk;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.util.vector.Vector3f;
@@ -30,10 +33,15 @@ public class BlockParticle extends Particle {
     private float _lightOffset;
     private float _size;
     private byte _blockType;
+    private float _texOffsetX, _texOffsetY;
 
     public BlockParticle(int lifeTime, Vector3f position, byte blockType, BlockParticleEmitter parent) {
         super(lifeTime, position, parent);
         _blockType = blockType;
+
+        int tile = BlockRegistry.getTextureTile(blockType, Block.SIDE.FRONT);
+        _texOffsetX = (tile % 16) / 16f;
+        _texOffsetY = (tile / 16) / 16f;
         _size = (float) ((_rand.randomDouble() + 1.0) / 2.0) * 0.08f;
         _lightOffset = (float) ((_rand.randomDouble() + 1.0) / 2.0) * 0.2f + 0.8f;
 
@@ -58,10 +66,12 @@ public boolean canMove() {
 
     @Override
     protected void renderParticle() {
-        glDisable(GL11.GL_CULL_FACE);
-        glEnable(GL_TEXTURE_2D);
-        glEnable(GL_BLEND);
-        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+        RenderDevice device = RenderDeviceManager.getDevice();
+
+        device.disable(GL11.GL_CULL_FACE);
+        device.enable(GL_TEXTURE_2D);
+        device.enable(GL_BLEND);
+        device.setBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
 
         BlockParticleEmitter pE = (BlockParticleEmitter) getParent();
         double lightValueSun = pE.getParent().getDaylight() * ((double) pE.getParent().getLightAtPosition(_position, Chunk.LIGHT_TYPE.SUN));
@@ -70,20 +80,20 @@ protected void renderParticle() {
         lightValueBlock = lightValueBlock / 15.0;
         float lightValue = (float) Math.max(lightValueSun, lightValueBlock) * _lightOffset;
 
-        glBegin(GL_QUADS);
-        GL11.glColor3f(lightValue, lightValue, lightValue);
-        GL11.glTexCoord2f(Block.getBlockForType(_blockType).getTextureOffsetFor(Block.SIDE.FRONT).x, Block.getBlockForType(_blockType).getTextureOffsetFor(Block.SIDE.FRONT).y);
-        GL11.glVertex3f(-_size, _size, -_size);
-        GL11.glTexCoord2f(Block.getBlockForType(_blockType).getTextureOffsetFor(Block.SIDE.FRONT).x + 0.0624f, Block.getBlockForType(_blockType).getTextureOffsetFor(Block.SIDE.FRONT).y);
-        GL11.glVertex3f(_size, _size, -_size);
-        GL11.glTexCoord2f(Block.getBlockForType(_blockType).getTextureOffsetFor(Block.SIDE.FRONT).x + 0.0624f, Block.getBlockForType(_blockType).getTextureOffsetFor(Block.SIDE.FRONT).y + 0.0624f);
-        GL11.glVertex3f(_size, -_size, -_size);
-        GL11.glTexCoord2f(Block.getBlockForType(_blockType).getTextureOffsetFor(Block.SIDE.FRONT).x, Block.getBlockForType(_blockType).getTextureOffsetFor(Block.SIDE.FRONT).y + 0.0624f);
-        GL11.glVertex3f(-_size, -_size, -_size);
-        glEnd();
-
-        glDisable(GL_BLEND);
-        glDisable(GL11.GL_TEXTURE_2D);
-        glEnable(GL11.GL_CULL_FACE);
+        device.begin(GL_QUADS);
+        device.color(lightValue, lightValue, lightValue);
+        device.texCoord(_texOffsetX, _texOffsetY);
+        device.vertex(-_size, _size, -_size);
+        device.texCoord(_texOffsetX + 0.0624f, _texOffsetY);
+        device.vertex(_size, _size, -_size);
+        device.texCoord(_texOffsetX + 0.0624f, _texOffsetY + 0.0624f);
+        device.vertex(_size, -_size, -_size);
+        device.texCoord(_texOffsetX, _texOffsetY + 0.0624f);
+        device.vertex(-_size, -_size, -_size);
+        device.end();
+
+        device.disable(GL_BLEND);
+        device.disable(GL11.GL_TEXTURE_2D);
+        device.enable(GL11.GL_CULL_FACE);
     }
 }
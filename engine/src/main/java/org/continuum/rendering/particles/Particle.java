@@ -15,6 +15,8 @@
  */
 package org.continuum.rendering.particles;
 
+import org.continuum.rendering.RenderDevice;
+import org.continuum.rendering.RenderDeviceManager;
 import org.continuum.rendering.RenderableObject;
 import org.continuum.utilities.FastRandom;
 import org.lwjgl.util.vector.Vector3f;
@@ -47,11 +49,13 @@ public Particle(int lifeTime, Vector3f position, ParticleEmitter parent) {
 
     public void render() {
         if (isAlive()) {
-            glPushMatrix();
-            glTranslatef(_position.x, _position.y, _position.z);
-            glRotatef(_orientation, 0, 1, 0);
+            RenderDevice device = RenderDeviceManager.getDevice();
+
+            device.pushMatrix();
+            device.translate(_position.x, _position.y, _position.z);
+            device.rotate(_orientation, 0, 1, 0);
             renderParticle();
-            glPopMatrix();
+            device.popMatrix();
         }
     }
 
@@ -15,6 +15,8 @@
  */
 package org.continuum.rendering.particles;
 
+import org.continuum.rendering.RenderDevice;
+import org.continuum.rendering.RenderDeviceManager;
 import org.continuum.rendering.RenderableObject;
 import javolution.util.FastList;
 import org.lwjgl.util.vector.Vector3f;
@@ -33,11 +35,13 @@ public abstract class ParticleEmitter implements RenderableObject {
     protected Vector3f _origin = new Vector3f();
 
     public void render() {
-        glEnable(GL_TEXTURE_2D);
+        RenderDevice device = RenderDeviceManager.getDevice();
+
+        device.enable(GL_TEXTURE_2D);
         for (FastList.Node<Particle> n = _particles.head(), end = _particles.tail(); (n = n.getNext()) != end; ) {
             n.getValue().render();
         }
-        glDisable(GL_TEXTURE_2D);
+        device.disable(GL_TEXTURE_2D);
     }
 
     public void update() {
@@ -62,6 +62,16 @@ public int randomInt() {
         return (int) randomLong();
     }
 
+    /**
+     * Returns a random value between zero (inclusive) and the given bound (exclusive).
+     *
+     * @param bound The upper bound
+     * @return Random value
+     */
+    public int randomInt(int bound) {
+        return (int) ((randomLong() >>> 1) % bound);
+    }
+
     /**
      * Returns a random value as double.
      *
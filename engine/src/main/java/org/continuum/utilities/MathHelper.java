@@ -33,6 +33,19 @@ public static double clamp(double value) {
         return value;
     }
 
+    /**
+     * Cumulative distribution function of the standard normal distribution (Abramowitz and Stegun 7.1.26).
+     *
+     * @param x The value
+     * @return The probability of a standard normal distributed value being smaller than x
+     */
+    public static double standNormalDistrCdf(double x) {
+        double t = 1.0 / (1.0 + 0.3275911 * Math.abs(x) / Math.sqrt(2.0));
+        double erf = 1.0 - (((((1.061405429 * t - 1.453152027) * t) + 1.421413741) * t - 0.284496736) * t + 0.254829592) * t * Math.exp(-x * x / 2.0);
+
+        return x >= 0 ? 0.5 * (1.0 + erf) : 0.5 * (1.0 - erf);
+    }
+
     public static double biLerp(double x, double y, double q11, double q12, double q21, double q22, double x1, double x2, double y1, double y2) {
         double r1 = lerp(x, x1, x2, q11, q21);
         double r2 = lerp(x, x1, x2, q12, q22);
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.world;
+
+import org.continuum.datastructures.ViewFrustum;
+import org.continuum.main.Configuration;
+import org.continuum.world.chunk.Chunk;
+
+/**
+ * The chunks around the player stored as a regular grid of chunk columns. The grid is culled against the view
+ * frustum as an implicit quadtree: a rectangle of columns completely outside or inside of the frustum is resolved
+ * with a single test, only rectangles intersecting the frustum are split further.
+ */
+public final class ChunkGrid {
+
+    private static final int CHUNK_SIZE_X = (int) Configuration.CHUNK_DIMENSIONS.x;
+    private static final int CHUNK_SIZE_Y = (int) Configuration.CHUNK_DIMENSIONS.y;
+    private static final int CHUNK_SIZE_Z = (int) Configuration.CHUNK_DIMENSIONS.z;
+
+    private final Chunk[] _chunks;
+    private final int _originX, _originZ, _sizeX, _sizeZ;
+
+    private ViewFrustum _frustum;
+    private int _tests;
+
+    /**
+     * @param originX The position of the first column on the x-axis (in chunks)
+     * @param originZ The position of the first column on the z-axis (in chunks)
+     * @param sizeX   The amount of columns on the x-axis
+     * @param sizeZ   The amount of columns on the z-axis
+     */
+    public ChunkGrid(int originX, int originZ, int sizeX, int sizeZ) {
+        _originX = originX;
+        _originZ = originZ;
+        _sizeX = sizeX;
+        _sizeZ = sizeZ;
+        _chunks = new Chunk[sizeX * sizeZ];
+    }
+
+    public void set(int x, int z, Chunk c) {
+        _chunks[x * _sizeZ + z] = c;
+    }
+
+    /**
+     * Updates the visibility of all chunks in the grid.
+     *
+     * @param frustum The view frustum
+     * @return The amount of frustum tests
+     */
+    public int cull(ViewFrustum frustum) {
+        _frustum = frustum;
+        _tests = 0;
+
+        cull(0, 0, _sizeX, _sizeZ, ViewFrustum.ALL_PLANES);
+
+        _frustum = null;
+        return _tests;
+    }
+
+    private void cull(int x0, int z0, int x1, int z1, int planeMask) {
+        if (planeMask != 0) {
+            _tests++;
+
+            planeMask = _frustum.classify((_originX + x0) * CHUNK_SIZE_X, 0, (_originZ + z0) * CHUNK_SIZE_Z, (_originX + x1) * CHUNK_SIZE_X, CHUNK_SIZE_Y, (_originZ + z1) * CHUNK_SIZE_Z, planeMask);
+
+            if (planeMask < 0) {
+                setVisible(x0, z0, x1, z1, false);
+                return;
+            }
+        }
+
+        if (planeMask == 0 || (x1 - x0 == 1 && z1 - z0 == 1)) {
+            setVisible(x0, z0, x1, z1, true);
+            return;
+        }
+
+        int midX = (x0 + x1 + 1) / 2;
+        int midZ = (z0 + z1 + 1) / 2;
+
+        cull(x0, z0, midX, midZ, planeMask);
+
+        if (midX < x1)
+            cull(midX, z0, x1, midZ, planeMask);
+        if (midZ < z1)
+            cull(x0, midZ, midX, z1, planeMask);
+        if (midX < x1 && midZ < z1)
+            cull(midX, midZ, x1, z1, planeMask);
+    }
+
+    private void setVisible(int x0, int z0, int x1, int z1, boolean visible) {
+        for (int x = x0; x < x1; x++) {
+            for (int z = z0; z < z1; z++) {
+                Chunk c = _chunks[x * _sizeZ + z];
+
+                if (c != null)
+                    c.setVisible(visible);
+            }
+        }
+    }
+}
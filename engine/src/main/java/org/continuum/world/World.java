@@ -18,6 +18,9 @@
 import org.continuum.generators.ChunkGeneratorTerrain;
 import org.continuum.main.Configuration;
 import org.continuum.main.Continuum;
+import org.continuum.rendering.DirectBufferPool;
+import org.continuum.rendering.RenderDevice;
+import org.continuum.rendering.RenderDeviceManager;
 import org.continuum.rendering.ShaderManager;
 import org.continuum.rendering.TextureManager;
 import org.continuum.rendering.particles.BlockParticleEmitter;
@@ -25,9 +28,9 @@
 import org.continuum.world.chunk.Chunk;
 import org.continuum.world.chunk.ChunkMesh;
 import org.continuum.world.horizon.Clouds;
+import org.continuum.world.horizon.Horizon;
 import org.continuum.world.horizon.Skysphere;
 import javolution.util.FastList;
-import org.lwjgl.opengl.GL20;
 import org.lwjgl.util.vector.Vector3f;
 
 
@@ -48,10 +51,18 @@ public final class World extends WorldProvider {
     private Player _player;
     /* RENDERING */
     private FastList<Chunk> _chunksInProximity = new FastList();
+    private ChunkGrid _chunkGrid;
+
+    /* VISIBLE CHUNKS (REUSED EVERY FRAME) */
+    private Chunk[] _visibleChunks = new Chunk[0];
+    private int _visibleChunkCount = 0;
+    private int _cullingTests = 0;
+    private double _cullingDuration = 0.0;
     /* PARTICLE EMITTERS */
     private final BlockParticleEmitter _blockParticleEmitter = new BlockParticleEmitter(this);
     /* HORIZON */
     private final Clouds _clouds;
+    private final Horizon _horizon;
     //private final SunMoon _sunMoon;
     private final Skysphere _skysphere;
     protected double _daylight = 1.0f;
@@ -76,6 +87,7 @@ public World(String title, String seed) {
         // Init. horizon
         _clouds = new Clouds(this);
         _skysphere = new Skysphere(this);
+        _horizon = new Horizon(this);
 
         _worldUpdateManager = new WorldUpdateManager();
         _updateThread = new Thread(new Runnable() {
@@ -104,6 +116,7 @@ public void run() {
                     }
 
                     updateChunksInProximity();
+                    _horizon.updateTiles();
                     _chunkCache.freeCacheSpace();
                 }
             }
@@ -123,6 +136,9 @@ public void render() {
 
         renderChunks();
 
+        // distant terrain
+        _horizon.render();
+
         // clouds
         _clouds.render();
 
@@ -137,15 +153,21 @@ private void updateChunksInProximity() {
 
             FastList<Chunk> newChunksInProximity = new FastList<Chunk>();
 
-            for (int x = -(Configuration.getSettingNumeric("V_DIST_X").intValue() / 2); x < (Configuration.getSettingNumeric("V_DIST_X").intValue() / 2); x++) {
-                for (int z = -(Configuration.getSettingNumeric("V_DIST_Z").intValue() / 2); z < (Configuration.getSettingNumeric("V_DIST_Z").intValue() / 2); z++) {
-                    Chunk c = getChunkCache().loadOrCreateChunk(calcPlayerChunkOffsetX() + x, calcPlayerChunkOffsetZ() + z);
+            int halfX = Configuration.getSettingNumeric("V_DIST_X").intValue() / 2;
+            int halfZ = Configuration.getSettingNumeric("V_DIST_Z").intValue() / 2;
+            ChunkGrid newChunkGrid = new ChunkGrid(prevChunkPosX - halfX, prevChunkPosZ - halfZ, halfX * 2, halfZ * 2);
+
+            for (int x = -halfX; x < halfX; x++) {
+                for (int z = -halfZ; z < halfZ; z++) {
+                    Chunk c = getChunkCache().loadOrCreateChunk(prevChunkPosX + x, prevChunkPosZ + z);
                     newChunksInProximity.add(c);
+                    newChunkGrid.set(x + halfX, z + halfZ, c);
                 }
             }
 
             Collections.sort(newChunksInProximity);
             _chunksInProximity = newChunksInProximity;
+            _chunkGrid = newChunkGrid;
         }
     }
 
@@ -166,88 +188,117 @@ private void updateDaylight() {
         }
     }
 
-    private FastList<Chunk> fetchVisibleChunks() {
-        FastList<Chunk> result = new FastList<Chunk>();
-        FastList<Chunk> chunksInPromity = _chunksInProximity;
+    /**
+     * Culls the chunks in the proximity of the player and collects the visible chunks in the reused array,
+     * ordered front to back like the chunks in proximity.
+     */
+    private void updateVisibleChunks() {
+        FastList<Chunk> chunksInProximity = _chunksInProximity;
+        ChunkGrid chunkGrid = _chunkGrid;
+
+        if (chunkGrid == null) {
+            _visibleChunkCount = 0;
+            return;
+        }
+
+        long timeStart = System.nanoTime();
+        _cullingTests = chunkGrid.cull(_player.getViewFrustum());
+
+        if (_visibleChunks.length < chunksInProximity.size()) {
+            _visibleChunks = new Chunk[chunksInProximity.size()];
+        }
 
-        for (FastList.Node<Chunk> n = chunksInPromity.head(), end = chunksInPromity.tail(); (n = n.getNext()) != end; ) {
+        int count = 0;
+
+        for (FastList.Node<Chunk> n = chunksInProximity.head(), end = chunksInProximity.tail(); (n = n.getNext()) != end; ) {
             Chunk c = n.getValue();
 
-            if (isChunkVisible(c)) {
-                c.setVisible(true);
-                result.add(c);
-                continue;
+            if (c.isVisible()) {
+                _visibleChunks[count++] = c;
             }
+        }
 
-            c.setVisible(false);
+        // Release the chunks left over from a previous frame
+        for (int i = count; i < _visibleChunkCount; i++) {
+            _visibleChunks[i] = null;
         }
 
-        return result;
+        _visibleChunkCount = count;
+        _cullingDuration = (System.nanoTime() - timeStart) / 1000000d;
     }
 
     private void renderChunks() {
-        ShaderManager.getInstance().enableShader("chunk");
-        int daylight = GL20.glGetUniformLocation(ShaderManager.getInstance().getShader("chunk"), "daylight");
-        int swimmimg = GL20.glGetUniformLocation(ShaderManager.getInstance().getShader("chunk"), "swimming");
-        int animationOffset = GL20.glGetUniformLocation(ShaderManager.getInstance().getShader("chunk"), "animationOffset");
-        int animationType = GL20.glGetUniformLocation(ShaderManager.getInstance().getShader("chunk"), "animationType");
-        GL20.glUniform1f(daylight, (float) getDaylight());
-        GL20.glUniform1i(animationType, 0);
-        GL20.glUniform1i(swimmimg, _player.isHeadUnderWater() ? 1 : 0);
+        RenderDevice device = RenderDeviceManager.getDevice();
 
-        FastList<Chunk> visibleChunks = fetchVisibleChunks();
-
-        glEnable(GL_TEXTURE_2D);
+        ShaderManager.getInstance().enableShader("chunk");
+        int daylight = device.getUniformLocation(ShaderManager.getInstance().getShader("chunk"), "daylight");
+        int swimmimg = device.getUniformLocation(ShaderManager.getInstance().getShader("chunk"), "swimming");
+        int animationOffset = device.getUniformLocation(ShaderManager.getInstance().getShader("chunk"), "animationOffset");
+        int animationType = device.getUniformLocation(ShaderManager.getInstance().getShader("chunk"), "animationType");
+        int occlusionAmount = device.getUniformLocation(ShaderManager.getInstance().getShader("chunk"), "occlusionAmount");
+        int tintPalette = device.getUniformLocation(ShaderManager.getInstance().getShader("chunk"), "tintPalette");
+        device.setUniform(daylight, (float) getDaylight());
+        device.setUniform(occlusionAmount, (float) Configuration.OCCLUSION_AMOUNT_DEFAULT);
+        // The tint palettes of the chunks are bound to the second texture unit
+        device.setUniform(tintPalette, 1);
+        device.setUniform(animationType, 0);
+        device.setUniform(swimmimg, _player.isHeadUnderWater() ? 1 : 0);
+
+        updateVisibleChunks();
+
+        Chunk[] visibleChunks = _visibleChunks;
+        int visibleChunkCount = _visibleChunkCount;
+
+        device.enable(GL_TEXTURE_2D);
 
         // OPAQUE ELEMENTS
-        for (FastList.Node<Chunk> n = visibleChunks.head(), end = visibleChunks.tail(); (n = n.getNext()) != end; ) {
-            Chunk c = n.getValue();
+        for (int i = 0; i < visibleChunkCount; i++) {
+            Chunk c = visibleChunks[i];
 
-            GL20.glUniform1i(animationType, 0);
+            device.setUniform(animationType, 0);
             TextureManager.getInstance().bindTexture("terrain");
             c.render(ChunkMesh.RENDER_TYPE.OPAQUE);
 
             // ANIMATED LAVA
-            GL20.glUniform1i(animationType, 1);
-            GL20.glUniform1f(animationOffset, ((float) (_tick % 16)) * (1.0f / 16f));
+            device.setUniform(animationType, 1);
+            device.setUniform(animationOffset, ((float) (_tick % 16)) * (1.0f / 16f));
             TextureManager.getInstance().bindTexture("custom_lava_still");
-            visibleChunks.valueOf(n).render(ChunkMesh.RENDER_TYPE.LAVA);
+            c.render(ChunkMesh.RENDER_TYPE.LAVA);
 
             if (Configuration.getSettingBoolean("CHUNK_OUTLINES")) {
                 c.getAABB().render();
             }
         }
 
-        GL20.glUniform1i(animationType, 0);
+        device.setUniform(animationType, 0);
         TextureManager.getInstance().bindTexture("terrain");
 
         // BILLBOARDS AND TRANSLUCENT ELEMENTS
-        for (FastList.Node<Chunk> n = visibleChunks.head(), end = visibleChunks.tail(); (n = n.getNext()) != end; ) {
-            Chunk c = n.getValue();
-            c.render(ChunkMesh.RENDER_TYPE.BILLBOARD_AND_TRANSLUCENT);
+        for (int i = 0; i < visibleChunkCount; i++) {
+            visibleChunks[i].render(ChunkMesh.RENDER_TYPE.BILLBOARD_AND_TRANSLUCENT);
         }
 
-        GL20.glUniform1i(animationType, 1);
+        device.setUniform(animationType, 1);
 
         for (int i = 0; i < 2; i++) {
             // ANIMATED WATER
-            for (FastList.Node<Chunk> n = visibleChunks.head(), end = visibleChunks.tail(); (n = n.getNext()) != end; ) {
-                Chunk c = n.getValue();
+            for (int j = 0; j < visibleChunkCount; j++) {
+                Chunk c = visibleChunks[j];
 
                 if (i == 0) {
-                    glColorMask(false, false, false, false);
+                    device.setColorMask(false, false, false, false);
                 } else {
-                    glColorMask(true, true, true, true);
+                    device.setColorMask(true, true, true, true);
                 }
 
-                GL20.glUniform1f(animationOffset, ((float) (_tick / 2 % 12)) * (1.0f / 16f));
+                device.setUniform(animationOffset, ((float) (_tick / 2 % 12)) * (1.0f / 16f));
                 TextureManager.getInstance().bindTexture("custom_water_still");
                 c.render(ChunkMesh.RENDER_TYPE.WATER);
             }
         }
 
         ShaderManager.getInstance().enableShader(null);
-        glDisable(GL_TEXTURE_2D);
+        device.disable(GL_TEXTURE_2D);
     }
 
     public void update() {
@@ -258,20 +309,25 @@ public void update() {
         // Update the player
         _player.update();
 
+        // Light jobs close to the player are processed first
+        _lightScheduler.setOrigin((int) _player.getPosition().x, (int) _player.getPosition().z);
+
         // Generate new VBOs if available
         _worldUpdateManager.updateVBOs();
 
         // Update the clouds
         _clouds.update();
 
-        FastList<Chunk> visibleChunks = fetchVisibleChunks();
+        // Upload the distant terrain
+        _horizon.update();
 
-        // Update chunks
-        for (FastList.Node<Chunk> n = visibleChunks.head(), end = visibleChunks.tail(); (n = n.getNext()) != end; ) {
-            n.getValue().update();
+        // Update chunks (visible during the last frame)
+        for (int i = 0; i < _visibleChunkCount; i++) {
+            Chunk c = _visibleChunks[i];
+            c.update();
 
-            if (n.getValue().isDirty() || n.getValue().isFresh() || n.getValue().isLightDirty()) {
-                _worldUpdateManager.queueChunkUpdate(n.getValue());
+            if (c.isDirty() || c.isFresh() || c.isLightDirty()) {
+                _worldUpdateManager.queueChunkUpdate(c);
             }
         }
 
@@ -291,7 +347,7 @@ private void updateTicks() {
      *
      * @return The player offset on the x-axis
      */
-    private int calcPlayerChunkOffsetX() {
+    public int calcPlayerChunkOffsetX() {
         return (int) (_player.getPosition().x / Configuration.CHUNK_DIMENSIONS.x);
     }
 
@@ -300,7 +356,7 @@ private int calcPlayerChunkOffsetX() {
      *
      * @return The player offset on the z-axis
      */
-    private int calcPlayerChunkOffsetZ() {
+    public int calcPlayerChunkOffsetZ() {
         return (int) (_player.getPosition().z / Configuration.CHUNK_DIMENSIONS.z);
     }
 
@@ -331,8 +387,12 @@ public void dispose() {
         } catch (InterruptedException e) {
         }
 
+        _lightScheduler.shutdown();
+        _horizon.dispose();
+
         saveMetaData();
         getChunkCache().saveAndDisposeAllChunks();
+        getMeshCache().flush();
     }
 
     /**
@@ -342,7 +402,7 @@ public void dispose() {
      */
     @Override
     public String toString() {
-        return String.format("world (biome: %s, time: %f, sun: %f, vbo-updates: %d, cache: %d, cu-duration: %fs, seed: \"%s\", title: \"%s\")", getActiveBiome(), getTime(), _skysphere.getSunPosAngle(), _worldUpdateManager.getVboUpdatesSize(), _chunkCache.size(), _worldUpdateManager.getAverageUpdateDuration() / 1000d, _seed, _title);
+        return String.format("world (biome: %s, time: %f, sun: %f, vbo-updates: %d, light-jobs: %d, cache: %d, cu-duration: %fs, direct-buffers: %dKB (%dKB pooled), mesh-cache: %d/%d hits (%dms saved, %dKB), horizon: %d tiles (%dKB, %.2fms/tile, ring: %dms), culling: %d/%d visible (%.3fms, %d tests), seed: \"%s\", title: \"%s\")", getActiveBiome(), getTime(), _skysphere.getSunPosAngle(), _worldUpdateManager.getVboUpdatesSize(), _lightScheduler.size(), _chunkCache.size(), _worldUpdateManager.getAverageUpdateDuration() / 1000d, DirectBufferPool.getInstance().getAllocatedBytes() / 1024, DirectBufferPool.getInstance().getPooledBytes() / 1024, getMeshCache().getHits(), getMeshCache().getHits() + getMeshCache().getMisses(), getMeshCache().getSavedTime(), getMeshCache().getSize() / 1024, _horizon.getTileCount(), _horizon.getBytes() / 1024, _horizon.getAverageBuildTime(), _horizon.getLastRingDuration(), _visibleChunkCount, _chunksInProximity.size(), _cullingDuration, _cullingTests, _seed, _title);
     }
 
     /**
@@ -17,12 +17,14 @@
 
 import org.continuum.generators.*;
 import org.continuum.main.Continuum;
-import org.continuum.blocks.Block;
+import org.continuum.blocks.BlockRegistry;
 import org.continuum.main.Configuration;
 import org.continuum.utilities.FastRandom;
 import org.continuum.world.chunk.Chunk;
 import org.continuum.world.chunk.ChunkCache;
-import javolution.util.FastList;
+import org.continuum.world.chunk.ChunkMeshCache;
+import org.continuum.world.light.LightPropagator;
+import org.continuum.world.light.LightScheduler;
 import javolution.util.FastMap;
 import org.jdom.Document;
 import org.jdom.Element;
@@ -42,6 +44,11 @@ public class WorldProvider {
     /* WORLD GENERATION */
     protected final FastMap<String, ChunkGenerator> _chunkGenerators = new FastMap<String, ChunkGenerator>();
     protected final FastMap<String, ObjectGenerator> _objectGenerators = new FastMap<String, ObjectGenerator>();
+    protected TerrainQuery _terrainQuery;
+
+    /* LIGHTING */
+    protected final ThreadLocal<LightPropagator> _lightPropagators = ThreadLocal.withInitial(() -> new LightPropagator(this));
+    protected final LightScheduler _lightScheduler = new LightScheduler(this);
 
     /* PROPERTIES */
     protected String _title, _seed;
@@ -49,6 +56,7 @@ public class WorldProvider {
 
     /* UPDATING & CACHING */
     protected final ChunkCache _chunkCache = new ChunkCache(this);
+    protected final ChunkMeshCache _meshCache = new ChunkMeshCache(this);
 
     /* RANDOMNESS. */
     protected final FastRandom _random;
@@ -97,6 +105,7 @@ public WorldProvider(String title, String seed) {
         _objectGenerators.put("pineTree", new ObjectGeneratorPineTree(this, _seed));
         _objectGenerators.put("firTree", new ObjectGeneratorFirTree(this, _seed));
         _objectGenerators.put("cactus", new ObjectGeneratorCactus(this, _seed));
+        _terrainQuery = new TerrainQuery((ChunkGeneratorTerrain) _chunkGenerators.get("terrain"));
 
         // Find a new spawning point if none was loaded
         if (_spawningPoint == null) {
@@ -162,7 +171,7 @@ public int calcBlockPosZ(int z1, int z2) {
      * @param y           The Y-coordinate
      * @param z           The Z-coordinate
      * @param type        The type of the block to set
-     * @param updateLight If set the affected chunk is queued for updating
+     * @param updateLight If set the light is updated (deferred until the batch is closed if a light batch is open)
      * @param overwrite
      */
     public final boolean setBlock(int x, int y, int z, byte type, boolean updateLight, boolean overwrite) {
@@ -183,7 +192,7 @@ public final boolean setBlock(int x, int y, int z, byte type, boolean updateLigh
             byte oldBlock = c.getBlock(blockPosX, y, blockPosZ);
             byte newBlock;
 
-            if (Block.getBlockForType(c.getBlock(blockPosX, y, blockPosZ)).isRemovable()) {
+            if (BlockRegistry.hasFlags(c.getBlock(blockPosX, y, blockPosZ), BlockRegistry.REMOVABLE)) {
                 c.setBlock(blockPosX, y, blockPosZ, type);
                 newBlock = type;
             } else {
@@ -191,40 +200,11 @@ public final boolean setBlock(int x, int y, int z, byte type, boolean updateLigh
             }
 
             if (updateLight) {
-
-                /*
-                * Update sunlight.
-                */
-                c.refreshSunlightAtLocalPos(blockPosX, blockPosZ, true, true);
-
-                byte blockLightPrev = getLight(x, y, z, Chunk.LIGHT_TYPE.BLOCK);
-                byte blockLightCurrent;
-
-                // New block placed
-                if (oldBlock == 0x0 && newBlock != 0x0) {
-                    /*
-                    * Spread light of block light sources.
-                    */
-                    byte luminance = Block.getBlockForType(type).getLuminance();
-
-                    // Set the block light value to the luminance of this block
-                    c.setLight(blockPosX, y, blockPosZ, luminance, Chunk.LIGHT_TYPE.BLOCK);
-                    blockLightCurrent = luminance;
-                } else { // Block removed
-                    /*
-                    * Update the block light intensity of the current block.
-                    */
-                    c.setLight(blockPosX, y, blockPosZ, (byte) 0x0, Chunk.LIGHT_TYPE.BLOCK);
-                    c.refreshLightAtLocalPos(blockPosX, y, blockPosZ, Chunk.LIGHT_TYPE.BLOCK);
-                    blockLightCurrent = getLight(x, y, z, Chunk.LIGHT_TYPE.BLOCK);
-                }
-
-                // Block light is brighter than before
-                if (blockLightCurrent > blockLightPrev) {
-                    c.spreadLight(blockPosX, y, blockPosZ, blockLightCurrent, Chunk.LIGHT_TYPE.BLOCK);
-                } else if (blockLightCurrent < blockLightPrev) { // Block light is darker than before
-                    c.unspreadLight(blockPosX, y, blockPosZ, blockLightPrev, Chunk.LIGHT_TYPE.BLOCK);
-                }
+                // Handed over to the light workers (or deferred if a light batch is open on this thread)
+                LightPropagator propagator = getLightPropagator();
+                propagator.beginBatch();
+                propagator.queueBlockChange(x, y, z);
+                propagator.endBatch();
             }
         }
 
@@ -301,6 +281,26 @@ public final byte getLight(int x, int y, int z, Chunk.LIGHT_TYPE type) {
         return c.getLight(blockPosX, y, blockPosZ, type);
     }
 
+    /**
+     * Returns all light values at the given position. The sunlight is stored in the lowest nibble,
+     * followed by the packed colour of the block light.
+     *
+     * @param x The X-coordinate
+     * @param y The Y-coordinate
+     * @param z The Z-coordinate
+     * @return The combined light values
+     */
+    public final short getLightValues(int x, int y, int z) {
+        int chunkPosX = calcChunkPosX(x);
+        int chunkPosZ = calcChunkPosZ(z);
+
+        int blockPosX = calcBlockPosX(x, chunkPosX);
+        int blockPosZ = calcBlockPosZ(z, chunkPosZ);
+
+        Chunk c = _chunkCache.loadOrCreateChunk(chunkPosX, chunkPosZ);
+        return c.getLightValues(blockPosX, y, blockPosZ);
+    }
+
     /**
      * Sets the light value at the given position.
      *
@@ -325,11 +325,10 @@ public void setLight(int x, int y, int z, byte intensity, Chunk.LIGHT_TYPE type)
      * Refreshes sunlight vertically at a given global position.
      *
      * @param x
-     * @param spreadLight
-     * @param refreshSunlight
      * @param z
+     * @param spreadLight
      */
-    public void refreshSunlightAt(int x, int z, boolean spreadLight, boolean refreshSunlight) {
+    public void refreshSunlightAt(int x, int z, boolean spreadLight) {
         int chunkPosX = calcChunkPosX(x);
         int chunkPosZ = calcChunkPosZ(z);
 
@@ -337,57 +336,46 @@ public void refreshSunlightAt(int x, int z, boolean spreadLight, boolean refresh
         int blockPosZ = calcBlockPosZ(z, chunkPosZ);
 
         Chunk c = _chunkCache.loadOrCreateChunk(calcChunkPosX(x), calcChunkPosZ(z));
-        c.refreshSunlightAtLocalPos(blockPosX, blockPosZ, spreadLight, refreshSunlight);
-    }
+        c.refreshSunlightAtLocalPos(blockPosX, blockPosZ, spreadLight);
 
-    /**
-     * Recursive light calculation.
-     *
-     * @param x
-     * @param y
-     * @param z
-     * @param lightValue
-     * @param depth
-     * @param type
-     */
-    public void unspreadLight(int x, int y, int z, byte lightValue, int depth, Chunk.LIGHT_TYPE type, FastList<Vector3f> brightSpots) {
-        int chunkPosX = calcChunkPosX(x);
-        int chunkPosZ = calcChunkPosZ(z);
+        if (spreadLight) {
+            getLightPropagator().propagate(Chunk.LIGHT_TYPE.SUN);
+        }
+    }
 
-        int blockPosX = calcBlockPosX(x, chunkPosX);
-        int blockPosZ = calcBlockPosZ(z, chunkPosZ);
+    public ObjectGenerator getObjectGenerator(String s) {
+        return _objectGenerators.get(s);
+    }
 
-        Chunk c = _chunkCache.loadOrCreateChunk(calcChunkPosX(x), calcChunkPosZ(z));
-        c.unspreadLight(blockPosX, y, blockPosZ, lightValue, depth, type, brightSpots);
+    public ChunkGenerator getChunkGenerator(String s) {
+        return _chunkGenerators.get(s);
     }
 
     /**
-     * Recursive light calculation.
+     * Returns the light propagator of the current thread.
      *
-     * @param x
-     * @param y
-     * @param z
-     * @param lightValue
-     * @param depth
-     * @param type
+     * @return The light propagator
      */
-    public void spreadLight(int x, int y, int z, byte lightValue, int depth, Chunk.LIGHT_TYPE type) {
-        int chunkPosX = calcChunkPosX(x);
-        int chunkPosZ = calcChunkPosZ(z);
-
-        int blockPosX = calcBlockPosX(x, chunkPosX);
-        int blockPosZ = calcBlockPosZ(z, chunkPosZ);
-
-        Chunk c = _chunkCache.loadOrCreateChunk(calcChunkPosX(x), calcChunkPosZ(z));
-        c.spreadLight(blockPosX, y, blockPosZ, lightValue, depth, type);
+    public LightPropagator getLightPropagator() {
+        return _lightPropagators.get();
     }
 
-    public ObjectGenerator getObjectGenerator(String s) {
-        return _objectGenerators.get(s);
+    /**
+     * Returns the scheduler running the light jobs of this world.
+     *
+     * @return The light scheduler
+     */
+    public LightScheduler getLightScheduler() {
+        return _lightScheduler;
     }
 
-    public ChunkGenerator getChunkGenerator(String s) {
-        return _chunkGenerators.get(s);
+    /**
+     * Returns the service answering approximate terrain queries without generating chunks.
+     *
+     * @return The terrain query service
+     */
+    public TerrainQuery getTerrainQuery() {
+        return _terrainQuery;
     }
 
     /**
@@ -416,9 +404,10 @@ public Vector3f findNewSpawningPoint() {
             int randX = (int) (_random.randomDouble() * 16000f);
             int randZ = (int) (_random.randomDouble() * 16000f);
 
-            double dens = ((ChunkGeneratorTerrain) getChunkGenerator("terrain")).calcDensity(randX, 32, randZ, ChunkGeneratorTerrain.BIOME_TYPE.PLAINS);
+            int height = _terrainQuery.getSurfaceHeight(randX, randZ);
 
-            if (dens >= 0.0 && dens < 64.0)
+            // Spawn on land only
+            if (height > TerrainQuery.WATER_LEVEL && height < 96)
                 return new Vector3f(randX, 128, randZ);
         }
     }
@@ -542,6 +531,10 @@ public ChunkCache getChunkCache() {
         return _chunkCache;
     }
 
+    public ChunkMeshCache getMeshCache() {
+        return _meshCache;
+    }
+
     public FastRandom getRandom() {
         return _random;
     }
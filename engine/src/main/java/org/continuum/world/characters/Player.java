@@ -23,18 +23,18 @@
 import org.continuum.main.Configuration;
 import org.continuum.noise.PerlinNoise;
 import org.continuum.datastructures.AABB;
+import org.continuum.rendering.RenderDevice;
+import org.continuum.rendering.RenderDeviceManager;
 import org.continuum.world.World;
 import org.continuum.blocks.Block;
+import org.continuum.blocks.BlockRegistry;
 import javolution.util.FastList;
 import org.lwjgl.input.Keyboard;
 import org.lwjgl.input.Mouse;
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.util.glu.GLU;
 import org.lwjgl.util.vector.Vector3f;
 import org.newdawn.slick.openal.Audio;
 
-import static org.lwjgl.opengl.GL11.*;
-
 /**
  * This class contains all functions regarding the player's actions,
  * movement and the orientation of the camera.
@@ -77,35 +77,37 @@ public void render() {
     }
 
     public void applyPlayerModelViewMatrix() {
+        RenderDevice device = RenderDeviceManager.getDevice();
 
-        glMatrixMode(GL11.GL_MODELVIEW);
-        glLoadIdentity();
+        device.setMatrixMode(GL11.GL_MODELVIEW);
+        device.loadIdentity();
 
         if (!(Configuration.getSettingBoolean("DEMO_FLIGHT") && Configuration.getSettingBoolean("GOD_MODE"))) {
 
             if (Configuration.getSettingBoolean("BOBBING") && !Configuration.getSettingBoolean("GOD_MODE")) {
                 double bobbing = _pGen.noise(getPosition().x * 0.5, 0, getPosition().z * 0.5);
-                glRotated(bobbing * Configuration.BOBBING_ANGLE, 0, 0, 1);
+                device.rotate((float) (bobbing * Configuration.BOBBING_ANGLE), 0, 0, 1);
             }
 
             Vector3f eyePosition = calcEyePosition();
-            GLU.gluLookAt(eyePosition.x, eyePosition.y, eyePosition.z, eyePosition.x + _viewingDirection.x, eyePosition.y + _viewingDirection.y, eyePosition.z + _viewingDirection.z, 0, 1, 0);
+            device.lookAt(eyePosition.x, eyePosition.y, eyePosition.z, eyePosition.x + _viewingDirection.x, eyePosition.y + _viewingDirection.y, eyePosition.z + _viewingDirection.z, 0, 1, 0);
 
 
         } else {
-            GLU.gluLookAt(getPosition().x, getPosition().y, getPosition().z, getPosition().x, 40, getPosition().z + 128, 0, 1, 0);
+            device.lookAt(getPosition().x, getPosition().y, getPosition().z, getPosition().x, 40, getPosition().z + 128, 0, 1, 0);
         }
         // Update the current view frustum
         _viewFrustum.updateFrustum();
     }
 
     public void applyNormalizedModelViewMatrix() {
+        RenderDevice device = RenderDeviceManager.getDevice();
 
-        glMatrixMode(GL11.GL_MODELVIEW);
-        glLoadIdentity();
+        device.setMatrixMode(GL11.GL_MODELVIEW);
+        device.loadIdentity();
 
         if (!(Configuration.getSettingBoolean("DEMO_FLIGHT") && Configuration.getSettingBoolean("GOD_MODE"))) {
-            GLU.gluLookAt(0, 0, 0, _viewingDirection.x, _viewingDirection.y, _viewingDirection.z, 0, 1, 0);
+            device.lookAt(0, 0, 0, _viewingDirection.x, _viewingDirection.y, _viewingDirection.z, 0, 1, 0);
         }
     }
 
@@ -145,7 +147,7 @@ RayBlockIntersection.Intersection calcSelectedBlock() {
                     byte blockType = _parent.getBlock((int) (getPosition().x + x), (int) (getPosition().y + y), (int) (getPosition().z + z));
 
                     // Ignore special blocks
-                    if (Block.getBlockForType(blockType).letSelectionRayThrough()) {
+                    if (BlockRegistry.hasFlags(blockType, BlockRegistry.SELECTION_RAY_THROUGH)) {
                         continue;
                     }
 
@@ -209,9 +211,9 @@ public void plantTree(int type) {
             Vector3f blockPos = is.getBlockPosition();
 
             if (type == 0) {
-                _parent.getObjectGenerator("tree").generate((int) blockPos.x, (int) blockPos.y, (int) blockPos.z, true);
+                _parent.getObjectGenerator("tree").generate((int) blockPos.x, (int) blockPos.y, (int) blockPos.z);
             } else {
-                _parent.getObjectGenerator("pineTree").generate((int) blockPos.x, (int) blockPos.y, (int) blockPos.z, true);
+                _parent.getObjectGenerator("pineTree").generate((int) blockPos.x, (int) blockPos.y, (int) blockPos.z);
             }
         }
     }
@@ -293,6 +295,11 @@ public void processMouseInput(int button, boolean state) {
      * command.
      */
     public void processMovement() {
+        // Without a display (headless) there is no input
+        if (!Mouse.isCreated() || !Keyboard.isCreated()) {
+            return;
+        }
+
         double dx = Mouse.getDX();
         double dy = Mouse.getDY();
 
@@ -16,18 +16,28 @@
 package org.continuum.world.chunk;
 
 import org.continuum.blocks.Block;
+import org.continuum.blocks.BlockRegistry;
 import org.continuum.datastructures.AABB;
 import org.continuum.datastructures.BlockmaniaArray;
-import org.continuum.datastructures.BlockmaniaSmartArray;
+import org.continuum.datastructures.BlockmaniaLightArray;
+import org.continuum.generators.ChunkGeneratorTerrain;
+import org.continuum.generators.ClimateLayer;
+import org.continuum.generators.StructureWriteBuffer;
 import org.continuum.main.Configuration;
 import org.continuum.main.Continuum;
+import org.continuum.rendering.RenderDevice;
+import org.continuum.rendering.RenderDeviceManager;
 import org.continuum.utilities.Helper;
 import org.continuum.world.WorldProvider;
 import org.continuum.world.entity.StaticEntity;
-import javolution.util.FastList;
+import org.continuum.world.light.LightColor;
+import org.continuum.world.light.LightPropagator;
+import gnu.trove.list.array.TIntArrayList;
 import org.lwjgl.util.vector.Vector3f;
 
 import java.io.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 
 /**
@@ -42,26 +52,42 @@
  */
 public class Chunk extends StaticEntity implements Comparable<Chunk>, Externalizable {
 
-    protected static final
-    Vector3f[] _lightDirections = {new Vector3f(1, 0, 0), new Vector3f(-1, 0, 0), new Vector3f(0, 1, 0), new Vector3f(0, -1, 0), new Vector3f(0, 0, 1), new Vector3f(0, 0, -1)};
+    /* SECTIONS */
+    /**
+     * The meshes of a chunk are split into sections of this height, which are generated and uploaded separately.
+     */
+    public static final int SECTION_HEIGHT = BlockmaniaLightArray.SECTION_HEIGHT;
+    public static final int SECTION_COUNT = (int) Configuration.CHUNK_DIMENSIONS.y / SECTION_HEIGHT;
+    public static final int ALL_SECTIONS = (int) ((1L << SECTION_COUNT) - 1);
     /* ------ */
-    protected boolean _dirty, _lightDirty, _fresh, _cached;
+    protected boolean _lightDirty, _fresh, _cached;
+    /**
+     * Bit mask of the sections whose meshes have to be generated again.
+     */
+    private final AtomicInteger _dirtySections = new AtomicInteger(ALL_SECTIONS);
     /* ------ */
     protected WorldProvider _parent;
     /* ------ */
     protected final BlockmaniaArray _blocks;
-    protected final BlockmaniaSmartArray _sunlight, _light;
+    protected final BlockmaniaLightArray _light;
     /* ------ */
     protected AABB _aabb;
     /* RENDERING */
     private static int _statVertexArrayUpdateCount = 0;
     /* ------ */
-    private ChunkMesh _activeMesh;
-    private ChunkMesh _newMesh;
+    private final ChunkMesh[] _activeMeshes = new ChunkMesh[SECTION_COUNT];
+    private final ChunkMesh[] _newMeshes = new ChunkMesh[SECTION_COUNT];
     /* ------ */
     private final ChunkMeshGenerator _meshGenerator;
     /* ------ */
     private boolean _visible = false;
+    /* STRUCTURES */
+    private final TIntArrayList _parkedStructureWrites = new TIntArrayList();
+    /* CLIMATE */
+    private volatile ClimateLayer _climate;
+    /* LIGHTING */
+    private final ReentrantLock _lightLock = new ReentrantLock();
+    private final AtomicInteger _pendingLightJobs = new AtomicInteger();
 
     public enum LIGHT_TYPE {
         BLOCK,
@@ -72,11 +98,9 @@ public Chunk() {
         _meshGenerator = new ChunkMeshGenerator(this);
 
         _blocks = new BlockmaniaArray((int) Configuration.CHUNK_DIMENSIONS.x, (int) Configuration.CHUNK_DIMENSIONS.y, (int) Configuration.CHUNK_DIMENSIONS.z);
-        _sunlight = new BlockmaniaSmartArray((int) Configuration.CHUNK_DIMENSIONS.x, (int) Configuration.CHUNK_DIMENSIONS.y, (int) Configuration.CHUNK_DIMENSIONS.z);
-        _light = new BlockmaniaSmartArray((int) Configuration.CHUNK_DIMENSIONS.x, (int) Configuration.CHUNK_DIMENSIONS.y, (int) Configuration.CHUNK_DIMENSIONS.z);
+        _light = new BlockmaniaLightArray((int) Configuration.CHUNK_DIMENSIONS.x, (int) Configuration.CHUNK_DIMENSIONS.y, (int) Configuration.CHUNK_DIMENSIONS.z);
 
         _lightDirty = true;
-        _dirty = true;
         _fresh = true;
         _cached = false;
     }
@@ -109,8 +133,21 @@ public boolean generate() {
             _parent.getChunkGenerator("resources").generate(this);
             _parent.getChunkGenerator("forest").generate(this);
 
-            generateSunlight();
-            _fresh = false;
+            synchronized (_parkedStructureWrites) {
+                // Decoration stage: Apply the structures neighbors have placed within this chunk
+                applyStructureWrites(_parkedStructureWrites, false);
+                _parkedStructureWrites.clear();
+
+                // Light jobs of the neighbors might be spreading into this chunk right now
+                _lightLock.lock();
+
+                try {
+                    generateSunlight();
+                    _fresh = false;
+                } finally {
+                    _lightLock.unlock();
+                }
+            }
 
             Continuum.getInstance().getLogger().log(Level.FINEST, "Chunk ({1}) generated ({0}s).", new Object[]{(System.currentTimeMillis() - timeStart) / 1000d, this});
             return true;
@@ -119,226 +156,161 @@ public boolean generate() {
     }
 
     /**
-     * Updates the light of this chunk.
+     * Parks the given structure writes until this chunk reaches its decoration stage.
+     *
+     * @param writes The packed block writes
+     * @return False if the chunk is already generated and the writes have to be applied directly
      */
-    public void updateLight() {
-        if (!_fresh) { // Do NOT update fresh chunks
-            for (int x = 0; x < (int) Configuration.CHUNK_DIMENSIONS.x; x++) {
-                for (int z = 0; z < (int) Configuration.CHUNK_DIMENSIONS.z; z++) {
-                    for (int y = 0; y < (int) Configuration.CHUNK_DIMENSIONS.y; y++) {
-                        byte lightValue = getLight(x, y, z, LIGHT_TYPE.SUN);
-
-                        // Spread the sunlight in translucent blocks with a light value greater than zero.
-                        if (lightValue > 0 && Block.getBlockForType(getBlock(x, y, z)).isBlockTypeTranslucent()) {
-                            spreadLight(x, y, z, lightValue, LIGHT_TYPE.SUN);
-                        }
-                    }
-                }
+    public boolean parkStructureWrites(TIntArrayList writes) {
+        synchronized (_parkedStructureWrites) {
+            if (!_fresh) {
+                return false;
             }
-            setLightDirty(false);
+
+            _parkedStructureWrites.addAll(writes);
+            return true;
         }
     }
 
     /**
-     * Generates the initial sunlight.
+     * Returns true if structure writes of the neighbors wait for the decoration stage of this chunk.
+     *
+     * @return True if structure writes are parked
      */
-    private void generateSunlight() {
-        for (int x = 0; x < (int) Configuration.CHUNK_DIMENSIONS.x; x++) {
-            for (int z = 0; z < (int) Configuration.CHUNK_DIMENSIONS.z; z++) {
-                refreshSunlightAtLocalPos(x, z, false, false);
-            }
+    public boolean hasParkedStructureWrites() {
+        synchronized (_parkedStructureWrites) {
+            return !_parkedStructureWrites.isEmpty();
         }
     }
 
     /**
-     * Calculates the sunlight at a given column within the chunk.
+     * Applies a batch of structure writes to this chunk.
      *
-     * @param x               Local block position on the x-axis
-     * @param z               Local block position on the z-axis
-     * @param spreadLight     Spread light if a light value is greater than the old one
-     * @param refreshSunlight Refreshes the sunlight using the surrounding chunks when the light value is lower than before
+     * @param writes     The packed block writes
+     * @param invalidate If set, the light of the written blocks is updated (as one light batch)
+     *                   and the chunk and its neighbors are marked dirty once
      */
-    public void refreshSunlightAtLocalPos(int x, int z, boolean spreadLight, boolean refreshSunlight) {
-        boolean covered = false;
+    public void applyStructureWrites(TIntArrayList writes, boolean invalidate) {
+        if (!isCached() || writes.isEmpty()) {
+            return;
+        }
 
-        for (int y = (int) Configuration.CHUNK_DIMENSIONS.y - 1; y >= 0; y--) {
-            Block b = Block.getBlockForType(_blocks.get(x, y, z));
+        LightPropagator propagator = invalidate ? _parent.getLightPropagator() : null;
+        int edges = 0, sections = 0;
 
-            // Remember if this "column" is covered
-            if ((!b.isBlockInvisible() && b.getBlockForm() != Block.BLOCK_FORM.BILLBOARD) && !covered) {
-                covered = true;
-            }
+        if (invalidate) {
+            propagator.beginBatch();
+        }
 
-            byte oldValue = _sunlight.get(x, y, z);
-            byte newValue;
+        for (int i = 0; i < writes.size(); i++) {
+            int write = writes.get(i);
 
-            // If the column is not covered...
-            if (!covered) {
-                if (b.isBlockInvisible() || b.getBlockForm() == Block.BLOCK_FORM.BILLBOARD)
-                    _sunlight.set(x, y, z, Configuration.MAX_LIGHT);
-                else
-                    _sunlight.set(x, y, z, (byte) 0x0);
+            int x = StructureWriteBuffer.unpackX(write);
+            int y = StructureWriteBuffer.unpackY(write);
+            int z = StructureWriteBuffer.unpackZ(write);
+            byte type = StructureWriteBuffer.unpackType(write);
 
-                newValue = _sunlight.get(x, y, z);
+            byte oldValue = _blocks.get(x, y, z);
 
-                // Otherwise the column is covered. Don't generate any light in the cells...
-            } else {
-                _sunlight.set(x, y, z, (byte) 0);
+            if (oldValue == type || !(StructureWriteBuffer.unpackOverwrite(write) || oldValue == 0x0) || !BlockRegistry.hasFlags(oldValue, BlockRegistry.REMOVABLE)) {
+                continue;
+            }
 
-                // Update the sunlight at the current position (check the surrounding cells)
-                if (refreshSunlight) {
-                    refreshLightAtLocalPos(x, y, z, LIGHT_TYPE.SUN);
-                }
+            _blocks.set(x, y, z, type);
 
-                newValue = _sunlight.get(x, y, z);
+            if (invalidate) {
+                propagator.queueBlockChange(getBlockWorldPosX(x), y, getBlockWorldPosZ(z));
             }
 
+            edges |= calcEdgeMask(x, z);
+            sections |= calcSectionMask(y);
+        }
 
-            if (spreadLight && oldValue > newValue)
-                unspreadLight(x, y, z, oldValue, Chunk.LIGHT_TYPE.SUN);
-            else if (spreadLight && oldValue < newValue) {
-                /*
-                * Spread sunlight if the new light value is more intense
-                * than the old value.
-                */
-                spreadLight(x, y, z, newValue, LIGHT_TYPE.SUN);
-            }
+        if (!invalidate) {
+            return;
         }
+
+        if (sections != 0) {
+            markDirty(edges, sections);
+        }
+
+        propagator.endBatch();
     }
 
     /**
-     * @param x    Local block position on the x-axis
-     * @param y    Local block position on the y-axis
-     * @param z    Local block position on the z-axis
-     * @param type The type of the light
+     * Updates the light of this chunk. The light is first spread within the chunk and
+     * afterwards exchanged with the adjacent chunks.
      */
-    public void refreshLightAtLocalPos(int x, int y, int z, LIGHT_TYPE type) {
-        int blockPosX = getBlockWorldPosX(x);
-        int blockPosZ = getBlockWorldPosZ(z);
-
-        byte bType = getBlock(x, y, z);
-
-        // If a block was just placed, remove the light value at this point
-        if (!Block.getBlockForType(bType).isBlockTypeTranslucent()) {
-            setLight(x, y, z, (byte) 0, type);
-        } else {
-            // If the block was removed: Find the brightest neighbor and
-            // set the current light value to this value - 1
-            byte val = getParent().getLight(blockPosX, y, blockPosZ, type);
-            byte val1 = getParent().getLight(blockPosX + 1, y, blockPosZ, type);
-            byte val2 = getParent().getLight(blockPosX - 1, y, blockPosZ, type);
-            byte val3 = getParent().getLight(blockPosX, y, blockPosZ + 1, type);
-            byte val4 = getParent().getLight(blockPosX, y, blockPosZ - 1, type);
-            byte val5 = getParent().getLight(blockPosX, y + 1, blockPosZ, type);
-            byte val6 = getParent().getLight(blockPosX, y - 1, blockPosZ, type);
-
-            byte max = (byte) (Math.max(Math.max(Math.max(val1, val2), Math.max(val3, val4)), Math.max(val5, val6)) - 1);
-
-            if (max < 0) {
-                max = 0;
-            }
+    public void updateLight() {
+        if (!_fresh) { // Do NOT update fresh chunks
+            LightPropagator propagator = _parent.getLightPropagator();
 
-            // Do nothing if the current light value is brighter
-            byte res = (byte) Math.max(max, val);
+            propagator.propagateWithinChunk(this, LIGHT_TYPE.SUN);
+            propagator.exchangeBorders(this, LIGHT_TYPE.SUN);
 
-            // Finally set the new light value
-            setLight(x, y, z, res, type);
+            setLightDirty(false);
         }
     }
 
     /**
-     * Recursive light calculation.
-     *
-     * @param x          Local block position on the x-axis
-     * @param y          Local block position on the y-axis
-     * @param z          Local block position on the z-axis
-     * @param lightValue The light value used to spread the light
-     * @param type       The type of the light
+     * Generates the initial sunlight.
      */
-    public void unspreadLight(int x, int y, int z, byte lightValue, LIGHT_TYPE type) {
-        FastList<Vector3f> brightSpots = new FastList<Vector3f>();
-        unspreadLight(x, y, z, lightValue, 0, type, brightSpots);
-
-        for (Vector3f pos : brightSpots) {
-            getParent().spreadLight((int) pos.x, (int) pos.y, (int) pos.z, _parent.getLight((int) pos.x, (int) pos.y, (int) pos.z, type), 0, type);
+    private void generateSunlight() {
+        for (int x = 0; x < (int) Configuration.CHUNK_DIMENSIONS.x; x++) {
+            for (int z = 0; z < (int) Configuration.CHUNK_DIMENSIONS.z; z++) {
+                refreshSunlightAtLocalPos(x, z, false);
+            }
         }
     }
 
     /**
-     * Recursive light calculation.
+     * Calculates the sunlight at a given column within the chunk.
      *
      * @param x           Local block position on the x-axis
-     * @param y           Local block position on the y-axis
      * @param z           Local block position on the z-axis
-     * @param lightValue  The light value used to spread the light
-     * @param depth       Depth of the recursion
-     * @param type        The type of the light
-     * @param brightSpots Log of light spots, which where brighter than the current light node
+     * @param spreadLight Queue the changed light values in the light propagator of the current thread.
+     *                    The caller is responsible for running the propagation for {@link LIGHT_TYPE#SUN}.
      */
-    public void unspreadLight(int x, int y, int z, byte lightValue, int depth, LIGHT_TYPE type, FastList<Vector3f> brightSpots) {
-        int blockPosX = getBlockWorldPosX(x);
-        int blockPosZ = getBlockWorldPosZ(z);
-
-        // Remove the light at this point
-        getParent().setLight(blockPosX, y, blockPosZ, (byte) 0x0, type);
-
-        for (int i = 0; i < 6; i++) {
+    public void refreshSunlightAtLocalPos(int x, int z, boolean spreadLight) {
+        LightPropagator propagator = spreadLight ? _parent.getLightPropagator() : null;
+        boolean covered = false;
+        int sections = 0;
 
-            byte neighborValue = getParent().getLight(blockPosX + (int) _lightDirections[i].x, y + (int) _lightDirections[i].y, blockPosZ + (int) _lightDirections[i].z, type);
-            byte neighborType = getParent().getBlock(blockPosX + (int) _lightDirections[i].x, y + (int) _lightDirections[i].y, blockPosZ + (int) _lightDirections[i].z);
+        for (int y = (int) Configuration.CHUNK_DIMENSIONS.y - 1; y >= 0; y--) {
+            byte type = _blocks.get(x, y, z);
+            boolean sunlit = BlockRegistry.isInvisible(type) || BlockRegistry.getForm(type) == Block.BLOCK_FORM.BILLBOARD;
 
-            if (neighborValue < lightValue && neighborValue > 0 && Block.getBlockForType(neighborType).isBlockTypeTranslucent()) {
-                getParent().unspreadLight(blockPosX + (int) _lightDirections[i].x, y + (int) _lightDirections[i].y, blockPosZ + (int) _lightDirections[i].z, (byte) (lightValue - 1), depth + 1, type, brightSpots);
-            } else if (neighborValue >= lightValue) {
-                brightSpots.add(new Vector3f(blockPosX + (int) _lightDirections[i].x, y + (int) _lightDirections[i].y, blockPosZ + (int) _lightDirections[i].z));
+            // Remember if this "column" is covered
+            if (!sunlit && !covered) {
+                covered = true;
             }
-        }
-    }
 
+            byte oldValue = _light.getSunlight(x, y, z);
 
-    /**
-     * Recursive light calculation.
-     *
-     * @param x          Local block position on the x-axis
-     * @param y          Local block position on the y-axis
-     * @param z          Local block position on the z-axis
-     * @param lightValue The light value used to spread the light
-     * @param type       The type of the light
-     */
-    public void spreadLight(int x, int y, int z, byte lightValue, LIGHT_TYPE type) {
-        spreadLight(x, y, z, lightValue, 0, type);
-    }
+            if (!spreadLight) {
+                _light.setSunlight(x, y, z, !covered ? Configuration.MAX_LIGHT : 0);
+                continue;
+            }
 
-    /**
-     * Recursive light calculation.
-     *
-     * @param x          Local block position on the x-axis
-     * @param y          Local block position on the y-axis
-     * @param z          Local block position on the z-axis
-     * @param lightValue The light value used to spread the light
-     * @param depth      Depth of the recursion
-     * @param type       The type of the light
-     */
-    public void spreadLight(int x, int y, int z, byte lightValue, int depth, LIGHT_TYPE type) {
-        if (depth > lightValue || lightValue - depth < 1) {
-            return;
+            if (!covered) {
+                if (oldValue < Configuration.MAX_LIGHT) {
+                    _light.setSunlight(x, y, z, Configuration.MAX_LIGHT);
+                    propagator.queueIncrease(getBlockWorldPosX(x), y, getBlockWorldPosZ(z));
+                    sections |= calcSectionMask(y);
+                }
+            } else if (oldValue > 0 && (oldValue == Configuration.MAX_LIGHT || !BlockRegistry.isTranslucent(type))) {
+                /*
+                 * The block lost direct sunlight or became opaque. Remove the light,
+                 * covered blocks which are still translucent are refilled by the propagation.
+                 */
+                _light.setSunlight(x, y, z, (byte) 0);
+                propagator.queueDecrease(getBlockWorldPosX(x), y, getBlockWorldPosZ(z), oldValue);
+                sections |= calcSectionMask(y);
+            }
         }
 
-        int blockPosX = getBlockWorldPosX(x);
-        int blockPosZ = getBlockWorldPosZ(z);
-
-        byte newLightValue;
-        newLightValue = (byte) (lightValue - depth);
-
-        getParent().setLight(blockPosX, y, blockPosZ, newLightValue, type);
-
-        for (int i = 0; i < 6; i++) {
-            byte neighborValue = getParent().getLight(blockPosX + (int) _lightDirections[i].x, y + (int) _lightDirections[i].y, blockPosZ + (int) _lightDirections[i].z, type);
-            byte neighborType = getParent().getBlock(blockPosX + (int) _lightDirections[i].x, y + (int) _lightDirections[i].y, blockPosZ + (int) _lightDirections[i].z);
-
-            if (neighborValue < newLightValue - 1 && Block.getBlockForType(neighborType).isBlockTypeTranslucent()) {
-                getParent().spreadLight(blockPosX + (int) _lightDirections[i].x, y + (int) _lightDirections[i].y, blockPosZ + (int) _lightDirections[i].z, lightValue, depth + 1, type);
-            }
+        if (sections != 0) {
+            markDirty(calcEdgeMask(x, z), sections);
         }
     }
 
@@ -352,26 +324,60 @@ public void spreadLight(int x, int y, int z, byte lightValue, int depth, LIGHT_T
      * @return The light intensity
      */
     public byte getLight(int x, int y, int z, LIGHT_TYPE type) {
-        byte result;
+        return (byte) LightColor.getIntensity(getLightValue(x, y, z, type));
+    }
+
+    /**
+     * Returns the packed light value at a given local block position. The sunlight only uses
+     * the lowest channel, the block light is coloured (see {@link LightColor}).
+     *
+     * @param x    Local block position on the x-axis
+     * @param y    Local block position on the y-axis
+     * @param z    Local block position on the z-axis
+     * @param type The type of the light
+     * @return The packed light value
+     */
+    public int getLightValue(int x, int y, int z, LIGHT_TYPE type) {
+        int result = getLightValues(x, y, z);
 
         if (type == LIGHT_TYPE.SUN) {
-            result = _sunlight.get(x, y, z);
-        } else {
-            result = _light.get(x, y, z);
+            return result & 0x0F;
         }
 
-        if (result >= 0) {
-            return result;
+        return (result >> 4) & 0xFFF;
+    }
+
+    /**
+     * Returns all light values at a given local block position with a single read. The sunlight
+     * is stored in the lowest nibble, followed by the packed colour of the block light.
+     *
+     * @param x Local block position on the x-axis
+     * @param y Local block position on the y-axis
+     * @param z Local block position on the z-axis
+     * @return The combined light values
+     */
+    public short getLightValues(int x, int y, int z) {
+        // Full sunlight and no block light outside of the chunk
+        if (!_light.contains(x, y, z)) {
+            return Configuration.MAX_LIGHT;
         }
 
-        if (type == Chunk.LIGHT_TYPE.SUN)
-            return 15;
-        else
-            return 0;
+        return _light.getUnchecked(x, y, z);
+    }
+
+    /**
+     * Returns true if the section containing the given height is entirely exposed to the sky. Such
+     * sections have full sunlight and no block light and need no storage nor propagation.
+     *
+     * @param y Local block position on the y-axis
+     * @return True if the section is implicitly sunlit
+     */
+    public boolean isImplicitlySunlit(int y) {
+        return _light.isImplicit(y);
     }
 
     /**
-     * Sets the light value at the given position.
+     * Sets the light value at the given position. Block light set this way is white.
      *
      * @param x         Local block position on the x-axis
      * @param y         Local block position on the y-axis
@@ -383,23 +389,31 @@ public void setLight(int x, int y, int z, byte intensity, LIGHT_TYPE type) {
         if (!isCached())
             return;
 
-        BlockmaniaSmartArray lSource;
-        if (type == LIGHT_TYPE.SUN) {
-            lSource = _sunlight;
-        } else if (type == LIGHT_TYPE.BLOCK) {
-            lSource = _light;
-        } else {
-            return;
-        }
-
+        int value = type == LIGHT_TYPE.SUN ? intensity : LightColor.fromIntensity(intensity);
+        int oldValue = getLightValue(x, y, z, type);
+        setLightRaw(x, y, z, value, type);
 
-        byte oldValue = lSource.get(x, y, z);
-        lSource.set(x, y, z, intensity);
+        if (oldValue != value) {
+            // Mark the affected sections of this chunk and the neighbors as dirty
+            markDirty(calcEdgeMask(x, z), calcSectionMask(y));
+        }
+    }
 
-        if (oldValue != intensity) {
-            setDirty(true);
-            // Mark the neighbors as dirty
-            markNeighborsDirty(x, z);
+    /**
+     * Sets the light value at the given position without marking the chunk dirty.
+     * Used by the light propagation which invalidates the touched chunks once it is finished.
+     *
+     * @param x     Local block position on the x-axis
+     * @param y     Local block position on the y-axis
+     * @param z     Local block position on the z-axis
+     * @param value The packed light value
+     * @param type  The type of the light
+     */
+    public void setLightRaw(int x, int y, int z, int value, LIGHT_TYPE type) {
+        if (type == LIGHT_TYPE.SUN) {
+            _light.setSunlight(x, y, z, (byte) value);
+        } else {
+            _light.setBlockLight(x, y, z, (short) value);
         }
     }
 
@@ -423,7 +437,7 @@ public byte getBlock(int x, int y, int z) {
 
     public boolean canBlockSeeTheSky(int x, int y, int z) {
         for (int y1 = y; y1 < Configuration.CHUNK_DIMENSIONS.y; y1++) {
-            if (!Block.getBlockForType(getBlock(x, y1, z)).isBlockTypeTranslucent())
+            if (!BlockRegistry.isTranslucent(getBlock(x, y1, z)))
                 return false;
         }
 
@@ -446,10 +460,8 @@ public void setBlock(int x, int y, int z, byte type) {
         _blocks.set(x, y, z, type);
 
         if (oldValue != type) {
-            // Update vertex arrays and light
-            setDirty(true);
-            // Mark the neighbors as dirty
-            markNeighborsDirty(x, z);
+            // Update the vertex arrays of the affected sections of this chunk and the neighbors
+            markDirty(calcEdgeMask(x, z), calcSectionMask(y));
         }
     }
 
@@ -482,46 +494,89 @@ public Chunk[] loadOrCreateNeighbors() {
     }
 
     /**
-     * Marks those neighbors of a chunk dirty, that are adjacent to
-     * the given block coordinate.
+     * Marks all sections of this chunk dirty and those neighbors, that are adjacent to the given chunk edges.
      *
-     * @param x Local block position on the x-axis
-     * @param z Local block position on the z-axis
+     * @param edges Bit mask of the touched edges (see {@link #calcEdgeMask(int, int)})
      */
-    private void markNeighborsDirty(int x, int z) {
-        Chunk[] neighbors = loadOrCreateNeighbors();
+    public void markDirty(int edges) {
+        markDirty(edges, ALL_SECTIONS);
+    }
 
-        if (x == 0 && neighbors[1] != null) {
-            neighbors[1].setDirty(true);
-        }
+    /**
+     * Marks the given sections of this chunk dirty and the same sections of those neighbors, that are
+     * adjacent to the given chunk edges.
+     *
+     * @param edges    Bit mask of the touched edges (see {@link #calcEdgeMask(int, int)})
+     * @param sections Bit mask of the touched sections (see {@link #calcSectionMask(int)})
+     */
+    public void markDirty(int edges, int sections) {
+        markSectionsDirty(sections);
+        markNeighborsDirty(edges, sections);
+    }
 
-        if (x == Configuration.CHUNK_DIMENSIONS.x - 1 && neighbors[0] != null) {
-            neighbors[0].setDirty(true);
+    /**
+     * Marks the given sections of those neighbors of a chunk dirty, that are adjacent to
+     * the given chunk edges.
+     *
+     * @param edges    Bit mask of the touched edges (see {@link #calcEdgeMask(int, int)})
+     * @param sections Bit mask of the touched sections
+     */
+    private void markNeighborsDirty(int edges, int sections) {
+        if (edges == 0) {
+            return;
         }
 
-        if (z == 0 && neighbors[3] != null) {
-            neighbors[3].setDirty(true);
-        }
+        Chunk[] neighbors = loadOrCreateNeighbors();
 
-        if (z == Configuration.CHUNK_DIMENSIONS.z - 1 && neighbors[2] != null) {
-            neighbors[2].setDirty(true);
+        for (int i = 0; i < neighbors.length; i++) {
+            if ((edges & (1 << i)) != 0 && neighbors[i] != null) {
+                neighbors[i].markSectionsDirty(sections);
+            }
         }
+    }
 
-        if (x == Configuration.CHUNK_DIMENSIONS.x - 1 && z == 0 && neighbors[7] != null) {
-            neighbors[7].setDirty(true);
-        }
+    /**
+     * Returns a bit mask of the sections whose meshes depend on the block at the given height: The section
+     * containing the block and the adjacent section if the block lies on its border (faces, smooth light and
+     * ambient occlusion of a block depend on the blocks around it).
+     *
+     * @param y Local block position on the y-axis
+     * @return The bit mask
+     */
+    public static int calcSectionMask(int y) {
+        int section = y / SECTION_HEIGHT;
+        int mask = 1 << section;
 
-        if (x == 0 && z == Configuration.CHUNK_DIMENSIONS.z - 1 && neighbors[6] != null) {
-            neighbors[6].setDirty(true);
-        }
+        if (y % SECTION_HEIGHT == 0 && section > 0) mask |= 1 << (section - 1);
+        if (y % SECTION_HEIGHT == SECTION_HEIGHT - 1 && section < SECTION_COUNT - 1) mask |= 1 << (section + 1);
 
-        if (x == 0 && z == 0 && neighbors[5] != null) {
-            neighbors[5].setDirty(true);
-        }
+        return mask;
+    }
 
-        if (x == Configuration.CHUNK_DIMENSIONS.x - 1 && z == Configuration.CHUNK_DIMENSIONS.z - 1 && neighbors[4] != null) {
-            neighbors[4].setDirty(true);
-        }
+    /**
+     * Returns a bit mask of the neighbors (indexed like {@link #loadOrCreateNeighbors()}) that are
+     * adjacent to the given block coordinate.
+     *
+     * @param x Local block position on the x-axis
+     * @param z Local block position on the z-axis
+     * @return The bit mask
+     */
+    public static int calcEdgeMask(int x, int z) {
+        boolean minX = x == 0, maxX = x == Configuration.CHUNK_DIMENSIONS.x - 1;
+        boolean minZ = z == 0, maxZ = z == Configuration.CHUNK_DIMENSIONS.z - 1;
+
+        int mask = 0;
+
+        if (maxX) mask |= 1;
+        if (minX) mask |= 1 << 1;
+        if (maxZ) mask |= 1 << 2;
+        if (minZ) mask |= 1 << 3;
+        if (maxX && maxZ) mask |= 1 << 4;
+        if (minX && minZ) mask |= 1 << 5;
+        if (minX && maxZ) mask |= 1 << 6;
+        if (maxX && minZ) mask |= 1 << 7;
+
+        return mask;
     }
 
     @Override
@@ -584,15 +639,15 @@ public boolean processChunk() {
         */
         if (isLightDirty()) {
             /*
-            * ... propagate light into adjacent chunks...
+            * ... let the light workers propagate light into adjacent chunks...
             */
-            updateLight();
+            _parent.getLightScheduler().scheduleChunkLight(this);
         }
 
         /*
-        * Check if this chunk was changed...
+        * Check if this chunk was changed (and its light is complete)...
         */
-        if (isDirty() && !isLightDirty() && !isFresh()) {
+        if (isDirty() && !isLightDirty() && !isFresh() && !hasPendingLightJobs()) {
             /*
             * ... if yes, regenerate the vertex arrays
             */
@@ -613,17 +668,36 @@ public void writeExternal(ObjectOutput out) throws IOException {
             flags = Helper.setFlag(flags, (short) 0);
         }
 
+        // The block light is stored with all three colour channels
+        flags = Helper.setFlag(flags, (short) 1);
+
+        // Fresh chunks only store the structure writes parked by their neighbors
+        if (_fresh) {
+            flags = Helper.setFlag(flags, (short) 2);
+        }
+
         // The flags are stored within the first byte of the file...
         out.writeByte(flags);
 
+        if (_fresh) {
+            synchronized (_parkedStructureWrites) {
+                out.writeInt(_parkedStructureWrites.size());
+
+                for (int i = 0; i < _parkedStructureWrites.size(); i++)
+                    out.writeInt(_parkedStructureWrites.get(i));
+            }
+
+            return;
+        }
+
         for (int i = 0; i < _blocks.getSize(); i++)
             out.writeByte(_blocks.getRawByte(i));
 
-        for (int i = 0; i < _sunlight.getPackedSize(); i++)
-            out.writeByte(_sunlight.getRawByte(i));
-
-        for (int i = 0; i < _light.getPackedSize(); i++)
-            out.writeByte(_light.getRawByte(i));
+        // The sunlight and the channels of the block light are stored packed separately (see BlockmaniaSmartArray)
+        for (int shift = 0; shift <= 12; shift += 4) {
+            for (int i = 0; i < _light.getPackedSize(); i++)
+                out.writeByte(_light.getPackedByte(i, shift));
+        }
     }
 
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
@@ -634,49 +708,86 @@ public void readExternal(ObjectInput in) throws IOException, ClassNotFoundExcept
         byte flags = in.readByte();
         // Parse the flags...
         _lightDirty = Helper.isFlagSet(flags, (short) 0);
+        boolean colouredLight = Helper.isFlagSet(flags, (short) 1);
+
+        // The chunk is generated once it is loaded again
+        if (Helper.isFlagSet(flags, (short) 2)) {
+            int count = in.readInt();
+
+            for (int i = 0; i < count; i++)
+                _parkedStructureWrites.add(in.readInt());
+
+            return;
+        }
 
         for (int i = 0; i < _blocks.getSize(); i++)
             _blocks.setRawByte(i, in.readByte());
 
-        for (int i = 0; i < _sunlight.getPackedSize(); i++)
-            _sunlight.setRawByte(i, in.readByte());
-
         for (int i = 0; i < _light.getPackedSize(); i++)
-            _light.setRawByte(i, in.readByte());
+            _light.setPackedByte(i, in.readByte(), 0);
+
+        if (colouredLight) {
+            for (int shift = 4; shift <= 12; shift += 4) {
+                for (int i = 0; i < _light.getPackedSize(); i++)
+                    _light.setPackedByte(i, in.readByte(), shift);
+            }
+        } else {
+            // Older chunks only store the intensity of the block light, which becomes white light
+            for (int i = 0; i < _light.getPackedSize(); i++) {
+                byte b = in.readByte();
+
+                for (int shift = 4; shift <= 12; shift += 4)
+                    _light.setPackedByte(i, b, shift);
+            }
+        }
+
+        // Drop the storage of sections exposed to the sky
+        _light.compact();
 
         _fresh = false;
     }
 
     /**
-     * Generates the terrain mesh (creates the internal vertex arrays).
+     * Generates the terrain meshes of the dirty sections (creates the internal vertex arrays).
      */
     public void generateMesh() {
         if (!isCached() || _fresh) {
             return;
         }
 
-        if (_newMesh != null) {
-            // Put the buffer back into the poll
-            _newMesh.freeBuffers();
-            _newMesh = null;
-        }
+        // Sections marked dirty while the meshes are generated will be generated again
+        int sections = _dirtySections.getAndSet(0);
+        ChunkMesh[] meshes = _meshGenerator.generateMeshes(sections);
+
+        for (int i = 0; i < SECTION_COUNT; i++) {
+            if (meshes[i] == null)
+                continue;
 
-        _newMesh = _meshGenerator.generateMesh();
+            if (_newMeshes[i] != null) {
+                // Put the buffer back into the poll
+                _newMeshes[i].freeBuffers();
+            }
+
+            _newMeshes[i] = meshes[i];
+        }
 
-        setDirty(false);
         _statVertexArrayUpdateCount++;
     }
 
 
     /**
-     * Generates the display lists and swaps the old mesh with the current mesh.
+     * Generates the display lists of the new section meshes.
      */
     public void generateVBOs() {
         if (!isCached())
             return;
 
-        if (_newMesh != null) {
-            _newMesh.generateVBOs();
+        for (int i = 0; i < SECTION_COUNT; i++) {
+            ChunkMesh newMesh = _newMeshes[i];
+
+            if (newMesh != null) {
+                newMesh.generateVBOs();
+            }
         }
     }
 
@@ -687,30 +798,60 @@ public void generateVBOs() {
      * @param type The type of vertices to render
      */
     public void render(ChunkMesh.RENDER_TYPE type) {
-        // Render the generated chunk mesh
-        if (_activeMesh != null) {
-            _activeMesh.render(type);
+        RenderDevice device = RenderDeviceManager.getDevice();
+
+        // The vertices are stored relative to the chunk in fractions of a block
+        device.pushMatrix();
+        device.translate(getChunkWorldPosX(), getChunkWorldPosY(), getChunkWorldPosZ());
+        device.scale(1f / ChunkMesh.POSITION_SCALE, 1f / ChunkMesh.POSITION_SCALE, 1f / ChunkMesh.POSITION_SCALE);
+
+        // Distant billboards are thinned out
+        float billboardDensity = type == ChunkMesh.RENDER_TYPE.BILLBOARD_AND_TRANSLUCENT ? ChunkMeshBillboards.calcDensity(distanceToPlayer()) : 1f;
+
+        // Render the generated section meshes
+        for (ChunkMesh mesh : _activeMeshes) {
+            if (mesh != null) {
+                mesh.render(type, billboardDensity);
+            }
         }
+
+        device.popMatrix();
     }
 
+    /**
+     * Swaps the meshes of the sections whose new meshes have been uploaded.
+     */
     public void update() {
-        if (_newMesh != null) {
-            // Do not update the mesh if one of the VISIBLE neighbors is dirty
-            for (Chunk nc : loadOrCreateNeighbors())
-                if ((nc.isDirty() || nc.isLightDirty()) && nc.isVisible())
-                    return;
+        int blockedSections = -1;
 
-            if (_newMesh.isGenerated() && !isDirty() && !isFresh() && !isLightDirty()) {
-                ChunkMesh oldMesh = _activeMesh;
-                _activeMesh = _newMesh;
+        for (int i = 0; i < SECTION_COUNT; i++) {
+            ChunkMesh newMesh = _newMeshes[i];
 
-                // Put the buffer back into the poll
-                if (oldMesh != null) {
-                    oldMesh.freeBuffers();
+            if (newMesh == null || !newMesh.isGenerated())
+                continue;
+
+            if (blockedSections == -1) {
+                blockedSections = isFresh() || isLightDirty() ? ALL_SECTIONS : 0;
+
+                // Do not update a section if the same section of one of the VISIBLE neighbors is dirty
+                for (Chunk nc : loadOrCreateNeighbors()) {
+                    if (nc.isVisible())
+                        blockedSections |= nc.isLightDirty() ? ALL_SECTIONS : nc.getDirtySections();
                 }
+            }
 
-                _newMesh = null;
+            if (((blockedSections | getDirtySections()) & (1 << i)) != 0)
+                continue;
+
+            ChunkMesh oldMesh = _activeMeshes[i];
+            _activeMeshes[i] = newMesh;
+
+            // Put the buffer back into the poll
+            if (oldMesh != null) {
+                oldMesh.freeBuffers();
             }
+
+            _newMeshes[i] = null;
         }
     }
 
@@ -733,6 +874,10 @@ int getChunkWorldPosX() {
         return (int) _position.x * (int) Configuration.CHUNK_DIMENSIONS.x;
     }
 
+    int getChunkWorldPosY() {
+        return (int) _position.y * (int) Configuration.CHUNK_DIMENSIONS.y;
+    }
+
     /**
      * Returns the position of the chunk within the world.
      *
@@ -767,7 +912,14 @@ public WorldProvider getParent() {
     }
 
     public boolean isDirty() {
-        return _dirty;
+        return _dirtySections.get() != 0;
+    }
+
+    /**
+     * Returns the bit mask of the sections whose meshes have to be generated again.
+     */
+    public int getDirtySections() {
+        return _dirtySections.get();
     }
 
     public boolean isFresh() {
@@ -778,11 +930,15 @@ public boolean isLightDirty() {
         return _lightDirty;
     }
 
-    void setDirty(boolean _dirty) {
-        this._dirty = _dirty;
+    void markSectionsDirty(int sections) {
+        int current;
+
+        do {
+            current = _dirtySections.get();
+        } while ((current | sections) != current && !_dirtySections.compareAndSet(current, current | sections));
     }
 
-    void setLightDirty(boolean _lightDirty) {
+    public void setLightDirty(boolean _lightDirty) {
         this._lightDirty = _lightDirty;
     }
 
@@ -798,10 +954,53 @@ public void setPosition(Vector3f position) {
         super.setPosition(position);
     }
 
+    /**
+     * Returns the lock guarding the light values of this chunk. Light passes touching more than one
+     * chunk acquire the locks of all touched chunks in a canonical order.
+     *
+     * @return The light lock
+     */
+    public ReentrantLock getLightLock() {
+        return _lightLock;
+    }
+
+    /**
+     * Returns true if light jobs which might touch this chunk are pending.
+     *
+     * @return True if the light of this chunk is incomplete
+     */
+    public boolean hasPendingLightJobs() {
+        return _pendingLightJobs.get() > 0;
+    }
+
+    public void addPendingLightJob() {
+        _pendingLightJobs.incrementAndGet();
+    }
+
+    public void removePendingLightJob() {
+        _pendingLightJobs.decrementAndGet();
+    }
+
     public void setParent(WorldProvider parent) {
         _parent = parent;
     }
 
+    /**
+     * Returns the climate of the columns of this chunk. The climate is calculated on first access.
+     *
+     * @return The climate layer
+     */
+    public ClimateLayer getClimate() {
+        ClimateLayer climate = _climate;
+
+        if (climate == null) {
+            climate = new ClimateLayer((ChunkGeneratorTerrain) _parent.getChunkGenerator("terrain"), getBlockWorldPosX(0), getBlockWorldPosZ(0));
+            _climate = climate;
+        }
+
+        return climate;
+    }
+
     public static String getChunkSavePathForPosition(Vector3f position) {
         String x36 = Integer.toString((int) position.x, 36);
         String z36 = Integer.toString((int) position.z, 36);
@@ -833,12 +1032,14 @@ public boolean isVisible() {
     }
 
     public void freeBuffers() {
-        if (_activeMesh != null) {
-            _activeMesh.freeBuffers();
-        }
+        for (int i = 0; i < SECTION_COUNT; i++) {
+            if (_activeMeshes[i] != null) {
+                _activeMeshes[i].freeBuffers();
+            }
 
-        if (_newMesh != null) {
-            _newMesh.freeBuffers();
+            if (_newMeshes[i] != null) {
+                _newMeshes[i].freeBuffers();
+            }
         }
     }
 }
@@ -124,7 +124,8 @@ private void writeChunkToDisk(Chunk c) {
             return;
         }
 
-        if (c.isFresh()) {
+        // Fresh chunks are only written to keep the structure writes parked by their neighbors
+        if (c.isFresh() && !c.hasParkedStructureWrites()) {
             return;
         }
 
@@ -15,152 +15,282 @@
  */
 package org.continuum.world.chunk;
 
+import org.continuum.rendering.DirectBufferPool;
+import org.continuum.rendering.RenderDevice;
+import org.continuum.rendering.RenderDeviceManager;
 import org.continuum.rendering.VBOManager;
-import gnu.trove.list.array.TFloatArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TShortArrayList;
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL12;
-import org.lwjgl.opengl.GL13;
 import org.lwjgl.opengl.GL15;
 
-import java.nio.FloatBuffer;
-import java.nio.IntBuffer;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import static org.lwjgl.opengl.GL11.*;
 
+/**
+ * The vertex buffers of a chunk. Each vertex takes 12 bytes:
+ * <ul>
+ * <li>Four shorts: The position within the chunk in steps of 1/{@link #POSITION_SCALE} block and the light
+ * of the vertex (sunlight in the lowest nibble, followed by the red, green and blue block light)</li>
+ * <li>Four unsigned bytes: The index of the texture within the atlas, the index of the colour within the
+ * {@link ChunkMeshTintPalette}, the texture coordinate on the first axis (lower 5 bits) combined with the
+ * ambient occlusion level (upper bits) and the texture coordinate on the second axis</li>
+ * </ul>
+ * The chunk shader decodes the vertices.
+ * <p/>
+ * Billboards are collected as compact records (see {@link ChunkMeshBillboards}) and expanded into vertices when the
+ * buffers are generated.
+ * <p/>
+ * The mesh generator collects the vertices in staging lists owned by its thread. They are copied to direct buffers
+ * leased from the {@link DirectBufferPool}, which are returned to the pool as soon as they have been uploaded.
+ */
 public class ChunkMesh {
 
-    public class VertexElements {
+    public static class VertexElements {
         public VertexElements() {
-            quads = new TFloatArrayList();
-            tex = new TFloatArrayList();
-            color = new TFloatArrayList();
+            positions = new TShortArrayList();
+            attributes = new TIntArrayList();
         }
 
-        public final TFloatArrayList quads;
-        public final TFloatArrayList tex;
-        public final TFloatArrayList color;
-
-        public FloatBuffer vertices;
-        public IntBuffer indices;
+        /**
+         * The position and light of each vertex (four shorts per vertex).
+         */
+        public final TShortArrayList positions;
+        /**
+         * The texture, colour and occlusion of each vertex, see {@link ChunkMesh#packAttributes}.
+         */
+        public final TIntArrayList attributes;
+
+        /**
+         * Removes all vertices, keeping the allocated capacity.
+         */
+        public void reset() {
+            positions.resetQuick();
+            attributes.resetQuick();
+        }
     }
 
     public enum RENDER_TYPE {
         OPAQUE, BILLBOARD_AND_TRANSLUCENT, WATER, LAVA
     }
 
-    private static final int STRIDE = (3 + 2 + 2 + 4) * 4;
+    /**
+     * The positions of the vertices are stored in steps of 1/16 block.
+     */
+    public static final int POSITION_SCALE = 16;
+
+    private static final int STRIDE = 4 * 2 + 4;
     private static final int OFFSET_VERTEX = 0;
-    private static final int OFFSET_TEX_0 = (3 * 4);
-    private static final int OFFSET_TEX_1 = ((2 + 3) * 4);
-    private static final int OFFSET_COLOR = ((2 + 3 + 2) * 4);
+    private static final int OFFSET_ATTRIBUTES = 4 * 2;
+
+    /**
+     * The vertex buffer generated from the billboard records.
+     */
+    private static final int BILLBOARD_BUFFER = 2;
+
+    /**
+     * The upper bound of the vertex data of one buffer accepted by {@link #readFrom}.
+     */
+    private static final int MAX_VERTEX_BYTES = 1 << 24;
+    private static final int MAX_BILLBOARDS = MAX_VERTEX_BYTES / (STRIDE * ChunkMeshBillboards.VERTICES_PER_BILLBOARD);
+
+    /**
+     * The texture names of the tint palettes of meshes which have been freed.
+     */
+    private static final TIntArrayList _paletteTexturePool = new TIntArrayList();
 
     /* ------ */
 
     private final int[] _vertexBuffers = new int[5];
     private final int[] _idxBuffers = new int[5];
     private final int[] _idxBufferCount = new int[5];
-    public VertexElements[] _vertexElements = new VertexElements[5];
+    public VertexElements[] _vertexElements;
+
+    private ChunkMeshBillboards _billboardElements;
+    private int[] _billboards = new int[0];
+    private int _fixedBillboards;
+
+    private ChunkMeshTintPalette _tintPalette;
+    private int _tintPaletteTexture = -1;
+
+    /* LEASED BUFFERS */
+    private final ByteBuffer[] _vertices = new ByteBuffer[5];
+    private final ByteBuffer[] _indices = new ByteBuffer[5];
+    private ByteBuffer _tintPaletteData;
 
     private boolean _generated;
 
-    public ChunkMesh() {
-        _vertexElements[0] = new VertexElements();
-        _vertexElements[1] = new VertexElements();
-        _vertexElements[2] = new VertexElements();
-        _vertexElements[3] = new VertexElements();
-        _vertexElements[4] = new VertexElements();
+    /**
+     * Creates a new mesh collecting its vertices in the given staging lists and palette. Both are only used until
+     * {@link #generateBuffers} is called.
+     *
+     * @param vertexElements    The (empty) staging lists of the five vertex buffers
+     * @param billboardElements The (empty) staging list of the billboard records
+     * @param tintPalette       The (empty) tint palette
+     */
+    public ChunkMesh(VertexElements[] vertexElements, ChunkMeshBillboards billboardElements, ChunkMeshTintPalette tintPalette) {
+        _vertexElements = vertexElements;
+        _billboardElements = billboardElements;
+        _tintPalette = tintPalette;
+
+        Arrays.fill(_vertexBuffers, -1);
+        Arrays.fill(_idxBuffers, -1);
     }
 
     /**
      * Generates the display lists from the pre calculated arrays.
      */
-    public void generateVBOs() {
+    public synchronized void generateVBOs() {
         // IMPORTANT: A mesh can only be generated once.
         if (_generated)
             return;
 
-        for (int i = 0; i < _vertexBuffers.length; i++)
+        // The buffers of a mesh which has been freed are gone
+        if (_vertices[0] == null)
+            return;
+
+        boolean empty = true;
+
+        for (int i = 0; i < _vertexBuffers.length; i++) {
             generateVBO(i);
+            empty &= _vertexBuffers[i] == -1;
+        }
 
-        _vertexElements = null;
+        if (!empty)
+            generatePaletteTexture();
+
+        releaseLeasedBuffers();
         // Make sure this mesh can not be generated again
         _generated = true;
     }
 
     private void generateVBO(int id) {
+        // Sections often contain no vertices of a type
+        if (_indices[id].limit() == 0)
+            return;
+
         _vertexBuffers[id] = VBOManager.getInstance().getVboId();
         _idxBuffers[id] = VBOManager.getInstance().getVboId();
-        _idxBufferCount[id] = _vertexElements[id].indices.limit();
+        _idxBufferCount[id] = _indices[id].limit() / 4;
 
-        VBOManager.getInstance().bufferVboElementData(_idxBuffers[id], _vertexElements[id].indices, GL15.GL_STATIC_DRAW);
-        VBOManager.getInstance().bufferVboData(_vertexBuffers[id], _vertexElements[id].vertices, GL15.GL_STATIC_DRAW);
+        VBOManager.getInstance().bufferVboElementData(_idxBuffers[id], _indices[id], GL15.GL_STATIC_DRAW);
+        VBOManager.getInstance().bufferVboData(_vertexBuffers[id], _vertices[id], GL15.GL_STATIC_DRAW);
+    }
+
+    private void generatePaletteTexture() {
+        RenderDevice device = RenderDeviceManager.getDevice();
+
+        _tintPaletteTexture = obtainPaletteTexture();
+
+        // The palette is bound to the second texture unit, so the texture bound to the first unit stays untouched
+        device.setActiveTextureUnit(1);
+        device.bindTexture(_tintPaletteTexture);
+        device.uploadTexture(ChunkMeshTintPalette.CAPACITY, 1, _tintPaletteData);
+        device.setActiveTextureUnit(0);
+    }
+
+    private static int obtainPaletteTexture() {
+        synchronized (_paletteTexturePool) {
+            if (_paletteTexturePool.size() > 0)
+                return _paletteTexturePool.removeAt(_paletteTexturePool.size() - 1);
+        }
+
+        return RenderDeviceManager.getDevice().createTexture();
     }
 
     private void renderVbo(int id) {
-        if (_vertexBuffers[id] == -1)
-            return;
+        renderVbo(id, _idxBufferCount[id]);
+    }
 
-        glEnableClientState(GL_VERTEX_ARRAY);
-        glEnableClientState(GL_TEXTURE_COORD_ARRAY);
-        glEnableClientState(GL_COLOR_ARRAY);
+    /**
+     * Renders the first indices of a buffer.
+     *
+     * @param id         The buffer
+     * @param indexCount The amount of indices to render
+     */
+    private void renderVbo(int id, int indexCount) {
+        if (_vertexBuffers[id] == -1 || indexCount == 0)
+            return;
 
-        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, _idxBuffers[id]);
-        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, _vertexBuffers[id]);
+        RenderDevice device = RenderDeviceManager.getDevice();
 
-        glVertexPointer(3, GL11.GL_FLOAT, STRIDE, OFFSET_VERTEX);
+        device.setActiveTextureUnit(1);
+        device.bindTexture(_tintPaletteTexture);
+        device.setActiveTextureUnit(0);
 
-        GL13.glClientActiveTexture(GL13.GL_TEXTURE0);
-        glTexCoordPointer(2, GL11.GL_FLOAT, STRIDE, OFFSET_TEX_0);
+        device.enableClientState(GL_VERTEX_ARRAY);
+        device.enableClientState(GL_COLOR_ARRAY);
 
-        GL13.glClientActiveTexture(GL13.GL_TEXTURE1);
-        glTexCoordPointer(2, GL11.GL_FLOAT, STRIDE, OFFSET_TEX_1);
+        device.bindIndexBuffer(_idxBuffers[id]);
+        device.bindVertexBuffer(_vertexBuffers[id]);
 
-        glColorPointer(4, GL11.GL_FLOAT, STRIDE, OFFSET_COLOR);
+        device.setVertexPointer(4, GL11.GL_SHORT, STRIDE, OFFSET_VERTEX);
+        device.setColorPointer(4, GL11.GL_UNSIGNED_BYTE, STRIDE, OFFSET_ATTRIBUTES);
 
-        GL12.glDrawRangeElements(GL11.GL_TRIANGLES, 0, _idxBufferCount[id], _idxBufferCount[id], GL_UNSIGNED_INT, 0);
+        device.drawElements(GL11.GL_TRIANGLES, _idxBufferCount[id], indexCount);
 
-        glDisableClientState(GL_COLOR_ARRAY);
-        glDisableClientState(GL_TEXTURE_COORD_ARRAY);
-        glDisableClientState(GL_VERTEX_ARRAY);
+        device.disableClientState(GL_COLOR_ARRAY);
+        device.disableClientState(GL_VERTEX_ARRAY);
 
-        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
-        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+        device.bindVertexBuffer(0);
+        device.bindIndexBuffer(0);
     }
 
     public void render(RENDER_TYPE type) {
+        render(type, 1f);
+    }
+
+    /**
+     * Renders the vertices of the given type.
+     *
+     * @param type             The type of vertices to render
+     * @param billboardDensity The fraction of the billboards to render (see {@link ChunkMeshBillboards#calcDensity})
+     */
+    public void render(RENDER_TYPE type, float billboardDensity) {
+        RenderDevice device = RenderDeviceManager.getDevice();
+
         switch (type) {
             case OPAQUE:
                 renderVbo(type.ordinal());
                 break;
             case BILLBOARD_AND_TRANSLUCENT:
-                glEnable(GL_BLEND);
-                glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+                device.enable(GL_BLEND);
+                device.setBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
 
                 renderVbo(type.ordinal());
 
-                glDisable(GL_CULL_FACE);
+                device.disable(GL_CULL_FACE);
 
                 // BILLBOARDS
-                renderVbo(type.ordinal() + 1);
+                int billboardCount = _fixedBillboards + (int) Math.ceil((_billboards.length / 2 - _fixedBillboards) * billboardDensity);
+                renderVbo(BILLBOARD_BUFFER, billboardCount * ChunkMeshBillboards.VERTICES_PER_BILLBOARD / 4 * 6);
 
-                glEnable(GL_CULL_FACE);
-                glDisable(GL_BLEND);
+                device.enable(GL_CULL_FACE);
+                device.disable(GL_BLEND);
                 break;
             case WATER:
             case LAVA:
-                glEnable(GL_BLEND);
-                glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
-                glDisable(GL_CULL_FACE);
+                device.enable(GL_BLEND);
+                device.setBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+                device.disable(GL_CULL_FACE);
                 renderVbo(type.ordinal() + 1);
-                glEnable(GL_CULL_FACE);
-                glDisable(GL_BLEND);
+                device.enable(GL_CULL_FACE);
+                device.disable(GL_BLEND);
                 break;
             default:
                 return;
         }
     }
 
-    public void freeBuffers() {
+    public synchronized void freeBuffers() {
+        // The mesh might be freed before it was uploaded
+        releaseLeasedBuffers();
+
         for (int i = 0; i < _vertexBuffers.length; i++) {
             int id = _vertexBuffers[i];
 
@@ -172,6 +302,250 @@ public void freeBuffers() {
             VBOManager.getInstance().putVboId(id);
             _idxBuffers[i] = -1;
         }
+
+        if (_tintPaletteTexture != -1) {
+            synchronized (_paletteTexturePool) {
+                _paletteTexturePool.add(_tintPaletteTexture);
+            }
+
+            _tintPaletteTexture = -1;
+        }
+    }
+
+    /**
+     * Returns the palette the colours of the vertices are added to while the mesh is generated.
+     */
+    ChunkMeshTintPalette getTintPalette() {
+        return _tintPalette;
+    }
+
+    /**
+     * Returns the billboard records collected while the mesh is generated.
+     */
+    ChunkMeshBillboards getBillboards() {
+        return _billboardElements;
+    }
+
+    /**
+     * Packs the per vertex attributes stored as unsigned bytes.
+     *
+     * @param tile      The index of the texture within the atlas (16 x 16 textures)
+     * @param tint      The index of the colour within the tint palette
+     * @param texU      The texture coordinate on the first axis in textures (0 - 16)
+     * @param texV      The texture coordinate on the second axis in textures (0 - 255)
+     * @param occlusion The ambient occlusion level (0 - 3)
+     * @return The packed attributes, the first byte in the lowest bits
+     */
+    static int packAttributes(int tile, int tint, int texU, int texV, int occlusion) {
+        return tile | (tint << 8) | ((texU | (occlusion << 5)) << 16) | (texV << 24);
+    }
+
+    /**
+     * Copies the vertex data collected by the mesh generator to the leased buffers uploaded by {@link #generateVBOs}.
+     * Afterwards the staging lists and the palette are no longer referenced by the mesh.
+     */
+    synchronized void generateBuffers() {
+        DirectBufferPool pool = DirectBufferPool.getInstance();
+
+        for (int id = 0; id < _vertexElements.length; id++) {
+            if (id == BILLBOARD_BUFFER) {
+                _billboards = _billboardElements.toSortedArray();
+                generateBillboardBuffers();
+                continue;
+            }
+
+            VertexElements vertexElements = _vertexElements[id];
+            int vertexCount = vertexElements.attributes.size();
+
+            ByteBuffer vertices = pool.lease(Math.max(vertexCount * STRIDE, 1));
+
+            for (int i = 0; i < vertexCount; i++) {
+                for (int j = 0; j < 4; j++) {
+                    vertices.putShort(vertexElements.positions.get(i * 4 + j));
+                }
+
+                int attributes = vertexElements.attributes.get(i);
+
+                for (int j = 0; j < 4; j++) {
+                    vertices.put((byte) (attributes >>> (j * 8)));
+                }
+            }
+
+            vertices.flip();
+
+            _vertices[id] = vertices;
+            _indices[id] = generateIndices(vertexCount);
+        }
+
+        _tintPaletteData = pool.lease(ChunkMeshTintPalette.CAPACITY * 4);
+        _tintPalette.writeTo(_tintPaletteData);
+
+        _vertexElements = null;
+        _billboardElements = null;
+        _tintPalette = null;
+    }
+
+    /**
+     * Expands the billboard records into the leased buffers of the billboard vertex buffer.
+     */
+    private void generateBillboardBuffers() {
+        int vertexCount = _billboards.length / 2 * ChunkMeshBillboards.VERTICES_PER_BILLBOARD;
+        _fixedBillboards = ChunkMeshBillboards.countFixed(_billboards);
+
+        ByteBuffer vertices = DirectBufferPool.getInstance().lease(Math.max(vertexCount * STRIDE, 1));
+        ChunkMeshBillboards.writeVertices(_billboards, vertices);
+        vertices.flip();
+
+        _vertices[BILLBOARD_BUFFER] = vertices;
+        _indices[BILLBOARD_BUFFER] = generateIndices(vertexCount);
+    }
+
+    /**
+     * Writes the vertices, the billboard records and the tint palette in the compact form read by {@link #readFrom}. Only possible after
+     * {@link #generateBuffers} has been called and before the mesh has been uploaded.
+     *
+     * @param out The output
+     * @throws IOException If writing fails
+     */
+    synchronized void writeTo(DataOutput out) throws IOException {
+        if (_vertices[0] == null)
+            throw new IllegalStateException("The buffers of the mesh are not available.");
+
+        for (int id = 0; id < _vertices.length; id++) {
+            if (id == BILLBOARD_BUFFER)
+                continue;
+
+            out.writeInt(_vertices[id].limit());
+            writeBytes(out, _vertices[id]);
+        }
+
+        out.writeInt(_billboards.length / 2);
+
+        for (int record : _billboards) {
+            out.writeInt(record);
+        }
+
+        writeBytes(out, _tintPaletteData);
+    }
+
+    /**
+     * Returns true if the mesh has neither vertices nor billboards. Only valid after {@link #generateBuffers} has been
+     * called and before the mesh has been uploaded.
+     *
+     * @return True if the mesh is empty
+     */
+    synchronized boolean isEmpty() {
+        for (int id = 0; id < _vertices.length; id++) {
+            if (id != BILLBOARD_BUFFER && _vertices[id] != null && _vertices[id].limit() > 0)
+                return false;
+        }
+
+        return _billboards == null || _billboards.length == 0;
+    }
+
+    /**
+     * Reads a mesh written by {@link #writeTo} into leased buffers. The mesh is ready to be uploaded.
+     *
+     * @param in The input
+     * @return The mesh
+     * @throws IOException If reading fails or the data is invalid
+     */
+    static ChunkMesh readFrom(DataInput in) throws IOException {
+        ChunkMesh mesh = new ChunkMesh(null, null, null);
+        DirectBufferPool pool = DirectBufferPool.getInstance();
+
+        try {
+            for (int id = 0; id < mesh._vertices.length; id++) {
+                if (id == BILLBOARD_BUFFER)
+                    continue;
+
+                int size = in.readInt();
+
+                if (size < 0 || size % STRIDE != 0 || size > MAX_VERTEX_BYTES)
+                    throw new IOException("Invalid vertex buffer size: " + size);
+
+                mesh._vertices[id] = pool.lease(Math.max(size, 1));
+                readBytes(in, mesh._vertices[id], size);
+                mesh._indices[id] = generateIndices(size / STRIDE);
+            }
+
+            int billboardCount = in.readInt();
+
+            if (billboardCount < 0 || billboardCount > MAX_BILLBOARDS)
+                throw new IOException("Invalid billboard count: " + billboardCount);
+
+            mesh._billboards = new int[billboardCount * 2];
+
+            for (int i = 0; i < mesh._billboards.length; i++) {
+                mesh._billboards[i] = in.readInt();
+            }
+
+            mesh.generateBillboardBuffers();
+
+            mesh._tintPaletteData = pool.lease(ChunkMeshTintPalette.CAPACITY * 4);
+            readBytes(in, mesh._tintPaletteData, ChunkMeshTintPalette.CAPACITY * 4);
+        } catch (IOException e) {
+            mesh.releaseLeasedBuffers();
+            throw e;
+        }
+
+        return mesh;
+    }
+
+    /**
+     * Generates the indices of two triangles per quad.
+     */
+    private static ByteBuffer generateIndices(int vertexCount) {
+        ByteBuffer indices = DirectBufferPool.getInstance().lease(Math.max(vertexCount / 4 * 6 * 4, 1));
+
+        for (int i = 0; i < vertexCount; i += 4) {
+            indices.putInt(i);
+            indices.putInt(i + 1);
+            indices.putInt(i + 2);
+
+            indices.putInt(i + 2);
+            indices.putInt(i + 3);
+            indices.putInt(i);
+        }
+
+        indices.flip();
+        return indices;
+    }
+
+    private static void writeBytes(DataOutput out, ByteBuffer buffer) throws IOException {
+        byte[] bytes = new byte[buffer.limit()];
+
+        buffer.duplicate().get(bytes);
+        out.write(bytes);
+    }
+
+    private static void readBytes(DataInput in, ByteBuffer buffer, int size) throws IOException {
+        byte[] bytes = new byte[size];
+
+        in.readFully(bytes);
+        buffer.put(bytes);
+        buffer.flip();
+    }
+
+    private void releaseLeasedBuffers() {
+        DirectBufferPool pool = DirectBufferPool.getInstance();
+
+        for (int i = 0; i < _vertices.length; i++) {
+            if (_vertices[i] != null) {
+                pool.release(_vertices[i]);
+                _vertices[i] = null;
+            }
+
+            if (_indices[i] != null) {
+                pool.release(_indices[i]);
+                _indices[i] = null;
+            }
+        }
+
+        if (_tintPaletteData != null) {
+            pool.release(_tintPaletteData);
+            _tintPaletteData = null;
+        }
     }
 
     public boolean isGenerated() {
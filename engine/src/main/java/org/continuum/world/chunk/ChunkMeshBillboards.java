@@ -0,0 +1,220 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.world.chunk;
+
+import org.continuum.blocks.Block;
+import org.continuum.blocks.BlockRegistry;
+import org.continuum.main.Configuration;
+import gnu.trove.list.array.TIntArrayList;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The billboards (grass, flowers, torches) of one chunk mesh. Each billboard is stored as a compact record of two
+ * ints: The position, block type and tint index in the first one and the light of the block in the second one.
+ * The records are expanded into two crossed quads by a template shared by all billboards when the buffers of the
+ * mesh are generated; the mesh cache stores the records instead of the vertices.
+ * <p/>
+ * The records are sorted by an ordered dither of their column. Drawing only the first part of the billboards
+ * thins them out evenly over the section, which is used to reduce the density of distant billboards. Billboards
+ * emitting light (torches) are sorted to the front and are never thinned out.
+ * <p/>
+ * Instances are reused for many meshes, but must not be shared between threads.
+ */
+final class ChunkMeshBillboards {
+
+    static final int VERTICES_PER_BILLBOARD = 8;
+
+    private static final int SIZE_X = (int) Configuration.CHUNK_DIMENSIONS.x;
+    private static final int SIZE_Z = (int) Configuration.CHUNK_DIMENSIONS.z;
+
+    /**
+     * The lowest density distant billboards are thinned out to.
+     */
+    private static final float MIN_DENSITY = 0.25f;
+
+    /*
+     * The vertex offsets of both quads in steps of 1/POSITION_SCALE block, the vertex order matches the faces
+     * generated by the block mesher. The textures are flipped on the second axis.
+     */
+    private static final int H = ChunkMesh.POSITION_SCALE / 2;
+    private static final int[] TEMPLATE = {
+            -H, -H, H, H, -H, -H, H, H, -H, -H, H, H,
+            -H, -H, -H, H, -H, H, H, H, H, -H, H, -H
+    };
+    private static final int[] TEX_U = {0, 1, 1, 0};
+    private static final int[] TEX_V = {1, 1, 0, 0};
+
+    /**
+     * The rank of each column within the ordered dither: Any prefix of the ranks covers the section evenly.
+     */
+    private static final int[] COLUMN_RANKS = new int[SIZE_X * SIZE_Z];
+
+    static {
+        for (int x = 0; x < SIZE_X; x++) {
+            for (int z = 0; z < SIZE_Z; z++) {
+                int rank = 0;
+
+                // The lowest bits of the position decide first, alternating in a checkerboard pattern
+                for (int level = 0; level < 4; level++) {
+                    int bitX = (x >> level) & 1, bitZ = (z >> level) & 1;
+                    rank = (rank << 2) | ((bitX ^ bitZ) << 1) | bitX;
+                }
+
+                COLUMN_RANKS[x * SIZE_Z + z] = rank;
+            }
+        }
+    }
+
+    private final TIntArrayList _records = new TIntArrayList();
+
+    /**
+     * Adds a billboard.
+     *
+     * @param x     Local block position on the x-axis
+     * @param y     Local block position on the y-axis
+     * @param z     Local block position on the z-axis
+     * @param type  The block type
+     * @param tint  The index of the colour within the tint palette
+     * @param light The light of the block (as stored in a vertex, see {@link ChunkMesh})
+     */
+    void add(int x, int y, int z, byte type, int tint, int light) {
+        _records.add(x | (z << 4) | (y << 8) | (tint << 16) | ((type & 0xFF) << 24));
+        _records.add(light & 0xFFFF);
+    }
+
+    /**
+     * Removes all billboards, keeping the allocated capacity.
+     */
+    void reset() {
+        _records.resetQuick();
+    }
+
+    /**
+     * Returns the records sorted by the rank of their column (counting sort).
+     */
+    int[] toSortedArray() {
+        int count = _records.size() / 2;
+        int[] offsets = new int[COLUMN_RANKS.length + 2];
+
+        for (int i = 0; i < count; i++) {
+            offsets[calcRank(_records.get(i * 2)) + 1]++;
+        }
+
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+
+        int[] sorted = new int[count * 2];
+
+        for (int i = 0; i < count; i++) {
+            int record = _records.get(i * 2);
+            int target = offsets[calcRank(record)]++;
+
+            sorted[target * 2] = record;
+            sorted[target * 2 + 1] = _records.get(i * 2 + 1);
+        }
+
+        return sorted;
+    }
+
+    /**
+     * Returns the position of the bucket of a record within the sorted records: Billboards emitting light first,
+     * followed by the other billboards ordered by the rank of their column.
+     */
+    private static int calcRank(int record) {
+        if (isFixed(record))
+            return 0;
+
+        return COLUMN_RANKS[(record & 0xF) * SIZE_Z + ((record >>> 4) & 0xF)] + 1;
+    }
+
+    private static boolean isFixed(int record) {
+        return BlockRegistry.getLuminance((byte) (record >>> 24)) > 0;
+    }
+
+    /**
+     * Returns the amount of records at the front of the sorted records which are never thinned out.
+     *
+     * @param records The sorted records
+     * @return The amount of billboards emitting light
+     */
+    static int countFixed(int[] records) {
+        int count = 0;
+
+        while (count * 2 < records.length && isFixed(records[count * 2]))
+            count++;
+
+        return count;
+    }
+
+    /**
+     * Expands the records into vertices.
+     *
+     * @param records  The records
+     * @param vertices Receives VERTICES_PER_BILLBOARD vertices per record
+     */
+    static void writeVertices(int[] records, ByteBuffer vertices) {
+        for (int i = 0; i < records.length; i += 2) {
+            int record = records[i];
+            int light = records[i + 1];
+
+            int x = (record & 0xF) * ChunkMesh.POSITION_SCALE;
+            int z = ((record >>> 4) & 0xF) * ChunkMesh.POSITION_SCALE;
+            int y = ((record >>> 8) & 0xFF) * ChunkMesh.POSITION_SCALE;
+            int tint = (record >>> 16) & 0xFF;
+            byte type = (byte) (record >>> 24);
+
+            for (int quad = 0; quad < 2; quad++) {
+                int tile = BlockRegistry.getTextureTile(type, quad == 0 ? Block.SIDE.FRONT : Block.SIDE.BACK);
+
+                for (int vertex = 0; vertex < 4; vertex++) {
+                    int offset = (quad * 4 + vertex) * 3;
+
+                    vertices.putShort((short) (x + TEMPLATE[offset]));
+                    vertices.putShort((short) (y + TEMPLATE[offset + 1]));
+                    vertices.putShort((short) (z + TEMPLATE[offset + 2]));
+                    vertices.putShort((short) light);
+
+                    int attributes = ChunkMesh.packAttributes(tile, tint, TEX_U[vertex], TEX_V[vertex], 0);
+
+                    for (int j = 0; j < 4; j++) {
+                        vertices.put((byte) (attributes >>> (j * 8)));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the fraction of the billboards drawn at the given distance: All billboards are drawn up to the
+     * distance "BILLBOARD_LOD_DIST" (in blocks), beyond the density decreases with the distance.
+     *
+     * @param distance The distance to the player in blocks
+     * @return The density (0 - 1)
+     */
+    static float calcDensity(double distance) {
+        if (!Configuration.getSettingBoolean("BILLBOARD_LOD"))
+            return 1f;
+
+        double lodDistance = Configuration.getSettingNumeric("BILLBOARD_LOD_DIST");
+
+        if (distance <= lodDistance)
+            return 1f;
+
+        return Math.max(MIN_DENSITY, (float) (lodDistance / distance));
+    }
+}
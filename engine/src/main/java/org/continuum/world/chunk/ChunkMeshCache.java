@@ -0,0 +1,459 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.world.chunk;
+
+import org.continuum.main.Configuration;
+import org.continuum.main.Continuum;
+import org.continuum.world.WorldProvider;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Stores the compact vertex data of section meshes on disk, so chunks which are loaded again with unchanged
+ * blocks and light values do not have to be tessellated again.
+ * <p/>
+ * Each entry holds a hash of the blocks and light values the mesh depends on (see
+ * {@link ChunkMeshNeighborhood#hash(int, int)}). A cached mesh is only used if the hash of the current content
+ * matches. The size of the cache is bounded by the setting "MESH_CACHE_SIZE" (in MB); the least recently used
+ * entries are deleted first.
+ * <p/>
+ * New entries are written to disk by a background thread after a delay. A section remeshed again in the meantime,
+ * for example while blocks are placed, replaces its pending entry, so only its last mesh is written.
+ */
+public final class ChunkMeshCache {
+
+    private static final int MAGIC = 0x434D5348;
+    /**
+     * Has to be increased whenever the vertex format or the mesh generation changes.
+     */
+    private static final int VERSION = 4;
+
+    private static final String DIRECTORY = "MESH_CACHE";
+    private static final String PREFIX = "m_";
+
+    /**
+     * The time a new entry waits before it is written (in ms).
+     */
+    private static final long WRITE_DELAY = 5000;
+
+    private static final class Entry {
+        long hash;
+        boolean hashKnown;
+        long size;
+    }
+
+    /**
+     * A mesh waiting to be written.
+     */
+    private static final class PendingWrite {
+        final long hash;
+        final byte[] data;
+        final long time;
+
+        PendingWrite(long hash, byte[] data, long time) {
+            this.hash = hash;
+            this.data = data;
+            this.time = time;
+        }
+    }
+
+    private final WorldProvider _parent;
+
+    /**
+     * The entries ordered from least to most recently used, created when the cache is first accessed.
+     */
+    private LinkedHashMap<String, Entry> _entries;
+    private long _size;
+
+    /**
+     * The meshes waiting to be written, ordered from oldest to newest.
+     */
+    private final LinkedHashMap<String, PendingWrite> _pendingWrites = new LinkedHashMap<String, PendingWrite>();
+    private final Object _writeLock = new Object();
+    private Thread _writer;
+
+    /* STATISTICS */
+    private final AtomicLong _hits = new AtomicLong();
+    private final AtomicLong _misses = new AtomicLong();
+    private final AtomicLong _generationTime = new AtomicLong();
+
+    /**
+     * @param parent The world the meshes belong to
+     */
+    public ChunkMeshCache(WorldProvider parent) {
+        _parent = parent;
+    }
+
+    /**
+     * Returns true if meshes are cached.
+     *
+     * @return True if enabled
+     */
+    public boolean isEnabled() {
+        return Configuration.getSettingBoolean("MESH_CACHE") && !Configuration.getSettingBoolean("SANDBOXED");
+    }
+
+    /**
+     * Loads the cached mesh of the given section if its hash matches.
+     *
+     * @param chunk   The chunk
+     * @param section The section
+     * @param hash    The hash of the current content of the section
+     * @return The mesh ready to be uploaded or null if no matching mesh is cached
+     */
+    ChunkMesh load(Chunk chunk, int section, long hash) {
+        String name = calcFileName(chunk, section);
+
+        PendingWrite pending;
+
+        synchronized (_pendingWrites) {
+            pending = _pendingWrites.get(name);
+        }
+
+        // A pending mesh replaces the one on disk
+        if (pending != null) {
+            if (pending.hash == hash) {
+                try {
+                    ChunkMesh mesh = ChunkMesh.readFrom(new DataInputStream(new ByteArrayInputStream(pending.data)));
+                    _hits.incrementAndGet();
+
+                    return mesh;
+                } catch (IOException e) {
+                    Continuum.getInstance().getLogger().log(Level.WARNING, "Could not read pending mesh " + name + ": " + e);
+                }
+            }
+
+            _misses.incrementAndGet();
+            return null;
+        }
+
+        synchronized (this) {
+            Entry entry = getEntries().get(name);
+
+            if (entry == null || (entry.hashKnown && entry.hash != hash)) {
+                _misses.incrementAndGet();
+                return null;
+            }
+        }
+
+        File f = new File(getDirectory(), name);
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                remove(name);
+                _misses.incrementAndGet();
+                return null;
+            }
+
+            long storedHash = in.readLong();
+
+            synchronized (this) {
+                Entry entry = getEntries().get(name);
+
+                if (entry != null) {
+                    entry.hash = storedHash;
+                    entry.hashKnown = true;
+                }
+            }
+
+            if (storedHash != hash) {
+                _misses.incrementAndGet();
+                return null;
+            }
+
+            ChunkMesh mesh = ChunkMesh.readFrom(in);
+            _hits.incrementAndGet();
+
+            return mesh;
+        } catch (IOException e) {
+            Continuum.getInstance().getLogger().log(Level.WARNING, "Could not read cached mesh " + name + ": " + e);
+            remove(name);
+        }
+
+        _misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Stores a newly generated mesh. The buffers of the mesh must not have been uploaded yet. The mesh is copied
+     * and written in the background, empty meshes are not stored.
+     *
+     * @param chunk          The chunk
+     * @param section        The section
+     * @param hash           The hash of the content the mesh has been generated from
+     * @param mesh           The mesh
+     * @param generationTime The time it took to generate the mesh in nanoseconds
+     */
+    void store(Chunk chunk, int section, long hash, ChunkMesh mesh, long generationTime) {
+        _generationTime.addAndGet(generationTime);
+
+        String name = calcFileName(chunk, section);
+
+        // Sections without vertices are generated faster than they are read
+        if (mesh.isEmpty()) {
+            synchronized (_pendingWrites) {
+                _pendingWrites.remove(name);
+            }
+
+            return;
+        }
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(data)) {
+            mesh.writeTo(out);
+        } catch (IOException e) {
+            Continuum.getInstance().getLogger().log(Level.WARNING, "Could not copy mesh " + name + ": " + e);
+            return;
+        }
+
+        synchronized (_pendingWrites) {
+            // Move a replaced entry to the end of the queue
+            _pendingWrites.remove(name);
+            _pendingWrites.put(name, new PendingWrite(hash, data.toByteArray(), System.currentTimeMillis()));
+
+            if (_writer == null) {
+                _writer = new Thread(this::processWrites, "Mesh Cache Writer");
+                _writer.setDaemon(true);
+                _writer.start();
+            }
+
+            _pendingWrites.notifyAll();
+        }
+    }
+
+    /**
+     * Writes all pending entries right away.
+     */
+    public void flush() {
+        while (writeOldest()) {
+        }
+    }
+
+    /**
+     * Writes the pending entries once their delay has passed. Runs on the writer thread.
+     */
+    private void processWrites() {
+        try {
+            while (true) {
+                synchronized (_pendingWrites) {
+                    while (_pendingWrites.isEmpty()) {
+                        _pendingWrites.wait();
+                    }
+
+                    long delay = _pendingWrites.values().iterator().next().time + WRITE_DELAY - System.currentTimeMillis();
+
+                    if (delay > 0) {
+                        _pendingWrites.wait(delay);
+                        continue;
+                    }
+                }
+
+                writeOldest();
+            }
+        } catch (InterruptedException e) {
+            // The writer is a daemon thread, pending entries are lost with the process
+        }
+    }
+
+    /**
+     * Removes the oldest pending entry and writes it.
+     *
+     * @return False if no entry is pending
+     */
+    private boolean writeOldest() {
+        String name;
+        PendingWrite pending;
+
+        synchronized (_pendingWrites) {
+            Iterator<Map.Entry<String, PendingWrite>> it = _pendingWrites.entrySet().iterator();
+
+            if (!it.hasNext())
+                return false;
+
+            Map.Entry<String, PendingWrite> oldest = it.next();
+            name = oldest.getKey();
+            pending = oldest.getValue();
+
+            it.remove();
+        }
+
+        synchronized (_writeLock) {
+            write(name, pending);
+        }
+
+        return true;
+    }
+
+    private void write(String name, PendingWrite pending) {
+        File dir = getDirectory();
+
+        if (!dir.exists() && !dir.mkdirs()) {
+            Continuum.getInstance().getLogger().log(Level.SEVERE, "Could not create mesh cache directory.");
+            return;
+        }
+
+        File f = new File(dir, name);
+        File tmp = new File(dir, name + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(pending.hash);
+            out.write(pending.data);
+        } catch (IOException e) {
+            Continuum.getInstance().getLogger().log(Level.WARNING, "Could not write cached mesh " + name + ": " + e);
+            tmp.delete();
+            return;
+        }
+
+        synchronized (this) {
+            // Replace the previous entry
+            Entry entry = getEntries().remove(name);
+
+            if (entry != null)
+                _size -= entry.size;
+
+            f.delete();
+
+            if (!tmp.renameTo(f)) {
+                tmp.delete();
+                return;
+            }
+
+            entry = new Entry();
+            entry.hash = pending.hash;
+            entry.hashKnown = true;
+            entry.size = f.length();
+
+            getEntries().put(name, entry);
+            _size += entry.size;
+
+            evict();
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache fits its capacity.
+     */
+    private void evict() {
+        long capacity = (long) (Configuration.getSettingNumeric("MESH_CACHE_SIZE") * 1024 * 1024);
+
+        for (Iterator<Map.Entry<String, Entry>> it = getEntries().entrySet().iterator(); _size > capacity && it.hasNext(); ) {
+            Map.Entry<String, Entry> eldest = it.next();
+
+            it.remove();
+            _size -= eldest.getValue().size;
+
+            new File(getDirectory(), eldest.getKey()).delete();
+        }
+    }
+
+    private synchronized void remove(String name) {
+        Entry entry = getEntries().remove(name);
+
+        if (entry != null)
+            _size -= entry.size;
+
+        new File(getDirectory(), name).delete();
+    }
+
+    /**
+     * Returns the entries, indexing the files left by previous sessions on first access. Their order of use is
+     * restored from the modification times.
+     */
+    private synchronized LinkedHashMap<String, Entry> getEntries() {
+        if (_entries != null)
+            return _entries;
+
+        _entries = new LinkedHashMap<String, Entry>(256, 0.75f, true);
+
+        File[] files = getDirectory().listFiles();
+
+        if (files == null)
+            return _entries;
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+
+        for (File f : files) {
+            if (!f.getName().startsWith(PREFIX) || f.getName().endsWith(".tmp")) {
+                f.delete();
+                continue;
+            }
+
+            Entry entry = new Entry();
+            entry.size = f.length();
+
+            _entries.put(f.getName(), entry);
+            _size += entry.size;
+        }
+
+        evict();
+
+        return _entries;
+    }
+
+    private File getDirectory() {
+        return new File(_parent.getWorldSavePath(), DIRECTORY);
+    }
+
+    private static String calcFileName(Chunk chunk, int section) {
+        return PREFIX + chunk.getChunkFileName() + "." + section;
+    }
+
+    /**
+     * @return The amount of sections loaded from the cache
+     */
+    public long getHits() {
+        return _hits.get();
+    }
+
+    /**
+     * @return The amount of sections which had to be generated
+     */
+    public long getMisses() {
+        return _misses.get();
+    }
+
+    /**
+     * Estimates the time saved by loading sections from the cache, based on the average time it took to generate
+     * the sections which were not cached.
+     *
+     * @return The saved time in milliseconds
+     */
+    public long getSavedTime() {
+        long misses = _misses.get();
+
+        if (misses == 0)
+            return 0;
+
+        return _hits.get() * (_generationTime.get() / misses) / 1000000;
+    }
+
+    /**
+     * @return The size of the cached meshes in bytes
+     */
+    public synchronized long getSize() {
+        return _entries != null ? _size : 0;
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.world.chunk;
+
+import org.continuum.blocks.BlockRegistry;
+import org.continuum.main.Configuration;
+import org.continuum.world.light.LightColor;
+
+import java.util.Arrays;
+
+/**
+ * Caches the smooth light and the ambient occlusion inputs of all block corners of a chunk. Every
+ * corner is shared by up to eight blocks and 24 faces, so its values are calculated lazily the first
+ * time a vertex references the corner and looked up for all other vertices at the same position.
+ * <p/>
+ * The values of a corner are derived from the eight blocks surrounding it, read from the padded
+ * {@link ChunkMeshNeighborhood}. Corners are invalidated for the next chunk by incrementing a stamp,
+ * so the table never has to be cleared.
+ * <p/>
+ * Instances are reused for many chunks, but must not be shared between threads.
+ */
+final class ChunkMeshCornerTable {
+
+    static final int SIZE_X = (int) Configuration.CHUNK_DIMENSIONS.x + 1;
+    static final int SIZE_Y = (int) Configuration.CHUNK_DIMENSIONS.y + 1;
+    static final int SIZE_Z = (int) Configuration.CHUNK_DIMENSIONS.z + 1;
+
+    /* FACES */
+    static final int FACE_TOP = 0, FACE_BOTTOM = 1, FACE_LEFT = 2, FACE_RIGHT = 3, FACE_FRONT = 4, FACE_BACK = 5;
+
+    /**
+     * The number of occluding blocks for each face, quadrant of the face block and occlusion mask of a corner.
+     */
+    private static final byte[] OCCLUSION_LEVELS = new byte[6 * 4 * 256];
+
+    static {
+        for (int face = 0; face < 6; face++) {
+            for (int quadrant = 0; quadrant < 4; quadrant++) {
+                for (int mask = 0; mask < 256; mask++) {
+                    OCCLUSION_LEVELS[(((face << 2) | quadrant) << 8) | mask] = (byte) calcOcclusionLevel(face, quadrant, mask);
+                }
+            }
+        }
+    }
+
+    private final ChunkMeshNeighborhood _neighborhood;
+
+    private final int[] _stamps = new int[SIZE_X * SIZE_Y * SIZE_Z];
+    private final short[] _light = new short[SIZE_X * SIZE_Y * SIZE_Z];
+    private final byte[] _occluders = new byte[SIZE_X * SIZE_Y * SIZE_Z];
+
+    private int _stamp;
+
+    ChunkMeshCornerTable(ChunkMeshNeighborhood neighborhood) {
+        _neighborhood = neighborhood;
+    }
+
+    ChunkMeshNeighborhood getNeighborhood() {
+        return _neighborhood;
+    }
+
+    /**
+     * Invalidates all corners. Has to be called after the neighborhood was refilled.
+     */
+    void reset() {
+        if (++_stamp == 0) {
+            Arrays.fill(_stamps, 0);
+            _stamp = 1;
+        }
+    }
+
+    /**
+     * Returns the index of the corner at the lower end of the given block position.
+     */
+    static int index(int x, int y, int z) {
+        return (x * SIZE_Y + y) * SIZE_Z + z;
+    }
+
+    /**
+     * Returns the smooth light of a corner: The sunlight in the lowest nibble, followed by the
+     * red, green and blue block light (as stored in a vertex, see {@link ChunkMesh}).
+     */
+    int getLight(int corner) {
+        validate(corner);
+        return _light[corner] & 0xFFFF;
+    }
+
+    /**
+     * Returns the number of blocks occluding a vertex (classic rule, see {@link #calcOcclusionLevel}).
+     *
+     * @param corner   The index of the corner
+     * @param face     The face the vertex belongs to
+     * @param quadrant The position of the block in front of the face relative to the corner, see {@link #calcQuadrant}
+     * @return The occlusion level (0 - 3)
+     */
+    int getOcclusionLevel(int corner, int face, int quadrant) {
+        validate(corner);
+        return OCCLUSION_LEVELS[(((face << 2) | quadrant) << 8) | (_occluders[corner] & 0xFF)];
+    }
+
+    private void validate(int corner) {
+        if (_stamps[corner] == _stamp)
+            return;
+
+        int x = corner / (SIZE_Y * SIZE_Z);
+        int y = (corner / SIZE_Z) % SIZE_Y;
+        int z = corner % SIZE_Z;
+
+        int sunlight = 0, sunlightCounter = 0;
+        int red = 0, green = 0, blue = 0, blockLightCounter = 0;
+        int occluders = 0;
+
+        // Bit i of the occlusion mask belongs to the block at (x - 1 + (i & 1), y - 1 + ((i >> 1) & 1), z - 1 + (i >> 2))
+        for (int i = 0; i < 8; i++) {
+            int index = ChunkMeshNeighborhood.index(x - 1 + (i & 1), y - 1 + ((i >> 1) & 1), z - 1 + (i >> 2));
+
+            if (BlockRegistry.hasFlags(_neighborhood.getBlock(index), BlockRegistry.OCCLUDER))
+                occluders |= 1 << i;
+
+            int lights = _neighborhood.getLightValues(index);
+
+            int sun = lights & 0x0F;
+            int block = (lights >> 4) & 0xFFF;
+
+            if (sun > 0) {
+                sunlight += sun;
+                sunlightCounter++;
+            }
+
+            if (block != 0) {
+                red += LightColor.getRed(block);
+                green += LightColor.getGreen(block);
+                blue += LightColor.getBlue(block);
+                blockLightCounter++;
+            }
+        }
+
+        int light = average(sunlight, sunlightCounter);
+
+        if (blockLightCounter > 0)
+            light |= LightColor.pack(average(red, blockLightCounter), average(green, blockLightCounter), average(blue, blockLightCounter)) << 4;
+
+        _light[corner] = (short) light;
+        _occluders[corner] = (byte) occluders;
+        _stamps[corner] = _stamp;
+    }
+
+    /**
+     * Returns the rounded average of light values.
+     */
+    private static int average(int sum, int count) {
+        return count == 0 ? 0 : (sum * 2 + count) / (count * 2);
+    }
+
+    /**
+     * Returns the position of the block in front of a face relative to a corner of the face. Bit 0 is set if the
+     * block is located on the positive side of the corner on the first axis spanning the face, bit 1 for the second axis.
+     *
+     * @param face    The face
+     * @param offsetX The offset of the vertex from the center of its block on the x-axis
+     * @param offsetY The offset on the y-axis
+     * @param offsetZ The offset on the z-axis
+     * @return The quadrant
+     */
+    static int calcQuadrant(int face, float offsetX, float offsetY, float offsetZ) {
+        int qX = offsetX < 0 ? 1 : 0, qY = offsetY < 0 ? 1 : 0, qZ = offsetZ < 0 ? 1 : 0;
+
+        switch (face) {
+            case FACE_TOP:
+            case FACE_BOTTOM:
+                return qX | (qZ << 1);
+            case FACE_LEFT:
+            case FACE_RIGHT:
+                return qY | (qZ << 1);
+            default:
+                return qX | (qY << 1);
+        }
+    }
+
+    /**
+     * Classic ambient occlusion: The two blocks next to the block in front of the face and the block diagonal to it
+     * darken the vertex. If both side blocks occlude, the corner block is hidden and the vertex is fully occluded.
+     */
+    private static int calcOcclusionLevel(int face, int quadrant, int mask) {
+        // The axis of the normal and the two axes spanning the face (0 = x, 1 = y, 2 = z)
+        int normalAxis, axisU, axisV;
+
+        switch (face) {
+            case FACE_TOP:
+            case FACE_BOTTOM:
+                normalAxis = 1;
+                axisU = 0;
+                axisV = 2;
+                break;
+            case FACE_LEFT:
+            case FACE_RIGHT:
+                normalAxis = 0;
+                axisU = 1;
+                axisV = 2;
+                break;
+            default:
+                normalAxis = 2;
+                axisU = 0;
+                axisV = 1;
+        }
+
+        // The layer of blocks in front of the face
+        int layer = (face == FACE_TOP || face == FACE_RIGHT || face == FACE_BACK) ? 1 << normalAxis : 0;
+
+        int u = quadrant & 1, v = (quadrant >> 1) & 1;
+
+        boolean side1 = isSet(mask, layer | ((1 - u) << axisU) | (v << axisV));
+        boolean side2 = isSet(mask, layer | (u << axisU) | ((1 - v) << axisV));
+        boolean corner = isSet(mask, layer | ((1 - u) << axisU) | ((1 - v) << axisV));
+
+        if (side1 && side2)
+            return 3;
+
+        return (side1 ? 1 : 0) + (side2 ? 1 : 0) + (corner ? 1 : 0);
+    }
+
+    private static boolean isSet(int mask, int bit) {
+        return (mask & (1 << bit)) != 0;
+    }
+}
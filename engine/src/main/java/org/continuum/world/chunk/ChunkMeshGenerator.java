@@ -16,14 +16,12 @@
 package org.continuum.world.chunk;
 
 import org.continuum.blocks.Block;
-import org.continuum.blocks.BlockAir;
-import org.continuum.blocks.BlockLava;
-import org.continuum.blocks.BlockWater;
+import org.continuum.blocks.BlockRegistry;
+import org.continuum.blocks.BlockTintTable;
+import org.continuum.generators.ClimateLayer;
 import org.continuum.main.Configuration;
 import org.continuum.noise.PerlinNoise;
-import org.lwjgl.BufferUtils;
 import org.lwjgl.util.vector.Vector3f;
-import org.lwjgl.util.vector.Vector4f;
 
 public class ChunkMeshGenerator {
 
@@ -31,233 +29,564 @@ public class ChunkMeshGenerator {
 
     private static final PerlinNoise _pGen = new PerlinNoise(0);
 
+    /**
+     * The neighborhood and corner table of each meshing thread.
+     */
+    private static final ThreadLocal<ChunkMeshCornerTable> _cornerTables = ThreadLocal.withInitial(() -> new ChunkMeshCornerTable(new ChunkMeshNeighborhood()));
+    private static final ThreadLocal<ChunkMeshGreedyMask> _greedyMasks = ThreadLocal.withInitial(ChunkMeshGreedyMask::new);
+
+    /**
+     * The staging lists and tint palette of each meshing thread. Meshes only reference them until their
+     * vertices have been copied to leased buffers, so they are reused for the next mesh.
+     */
+    private static final ThreadLocal<ChunkMesh.VertexElements[]> _stagingElements = ThreadLocal.withInitial(() -> {
+        ChunkMesh.VertexElements[] vertexElements = new ChunkMesh.VertexElements[5];
+
+        for (int i = 0; i < vertexElements.length; i++) {
+            vertexElements[i] = new ChunkMesh.VertexElements();
+        }
+
+        return vertexElements;
+    });
+    private static final ThreadLocal<ChunkMeshBillboards> _stagingBillboards = ThreadLocal.withInitial(ChunkMeshBillboards::new);
+    private static final ThreadLocal<ChunkMeshTintPalette> _tintPalettes = ThreadLocal.withInitial(ChunkMeshTintPalette::new);
+
+    private static final int SIZE_X = (int) Configuration.CHUNK_DIMENSIONS.x;
+    private static final int SIZE_Z = (int) Configuration.CHUNK_DIMENSIONS.z;
+
+    /**
+     * The climate is rounded to this many steps before the colours are looked up. Neighboring columns mostly end
+     * up with the same colour, so their faces can be merged, while the colours still follow the climate.
+     */
+    private static final int TINT_STEPS = 16;
+
+    /**
+     * The packed grass and foliage colours of each column, looked up once per chunk by each meshing thread.
+     */
+    private static final ThreadLocal<int[]> _grassColors = ThreadLocal.withInitial(() -> new int[SIZE_X * SIZE_Z]);
+    private static final ThreadLocal<int[]> _foliageColors = ThreadLocal.withInitial(() -> new int[SIZE_X * SIZE_Z]);
+
+    /*
+     * Directions, sides and vertex offsets of the faces (indexed as in ChunkMeshCornerTable). The vertex order
+     * matches the single faces generated in generateBlockVertices.
+     */
+    private static final int[] FACE_DIR_X = {0, 0, -1, 1, 0, 0};
+    private static final int[] FACE_DIR_Y = {1, -1, 0, 0, 0, 0};
+    private static final int[] FACE_DIR_Z = {0, 0, 0, 0, -1, 1};
+    private static final Block.SIDE[] FACE_SIDES = {Block.SIDE.TOP, Block.SIDE.BOTTOM, Block.SIDE.LEFT, Block.SIDE.RIGHT, Block.SIDE.FRONT, Block.SIDE.BACK};
+    private static final float[][] FACE_VERTICES = {
+            {-0.5f, 0.5f, 0.5f, 0.5f, 0.5f, 0.5f, 0.5f, 0.5f, -0.5f, -0.5f, 0.5f, -0.5f},
+            {-0.5f, -0.5f, -0.5f, 0.5f, -0.5f, -0.5f, 0.5f, -0.5f, 0.5f, -0.5f, -0.5f, 0.5f},
+            {-0.5f, -0.5f, -0.5f, -0.5f, -0.5f, 0.5f, -0.5f, 0.5f, 0.5f, -0.5f, 0.5f, -0.5f},
+            {0.5f, 0.5f, -0.5f, 0.5f, 0.5f, 0.5f, 0.5f, -0.5f, 0.5f, 0.5f, -0.5f, -0.5f},
+            {-0.5f, 0.5f, -0.5f, 0.5f, 0.5f, -0.5f, 0.5f, -0.5f, -0.5f, -0.5f, -0.5f, -0.5f},
+            {-0.5f, -0.5f, 0.5f, 0.5f, -0.5f, 0.5f, 0.5f, 0.5f, 0.5f, -0.5f, 0.5f, 0.5f}
+    };
+
+    /*
+     * The texture coordinates of the four vertices of a quad. Flipped quads use 1 - TEX_V.
+     */
+    private static final int[] TEX_U = {0, 1, 1, 0};
+    private static final int[] TEX_V = {0, 0, 1, 1};
+
     public ChunkMeshGenerator(Chunk chunk) {
         _chunk = chunk;
     }
 
-    public ChunkMesh generateMesh() {
-        ChunkMesh mesh = new ChunkMesh();
+    /**
+     * Generates the meshes of the given sections of the chunk.
+     *
+     * @param sections Bit mask of the sections to generate (see {@link Chunk#calcSectionMask(int)})
+     * @return The meshes indexed by section, null for the sections which have not been generated
+     */
+    public ChunkMesh[] generateMeshes(int sections) {
+        ChunkMesh[] meshes = new ChunkMesh[Chunk.SECTION_COUNT];
+
+        if (sections == 0)
+            return meshes;
 
-        for (int x = 0; x < Configuration.CHUNK_DIMENSIONS.y; x++) {
-            for (int z = 0; z < Configuration.CHUNK_DIMENSIONS.z; z++) {
-                double biomeTemp = _chunk.getParent().getTemperatureAt(_chunk.getBlockWorldPosX(x), _chunk.getBlockWorldPosZ(z));
-                double biomeHumidity = _chunk.getParent().getHumidityAt(_chunk.getBlockWorldPosX(x), _chunk.getBlockWorldPosZ(z));
+        // Only the blocks around the generated sections are copied
+        int minY = Integer.numberOfTrailingZeros(sections) * Chunk.SECTION_HEIGHT;
+        int maxY = (32 - Integer.numberOfLeadingZeros(sections)) * Chunk.SECTION_HEIGHT - 1;
 
-                for (int y = 0; y < Configuration.CHUNK_DIMENSIONS.y; y++) {
+        ChunkMeshCornerTable corners = _cornerTables.get();
+
+        corners.getNeighborhood().fill(_chunk, minY, maxY);
+        corners.reset();
+
+        boolean greedy = Configuration.getSettingBoolean("GREEDY_MESHING");
+
+        ClimateLayer climate = _chunk.getClimate();
+        int[] grassColors = _grassColors.get();
+        int[] foliageColors = _foliageColors.get();
+
+        for (int x = 0; x < SIZE_X; x++) {
+            for (int z = 0; z < SIZE_Z; z++) {
+                double temp = quantizeClimate(climate.getTemperature(x, z)), hum = quantizeClimate(climate.getHumidity(x, z));
+
+                grassColors[x * SIZE_Z + z] = BlockTintTable.getGrassColor(temp, hum);
+                foliageColors[x * SIZE_Z + z] = BlockTintTable.getFoliageColor(temp, hum);
+            }
+        }
+
+        ChunkMeshCache cache = _chunk.getParent().getMeshCache();
+        boolean cached = cache.isEnabled();
+
+        for (int section = 0; section < meshes.length; section++) {
+            if ((sections & (1 << section)) == 0)
+                continue;
+
+            int sectionMinY = section * Chunk.SECTION_HEIGHT;
+
+            if (!cached) {
+                meshes[section] = generateMesh(corners, sectionMinY, grassColors, foliageColors, greedy);
+                continue;
+            }
+
+            // Chunks loaded again with unchanged content reuse their previous meshes
+            long hash = corners.getNeighborhood().hash(sectionMinY, sectionMinY + Chunk.SECTION_HEIGHT - 1) * 31 + (greedy ? 1 : 0);
+            ChunkMesh mesh = cache.load(_chunk, section, hash);
+
+            if (mesh == null) {
+                long timeStart = System.nanoTime();
+                mesh = generateMesh(corners, sectionMinY, grassColors, foliageColors, greedy);
+
+                cache.store(_chunk, section, hash, mesh, System.nanoTime() - timeStart);
+            }
+
+            meshes[section] = mesh;
+        }
+
+        return meshes;
+    }
+
+    /**
+     * Generates the mesh of one section.
+     *
+     * @param corners       The light and occlusion values of the chunk
+     * @param minY          The lowest block position of the section on the y-axis
+     * @param grassColors   The packed grass colour of each column
+     * @param foliageColors The packed foliage colour of each column
+     * @param greedy        True if faces are merged
+     * @return The mesh
+     */
+    private ChunkMesh generateMesh(ChunkMeshCornerTable corners, int minY, int[] grassColors, int[] foliageColors, boolean greedy) {
+        ChunkMesh.VertexElements[] vertexElements = _stagingElements.get();
+        ChunkMeshTintPalette tintPalette = _tintPalettes.get();
+
+        for (ChunkMesh.VertexElements elements : vertexElements) {
+            elements.reset();
+        }
+
+        ChunkMeshBillboards billboards = _stagingBillboards.get();
+
+        billboards.reset();
+        tintPalette.reset();
+
+        ChunkMesh mesh = new ChunkMesh(vertexElements, billboards, tintPalette);
+
+        // The slices of the greedy mesher are only scanned if the section contains blocks it meshes
+        boolean greedyBlocks = false, fluids = false;
+
+        for (int x = 0; x < SIZE_X; x++) {
+            for (int z = 0; z < SIZE_Z; z++) {
+                int grassColor = grassColors[x * SIZE_Z + z];
+                int foliageColor = foliageColors[x * SIZE_Z + z];
+
+                for (int y = minY; y < minY + Chunk.SECTION_HEIGHT; y++) {
                     byte blockType = _chunk.getBlock(x, y, z);
-                    Block block = Block.getBlockForType(blockType);
 
-                    if (block.isBlockInvisible())
+                    // Water and lava are generated by the fluid mesher
+                    if (BlockRegistry.hasFlags(blockType, BlockRegistry.FLUID)) {
+                        fluids = true;
+                        continue;
+                    }
+
+                    if (BlockRegistry.isInvisible(blockType))
                         continue;
 
-                    Block.BLOCK_FORM blockForm = block.getBlockForm();
+                    if (greedy && isGreedyFace(blockType))
+                        greedyBlocks = true;
+
+                    Block.BLOCK_FORM blockForm = BlockRegistry.getForm(blockType);
 
                     if (blockForm == Block.BLOCK_FORM.LOWERED_BOCK || blockForm == Block.BLOCK_FORM.CACTUS || blockForm == Block.BLOCK_FORM.NORMAL)
-                        generateBlockVertices(mesh, x, y, z, biomeTemp, biomeHumidity);
+                        generateBlockVertices(mesh, corners, x, y, z, grassColor, foliageColor, greedy);
                     else if (blockForm == Block.BLOCK_FORM.BILLBOARD)
-                        generateBillboardVertices(mesh, x, y, z, biomeTemp, biomeHumidity);
+                        generateBillboard(mesh, corners, x, y, z, grassColor, foliageColor);
                 }
             }
         }
 
-        generateOptimizedBuffers(mesh);
+        if (greedyBlocks)
+            generateGreedyFaces(mesh, corners, minY, grassColors, foliageColors, false, true);
+
+        if (fluids)
+            generateGreedyFaces(mesh, corners, minY, grassColors, foliageColors, true, greedy);
+
+        mesh.generateBuffers();
 
         return mesh;
     }
 
-    private void generateOptimizedBuffers(ChunkMesh mesh) {
-        for (int j = 0; j < mesh._vertexElements.length; j++) {
-            mesh._vertexElements[j].vertices = BufferUtils.createFloatBuffer(mesh._vertexElements[j].quads.size() + mesh._vertexElements[j].tex.size() * 2 + mesh._vertexElements[j].color.size());
-            mesh._vertexElements[j].indices = BufferUtils.createIntBuffer(mesh._vertexElements[j].quads.size());
-
-            int cTex = 0;
-            int cColor = 0;
-            int cIndex = 0;
-            for (int i = 0; i < mesh._vertexElements[j].quads.size(); i += 3, cTex += 2, cColor += 4) {
-
-                if (i % 4 == 0) {
-                    mesh._vertexElements[j].indices.put(cIndex);
-                    mesh._vertexElements[j].indices.put(cIndex + 1);
-                    mesh._vertexElements[j].indices.put(cIndex + 2);
-
-                    mesh._vertexElements[j].indices.put(cIndex + 2);
-                    mesh._vertexElements[j].indices.put(cIndex + 3);
-                    mesh._vertexElements[j].indices.put(cIndex);
-                    cIndex += 4;
+    /**
+     * Generates the faces of normal opaque blocks or of fluids, merging adjacent faces which look alike into
+     * larger quads. Each face direction is processed slice by slice. The texture is repeated for each face of a merged quad.
+     *
+     * @param mesh          The active mesh
+     * @param corners       The light and occlusion values of the chunk
+     * @param minY          The lowest block position of the section on the y-axis
+     * @param grassColors   The packed grass colour of each column
+     * @param foliageColors The packed foliage colour of each column
+     * @param fluids        True to generate the faces of water and lava, false for normal opaque blocks
+     * @param merge         True if faces are merged
+     */
+    private void generateGreedyFaces(ChunkMesh mesh, ChunkMeshCornerTable corners, int minY, int[] grassColors, int[] foliageColors, boolean fluids, boolean merge) {
+        ChunkMeshGreedyMask mask = _greedyMasks.get();
+
+        for (int face = 0; face < 6; face++) {
+            boolean horizontal = face == ChunkMeshCornerTable.FACE_TOP || face == ChunkMeshCornerTable.FACE_BOTTOM;
+            boolean alongX = face == ChunkMeshCornerTable.FACE_LEFT || face == ChunkMeshCornerTable.FACE_RIGHT;
+
+            int slices = horizontal ? Chunk.SECTION_HEIGHT : alongX ? SIZE_X : SIZE_Z;
+
+            for (int slice = 0; slice < slices; slice++) {
+                // The first axis of the mask is the first axis of the texture
+                if (horizontal) {
+                    mask.reset(SIZE_X, SIZE_Z);
+                } else {
+                    mask.reset(alongX ? SIZE_Z : SIZE_X, Chunk.SECTION_HEIGHT);
+                }
+
+                for (int v = 0; v < mask.getHeight(); v++) {
+                    for (int u = 0; u < mask.getWidth(); u++) {
+                        int x = horizontal ? u : alongX ? slice : u;
+                        int y = minY + (horizontal ? slice : v);
+                        int z = horizontal ? v : alongX ? u : slice;
+
+                        if (fluids) {
+                            addFluidFace(mesh, mask, corners, face, x, y, z, u, v, grassColors, foliageColors);
+                        } else {
+                            addGreedyFace(mesh, mask, corners, face, x, y, z, u, v, grassColors, foliageColors);
+                        }
+                    }
                 }
 
-                Vector3f vertexPos = new Vector3f(mesh._vertexElements[j].quads.get(i), mesh._vertexElements[j].quads.get(i + 1), mesh._vertexElements[j].quads.get(i + 2));
+                for (int v = 0; v < mask.getHeight(); v++) {
+                    for (int u = 0; u < mask.getWidth(); u++) {
+                        byte type = mask.getType(u, v);
 
-                mesh._vertexElements[j].vertices.put(vertexPos.x);
-                mesh._vertexElements[j].vertices.put(vertexPos.y);
-                mesh._vertexElements[j].vertices.put(vertexPos.z);
+                        if (type == 0)
+                            continue;
 
-                mesh._vertexElements[j].vertices.put(mesh._vertexElements[j].tex.get(cTex));
-                mesh._vertexElements[j].vertices.put(mesh._vertexElements[j].tex.get(cTex + 1));
+                        int width = merge ? mask.extendWidth(u, v) : 1;
+                        int height = merge ? mask.extendHeight(u, v, width) : 1;
 
-                double occlusionValue = getOcclusionValue(vertexPos);
-                mesh._vertexElements[j].vertices.put((float) (getLightForVertexPos(vertexPos, Chunk.LIGHT_TYPE.SUN) * occlusionValue));
-                mesh._vertexElements[j].vertices.put((float) (getLightForVertexPos(vertexPos, Chunk.LIGHT_TYPE.BLOCK) * occlusionValue));
+                        int x0 = horizontal ? u : alongX ? slice : u;
+                        int y0 = minY + (horizontal ? slice : v);
+                        int z0 = horizontal ? v : alongX ? u : slice;
+                        int x1 = horizontal ? u + width - 1 : alongX ? slice : u + width - 1;
+                        int y1 = minY + (horizontal ? slice : v + height - 1);
+                        int z1 = horizontal ? v + height - 1 : alongX ? u + width - 1 : slice;
 
-                mesh._vertexElements[j].vertices.put(mesh._vertexElements[j].color.get(cColor));
-                mesh._vertexElements[j].vertices.put(mesh._vertexElements[j].color.get(cColor + 1));
-                mesh._vertexElements[j].vertices.put(mesh._vertexElements[j].color.get(cColor + 2));
-                mesh._vertexElements[j].vertices.put(mesh._vertexElements[j].color.get(cColor + 3));
+                        generateGreedyQuad(mesh, corners, face, type, mask.getTint(u, v), mask.getShape(u, v), x0, y0, z0, x1, y1, z1, width, height);
 
+                        mask.clear(u, v, width, height);
+                    }
+                }
             }
-
-            mesh._vertexElements[j].vertices.flip();
-            mesh._vertexElements[j].indices.flip();
         }
     }
 
-    private double getLightForVertexPos(Vector3f vertexPos, Chunk.LIGHT_TYPE lightType) {
-        double result = 0.0;
+    /**
+     * Adds the face of the given block to the mask if it is visible and generated by the greedy mesher.
+     */
+    private void addGreedyFace(ChunkMesh mesh, ChunkMeshGreedyMask mask, ChunkMeshCornerTable corners, int face, int x, int y, int z, int u, int v, int[] grassColors, int[] foliageColors) {
+        ChunkMeshNeighborhood neighborhood = corners.getNeighborhood();
 
-        double[] lights = new double[8];
+        byte type = neighborhood.getBlock(x, y, z);
 
-        lights[0] = _chunk.getParent().getLight((int) (vertexPos.x + 0.5f), (int) (vertexPos.y + 0.5f), (int) (vertexPos.z + 0.5f), lightType) / 15f;
-        lights[1] = _chunk.getParent().getLight((int) (vertexPos.x + 0.5f), (int) (vertexPos.y + 0.5f), (int) (vertexPos.z - 0.5f), lightType) / 15f;
-        lights[2] = _chunk.getParent().getLight((int) (vertexPos.x - 0.5f), (int) (vertexPos.y + 0.5f), (int) (vertexPos.z - 0.5f), lightType) / 15f;
-        lights[3] = _chunk.getParent().getLight((int) (vertexPos.x - 0.5f), (int) (vertexPos.y + 0.5f), (int) (vertexPos.z + 0.5f), lightType) / 15f;
+        if (BlockRegistry.isInvisible(type) || !isGreedyFace(type))
+            return;
 
-        lights[4] = _chunk.getParent().getLight((int) (vertexPos.x + 0.5f), (int) (vertexPos.y - 0.5f), (int) (vertexPos.z + 0.5f), lightType) / 15f;
-        lights[5] = _chunk.getParent().getLight((int) (vertexPos.x + 0.5f), (int) (vertexPos.y - 0.5f), (int) (vertexPos.z - 0.5f), lightType) / 15f;
-        lights[6] = _chunk.getParent().getLight((int) (vertexPos.x - 0.5f), (int) (vertexPos.y - 0.5f), (int) (vertexPos.z - 0.5f), lightType) / 15f;
-        lights[7] = _chunk.getParent().getLight((int) (vertexPos.x - 0.5f), (int) (vertexPos.y - 0.5f), (int) (vertexPos.z + 0.5f), lightType) / 15f;
+        // Don't draw anything "below" the world
+        if (face == ChunkMeshCornerTable.FACE_BOTTOM && y == 0)
+            return;
 
-        int counter = 0;
-        for (int i = 0; i < 8; i++) {
-            if (lights[i] > 0) {
-                result += lights[i];
-                counter++;
-            }
+        if (!isSideVisibleForBlockTypes(neighborhood.getBlock(x + FACE_DIR_X[face], y + FACE_DIR_Y[face], z + FACE_DIR_Z[face]), type))
+            return;
+
+        int tint = mesh.getTintPalette().indexOf(BlockRegistry.getTintColor(type, grassColors[x * SIZE_Z + z], foliageColors[x * SIZE_Z + z]));
+
+        mask.set(u, v, type, tint, calcFaceLight(corners, x, y, z, face, 0), calcFaceLight(corners, x, y, z, face, 1), calcFaceLight(corners, x, y, z, face, 2), calcFaceLight(corners, x, y, z, face, 3), ChunkMeshGreedyMask.SHAPE_FULL);
+    }
+
+    /**
+     * Adds the face of the given water or lava block to the mask if it is exposed. The surface of water is lowered,
+     * so the side faces of lowered blocks end below the top of the block. The parts of the side faces of a
+     * waterfall which rise above the lowered surface around it are exposed as well.
+     */
+    private void addFluidFace(ChunkMesh mesh, ChunkMeshGreedyMask mask, ChunkMeshCornerTable corners, int face, int x, int y, int z, int u, int v, int[] grassColors, int[] foliageColors) {
+        ChunkMeshNeighborhood neighborhood = corners.getNeighborhood();
+
+        byte type = neighborhood.getBlock(x, y, z);
+
+        if (!BlockRegistry.hasFlags(type, BlockRegistry.FLUID))
+            return;
+
+        // Don't draw anything "below" the world
+        if (face == ChunkMeshCornerTable.FACE_BOTTOM && y == 0)
+            return;
+
+        int nX = x + FACE_DIR_X[face], nY = y + FACE_DIR_Y[face], nZ = z + FACE_DIR_Z[face];
+        byte neighbor = neighborhood.getBlock(nX, nY, nZ);
+
+        int top = calcFluidHeight(neighborhood, type, x, y, z);
+        int bottom = 0;
+
+        if (neighbor == type) {
+            // Only the side of a higher column of the same fluid can be exposed
+            if (face == ChunkMeshCornerTable.FACE_TOP || face == ChunkMeshCornerTable.FACE_BOTTOM)
+                return;
+
+            bottom = calcFluidHeight(neighborhood, type, nX, nY, nZ);
+
+            if (bottom >= top)
+                return;
+        } else if (face == ChunkMeshCornerTable.FACE_TOP && top < ChunkMeshGreedyMask.FULL_HEIGHT) {
+            // Lowered surfaces can be seen below any block
+        } else if (!isSideVisibleForBlockTypes(neighbor, type)) {
+            return;
         }
 
-        if (counter == 0)
-            return 0;
+        int tint = mesh.getTintPalette().indexOf(BlockRegistry.getTintColor(type, grassColors[x * SIZE_Z + z], foliageColors[x * SIZE_Z + z]));
 
-        return result / counter;
+        mask.set(u, v, type, tint, calcFaceLight(corners, x, y, z, face, 0), calcFaceLight(corners, x, y, z, face, 1), calcFaceLight(corners, x, y, z, face, 2), calcFaceLight(corners, x, y, z, face, 3), ChunkMeshGreedyMask.calcShape(bottom, top));
     }
 
-    private double getOcclusionValue(Vector3f vertexPos) {
-        double result = 1.0;
-        byte[] blocks = new byte[8];
+    private static double quantizeClimate(double value) {
+        return Math.round(value * TINT_STEPS) / (double) TINT_STEPS;
+    }
+
+    /**
+     * Returns the height of the surface of a fluid block in quarter blocks. Only the surface of lowered fluids which
+     * are not covered by the same fluid is lowered.
+     */
+    private static int calcFluidHeight(ChunkMeshNeighborhood neighborhood, byte type, int x, int y, int z) {
+        if (BlockRegistry.getForm(type) != Block.BLOCK_FORM.LOWERED_BOCK || neighborhood.getBlock(x, y + 1, z) == type)
+            return ChunkMeshGreedyMask.FULL_HEIGHT;
+
+        return ChunkMeshGreedyMask.FULL_HEIGHT - 1;
+    }
 
-        blocks[0] = _chunk.getParent().getBlock((int) (vertexPos.x + 0.5f), (int) (vertexPos.y + 0.5f), (int) (vertexPos.z + 0.5f));
-        blocks[1] = _chunk.getParent().getBlock((int) (vertexPos.x + 0.5f), (int) (vertexPos.y + 0.5f), (int) (vertexPos.z - 0.5f));
-        blocks[2] = _chunk.getParent().getBlock((int) (vertexPos.x - 0.5f), (int) (vertexPos.y + 0.5f), (int) (vertexPos.z - 0.5f));
-        blocks[3] = _chunk.getParent().getBlock((int) (vertexPos.x - 0.5f), (int) (vertexPos.y + 0.5f), (int) (vertexPos.z + 0.5f));
+    /**
+     * Generates a quad covering the faces of the given block range.
+     */
+    private void generateGreedyQuad(ChunkMesh mesh, ChunkMeshCornerTable corners, int face, byte type, int tint, int shape, int x0, int y0, int z0, int x1, int y1, int z1, int width, int height) {
+        ChunkMesh.VertexElements vertexElements = mesh._vertexElements[0];
+
+        switch (BlockRegistry.getRenderType(type)) {
+            case WATER:
+                vertexElements = mesh._vertexElements[3];
+                break;
+            case LAVA:
+                vertexElements = mesh._vertexElements[4];
+                break;
+        }
+
+        int tile = BlockRegistry.getTextureTile(type, FACE_SIDES[face]);
+        boolean flipped = face == ChunkMeshCornerTable.FACE_BACK || face == ChunkMeshCornerTable.FACE_LEFT;
+
+        // The faces of fluids might start above the bottom or end below the top of the block
+        float bottom = ChunkMeshGreedyMask.getShapeBottom(shape) / (float) ChunkMeshGreedyMask.FULL_HEIGHT - 0.5f;
+        float top = ChunkMeshGreedyMask.getShapeTop(shape) / (float) ChunkMeshGreedyMask.FULL_HEIGHT - 0.5f;
+        float[] offsets = FACE_VERTICES[face];
 
         for (int i = 0; i < 4; i++) {
-            Block b = Block.getBlockForType(blocks[i]);
-            if (b.isCastingShadows() && b.getBlockForm() != Block.BLOCK_FORM.BILLBOARD) {
-                result -= Configuration.OCCLUSION_AMOUNT_DEFAULT;
-            } else if (b.isCastingShadows() && b.getBlockForm() == Block.BLOCK_FORM.BILLBOARD) {
-                result -= Configuration.OCCLUSION_AMOUNT_BILLBOARDS;
-            }
+            float oX = offsets[i * 3], oY = offsets[i * 3 + 1], oZ = offsets[i * 3 + 2];
+
+            // Each vertex belongs to the block at the corresponding corner of the range
+            int x = oX > 0 ? x1 : x0;
+            int y = oY > 0 ? y1 : y0;
+            int z = oZ > 0 ? z1 : z0;
+
+            int light = calcVertexLight(corners, x, y, z, oX, oY, oZ, face);
+
+            addVertex(vertexElements, x, y, z, oX, oY > 0 ? top : bottom, oZ, tile, tint, TEX_U[i] * width, (flipped ? 1 - TEX_V[i] : TEX_V[i]) * height, light);
         }
+    }
 
-        return result;
+    /**
+     * Returns true if the faces of the block are generated by the greedy mesher: All faces of
+     * normal opaque blocks.
+     */
+    private static boolean isGreedyFace(byte type) {
+        return BlockRegistry.getRenderType(type) == ChunkMesh.RENDER_TYPE.OPAQUE && BlockRegistry.getForm(type) == Block.BLOCK_FORM.NORMAL;
     }
 
     /**
-     * Generates the billboard vertices for a given local block position.
+     * Adds a vertex to the given vertex elements.
      *
-     * @param mesh The active mesh
-     * @param x    Local block position on the x-axis
-     * @param y    Local block position on the y-axis
-     * @param z    Local block position on the z-axis
+     * @param vertexElements The vertex elements
+     * @param corners        The light and occlusion values of the chunk
+     * @param x              Local block position on the x-axis
+     * @param y              Local block position on the y-axis
+     * @param z              Local block position on the z-axis
+     * @param offsetX        The offset of the vertex from the center of the block on the x-axis
+     * @param offsetY        The offset on the y-axis
+     * @param offsetZ        The offset on the z-axis
+     * @param face           The face (see {@link ChunkMeshCornerTable})
+     * @param tile           The index of the texture within the atlas
+     * @param tint           The index of the colour offset within the tint palette
+     * @param texU           The texture coordinate on the first axis in textures
+     * @param texV           The texture coordinate on the second axis in textures
      */
-    private void generateBillboardVertices(ChunkMesh mesh, int x, int y, int z, double temp, double hum) {
-        byte block = _chunk.getBlock(x, y, z);
+    private static void addVertex(ChunkMesh.VertexElements vertexElements, ChunkMeshCornerTable corners, int x, int y, int z, float offsetX, float offsetY, float offsetZ, int face, int tile, int tint, int texU, int texV) {
+        addVertex(vertexElements, x, y, z, offsetX, offsetY, offsetZ, tile, tint, texU, texV, calcVertexLight(corners, x, y, z, offsetX, offsetY, offsetZ, face));
+    }
 
-        /*
-         * First side of the billboard
-         */
-        Vector4f colorBillboardOffset = Block.getBlockForType(block).getColorOffsetFor(Block.SIDE.FRONT, temp, hum);
-        Vector3f texOffset = new Vector3f(Block.getBlockForType(block).getTextureOffsetFor(Block.SIDE.FRONT).x, Block.getBlockForType(block).getTextureOffsetFor(Block.SIDE.FRONT).y, 0);
+    /**
+     * Adds a vertex with the given light and occlusion level (see {@link #calcVertexLight}).
+     */
+    private static void addVertex(ChunkMesh.VertexElements vertexElements, int x, int y, int z, float offsetX, float offsetY, float offsetZ, int tile, int tint, int texU, int texV, int light) {
+        vertexElements.positions.add((short) Math.round((x + offsetX) * ChunkMesh.POSITION_SCALE));
+        vertexElements.positions.add((short) Math.round((y + offsetY) * ChunkMesh.POSITION_SCALE));
+        vertexElements.positions.add((short) Math.round((z + offsetZ) * ChunkMesh.POSITION_SCALE));
+        vertexElements.positions.add((short) light);
+
+        vertexElements.attributes.add(ChunkMesh.packAttributes(tile, tint, texU, texV, light >>> 16));
+    }
 
-        Vector3f p1 = new Vector3f(-0.5f, -0.5f, 0.5f);
-        Vector3f p2 = new Vector3f(0.5f, -0.5f, -0.5f);
-        Vector3f p3 = new Vector3f(0.5f, 0.5f, -0.5f);
-        Vector3f p4 = new Vector3f(-0.5f, 0.5f, 0.5f);
+    /**
+     * Adds a single face to the given vertex elements. The vertices have to be given in the order used by
+     * generateBlockVertices.
+     */
+    private static void addFace(ChunkMesh.VertexElements vertexElements, ChunkMeshCornerTable corners, int x, int y, int z, Vector3f p1, Vector3f p2, Vector3f p3, Vector3f p4, int face, int tile, int tint, boolean flipped) {
+        int v0 = flipped ? 1 : 0, v1 = 1 - v0;
 
-        addBlockVertexData(mesh._vertexElements[2], colorBillboardOffset, moveVectorToWorldSpace(x, y, z, p1));
-        addBlockVertexData(mesh._vertexElements[2], colorBillboardOffset, moveVectorToWorldSpace(x, y, z, p2));
-        addBlockVertexData(mesh._vertexElements[2], colorBillboardOffset, moveVectorToWorldSpace(x, y, z, p3));
-        addBlockVertexData(mesh._vertexElements[2], colorBillboardOffset, moveVectorToWorldSpace(x, y, z, p4));
-        addBlockTextureData(mesh._vertexElements[2], texOffset, new Vector3f(0, 0, 1));
+        addVertex(vertexElements, corners, x, y, z, p1.x, p1.y, p1.z, face, tile, tint, 0, v0);
+        addVertex(vertexElements, corners, x, y, z, p2.x, p2.y, p2.z, face, tile, tint, 1, v0);
+        addVertex(vertexElements, corners, x, y, z, p3.x, p3.y, p3.z, face, tile, tint, 1, v1);
+        addVertex(vertexElements, corners, x, y, z, p4.x, p4.y, p4.z, face, tile, tint, 0, v1);
+    }
 
-        /*
-        * Second side of the billboard
-        */
-        colorBillboardOffset = Block.getBlockForType(block).getColorOffsetFor(Block.SIDE.FRONT, temp, hum);
-        texOffset = new Vector3f(Block.getBlockForType(block).getTextureOffsetFor(Block.SIDE.BACK).x, Block.getBlockForType(block).getTextureOffsetFor(Block.SIDE.BACK).y, 0);
-
-        p1 = new Vector3f(-0.5f, -0.5f, -0.5f);
-        p2 = new Vector3f(0.5f, -0.5f, 0.5f);
-        p3 = new Vector3f(0.5f, 0.5f, 0.5f);
-        p4 = new Vector3f(-0.5f, 0.5f, -0.5f);
-
-        addBlockVertexData(mesh._vertexElements[2], colorBillboardOffset, moveVectorToWorldSpace(x, y, z, p1));
-        addBlockVertexData(mesh._vertexElements[2], colorBillboardOffset, moveVectorToWorldSpace(x, y, z, p2));
-        addBlockVertexData(mesh._vertexElements[2], colorBillboardOffset, moveVectorToWorldSpace(x, y, z, p3));
-        addBlockVertexData(mesh._vertexElements[2], colorBillboardOffset, moveVectorToWorldSpace(x, y, z, p4));
-        addBlockTextureData(mesh._vertexElements[2], texOffset, new Vector3f(0, 0, 1));
+    /**
+     * Returns the smooth light (lower 16 bits) and the ambient occlusion level (upper bits) of a vertex. Both
+     * are looked up from the corner of the vertex, which is shared with the adjacent blocks.
+     *
+     * @param corners The light and occlusion values of the chunk
+     * @param x       Local block position on the x-axis
+     * @param y       Local block position on the y-axis
+     * @param z       Local block position on the z-axis
+     * @param offsetX The offset of the vertex from the center of the block on the x-axis
+     * @param offsetY The offset on the y-axis
+     * @param offsetZ The offset on the z-axis
+     * @param face    The face (see {@link ChunkMeshCornerTable})
+     * @return The light and occlusion level
+     */
+    private static int calcVertexLight(ChunkMeshCornerTable corners, int x, int y, int z, float offsetX, float offsetY, float offsetZ, int face) {
+        int corner = ChunkMeshCornerTable.index(offsetX > 0 ? x + 1 : x, offsetY > 0 ? y + 1 : y, offsetZ > 0 ? z + 1 : z);
+        int quadrant = ChunkMeshCornerTable.calcQuadrant(face, offsetX, offsetY, offsetZ);
+
+        return corners.getLight(corner) | (corners.getOcclusionLevel(corner, face, quadrant) << 16);
     }
 
-    private void generateBlockVertices(ChunkMesh mesh, int x, int y, int z, double temp, double hum) {
+    /**
+     * Returns the light and occlusion level of a vertex of the given face, see {@link #FACE_VERTICES}.
+     */
+    private static int calcFaceLight(ChunkMeshCornerTable corners, int x, int y, int z, int face, int vertex) {
+        float[] offsets = FACE_VERTICES[face];
+        return calcVertexLight(corners, x, y, z, offsets[vertex * 3], offsets[vertex * 3 + 1], offsets[vertex * 3 + 2], face);
+    }
+
+    private static int calcFace(Vector3f norm) {
+        if (norm.y == 1.0f)
+            return ChunkMeshCornerTable.FACE_TOP;
+        if (norm.y == -1.0f)
+            return ChunkMeshCornerTable.FACE_BOTTOM;
+        if (norm.x == -1.0f)
+            return ChunkMeshCornerTable.FACE_LEFT;
+        if (norm.x == 1.0f)
+            return ChunkMeshCornerTable.FACE_RIGHT;
+        if (norm.z == -1.0f)
+            return ChunkMeshCornerTable.FACE_FRONT;
+
+        return ChunkMeshCornerTable.FACE_BACK;
+    }
+
+    /**
+     * Adds the billboard record of a given local block position. The vertices are generated from the record by
+     * the mesh (see {@link ChunkMeshBillboards}), lit by the light of the block itself.
+     *
+     * @param mesh    The active mesh
+     * @param corners The light and occlusion values of the chunk
+     * @param x       Local block position on the x-axis
+     * @param y       Local block position on the y-axis
+     * @param z       Local block position on the z-axis
+     */
+    private void generateBillboard(ChunkMesh mesh, ChunkMeshCornerTable corners, int x, int y, int z, int grassColor, int foliageColor) {
+        byte block = _chunk.getBlock(x, y, z);
+
+        int tint = mesh.getTintPalette().indexOf(BlockRegistry.getTintColor(block, grassColor, foliageColor));
+        int light = corners.getNeighborhood().getLightValues(ChunkMeshNeighborhood.index(x, y, z));
+
+        mesh.getBillboards().add(x, y, z, block, tint, light);
+    }
+
+    private void generateBlockVertices(ChunkMesh mesh, ChunkMeshCornerTable corners, int x, int y, int z, int grassColor, int foliageColor, boolean greedy) {
+        ChunkMeshNeighborhood neighborhood = corners.getNeighborhood();
         byte block = _chunk.getBlock(x, y, z);
 
         /*
          * Determine the render process.
          */
-        ChunkMesh.RENDER_TYPE renderType = ChunkMesh.RENDER_TYPE.BILLBOARD_AND_TRANSLUCENT;
+        ChunkMesh.RENDER_TYPE renderType = BlockRegistry.getRenderType(block);
 
-        if (!Block.getBlockForType(block).isBlockTypeTranslucent())
-            renderType = ChunkMesh.RENDER_TYPE.OPAQUE;
-        if (Block.getBlockForType(block).getClass().equals(BlockWater.class))
-            renderType = ChunkMesh.RENDER_TYPE.WATER;
-        if (Block.getBlockForType(block).getClass().equals(BlockLava.class))
-            renderType = ChunkMesh.RENDER_TYPE.LAVA;
+        // All faces of normal opaque blocks are generated by the greedy mesher
+        if (greedy && isGreedyFace(block))
+            return;
 
 
         boolean drawFront, drawBack, drawLeft, drawRight, drawTop, drawBottom;
 
-        byte blockToCheck = _chunk.getParent().getBlock(_chunk.getBlockWorldPosX(x), y + 1, _chunk.getBlockWorldPosZ(z));
+        byte blockToCheck = neighborhood.getBlock(x, y + 1, z);
         drawTop = isSideVisibleForBlockTypes(blockToCheck, block);
-        blockToCheck = _chunk.getParent().getBlock(_chunk.getBlockWorldPosX(x), y, _chunk.getBlockWorldPosZ(z - 1));
+        blockToCheck = neighborhood.getBlock(x, y, z - 1);
         drawFront = isSideVisibleForBlockTypes(blockToCheck, block);
-        blockToCheck = _chunk.getParent().getBlock(_chunk.getBlockWorldPosX(x), y, _chunk.getBlockWorldPosZ(z + 1));
+        blockToCheck = neighborhood.getBlock(x, y, z + 1);
         drawBack = isSideVisibleForBlockTypes(blockToCheck, block);
-        blockToCheck = _chunk.getParent().getBlock(_chunk.getBlockWorldPosX(x - 1), y, _chunk.getBlockWorldPosZ(z));
+        blockToCheck = neighborhood.getBlock(x - 1, y, z);
         drawLeft = isSideVisibleForBlockTypes(blockToCheck, block);
-        blockToCheck = _chunk.getParent().getBlock(_chunk.getBlockWorldPosX(x + 1), y, _chunk.getBlockWorldPosZ(z));
+        blockToCheck = neighborhood.getBlock(x + 1, y, z);
         drawRight = isSideVisibleForBlockTypes(blockToCheck, block);
 
         // Don't draw anything "below" the world
         if (y > 0) {
-            blockToCheck = _chunk.getParent().getBlock(_chunk.getBlockWorldPosX(x), y - 1, _chunk.getBlockWorldPosZ(z));
+            blockToCheck = neighborhood.getBlock(x, y - 1, z);
             drawBottom = isSideVisibleForBlockTypes(blockToCheck, block);
         } else {
             drawBottom = false;
         }
 
-        Block.BLOCK_FORM blockForm = Block.getBlockForType(block).getBlockForm();
+        Block.BLOCK_FORM blockForm = BlockRegistry.getForm(block);
 
         // If the block is lowered, some more faces have to be drawn
         if (blockForm == Block.BLOCK_FORM.LOWERED_BOCK) {
-            blockToCheck = _chunk.getParent().getBlock(_chunk.getBlockWorldPosX(x), y - 1, _chunk.getBlockWorldPosZ(z - 1));
+            blockToCheck = neighborhood.getBlock(x, y - 1, z - 1);
             drawFront = isSideVisibleForBlockTypes(blockToCheck, block) || drawFront;
-            blockToCheck = _chunk.getParent().getBlock(_chunk.getBlockWorldPosX(x), y - 1, _chunk.getBlockWorldPosZ(z + 1));
+            blockToCheck = neighborhood.getBlock(x, y - 1, z + 1);
             drawBack = isSideVisibleForBlockTypes(blockToCheck, block) || drawBack;
-            blockToCheck = _chunk.getParent().getBlock(_chunk.getBlockWorldPosX(x - 1), y - 1, _chunk.getBlockWorldPosZ(z));
+            blockToCheck = neighborhood.getBlock(x - 1, y - 1, z);
             drawLeft = isSideVisibleForBlockTypes(blockToCheck, block) || drawLeft;
-            blockToCheck = _chunk.getParent().getBlock(_chunk.getBlockWorldPosX(x + 1), y - 1, _chunk.getBlockWorldPosZ(z));
+            blockToCheck = neighborhood.getBlock(x + 1, y - 1, z);
             drawRight = isSideVisibleForBlockTypes(blockToCheck, block) || drawRight;
         }
 
+        if (!(drawTop || drawFront || drawBack || drawLeft || drawRight || drawBottom))
+            return;
+
+        int tint = mesh.getTintPalette().indexOf(BlockRegistry.getTintColor(block, grassColor, foliageColor));
+
         if (drawTop) {
             Vector3f p1 = new Vector3f(-0.5f, 0.5f, 0.5f);
             Vector3f p2 = new Vector3f(0.5f, 0.5f, 0.5f);
@@ -266,10 +595,8 @@ private void generateBlockVertices(ChunkMesh mesh, int x, int y, int z, double t
 
             Vector3f norm = new Vector3f(0, 1, 0);
 
-            Vector4f colorOffset = Block.getBlockForType(block).getColorOffsetFor(Block.SIDE.FRONT, temp, hum);
-
-            Vector3f texOffset = new Vector3f(Block.getBlockForType(block).getTextureOffsetFor(Block.SIDE.TOP).x, Block.getBlockForType(block).getTextureOffsetFor(Block.SIDE.TOP).y, 0f);
-            generateVerticesForBlockSide(mesh, x, y, z, p1, p2, p3, p4, norm, colorOffset, texOffset, renderType, blockForm);
+            int tile = BlockRegistry.getTextureTile(block, Block.SIDE.TOP);
+            generateVerticesForBlockSide(mesh, corners, x, y, z, p1, p2, p3, p4, norm, tint, tile, renderType, blockForm);
         }
 
         if (drawFront) {
@@ -281,10 +608,8 @@ private void generateBlockVertices(ChunkMesh mesh, int x, int y, int z, double t
 
             Vector3f norm = new Vector3f(0, 0, -1);
 
-            Vector4f colorOffset = Block.getBlockForType(block).getColorOffsetFor(Block.SIDE.FRONT, temp, hum);
-
-            Vector3f texOffset = new Vector3f(Block.getBlockForType(block).getTextureOffsetFor(Block.SIDE.FRONT).x, Block.getBlockForType(block).getTextureOffsetFor(Block.SIDE.FRONT).y, 0f);
-            generateVerticesForBlockSide(mesh, x, y, z, p1, p2, p3, p4, norm, colorOffset, texOffset, renderType, blockForm);
+            int tile = BlockRegistry.getTextureTile(block, Block.SIDE.FRONT);
+            generateVerticesForBlockSide(mesh, corners, x, y, z, p1, p2, p3, p4, norm, tint, tile, renderType, blockForm);
         }
 
         if (drawBack) {
@@ -295,10 +620,8 @@ private void generateBlockVertices(ChunkMesh mesh, int x, int y, int z, double t
 
             Vector3f norm = new Vector3f(0, 0, 1);
 
-            Vector4f colorOffset = Block.getBlockForType(block).getColorOffsetFor(Block.SIDE.FRONT, temp, hum);
-
-            Vector3f texOffset = new Vector3f(Block.getBlockForType(block).getTextureOffsetFor(Block.SIDE.BACK).x, Block.getBlockForType(block).getTextureOffsetFor(Block.SIDE.BACK).y, 0f);
-            generateVerticesForBlockSide(mesh, x, y, z, p1, p2, p3, p4, norm, colorOffset, texOffset, renderType, blockForm);
+            int tile = BlockRegistry.getTextureTile(block, Block.SIDE.BACK);
+            generateVerticesForBlockSide(mesh, corners, x, y, z, p1, p2, p3, p4, norm, tint, tile, renderType, blockForm);
         }
 
         if (drawLeft) {
@@ -309,10 +632,8 @@ private void generateBlockVertices(ChunkMesh mesh, int x, int y, int z, double t
 
             Vector3f norm = new Vector3f(-1, 0, 0);
 
-            Vector4f colorOffset = Block.getBlockForType(block).getColorOffsetFor(Block.SIDE.FRONT, temp, hum);
-
-            Vector3f texOffset = new Vector3f(Block.getBlockForType(block).getTextureOffsetFor(Block.SIDE.LEFT).x, Block.getBlockForType(block).getTextureOffsetFor(Block.SIDE.LEFT).y, 0f);
-            generateVerticesForBlockSide(mesh, x, y, z, p1, p2, p3, p4, norm, colorOffset, texOffset, renderType, blockForm);
+            int tile = BlockRegistry.getTextureTile(block, Block.SIDE.LEFT);
+            generateVerticesForBlockSide(mesh, corners, x, y, z, p1, p2, p3, p4, norm, tint, tile, renderType, blockForm);
         }
 
         if (drawRight) {
@@ -323,10 +644,8 @@ private void generateBlockVertices(ChunkMesh mesh, int x, int y, int z, double t
 
             Vector3f norm = new Vector3f(1, 0, 0);
 
-            Vector4f colorOffset = Block.getBlockForType(block).getColorOffsetFor(Block.SIDE.FRONT, temp, hum);
-
-            Vector3f texOffset = new Vector3f(Block.getBlockForType(block).getTextureOffsetFor(Block.SIDE.RIGHT).x, Block.getBlockForType(block).getTextureOffsetFor(Block.SIDE.RIGHT).y, 0f);
-            generateVerticesForBlockSide(mesh, x, y, z, p1, p2, p3, p4, norm, colorOffset, texOffset, renderType, blockForm);
+            int tile = BlockRegistry.getTextureTile(block, Block.SIDE.RIGHT);
+            generateVerticesForBlockSide(mesh, corners, x, y, z, p1, p2, p3, p4, norm, tint, tile, renderType, blockForm);
         }
 
         if (drawBottom) {
@@ -337,14 +656,12 @@ private void generateBlockVertices(ChunkMesh mesh, int x, int y, int z, double t
 
             Vector3f norm = new Vector3f(0, -1, 0);
 
-            Vector4f colorOffset = Block.getBlockForType(block).getColorOffsetFor(Block.SIDE.FRONT, temp, hum);
-
-            Vector3f texOffset = new Vector3f(Block.getBlockForType(block).getTextureOffsetFor(Block.SIDE.BOTTOM).x, Block.getBlockForType(block).getTextureOffsetFor(Block.SIDE.BOTTOM).y, 0f);
-            generateVerticesForBlockSide(mesh, x, y, z, p1, p2, p3, p4, norm, colorOffset, texOffset, renderType, blockForm);
+            int tile = BlockRegistry.getTextureTile(block, Block.SIDE.BOTTOM);
+            generateVerticesForBlockSide(mesh, corners, x, y, z, p1, p2, p3, p4, norm, tint, tile, renderType, blockForm);
         }
     }
 
-    void generateVerticesForBlockSide(ChunkMesh mesh, int x, int y, int z, Vector3f p1, Vector3f p2, Vector3f p3, Vector3f p4, Vector3f norm, Vector4f colorOffset, Vector3f texOffset, ChunkMesh.RENDER_TYPE renderType, Block.BLOCK_FORM blockForm) {
+    void generateVerticesForBlockSide(ChunkMesh mesh, ChunkMeshCornerTable corners, int x, int y, int z, Vector3f p1, Vector3f p2, Vector3f p3, Vector3f p4, Vector3f norm, int tint, int tile, ChunkMesh.RENDER_TYPE renderType, Block.BLOCK_FORM blockForm) {
         ChunkMesh.VertexElements vertexElements = mesh._vertexElements[0];
 
         switch (renderType) {
@@ -364,33 +681,22 @@ void generateVerticesForBlockSide(ChunkMesh mesh, int x, int y, int z, Vector3f
                 generateCactusSide(p1, p2, p3, p4, norm);
                 break;
             case LOWERED_BOCK:
-                generateLoweredBlock(x, y, z, p1, p2, p3, p4, norm);
+                generateLoweredBlock(corners.getNeighborhood(), x, y, z, p1, p2, p3, p4, norm);
                 break;
         }
 
-        addBlockTextureData(vertexElements, texOffset, norm);
-
-        addBlockVertexData(vertexElements, colorOffset, moveVectorToWorldSpace(x, y, z, p1));
-        addBlockVertexData(vertexElements, colorOffset, moveVectorToWorldSpace(x, y, z, p2));
-        addBlockVertexData(vertexElements, colorOffset, moveVectorToWorldSpace(x, y, z, p3));
-        addBlockVertexData(vertexElements, colorOffset, moveVectorToWorldSpace(x, y, z, p4));
-    }
-
-    private Vector3f moveVectorToWorldSpace(int cPosX, int cPosY, int cPosZ, Vector3f offset) {
-        double offsetX = _chunk.getPosition().x * Configuration.CHUNK_DIMENSIONS.x;
-        double offsetY = _chunk.getPosition().y * Configuration.CHUNK_DIMENSIONS.y;
-        double offsetZ = _chunk.getPosition().z * Configuration.CHUNK_DIMENSIONS.z;
-
-        offset.x += offsetX + cPosX;
-        offset.y += offsetY + cPosY;
-        offset.z += offsetZ + cPosZ;
+        /*
+        * Rotate the texture coordinates according to the
+        * orientation of the plane.
+        */
+        boolean flipped = norm.z == 1 || norm.x == -1;
 
-        return offset;
+        addFace(vertexElements, corners, x, y, z, p1, p2, p3, p4, calcFace(norm), tile, tint, flipped);
     }
 
-    private void generateLoweredBlock(int x, int y, int z, Vector3f p1, Vector3f p2, Vector3f p3, Vector3f p4, Vector3f norm) {
-        byte bottomBlock = _chunk.getParent().getBlock(_chunk.getBlockWorldPosX(x), y - 1, _chunk.getBlockWorldPosZ(z));
-        boolean lowerBottom = Block.getBlockForType(bottomBlock).getBlockForm() == Block.BLOCK_FORM.LOWERED_BOCK || bottomBlock == 0x0;
+    private void generateLoweredBlock(ChunkMeshNeighborhood neighborhood, int x, int y, int z, Vector3f p1, Vector3f p2, Vector3f p3, Vector3f p4, Vector3f norm) {
+        byte bottomBlock = neighborhood.getBlock(x, y - 1, z);
+        boolean lowerBottom = BlockRegistry.getForm(bottomBlock) == Block.BLOCK_FORM.LOWERED_BOCK || bottomBlock == 0x0;
 
         if (norm.x == 1.0f) {
             p1.y -= 0.25;
@@ -454,48 +760,6 @@ private void generateCactusSide(Vector3f p1, Vector3f p2, Vector3f p3, Vector3f
         }
     }
 
-    private void addBlockTextureData(ChunkMesh.VertexElements vertexElements, Vector3f texOffset, Vector3f norm) {
-        /*
-        * Rotate the texture coordinates according to the
-        * orientation of the plane.
-        */
-        if (norm.z == 1 || norm.x == -1) {
-            vertexElements.tex.add(texOffset.x);
-            vertexElements.tex.add(texOffset.y + 0.0624f);
-
-            vertexElements.tex.add(texOffset.x + 0.0624f);
-            vertexElements.tex.add(texOffset.y + 0.0624f);
-
-            vertexElements.tex.add(texOffset.x + 0.0624f);
-            vertexElements.tex.add(texOffset.y);
-
-            vertexElements.tex.add(texOffset.x);
-            vertexElements.tex.add(texOffset.y);
-        } else {
-            vertexElements.tex.add(texOffset.x);
-            vertexElements.tex.add(texOffset.y);
-
-            vertexElements.tex.add(texOffset.x + 0.0624f);
-            vertexElements.tex.add(texOffset.y);
-
-            vertexElements.tex.add(texOffset.x + 0.0624f);
-            vertexElements.tex.add(texOffset.y + 0.0624f);
-
-            vertexElements.tex.add(texOffset.x);
-            vertexElements.tex.add(texOffset.y + 0.0624f);
-        }
-    }
-
-    private void addBlockVertexData(ChunkMesh.VertexElements vertexElements, Vector4f colorOffset, Vector3f vertex) {
-        vertexElements.color.add(colorOffset.x);
-        vertexElements.color.add(colorOffset.y);
-        vertexElements.color.add(colorOffset.z);
-        vertexElements.color.add(colorOffset.w);
-        vertexElements.quads.add(vertex.x);
-        vertexElements.quads.add(vertex.y);
-        vertexElements.quads.add(vertex.z);
-    }
-
     /**
      * Returns true if the block side is adjacent to a translucent block or an air
      * block.
@@ -505,9 +769,8 @@ private void addBlockVertexData(ChunkMesh.VertexElements vertexElements, Vector4
      * @return True if the side is visible for the given block types
      */
     private boolean isSideVisibleForBlockTypes(byte blockToCheck, byte currentBlock) {
-        Block bCheck = Block.getBlockForType(blockToCheck);
-        Block cBlock = Block.getBlockForType(currentBlock);
+        int checkFlags = BlockRegistry.getFlags(blockToCheck);
 
-        return bCheck.getClass() == BlockAir.class || cBlock.doNotTessellate() || bCheck.getBlockForm() == Block.BLOCK_FORM.BILLBOARD || (Block.getBlockForType(blockToCheck).isBlockTypeTranslucent() && !Block.getBlockForType(currentBlock).isBlockTypeTranslucent());
+        return (checkFlags & BlockRegistry.AIR) != 0 || BlockRegistry.hasFlags(currentBlock, BlockRegistry.DO_NOT_TESSELLATE) || BlockRegistry.getForm(blockToCheck) == Block.BLOCK_FORM.BILLBOARD || ((checkFlags & BlockRegistry.TRANSLUCENT) != 0 && !BlockRegistry.isTranslucent(currentBlock));
     }
 }
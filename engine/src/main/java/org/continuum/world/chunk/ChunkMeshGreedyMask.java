@@ -0,0 +1,214 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.world.chunk;
+
+import org.continuum.main.Configuration;
+
+import java.util.Arrays;
+
+/**
+ * A two dimensional mask of the visible faces within one slice of a chunk, used to merge adjacent
+ * faces into larger quads. Two faces can be merged if they have the same block type, colour, shape and
+ * the same light and occlusion values at their vertices. Faces are only merged along an axis their light
+ * does not change on, so the merged quad looks exactly like the single faces. Merged quads span at most
+ * {@link #MAX_HEIGHT} faces on the second axis, the largest texture coordinate a vertex can store.
+ * <p/>
+ * Instances are reused for many slices, but must not be shared between threads.
+ */
+final class ChunkMeshGreedyMask {
+
+    private static final int CAPACITY = (int) Math.max(Configuration.CHUNK_DIMENSIONS.x, Configuration.CHUNK_DIMENSIONS.z) * (int) Configuration.CHUNK_DIMENSIONS.y;
+
+    static final int MAX_HEIGHT = 255;
+
+    /**
+     * The height of a block in the units of the shapes of the faces (quarter blocks).
+     */
+    static final int FULL_HEIGHT = 4;
+    /**
+     * The shape of a face covering the whole side of the block.
+     */
+    static final int SHAPE_FULL = calcShape(0, FULL_HEIGHT);
+
+    /*
+     * The axes a face can be merged along, its light does not change on them.
+     */
+    private static final int MERGE_U = 1;
+    private static final int MERGE_V = 2;
+
+    private final byte[] _types = new byte[CAPACITY];
+    private final int[] _tints = new int[CAPACITY];
+    private final int[] _lights = new int[CAPACITY * 4];
+    private final byte[] _mergeAxes = new byte[CAPACITY];
+    private final byte[] _shapes = new byte[CAPACITY];
+
+    private int _width, _height;
+
+    /**
+     * Clears the mask.
+     *
+     * @param width  The size of the slice on the first axis
+     * @param height The size of the slice on the second axis
+     */
+    void reset(int width, int height) {
+        _width = width;
+        _height = height;
+
+        Arrays.fill(_types, 0, width * height, (byte) 0);
+    }
+
+    int getWidth() {
+        return _width;
+    }
+
+    int getHeight() {
+        return _height;
+    }
+
+    /**
+     * Adds a visible face to the mask.
+     *
+     * The vertices are ordered by their texture coordinates: (0, 0), (1, 0), (1, 1) and (0, 1).
+     *
+     * @param u      Position on the first axis
+     * @param v      Position on the second axis
+     * @param type   The block type (not air)
+     * @param tint   The index of the colour of the face within the tint palette
+     * @param light0 The light and occlusion level of the first vertex
+     * @param light1 The light and occlusion level of the second vertex
+     * @param light2 The light and occlusion level of the third vertex
+     * @param light3 The light and occlusion level of the fourth vertex
+     * @param shape  The vertical extent of the face within the block, see {@link #calcShape}
+     */
+    void set(int u, int v, byte type, int tint, int light0, int light1, int light2, int light3, int shape) {
+        int i = v * _width + u;
+
+        _types[i] = type;
+        _tints[i] = tint;
+        _shapes[i] = (byte) shape;
+
+        _lights[i * 4] = light0;
+        _lights[i * 4 + 1] = light1;
+        _lights[i * 4 + 2] = light2;
+        _lights[i * 4 + 3] = light3;
+
+        int axes = 0;
+
+        if (light0 == light1 && light3 == light2)
+            axes |= MERGE_U;
+        if (light0 == light3 && light1 == light2)
+            axes |= MERGE_V;
+
+        _mergeAxes[i] = (byte) axes;
+    }
+
+    /**
+     * Returns the block type of the face at the given position or 0 if there is no face left.
+     */
+    byte getType(int u, int v) {
+        return _types[v * _width + u];
+    }
+
+    /**
+     * Returns the index of the colour of the face at the given position within the tint palette.
+     */
+    int getTint(int u, int v) {
+        return _tints[v * _width + u];
+    }
+
+    /**
+     * Returns the shape of the face at the given position.
+     */
+    int getShape(int u, int v) {
+        return _shapes[v * _width + u];
+    }
+
+    /**
+     * Packs the vertical extent of a face. Side faces of lowered blocks end below the top of the block.
+     *
+     * @param bottom The lower end of the face within the block (0 - {@link #FULL_HEIGHT})
+     * @param top    The upper end of the face within the block (0 - {@link #FULL_HEIGHT})
+     * @return The shape
+     */
+    static int calcShape(int bottom, int top) {
+        return bottom | (top << 3);
+    }
+
+    static int getShapeBottom(int shape) {
+        return shape & 7;
+    }
+
+    static int getShapeTop(int shape) {
+        return shape >> 3;
+    }
+
+    /**
+     * Returns the number of faces starting at the given position along the first axis which can be merged.
+     */
+    int extendWidth(int u, int v) {
+        int first = v * _width + u;
+        int width = 1;
+
+        while (u + width < _width && canMerge(first, first + width, MERGE_U))
+            width++;
+
+        return width;
+    }
+
+    /**
+     * Returns the number of rows of the given width starting at the given position which can be merged.
+     */
+    int extendHeight(int u, int v, int width) {
+        int first = v * _width + u;
+        int height = 1;
+
+        for (; v + height < _height && height < MAX_HEIGHT; height++) {
+            int row = (v + height) * _width + u;
+
+            for (int i = 0; i < width; i++) {
+                if (!canMerge(first, row + i, MERGE_V))
+                    return height;
+            }
+        }
+
+        return height;
+    }
+
+    /**
+     * Removes the faces of a merged quad from the mask.
+     */
+    void clear(int u, int v, int width, int height) {
+        for (int j = v; j < v + height; j++) {
+            Arrays.fill(_types, j * _width + u, j * _width + u + width, (byte) 0);
+        }
+    }
+
+    /**
+     * Returns true if the two faces can be merged along the given axis. Faces with the same light values
+     * can be merged along the same axes.
+     */
+    private boolean canMerge(int a, int b, int axis) {
+        if (_types[b] == 0 || _types[a] != _types[b] || (_mergeAxes[a] & axis) == 0 || _tints[a] != _tints[b] || _shapes[a] != _shapes[b])
+            return false;
+
+        for (int i = 0; i < 4; i++) {
+            if (_lights[a * 4 + i] != _lights[b * 4 + i])
+                return false;
+        }
+
+        return true;
+    }
+}
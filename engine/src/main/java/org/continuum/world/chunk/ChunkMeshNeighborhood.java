@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.world.chunk;
+
+import org.continuum.main.Configuration;
+import org.continuum.world.WorldProvider;
+
+/**
+ * A copy of the block types and light values of a chunk including a border of one block,
+ * taken once before a mesh is generated. The mesh generator reads all neighbours of a block
+ * from these flat arrays instead of looking up the chunks in the world for every access.
+ * <p/>
+ * Positions are local to the chunk and range from -1 to the dimension of the chunk (inclusive).
+ * Instances are reused for many chunks, but must not be shared between threads.
+ */
+final class ChunkMeshNeighborhood {
+
+    static final int SIZE_X = (int) Configuration.CHUNK_DIMENSIONS.x + 2;
+    static final int SIZE_Y = (int) Configuration.CHUNK_DIMENSIONS.y + 2;
+    static final int SIZE_Z = (int) Configuration.CHUNK_DIMENSIONS.z + 2;
+
+    private final byte[] _blocks = new byte[SIZE_X * SIZE_Y * SIZE_Z];
+    private final short[] _lights = new short[SIZE_X * SIZE_Y * SIZE_Z];
+
+    /**
+     * Copies the blocks and light values of the given chunk and the adjacent border of its neighbours
+     * within the given height range (extended by one block on both ends). Positions outside of the
+     * range keep the values of the previous chunk.
+     *
+     * @param chunk The chunk
+     * @param minY  The lowest block position on the y-axis
+     * @param maxY  The highest block position on the y-axis
+     */
+    void fill(Chunk chunk, int minY, int maxY) {
+        WorldProvider parent = chunk.getParent();
+
+        for (int x = -1; x < SIZE_X - 1; x++) {
+            for (int z = -1; z < SIZE_Z - 1; z++) {
+                boolean inside = x >= 0 && z >= 0 && x < SIZE_X - 2 && z < SIZE_Z - 2;
+
+                Chunk c = chunk;
+                int localX = x, localZ = z;
+
+                if (!inside) {
+                    int worldX = chunk.getBlockWorldPosX(x);
+                    int worldZ = chunk.getBlockWorldPosZ(z);
+                    int chunkX = parent.calcChunkPosX(worldX);
+                    int chunkZ = parent.calcChunkPosZ(worldZ);
+
+                    c = parent.getChunkCache().loadOrCreateChunk(chunkX, chunkZ);
+                    localX = parent.calcBlockPosX(worldX, chunkX);
+                    localZ = parent.calcBlockPosZ(worldZ, chunkZ);
+                }
+
+                for (int y = Math.max(minY - 1, -1); y <= Math.min(maxY + 1, SIZE_Y - 2); y++) {
+                    int i = index(x, y, z);
+
+                    _blocks[i] = c.getBlock(localX, y, localZ);
+                    _lights[i] = c.getLightValues(localX, y, localZ);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates a hash of the blocks and light values a mesh of the given height range depends on, which are
+     * the positions within the range extended by one block in all directions.
+     *
+     * @param minY The lowest block position on the y-axis
+     * @param maxY The highest block position on the y-axis
+     * @return The hash
+     */
+    long hash(int minY, int maxY) {
+        long hash = 0xCBF29CE484222325L;
+
+        for (int x = -1; x < SIZE_X - 1; x++) {
+            for (int y = Math.max(minY - 1, -1); y <= Math.min(maxY + 1, SIZE_Y - 2); y++) {
+                for (int z = -1; z < SIZE_Z - 1; z++) {
+                    int i = index(x, y, z);
+
+                    // FNV-1a over the block type and the light values
+                    hash ^= (_blocks[i] & 0xFF) | ((_lights[i] & 0xFFFF) << 8);
+                    hash *= 0x100000001B3L;
+                }
+            }
+        }
+
+        // Spread the influence of the last values to the lower bits
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+
+    static int index(int x, int y, int z) {
+        return ((x + 1) * SIZE_Y + (y + 1)) * SIZE_Z + (z + 1);
+    }
+
+    byte getBlock(int x, int y, int z) {
+        return _blocks[index(x, y, z)];
+    }
+
+    byte getBlock(int index) {
+        return _blocks[index];
+    }
+
+    /**
+     * Returns the combined light values (see {@link Chunk#getLightValues(int, int, int)}).
+     */
+    short getLightValues(int index) {
+        return _lights[index];
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.world.chunk;
+
+import gnu.trove.map.hash.TIntIntHashMap;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The colour offsets used by the vertices of one chunk mesh. Vertices only store the index of their
+ * colour within the palette, the chunk shader looks the colour up in a texture containing the palette.
+ * <p/>
+ * The colours are packed with 8 bits per channel. If a chunk uses more distinct colours than the palette
+ * can hold, the closest colour already contained in the palette is used.
+ * <p/>
+ * Instances are reused for many meshes, but must not be shared between threads.
+ */
+final class ChunkMeshTintPalette {
+
+    static final int CAPACITY = 256;
+
+    private final TIntIntHashMap _indices = new TIntIntHashMap(CAPACITY, 0.5f, 0, -1);
+    private final int[] _colors = new int[CAPACITY];
+    private int _size;
+
+    /**
+     * Returns the index of the given colour, adding it to the palette if necessary.
+     *
+     * @param rgba The colour packed as RGBA (8 bits per channel, red in the highest byte)
+     * @return The index of the colour within the palette
+     */
+    int indexOf(int rgba) {
+        int index = _indices.get(rgba);
+
+        if (index != -1)
+            return index;
+
+        if (_size == CAPACITY)
+            return findClosest(rgba);
+
+        _colors[_size] = rgba;
+        _indices.put(rgba, _size);
+
+        return _size++;
+    }
+
+    /**
+     * Removes all colours.
+     */
+    void reset() {
+        _indices.clear();
+        _size = 0;
+    }
+
+    /**
+     * Writes the palette as RGBA texture data with one texel per colour. Unused entries are transparent black.
+     *
+     * @param buffer The buffer, at least 4 * CAPACITY bytes remaining
+     */
+    void writeTo(ByteBuffer buffer) {
+        int position = buffer.position();
+
+        for (int i = 0; i < CAPACITY; i++) {
+            int color = i < _size ? _colors[i] : 0;
+
+            for (int j = 0; j < 4; j++) {
+                buffer.put(position + i * 4 + j, (byte) (color >>> (24 - j * 8)));
+            }
+        }
+    }
+
+    private int findClosest(int rgba) {
+        int closest = 0, closestDistance = Integer.MAX_VALUE;
+
+        for (int i = 0; i < _size; i++) {
+            int distance = 0;
+
+            for (int shift = 0; shift < 32; shift += 8) {
+                int d = ((rgba >>> shift) & 0xFF) - ((_colors[i] >>> shift) & 0xFF);
+                distance += d * d;
+            }
+
+            if (distance < closestDistance) {
+                closest = i;
+                closestDistance = distance;
+            }
+        }
+
+        return closest;
+    }
+}
@@ -17,7 +17,7 @@
 
 import org.continuum.audio.AudioManager;
 import org.continuum.blocks.Block;
-import org.continuum.blocks.BlockWater;
+import org.continuum.blocks.BlockRegistry;
 import org.continuum.datastructures.AABB;
 import org.continuum.datastructures.BlockPosition;
 import org.continuum.main.Configuration;
@@ -145,7 +145,7 @@ private boolean verticalHitTest(Vector3f origin) {
             byte blockType1 = _parent.getBlockAtPosition(new Vector3f(n.getValue().x, n.getValue().y, n.getValue().z));
             AABB entityAABB = getAABB();
 
-            if (Block.getBlockForType(blockType1).isPenetrable() || !entityAABB.overlaps(Block.AABBForBlockAt(n.getValue().x, n.getValue().y, n.getValue().z)))
+            if (BlockRegistry.isPenetrable(blockType1) || !entityAABB.overlaps(Block.AABBForBlockAt(n.getValue().x, n.getValue().y, n.getValue().z)))
                 continue;
 
             double direction = origin.y - getPosition().y;
@@ -204,7 +204,7 @@ private boolean horizontalHitTest(Vector3f origin) {
             byte blockType = _parent.getBlockAtPosition(new Vector3f(n.getValue().x, n.getValue().y, n.getValue().z));
             AABB blockAABB = Block.AABBForBlockAt(n.getValue().x, n.getValue().y, n.getValue().z);
 
-            if (!Block.getBlockForType(blockType).isPenetrable()) {
+            if (!BlockRegistry.isPenetrable(blockType)) {
                 if (getAABB().overlaps(blockAABB)) {
                     result = true;
 
@@ -364,7 +364,7 @@ protected void updateSwimStatus() {
             byte blockType = _parent.getBlockAtPosition(new Vector3f(n.getValue().x, n.getValue().y, n.getValue().z));
             AABB blockAABB = Block.AABBForBlockAt(n.getValue().x, n.getValue().y, n.getValue().z);
 
-            if (Block.getBlockForType(blockType).getClass().equals(BlockWater.class) && getAABB().overlaps(blockAABB)) {
+            if (BlockRegistry.hasFlags(blockType, BlockRegistry.WATER) && getAABB().overlaps(blockAABB)) {
                 swimming = true;
             }
 
@@ -372,7 +372,7 @@ protected void updateSwimStatus() {
             // Add distance to the near plane
             eyePos.y += 0.25;
 
-            if (Block.getBlockForType(blockType).getClass().equals(BlockWater.class) && blockAABB.contains(eyePos)) {
+            if (BlockRegistry.hasFlags(blockType, BlockRegistry.WATER) && blockAABB.contains(eyePos)) {
                 headUnderWater = true;
             }
         }
@@ -17,10 +17,11 @@
 
 import org.continuum.main.Continuum;
 import org.continuum.rendering.Primitives;
+import org.continuum.rendering.RenderDevice;
+import org.continuum.rendering.RenderDeviceManager;
 import org.continuum.rendering.RenderableObject;
 import org.continuum.rendering.ShaderManager;
 import org.continuum.world.World;
-import org.lwjgl.opengl.GL20;
 import org.lwjgl.util.vector.Vector2f;
 import org.newdawn.slick.util.ResourceLoader;
 
@@ -34,7 +35,7 @@
 public class Clouds implements RenderableObject {
 
     private boolean[][] _clouds;
-    private int _dlClouds = -1;
+    private final int _dlClouds;
 
     private final Vector2f _cloudOffset = new Vector2f(), _windDirection = new Vector2f(0.25f, 0);
     private short _nextWindUpdateInSeconds = 32;
@@ -44,10 +45,9 @@ public class Clouds implements RenderableObject {
 
     public Clouds(World parent) {
         _parent = parent;
-        _dlClouds = glGenLists(1);
 
         generateClouds();
-        generateCloudDisplayList();
+        _dlClouds = RenderDeviceManager.getDevice().compileList(this::generateCloudDisplayList);
     }
 
     private void generateClouds() {
@@ -68,10 +68,9 @@ private void generateClouds() {
     }
 
     /**
-     * Generates the cloud display list.
+     * Issues the commands of the cloud display list.
      */
     private void generateCloudDisplayList() {
-        glNewList(_dlClouds, GL_COMPILE);
         glBegin(GL_QUADS);
 
         int length = _clouds.length;
@@ -89,7 +88,6 @@ private void generateCloudDisplayList() {
         }
 
         glEnd();
-        glEndList();
     }
 
     public void render() {
@@ -98,29 +96,31 @@ public void render() {
             return;
         }
 
-        glEnable(GL_BLEND);
-        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+        RenderDevice device = RenderDeviceManager.getDevice();
+
+        device.enable(GL_BLEND);
+        device.setBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
 
         ShaderManager.getInstance().enableShader("cloud");
-        int daylight = GL20.glGetUniformLocation(ShaderManager.getInstance().getShader("cloud"), "daylight");
-        GL20.glUniform1f(daylight, (float) _parent.getDaylight());
+        int daylight = device.getUniformLocation(ShaderManager.getInstance().getShader("cloud"), "daylight");
+        device.setUniform(daylight, (float) _parent.getDaylight());
 
         // Render two passes: The first one only writes to the depth buffer, the second one to the frame buffer
         for (int i = 0; i < 2; i++) {
             if (i == 0) {
-                glColorMask(false, false, false, false);
+                device.setColorMask(false, false, false, false);
             } else {
-                glColorMask(true, true, true, true);
+                device.setColorMask(true, true, true, true);
             }
 
-            glPushMatrix();
-            glTranslatef(_parent.getPlayer().getPosition().x + _cloudOffset.x, 190f, _parent.getPlayer().getPosition().z + _cloudOffset.y);
-            glCallList(_dlClouds);
-            glPopMatrix();
+            device.pushMatrix();
+            device.translate(_parent.getPlayer().getPosition().x + _cloudOffset.x, 190f, _parent.getPlayer().getPosition().z + _cloudOffset.y);
+            device.callList(_dlClouds);
+            device.popMatrix();
         }
 
         ShaderManager.getInstance().enableShader(null);
-        glDisable(GL_BLEND);
+        device.disable(GL_BLEND);
     }
 
     public void update() {
@@ -0,0 +1,483 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.world.horizon;
+
+import org.continuum.blocks.BlockTintTable;
+import org.continuum.generators.ChunkGeneratorTerrain;
+import org.continuum.generators.TerrainQuery;
+import org.continuum.main.Configuration;
+import org.continuum.rendering.DirectBufferPool;
+import org.continuum.rendering.RenderDevice;
+import org.continuum.rendering.RenderDeviceManager;
+import org.continuum.rendering.RenderableObject;
+import org.continuum.rendering.ShaderManager;
+import org.continuum.world.World;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.lwjgl.opengl.GL11.*;
+
+/**
+ * Renders the terrain beyond the detailed chunks as simplified height fields. The height fields are sampled from the
+ * terrain query, so no blocks have to be generated or kept in memory for the distant terrain.
+ * <p/>
+ * The horizon is divided into tiles of 4x4 chunks. The closest tiles are sampled every two blocks, the resolution
+ * halves with each further band. Cells covered by the detailed chunks are left out; skirts hanging down from the
+ * edges of the tiles and the left out cells hide the cracks between neighbouring tiles and the detailed chunks.
+ * <p/>
+ * The tiles are meshed by the updating thread within the time budget "HORIZON_BUDGET" (in ms per call) and
+ * uploaded by the main thread.
+ */
+public class Horizon implements RenderableObject {
+
+    static final int TILE_CHUNKS = 4;
+    static final int TILE_SIZE = TILE_CHUNKS * (int) Configuration.CHUNK_DIMENSIONS.x;
+
+    private static final int MIN_STEP = 2;
+    private static final int MAX_CELLS = TILE_SIZE / MIN_STEP;
+    /**
+     * One top face, two sides and four skirts per cell at most.
+     */
+    private static final int MAX_QUADS_PER_CELL = 7;
+    private static final int SKIRT_DEPTH = 16;
+    private static final int MAX_UPLOADS_PER_FRAME = 4;
+
+    /* COLORS */
+    private static final int COLOR_WATER = 0x3359B3FF;
+    private static final int COLOR_SAND = 0xD9C78CFF;
+    private static final int COLOR_SNOW = 0xF2F2FAFF;
+    private static final int COLOR_STONE = 0x808080FF;
+    private static final int COLOR_PLAINS = 0x73A640FF;
+    private static final int COLOR_FOREST = 0x407326FF;
+    private static final int STONE_HEIGHT = 110;
+    private static final float SIDE_FACTOR = 0.75f;
+
+    private final World _parent;
+
+    private final ConcurrentHashMap<Long, HorizonTile> _tiles = new ConcurrentHashMap<Long, HorizonTile>();
+    private final ConcurrentLinkedQueue<HorizonTile> _uploadQueue = new ConcurrentLinkedQueue<HorizonTile>();
+    private final ConcurrentLinkedQueue<HorizonTile> _disposeQueue = new ConcurrentLinkedQueue<HorizonTile>();
+
+    /* ONLY ACCESSED BY THE UPDATING THREAD */
+    private final ByteBuffer _vertices = ByteBuffer.allocateDirect(MAX_CELLS * MAX_CELLS * MAX_QUADS_PER_CELL * 4 * HorizonTile.STRIDE).order(ByteOrder.nativeOrder());
+    private final int[] _heights = new int[MAX_CELLS * MAX_CELLS];
+    private final int[] _colors = new int[MAX_CELLS * MAX_CELLS];
+    private int _prevChunkPosX = Integer.MIN_VALUE, _prevChunkPosZ = Integer.MIN_VALUE;
+    private boolean _dirty;
+    private long _ringStart;
+
+    /* STATISTICS */
+    private volatile long _buildTime, _buildCount, _lastRingDuration;
+
+    public Horizon(World parent) {
+        _parent = parent;
+    }
+
+    /**
+     * Returns true if the horizon is enabled.
+     */
+    public static boolean isEnabled() {
+        return Configuration.getSettingBoolean("HORIZON");
+    }
+
+    /**
+     * Returns the radius of the horizon in blocks.
+     */
+    public static double getRadius() {
+        return Configuration.getSettingNumeric("HORIZON_DIST") / 2 * Configuration.CHUNK_DIMENSIONS.x;
+    }
+
+    public void render() {
+        if (!isEnabled() || _parent.getPlayer().isHeadUnderWater())
+            return;
+
+        RenderDevice device = RenderDeviceManager.getDevice();
+
+        ShaderManager.getInstance().enableShader("horizon");
+        int daylight = device.getUniformLocation(ShaderManager.getInstance().getShader("horizon"), "daylight");
+        device.setUniform(daylight, (float) _parent.getDaylight());
+
+        device.disable(GL_CULL_FACE);
+
+        for (HorizonTile tile : _tiles.values()) {
+            tile.render();
+        }
+
+        device.enable(GL_CULL_FACE);
+
+        ShaderManager.getInstance().enableShader(null);
+    }
+
+    /**
+     * Uploads freshly generated tiles and frees the tiles which left the horizon. Has to be called from the main
+     * thread.
+     */
+    public void update() {
+        HorizonTile tile;
+
+        while ((tile = _disposeQueue.poll()) != null) {
+            tile.dispose();
+        }
+
+        for (int i = 0; i < MAX_UPLOADS_PER_FRAME && (tile = _uploadQueue.poll()) != null; ) {
+            if (tile.upload())
+                i++;
+        }
+    }
+
+    /**
+     * Generates the tiles around the player, starting with the closest ones. Returns as soon as the time budget
+     * is exhausted; the remaining tiles are generated by the next calls. Has to be called from the updating thread.
+     */
+    public void updateTiles() {
+        if (!isEnabled())
+            return;
+
+        int chunkPosX = _parent.calcPlayerChunkOffsetX();
+        int chunkPosZ = _parent.calcPlayerChunkOffsetZ();
+
+        int radius = Configuration.getSettingNumeric("HORIZON_DIST").intValue() / 2;
+        int detailX = Configuration.getSettingNumeric("V_DIST_X").intValue() / 2;
+        int detailZ = Configuration.getSettingNumeric("V_DIST_Z").intValue() / 2;
+
+        if (chunkPosX != _prevChunkPosX || chunkPosZ != _prevChunkPosZ) {
+            _prevChunkPosX = chunkPosX;
+            _prevChunkPosZ = chunkPosZ;
+
+            if (!_dirty)
+                _ringStart = System.nanoTime();
+
+            _dirty = true;
+            disposeDistantTiles(chunkPosX, chunkPosZ, radius);
+        }
+
+        if (!_dirty)
+            return;
+
+        long budget = (long) (Configuration.getSettingNumeric("HORIZON_BUDGET") * 1000000);
+        long start = System.nanoTime();
+
+        int centerX = Math.floorDiv(chunkPosX, TILE_CHUNKS);
+        int centerZ = Math.floorDiv(chunkPosZ, TILE_CHUNKS);
+        int tileRadius = radius / TILE_CHUNKS + 1;
+
+        for (int ring = 0; ring <= tileRadius; ring++) {
+            for (int x = -ring; x <= ring; x++) {
+                // Only visit the border of the ring
+                int stepZ = (x == -ring || x == ring) ? 1 : Math.max(1, 2 * ring);
+
+                for (int z = -ring; z <= ring; z += stepZ) {
+                    if (System.nanoTime() - start > budget)
+                        return;
+
+                    updateTile(centerX + x, centerZ + z, chunkPosX, chunkPosZ, radius, detailX, detailZ);
+                }
+            }
+        }
+
+        _dirty = false;
+        _lastRingDuration = (System.nanoTime() - _ringStart) / 1000000;
+    }
+
+    /**
+     * Generates the given tile if its resolution or the area covered by the detailed chunks changed.
+     */
+    private void updateTile(int x, int z, int chunkPosX, int chunkPosZ, int radius, int detailX, int detailZ) {
+        int distance = calcDistance(x, z, chunkPosX, chunkPosZ);
+
+        if (distance >= radius)
+            return;
+
+        // The area covered by the detailed chunks, relative to the tile
+        int chunkSize = (int) Configuration.CHUNK_DIMENSIONS.x;
+        int clipMinX = clamp((chunkPosX - detailX - x * TILE_CHUNKS) * chunkSize);
+        int clipMaxX = clamp((chunkPosX + detailX - x * TILE_CHUNKS) * chunkSize);
+        int clipMinZ = clamp((chunkPosZ - detailZ - z * TILE_CHUNKS) * chunkSize);
+        int clipMaxZ = clamp((chunkPosZ + detailZ - z * TILE_CHUNKS) * chunkSize);
+
+        if (clipMinX >= clipMaxX || clipMinZ >= clipMaxZ) {
+            clipMinX = clipMaxX = clipMinZ = clipMaxZ = 0;
+        } else if (clipMinX == 0 && clipMinZ == 0 && clipMaxX == TILE_SIZE && clipMaxZ == TILE_SIZE) {
+            // Completely covered by the detailed chunks
+            HorizonTile tile = _tiles.remove(calcTileKey(x, z));
+
+            if (tile != null)
+                _disposeQueue.add(tile);
+
+            return;
+        }
+
+        int step = calcStep(distance, Math.max(detailX, detailZ));
+        long key = calcTileKey(x, z);
+
+        HorizonTile tile = _tiles.get(key);
+
+        if (tile == null) {
+            tile = new HorizonTile(x, z);
+            _tiles.put(key, tile);
+        }
+
+        if (tile.isGeneratedFor(step, clipMinX, clipMinZ, clipMaxX, clipMaxZ))
+            return;
+
+        long start = System.nanoTime();
+        generateTile(tile, step, clipMinX, clipMinZ, clipMaxX, clipMaxZ);
+
+        _buildTime += System.nanoTime() - start;
+        _buildCount++;
+
+        _uploadQueue.add(tile);
+    }
+
+    /**
+     * Samples the height field of the given tile and generates its vertices.
+     */
+    private void generateTile(HorizonTile tile, int step, int clipMinX, int clipMinZ, int clipMaxX, int clipMaxZ) {
+        TerrainQuery query = _parent.getTerrainQuery();
+        int cells = TILE_SIZE / step;
+
+        for (int x = 0; x < cells; x++) {
+            for (int z = 0; z < cells; z++) {
+                int i = x * cells + z;
+
+                if (isClipped(x * step, z * step, clipMinX, clipMinZ, clipMaxX, clipMaxZ)) {
+                    _heights[i] = -1;
+                    continue;
+                }
+
+                int worldX = tile.getWorldX() + x * step + step / 2;
+                int worldZ = tile.getWorldZ() + z * step + step / 2;
+                int height = query.getSurfaceHeight(worldX, worldZ) + 1;
+
+                if (height <= TerrainQuery.WATER_LEVEL) {
+                    _heights[i] = TerrainQuery.WATER_LEVEL;
+                    _colors[i] = COLOR_WATER;
+                } else {
+                    _heights[i] = height;
+                    _colors[i] = calcColor(query.getBiome(worldX, worldZ), height);
+                }
+            }
+        }
+
+        ByteBuffer vertices = _vertices;
+        vertices.clear();
+
+        // Top faces, merged along the x-axis
+        for (int z = 0; z < cells; z++) {
+            int x = 0;
+
+            while (x < cells) {
+                int i = x * cells + z;
+
+                if (_heights[i] < 0) {
+                    x++;
+                    continue;
+                }
+
+                int end = x + 1;
+
+                while (end < cells && _heights[end * cells + z] == _heights[i] && _colors[end * cells + z] == _colors[i])
+                    end++;
+
+                float y = _heights[i];
+                addQuad(vertices, _colors[i], x * step, y, z * step, x * step, y, (z + 1) * step, end * step, y, (z + 1) * step, end * step, y, z * step);
+
+                x = end;
+            }
+        }
+
+        // Sides between cells of different heights and skirts along the borders
+        for (int x = 0; x < cells; x++) {
+            for (int z = 0; z < cells; z++) {
+                int i = x * cells + z;
+
+                if (_heights[i] < 0)
+                    continue;
+
+                int sideColor = BlockTintTable.scale(_colors[i], SIDE_FACTOR);
+                float y = _heights[i];
+                float x0 = x * step, x1 = (x + 1) * step, z0 = z * step, z1 = (z + 1) * step;
+
+                int west = x > 0 ? _heights[i - cells] : -1;
+                int east = x < cells - 1 ? _heights[i + cells] : -1;
+                int north = z > 0 ? _heights[i - 1] : -1;
+                int south = z < cells - 1 ? _heights[i + 1] : -1;
+
+                if (west < 0)
+                    addQuad(vertices, sideColor, x0, y, z0, x0, y - SKIRT_DEPTH, z0, x0, y - SKIRT_DEPTH, z1, x0, y, z1);
+                if (north < 0)
+                    addQuad(vertices, sideColor, x0, y, z0, x1, y, z0, x1, y - SKIRT_DEPTH, z0, x0, y - SKIRT_DEPTH, z0);
+
+                if (east < 0) {
+                    addQuad(vertices, sideColor, x1, y, z0, x1, y, z1, x1, y - SKIRT_DEPTH, z1, x1, y - SKIRT_DEPTH, z0);
+                } else if (east < y) {
+                    addQuad(vertices, sideColor, x1, y, z0, x1, y, z1, x1, east, z1, x1, east, z0);
+                } else if (east > y) {
+                    int eastSideColor = BlockTintTable.scale(_colors[i + cells], SIDE_FACTOR);
+                    addQuad(vertices, eastSideColor, x1, east, z0, x1, y, z0, x1, y, z1, x1, east, z1);
+                }
+
+                if (south < 0) {
+                    addQuad(vertices, sideColor, x0, y, z1, x0, y - SKIRT_DEPTH, z1, x1, y - SKIRT_DEPTH, z1, x1, y, z1);
+                } else if (south < y) {
+                    addQuad(vertices, sideColor, x0, y, z1, x0, south, z1, x1, south, z1, x1, y, z1);
+                } else if (south > y) {
+                    int southSideColor = BlockTintTable.scale(_colors[i + 1], SIDE_FACTOR);
+                    addQuad(vertices, southSideColor, x0, south, z1, x1, south, z1, x1, y, z1, x0, y, z1);
+                }
+            }
+        }
+
+        vertices.flip();
+
+        ByteBuffer buffer = DirectBufferPool.getInstance().lease(vertices.limit());
+        buffer.put(vertices);
+        buffer.flip();
+
+        tile.setVertices(buffer, buffer.limit() / HorizonTile.STRIDE, step, clipMinX, clipMinZ, clipMaxX, clipMaxZ);
+    }
+
+    private static void addQuad(ByteBuffer vertices, int color, float x0, float y0, float z0, float x1, float y1, float z1, float x2, float y2, float z2, float x3, float y3, float z3) {
+        addVertex(vertices, color, x0, y0, z0);
+        addVertex(vertices, color, x1, y1, z1);
+        addVertex(vertices, color, x2, y2, z2);
+        addVertex(vertices, color, x3, y3, z3);
+    }
+
+    private static void addVertex(ByteBuffer vertices, int color, float x, float y, float z) {
+        vertices.putFloat(x);
+        vertices.putFloat(y);
+        vertices.putFloat(z);
+        vertices.put((byte) (color >>> 24));
+        vertices.put((byte) (color >>> 16));
+        vertices.put((byte) (color >>> 8));
+        vertices.put((byte) color);
+    }
+
+    /**
+     * Queues the tiles which left the horizon for disposal.
+     */
+    private void disposeDistantTiles(int chunkPosX, int chunkPosZ, int radius) {
+        for (Iterator<HorizonTile> it = _tiles.values().iterator(); it.hasNext(); ) {
+            HorizonTile tile = it.next();
+
+            if (calcDistance(tile.getX(), tile.getZ(), chunkPosX, chunkPosZ) >= radius) {
+                it.remove();
+                _disposeQueue.add(tile);
+            }
+        }
+    }
+
+    /**
+     * Frees all tiles. Has to be called from the main thread after the updating thread was stopped.
+     */
+    public void dispose() {
+        _disposeQueue.addAll(_tiles.values());
+        _tiles.clear();
+        _uploadQueue.clear();
+
+        HorizonTile tile;
+
+        while ((tile = _disposeQueue.poll()) != null) {
+            tile.dispose();
+        }
+    }
+
+    /**
+     * Returns the distance in chunks between the chunk of the player and the closest chunk of the given tile.
+     */
+    private static int calcDistance(int x, int z, int chunkPosX, int chunkPosZ) {
+        int distanceX = Math.max(0, Math.max(x * TILE_CHUNKS - chunkPosX, chunkPosX - (x * TILE_CHUNKS + TILE_CHUNKS - 1)));
+        int distanceZ = Math.max(0, Math.max(z * TILE_CHUNKS - chunkPosZ, chunkPosZ - (z * TILE_CHUNKS + TILE_CHUNKS - 1)));
+
+        return Math.max(distanceX, distanceZ);
+    }
+
+    /**
+     * Returns the distance between two samples for a tile at the given distance (in chunks).
+     */
+    private static int calcStep(int distance, int detail) {
+        if (distance < detail * 2)
+            return MIN_STEP;
+        if (distance < detail * 3)
+            return MIN_STEP * 2;
+
+        return MIN_STEP * 4;
+    }
+
+    private static int calcColor(ChunkGeneratorTerrain.BIOME_TYPE biome, int height) {
+        switch (biome) {
+            case DESERT:
+                return COLOR_SAND;
+            case SNOW:
+                return COLOR_SNOW;
+            case MOUNTAINS:
+                return height > STONE_HEIGHT ? COLOR_STONE : COLOR_PLAINS;
+            case FOREST:
+                return COLOR_FOREST;
+            default:
+                return COLOR_PLAINS;
+        }
+    }
+
+    private static boolean isClipped(int x, int z, int clipMinX, int clipMinZ, int clipMaxX, int clipMaxZ) {
+        return x >= clipMinX && x < clipMaxX && z >= clipMinZ && z < clipMaxZ;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(TILE_SIZE, value));
+    }
+
+    private static long calcTileKey(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    public int getTileCount() {
+        return _tiles.size();
+    }
+
+    /**
+     * Returns the amount of bytes occupied by the uploaded vertices of all tiles.
+     */
+    public long getBytes() {
+        long bytes = 0;
+
+        for (HorizonTile tile : _tiles.values()) {
+            bytes += tile.getBytes();
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Returns the average time needed to generate a tile in ms.
+     */
+    public double getAverageBuildTime() {
+        long count = _buildCount;
+        return count > 0 ? _buildTime / (double) count / 1000000d : 0;
+    }
+
+    /**
+     * Returns the time in ms it took to bring all tiles up to date after the player last entered a new chunk.
+     */
+    public long getLastRingDuration() {
+        return _lastRingDuration;
+    }
+}
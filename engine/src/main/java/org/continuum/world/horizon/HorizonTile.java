@@ -0,0 +1,191 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.world.horizon;
+
+import org.continuum.rendering.DirectBufferPool;
+import org.continuum.rendering.RenderDevice;
+import org.continuum.rendering.RenderDeviceManager;
+import org.continuum.rendering.VBOManager;
+import org.lwjgl.opengl.GL15;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+
+/**
+ * A square of 4x4 chunks of the distant horizon, meshed from the terrain height query at a reduced resolution.
+ * <p/>
+ * The vertices are generated by the updating thread and uploaded by the main thread. A tile keeps the state it was
+ * generated for, so it is only meshed again if the resolution or the area covered by the detailed chunks changes.
+ */
+final class HorizonTile {
+
+    /**
+     * Position (float x, y, z) and colour (RGBA as unsigned bytes).
+     */
+    static final int STRIDE = 16;
+    static final int OFFSET_COLOR = 12;
+
+    private final int _x, _z;
+
+    /* STATE THE VERTICES WERE GENERATED FOR */
+    private int _step = -1;
+    private int _clipMinX, _clipMinZ, _clipMaxX, _clipMaxZ;
+
+    /* VERTICES WAITING FOR THE UPLOAD */
+    private ByteBuffer _pendingVertices;
+    private int _pendingVertexCount;
+
+    /* UPLOADED VERTICES */
+    private int _vbo = -1;
+    private int _vertexCount, _bytes;
+
+    private boolean _disposed;
+
+    /**
+     * @param x Position of the tile on the x-axis (in tiles)
+     * @param z Position of the tile on the z-axis (in tiles)
+     */
+    HorizonTile(int x, int z) {
+        _x = x;
+        _z = z;
+    }
+
+    /**
+     * Returns true if the vertices of this tile were generated for the given resolution and clipping rectangle.
+     */
+    boolean isGeneratedFor(int step, int clipMinX, int clipMinZ, int clipMaxX, int clipMaxZ) {
+        return _step == step && _clipMinX == clipMinX && _clipMinZ == clipMinZ && _clipMaxX == clipMaxX && _clipMaxZ == clipMaxZ;
+    }
+
+    /**
+     * Sets the freshly generated vertices. Vertices which were not uploaded yet are discarded.
+     *
+     * @param vertices    Leased buffer holding the vertices
+     * @param vertexCount The amount of vertices
+     */
+    synchronized void setVertices(ByteBuffer vertices, int vertexCount, int step, int clipMinX, int clipMinZ, int clipMaxX, int clipMaxZ) {
+        if (_disposed) {
+            DirectBufferPool.getInstance().release(vertices);
+            return;
+        }
+
+        if (_pendingVertices != null) {
+            DirectBufferPool.getInstance().release(_pendingVertices);
+        }
+
+        _pendingVertices = vertices;
+        _pendingVertexCount = vertexCount;
+
+        _step = step;
+        _clipMinX = clipMinX;
+        _clipMinZ = clipMinZ;
+        _clipMaxX = clipMaxX;
+        _clipMaxZ = clipMaxZ;
+    }
+
+    /**
+     * Uploads the pending vertices to the graphics card. Has to be called from the main thread.
+     *
+     * @return True if vertices were uploaded
+     */
+    synchronized boolean upload() {
+        if (_pendingVertices == null || _disposed)
+            return false;
+
+        if (_vbo == -1)
+            _vbo = VBOManager.getInstance().getVboId();
+
+        VBOManager.getInstance().bufferVboData(_vbo, _pendingVertices, GL15.GL_STATIC_DRAW);
+
+        _vertexCount = _pendingVertexCount;
+        _bytes = _pendingVertices.limit();
+
+        DirectBufferPool.getInstance().release(_pendingVertices);
+        _pendingVertices = null;
+
+        return true;
+    }
+
+    /**
+     * Renders the uploaded vertices. The horizon shader has to be enabled.
+     */
+    void render() {
+        if (_vertexCount == 0)
+            return;
+
+        RenderDevice device = RenderDeviceManager.getDevice();
+
+        device.pushMatrix();
+        device.translate(getWorldX(), 0, getWorldZ());
+
+        device.enableClientState(GL_VERTEX_ARRAY);
+        device.enableClientState(GL_COLOR_ARRAY);
+
+        device.bindVertexBuffer(_vbo);
+
+        device.setVertexPointer(3, GL_FLOAT, STRIDE, 0);
+        device.setColorPointer(4, GL_UNSIGNED_BYTE, STRIDE, OFFSET_COLOR);
+
+        device.drawArrays(GL_QUADS, 0, _vertexCount);
+
+        device.bindVertexBuffer(0);
+
+        device.disableClientState(GL_COLOR_ARRAY);
+        device.disableClientState(GL_VERTEX_ARRAY);
+
+        device.popMatrix();
+    }
+
+    /**
+     * Frees the vertex buffer object and the pending vertices. Has to be called from the main thread.
+     */
+    synchronized void dispose() {
+        if (_pendingVertices != null) {
+            DirectBufferPool.getInstance().release(_pendingVertices);
+            _pendingVertices = null;
+        }
+
+        VBOManager.getInstance().putVboId(_vbo);
+        _vbo = -1;
+        _vertexCount = 0;
+        _bytes = 0;
+        _disposed = true;
+    }
+
+    int getX() {
+        return _x;
+    }
+
+    int getZ() {
+        return _z;
+    }
+
+    int getWorldX() {
+        return _x * Horizon.TILE_SIZE;
+    }
+
+    int getWorldZ() {
+        return _z * Horizon.TILE_SIZE;
+    }
+
+    /**
+     * Returns the amount of bytes occupied by the uploaded vertices.
+     */
+    int getBytes() {
+        return _bytes;
+    }
+}
@@ -16,10 +16,11 @@
 package org.continuum.world.horizon;
 
 import org.continuum.generators.ChunkGeneratorTerrain;
+import org.continuum.rendering.RenderDeviceManager;
+import org.continuum.rendering.RenderDevice;
 import org.continuum.rendering.RenderableObject;
 import org.continuum.rendering.ShaderManager;
 import org.continuum.world.World;
-import org.lwjgl.opengl.GL20;
 import org.lwjgl.util.glu.Sphere;
 import org.lwjgl.util.vector.Vector3f;
 import org.lwjgl.util.vector.Vector4f;
@@ -31,23 +32,28 @@ public class Skysphere implements RenderableObject {
     private static final float PI = 3.1415926f;
     /* SKY */
     private float _turbidity = 10.0f, _sunPosAngle = 0.1f;
-    private Sphere _sphere = new Sphere();
+    private final int _dlSphere;
     private Vector3f _zenithColor = new Vector3f();
 
     private World _parent;
 
     public Skysphere(World parent) {
         _parent = parent;
+
+        Sphere sphere = new Sphere();
+        _dlSphere = RenderDeviceManager.getDevice().compileList(() -> sphere.draw(22, 80, 80));
     }
 
     public void render() {
         if (_parent.getPlayer().isHeadUnderWater() || !(_parent.getTime() >= 0.0f && _parent.getTime() <= 0.6))
             return;
 
+        RenderDevice device = RenderDeviceManager.getDevice();
+
         _parent.getPlayer().applyNormalizedModelViewMatrix();
 
-        glDisable(GL_CULL_FACE);
-        glDisable(GL_DEPTH_TEST);
+        device.disable(GL_CULL_FACE);
+        device.disable(GL_DEPTH_TEST);
 
         //float sunPosInRadians = (float)Math.toRadians(180*(_time-0.075));
         _sunPosAngle = 5.3f * (float) _parent.getTime() - 1.4f;
@@ -58,23 +64,23 @@ public void render() {
 
         ShaderManager.getInstance().enableShader("sky");
 
-        int sunPos = GL20.glGetUniformLocation(ShaderManager.getInstance().getShader("sky"), "sunPos");
-        GL20.glUniform4f(sunPos, 0.0f, (float) Math.cos(_sunPosAngle), (float) Math.sin(_sunPosAngle), 1.0f);
+        int sunPos = device.getUniformLocation(ShaderManager.getInstance().getShader("sky"), "sunPos");
+        device.setUniform(sunPos, 0.0f, (float) Math.cos(_sunPosAngle), (float) Math.sin(_sunPosAngle), 1.0f);
 
-        int turbidity = GL20.glGetUniformLocation(ShaderManager.getInstance().getShader("sky"), "turbidity");
-        GL20.glUniform1f(turbidity, _turbidity);
+        int turbidity = device.getUniformLocation(ShaderManager.getInstance().getShader("sky"), "turbidity");
+        device.setUniform(turbidity, _turbidity);
 
-        int zenith = GL20.glGetUniformLocation(ShaderManager.getInstance().getShader("sky"), "zenith");
-        GL20.glUniform3f(zenith, _zenithColor.x, _zenithColor.y, _zenithColor.z);
+        int zenith = device.getUniformLocation(ShaderManager.getInstance().getShader("sky"), "zenith");
+        device.setUniform(zenith, _zenithColor.x, _zenithColor.y, _zenithColor.z);
 
-        glPushMatrix();
-        _sphere.draw(22, 80, 80);
-        glPopMatrix();
+        device.pushMatrix();
+        device.callList(_dlSphere);
+        device.popMatrix();
 
         ShaderManager.getInstance().enableShader(null);
 
-        glEnable(GL_CULL_FACE);
-        glEnable(GL_DEPTH_TEST);
+        device.enable(GL_CULL_FACE);
+        device.enable(GL_DEPTH_TEST);
     }
 
     public void addToSunAngle(float addVolume) {
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.world.light;
+
+/**
+ * Helpers for light values with three colour channels packed into 12 bits: Red is stored in the
+ * lowest, blue in the highest nibble. The sunlight uses the same format with only the lowest
+ * channel set, so both light types share one propagation code path.
+ * <p/>
+ * All channels are processed at once using bit-parallel arithmetic on the packed values. The
+ * lanes are 4 bits wide without spare bits, so comparisons work on the lower three bits of all
+ * lanes first and fix up the results using the highest bit of each lane.
+ */
+public final class LightColor {
+
+    public static final int MAX_CHANNEL = 15;
+    public static final int WHITE = 0xFFF;
+
+    private static final int HIGH_BITS = 0x888;
+    private static final int LOW_BITS = 0x777;
+    private static final int LOWEST_BITS = 0x111;
+
+    private LightColor() {
+    }
+
+    public static int pack(int red, int green, int blue) {
+        return (red & 0xF) | ((green & 0xF) << 4) | ((blue & 0xF) << 8);
+    }
+
+    public static int getRed(int color) {
+        return color & 0xF;
+    }
+
+    public static int getGreen(int color) {
+        return (color >> 4) & 0xF;
+    }
+
+    public static int getBlue(int color) {
+        return (color >> 8) & 0xF;
+    }
+
+    /**
+     * Returns a white light with the given intensity in all channels.
+     *
+     * @param intensity The intensity
+     * @return The packed light value
+     */
+    public static int fromIntensity(int intensity) {
+        return (intensity & 0xF) * LOWEST_BITS;
+    }
+
+    /**
+     * Returns the intensity of the brightest channel.
+     *
+     * @param color The packed light value
+     * @return The intensity
+     */
+    public static int getIntensity(int color) {
+        return Math.max(color & 0xF, Math.max((color >> 4) & 0xF, (color >> 8) & 0xF));
+    }
+
+    /**
+     * Returns a mask with all bits of the channels set which are not zero.
+     */
+    public static int nonZeroMask(int color) {
+        int nonZero = ((((color & LOW_BITS) + LOW_BITS) | color) & HIGH_BITS) >> 3;
+        return nonZero * 0xF;
+    }
+
+    /**
+     * Decrements all channels by one, channels which are already zero stay zero.
+     *
+     * @param color The packed light value
+     * @return The decremented light value
+     */
+    public static int decrement(int color) {
+        return color - (((((color & LOW_BITS) + LOW_BITS) | color) & HIGH_BITS) >> 3);
+    }
+
+    /**
+     * Returns a mask with all bits of the channels set in which a is greater than b.
+     *
+     * @param a The first packed light value
+     * @param b The second packed light value
+     * @return The channel mask
+     */
+    public static int greaterMask(int a, int b) {
+        /*
+         * Compare the lower three bits (bit three of the difference is set if a >= b), then
+         * let the highest bits decide where they differ. Inverting the result of b >= a yields a > b.
+         */
+        int geLow = ((b | HIGH_BITS) - (a & LOW_BITS)) & HIGH_BITS;
+        int ge = ((geLow & ~(a ^ b)) | (b & ~a)) & HIGH_BITS;
+
+        return ((~ge & HIGH_BITS) >> 3) * 0xF;
+    }
+
+    /**
+     * Returns the channel-wise maximum of two light values.
+     *
+     * @param a The first packed light value
+     * @param b The second packed light value
+     * @return The brightest channels of both values
+     */
+    public static int max(int a, int b) {
+        int mask = greaterMask(a, b);
+        return (a & mask) | (b & ~mask);
+    }
+}
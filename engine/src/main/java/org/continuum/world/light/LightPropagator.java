@@ -0,0 +1,653 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.world.light;
+
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.set.hash.TLongHashSet;
+import javolution.util.FastList;
+import org.continuum.blocks.BlockRegistry;
+import org.continuum.datastructures.BlockmaniaLightArray;
+import org.continuum.datastructures.LongQueue;
+import org.continuum.main.Configuration;
+import org.continuum.world.WorldProvider;
+import org.continuum.world.chunk.Chunk;
+
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * Iterative light propagation using a breadth-first search.
+ * <p/>
+ * Light nodes are stored as packed world positions in two flat FIFO queues: One for
+ * spreading light (increase) and one for removing light (decrease). The removal pass
+ * re-queues all brighter neighbors it encounters, so that the following increase pass
+ * fills the gaps again.
+ * <p/>
+ * Light values are packed colours (see {@link LightColor}): The block light has a red, green and blue
+ * channel, the sunlight only uses the lowest one. All channels are propagated within the same pass,
+ * comparisons, maxima and decrements work on all channels of a packed value at once.
+ * <p/>
+ * Light values are written without marking single blocks dirty. The touched chunks are
+ * collected and invalidated once after the propagation finished.
+ * <p/>
+ * Bulk edits can be wrapped in a batch ({@link #beginBatch()}, {@link #endBatch()}). Block changes
+ * within a batch are only recorded, once the batch is closed each affected column is relit once
+ * and a single propagation pass runs for each light type.
+ * <p/>
+ * The initial light of a chunk is calculated in two phases which can run for many chunks in parallel:
+ * {@link #propagateWithinChunk(Chunk, Chunk.LIGHT_TYPE)} only touches the arrays of a single chunk,
+ * {@link #exchangeBorders(Chunk, Chunk.LIGHT_TYPE)} pushes the light across the faces of the chunk while
+ * holding the light locks of the surrounding chunks.
+ * <p/>
+ * All passes writing into more than one chunk lock the 3x3 chunk neighborhoods they touch, always in
+ * the same order (see {@link #CHUNK_ORDER}). Light can travel at most 15 blocks, so it never leaves the
+ * neighborhood of the chunk it started in.
+ * <p/>
+ * Batches closed outside of the light workers are handed over to the {@link LightScheduler} of the world.
+ * <p/>
+ * A propagator is not thread-safe. Use {@link WorldProvider#getLightPropagator()} to obtain
+ * the instance of the current thread.
+ */
+public class LightPropagator {
+
+    private static final int[] DIR_X = {1, -1, 0, 0, 0, 0};
+    private static final int[] DIR_Y = {0, 0, 1, -1, 0, 0};
+    private static final int[] DIR_Z = {0, 0, 0, 0, 1, -1};
+
+    private static final int CHUNK_SIZE_X = (int) Configuration.CHUNK_DIMENSIONS.x;
+    private static final int CHUNK_SIZE_Y = (int) Configuration.CHUNK_DIMENSIONS.y;
+    private static final int CHUNK_SIZE_Z = (int) Configuration.CHUNK_DIMENSIONS.z;
+
+    /**
+     * The canonical order the light locks of chunks are acquired in.
+     */
+    private static final Comparator<Chunk> CHUNK_ORDER = new Comparator<Chunk>() {
+        public int compare(Chunk a, Chunk b) {
+            int result = Float.compare(a.getPosition().x, b.getPosition().x);
+            return result != 0 ? result : Float.compare(a.getPosition().z, b.getPosition().z);
+        }
+    };
+
+    private final WorldProvider _parent;
+
+    private final LongQueue _increaseQueue = new LongQueue();
+    private final LongQueue _decreaseQueue = new LongQueue();
+
+    /* CHUNK LOOKUP */
+    private Chunk _chunk;
+    private int _chunkX, _chunkZ, _touchedIndex;
+
+    /* TOUCHED CHUNKS */
+    private final FastList<Chunk> _touchedChunks = new FastList<Chunk>();
+    private final TIntArrayList _touchedEdges = new TIntArrayList();
+    private final TIntArrayList _touchedSections = new TIntArrayList();
+
+    /* BATCHING */
+    private int _batchDepth;
+    private final TLongHashSet _batchColumns = new TLongHashSet();
+    private final TLongHashSet _batchBlocks = new TLongHashSet();
+
+    /**
+     * @param parent The world the light is propagated in
+     */
+    public LightPropagator(WorldProvider parent) {
+        _parent = parent;
+    }
+
+    /**
+     * Opens a batch. Batches can be nested, the light is updated when the outermost batch is closed.
+     */
+    public void beginBatch() {
+        _batchDepth++;
+    }
+
+    /**
+     * Closes a batch. If this was the outermost batch, the light of all recorded block changes is updated.
+     */
+    public void endBatch() {
+        if (_batchDepth <= 0)
+            throw new IllegalStateException("No light batch open.");
+
+        if (--_batchDepth > 0)
+            return;
+
+        LightScheduler scheduler = _parent.getLightScheduler();
+
+        // Hand the batch over to the light workers, unless this already is one of them
+        if (scheduler != null && !LightScheduler.isWorkerThread()) {
+            scheduler.scheduleBlockChanges(_batchBlocks.toArray());
+
+            _batchColumns.clear();
+            _batchBlocks.clear();
+            return;
+        }
+
+        updateBatch();
+    }
+
+    /**
+     * Updates the light of the given changed blocks as one batch.
+     *
+     * @param blocks The packed positions of the changed blocks
+     */
+    void updateBlockChanges(long[] blocks) {
+        beginBatch();
+
+        for (long block : blocks) {
+            queueBlockChange(unpackX(block), unpackY(block), unpackZ(block));
+        }
+
+        endBatch();
+    }
+
+    /**
+     * Records a changed block. The light around the block is updated when the current batch is closed.
+     *
+     * @param x World position on the x-axis
+     * @param y World position on the y-axis
+     * @param z World position on the z-axis
+     */
+    public void queueBlockChange(int x, int y, int z) {
+        if (_batchDepth <= 0)
+            throw new IllegalStateException("No light batch open.");
+
+        _batchColumns.add(pack(x, 0, z, 0));
+        _batchBlocks.add(pack(x, y, z, 0));
+    }
+
+    /**
+     * Updates the light of all recorded block changes. Each affected column is relit once and
+     * one propagation pass is executed per light type.
+     */
+    private void updateBatch() {
+        if (_batchBlocks.isEmpty())
+            return;
+
+        TLongHashSet chunkPositions = new TLongHashSet();
+
+        for (TLongIterator it = _batchColumns.iterator(); it.hasNext(); ) {
+            long column = it.next();
+            int chunkX = _parent.calcChunkPosX(unpackX(column));
+            int chunkZ = _parent.calcChunkPosZ(unpackZ(column));
+
+            for (int x = -1; x <= 1; x++) {
+                for (int z = -1; z <= 1; z++) {
+                    chunkPositions.add(pack(chunkX + x, 0, chunkZ + z, 0));
+                }
+            }
+        }
+
+        FastList<Chunk> chunks = new FastList<Chunk>();
+
+        for (TLongIterator it = chunkPositions.iterator(); it.hasNext(); ) {
+            long pos = it.next();
+            chunks.add(_parent.getChunkCache().loadOrCreateChunk(unpackX(pos), unpackZ(pos)));
+        }
+
+        lockChunks(chunks);
+
+        try {
+            relightBatch();
+        } finally {
+            unlockChunks(chunks);
+
+            _batchColumns.clear();
+            _batchBlocks.clear();
+        }
+    }
+
+    private void relightBatch() {
+        /*
+         * Sunlight: Recompute the columns and let the light of the surrounding blocks flow into removed blocks.
+         */
+        for (TLongIterator it = _batchColumns.iterator(); it.hasNext(); ) {
+            long column = it.next();
+            int x = unpackX(column), z = unpackZ(column);
+
+            Chunk c = getChunk(x, z);
+            c.refreshSunlightAtLocalPos(x - _chunkX * CHUNK_SIZE_X, z - _chunkZ * CHUNK_SIZE_Z, true);
+        }
+
+        for (TLongIterator it = _batchBlocks.iterator(); it.hasNext(); ) {
+            long block = it.next();
+            int x = unpackX(block), y = unpackY(block), z = unpackZ(block);
+
+            if (BlockRegistry.isTranslucent(getBlock(x, y, z)))
+                queueNeighbors(x, y, z, Chunk.LIGHT_TYPE.SUN);
+        }
+
+        propagate(Chunk.LIGHT_TYPE.SUN);
+
+        /*
+         * Block light: Remove the light of the previous blocks and add the light of the new blocks.
+         */
+        for (TLongIterator it = _batchBlocks.iterator(); it.hasNext(); ) {
+            long block = it.next();
+            removeLight(unpackX(block), unpackY(block), unpackZ(block), Chunk.LIGHT_TYPE.BLOCK);
+        }
+
+        for (TLongIterator it = _batchBlocks.iterator(); it.hasNext(); ) {
+            long block = it.next();
+            int x = unpackX(block), y = unpackY(block), z = unpackZ(block);
+
+            byte type = getBlock(x, y, z);
+            int lightColor = BlockRegistry.getLightColor(type);
+
+            if (lightColor != 0) {
+                addLight(x, y, z, lightColor, Chunk.LIGHT_TYPE.BLOCK);
+            } else if (BlockRegistry.isTranslucent(type)) {
+                queueNeighbors(x, y, z, Chunk.LIGHT_TYPE.BLOCK);
+            }
+        }
+
+        propagate(Chunk.LIGHT_TYPE.BLOCK);
+    }
+
+    /**
+     * Phase one of the initial lighting: Spreads the light of all lit blocks of the chunk within
+     * the chunk. Only the arrays of the given chunk are accessed.
+     *
+     * @param c    The chunk
+     * @param type The type of the light
+     */
+    public void propagateWithinChunk(Chunk c, Chunk.LIGHT_TYPE type) {
+        c.getLightLock().lock();
+
+        try {
+            for (int y = 0; y < CHUNK_SIZE_Y; y++) {
+                // Implicitly sunlit sections can only spread light into the section below
+                if (c.isImplicitlySunlit(y) && (y % BlockmaniaLightArray.SECTION_HEIGHT != 0 || y == 0 || c.isImplicitlySunlit(y - 1)))
+                    continue;
+
+                for (int x = 0; x < CHUNK_SIZE_X; x++) {
+                    for (int z = 0; z < CHUNK_SIZE_Z; z++) {
+                        if (LightColor.decrement(c.getLightValue(x, y, z, type)) != 0 && BlockRegistry.isTranslucent(c.getBlock(x, y, z))) {
+                            _increaseQueue.add(pack(x, y, z, 0));
+                        }
+                    }
+                }
+            }
+
+            while (!_increaseQueue.isEmpty()) {
+                long node = _increaseQueue.poll();
+
+                int x = unpackX(node), y = unpackY(node), z = unpackZ(node);
+                int newValue = LightColor.decrement(c.getLightValue(x, y, z, type));
+
+                if (newValue == 0)
+                    continue;
+
+                for (int i = 0; i < 6; i++) {
+                    int nX = x + DIR_X[i], nY = y + DIR_Y[i], nZ = z + DIR_Z[i];
+
+                    if (nX < 0 || nX >= CHUNK_SIZE_X || nY < 0 || nY >= CHUNK_SIZE_Y || nZ < 0 || nZ >= CHUNK_SIZE_Z)
+                        continue;
+
+                    int neighborValue = c.getLightValue(nX, nY, nZ, type);
+
+                    if (LightColor.greaterMask(newValue, neighborValue) != 0 && BlockRegistry.isTranslucent(c.getBlock(nX, nY, nZ))) {
+                        c.setLightRaw(nX, nY, nZ, LightColor.max(neighborValue, newValue), type);
+                        _increaseQueue.add(pack(nX, nY, nZ, 0));
+                    }
+                }
+            }
+        } finally {
+            c.getLightLock().unlock();
+        }
+
+        c.markDirty(0);
+    }
+
+    /**
+     * Phase two of the initial lighting: Pushes the light across the four faces of the chunk in
+     * both directions and spreads it within the surrounding chunks.
+     *
+     * @param c    The chunk
+     * @param type The type of the light
+     */
+    public void exchangeBorders(Chunk c, Chunk.LIGHT_TYPE type) {
+        int chunkX = (int) c.getPosition().x;
+        int chunkZ = (int) c.getPosition().z;
+
+        FastList<Chunk> chunks = new FastList<Chunk>();
+
+        for (int x = -1; x <= 1; x++) {
+            for (int z = -1; z <= 1; z++) {
+                chunks.add(_parent.getChunkCache().loadOrCreateChunk(chunkX + x, chunkZ + z));
+            }
+        }
+
+        lockChunks(chunks);
+
+        try {
+            int minX = c.getBlockWorldPosX(0), maxX = minX + CHUNK_SIZE_X - 1;
+            int minZ = c.getBlockWorldPosZ(0), maxZ = minZ + CHUNK_SIZE_Z - 1;
+
+            Chunk[] faceNeighbors = {getChunk(minX - 1, minZ), getChunk(maxX + 1, minZ), getChunk(minX, minZ - 1), getChunk(minX, maxZ + 1)};
+
+            for (int y = 0; y < CHUNK_SIZE_Y; y++) {
+                boolean implicit = c.isImplicitlySunlit(y);
+
+                // Sections exposed to the sky on both sides have nothing to exchange
+                if (!(implicit && faceNeighbors[0].isImplicitlySunlit(y))) {
+                    for (int z = minZ; z <= maxZ; z++) {
+                        exchange(minX, y, z, minX - 1, z, type);
+                    }
+                }
+
+                if (!(implicit && faceNeighbors[1].isImplicitlySunlit(y))) {
+                    for (int z = minZ; z <= maxZ; z++) {
+                        exchange(maxX, y, z, maxX + 1, z, type);
+                    }
+                }
+
+                if (!(implicit && faceNeighbors[2].isImplicitlySunlit(y))) {
+                    for (int x = minX; x <= maxX; x++) {
+                        exchange(x, y, minZ, x, minZ - 1, type);
+                    }
+                }
+
+                if (!(implicit && faceNeighbors[3].isImplicitlySunlit(y))) {
+                    for (int x = minX; x <= maxX; x++) {
+                        exchange(x, y, maxZ, x, maxZ + 1, type);
+                    }
+                }
+            }
+
+            propagate(type);
+        } finally {
+            unlockChunks(chunks);
+        }
+    }
+
+    /**
+     * Moves the light between two adjacent blocks in all channels in which one of them is brighter
+     * than the other could spread. Different channels can flow in different directions.
+     */
+    private void exchange(int x1, int y, int z1, int x2, int z2, Chunk.LIGHT_TYPE type) {
+        int value1 = getLight(x1, y, z1, type);
+        int value2 = getLight(x2, y, z2, type);
+
+        int spread1 = LightColor.decrement(value1);
+        int spread2 = LightColor.decrement(value2);
+
+        if (LightColor.greaterMask(spread1, value2) != 0 && BlockRegistry.isTranslucent(getBlock(x2, y, z2))) {
+            setLight(x2, y, z2, LightColor.max(value2, spread1), type);
+            queueIncrease(x2, y, z2);
+        }
+
+        if (LightColor.greaterMask(spread2, value1) != 0 && BlockRegistry.isTranslucent(getBlock(x1, y, z1))) {
+            setLight(x1, y, z1, LightColor.max(value1, spread2), type);
+            queueIncrease(x1, y, z1);
+        }
+    }
+
+    private static void lockChunks(FastList<Chunk> chunks) {
+        Collections.sort(chunks, CHUNK_ORDER);
+
+        for (Chunk c : chunks) {
+            c.getLightLock().lock();
+        }
+    }
+
+    private static void unlockChunks(FastList<Chunk> chunks) {
+        for (Chunk c : chunks) {
+            c.getLightLock().unlock();
+        }
+    }
+
+    /**
+     * Queues a lit block. Its current light value is spread during the next propagation.
+     *
+     * @param x World position on the x-axis
+     * @param y World position on the y-axis
+     * @param z World position on the z-axis
+     */
+    public void queueIncrease(int x, int y, int z) {
+        _increaseQueue.add(pack(x, y, z, 0));
+    }
+
+    /**
+     * Queues the removal of light around a block which was already set to a darker value.
+     *
+     * @param x        World position on the x-axis
+     * @param y        World position on the y-axis
+     * @param z        World position on the z-axis
+     * @param oldValue The packed light value of the block before it was darkened
+     */
+    public void queueDecrease(int x, int y, int z, int oldValue) {
+        _decreaseQueue.add(pack(x, y, z, oldValue));
+    }
+
+    /**
+     * Queues all lit neighbors of a block, so that their light flows into the block.
+     *
+     * @param x    World position on the x-axis
+     * @param y    World position on the y-axis
+     * @param z    World position on the z-axis
+     * @param type The type of the light
+     */
+    public void queueNeighbors(int x, int y, int z, Chunk.LIGHT_TYPE type) {
+        for (int i = 0; i < 6; i++) {
+            int nY = y + DIR_Y[i];
+
+            if (nY < 0 || nY >= CHUNK_SIZE_Y)
+                continue;
+
+            if (LightColor.decrement(getLight(x + DIR_X[i], nY, z + DIR_Z[i], type)) != 0)
+                queueIncrease(x + DIR_X[i], nY, z + DIR_Z[i]);
+        }
+    }
+
+    /**
+     * Adds a light value and queues it for spreading if it is brighter than the current value in any channel.
+     *
+     * @param x     World position on the x-axis
+     * @param y     World position on the y-axis
+     * @param z     World position on the z-axis
+     * @param value The packed light value
+     * @param type  The type of the light
+     */
+    public void addLight(int x, int y, int z, int value, Chunk.LIGHT_TYPE type) {
+        int oldValue = getLight(x, y, z, type);
+
+        if (LightColor.greaterMask(value, oldValue) == 0)
+            return;
+
+        setLight(x, y, z, LightColor.max(oldValue, value), type);
+        queueIncrease(x, y, z);
+    }
+
+    /**
+     * Removes the light at the given position and queues the removal for the surrounding blocks.
+     *
+     * @param x    World position on the x-axis
+     * @param y    World position on the y-axis
+     * @param z    World position on the z-axis
+     * @param type The type of the light
+     */
+    public void removeLight(int x, int y, int z, Chunk.LIGHT_TYPE type) {
+        int oldValue = getLight(x, y, z, type);
+
+        if (oldValue == 0)
+            return;
+
+        setLight(x, y, z, 0, type);
+        queueDecrease(x, y, z, oldValue);
+    }
+
+    /**
+     * Processes all queued nodes. All nodes have to be of the given light type.
+     *
+     * @param type The type of the light
+     */
+    public void propagate(Chunk.LIGHT_TYPE type) {
+        while (!_decreaseQueue.isEmpty()) {
+            long node = _decreaseQueue.poll();
+
+            int x = unpackX(node), y = unpackY(node), z = unpackZ(node);
+            int value = unpackValue(node);
+            int valueMask = LightColor.nonZeroMask(value);
+
+            for (int i = 0; i < 6; i++) {
+                int nX = x + DIR_X[i], nY = y + DIR_Y[i], nZ = z + DIR_Z[i];
+
+                if (nY < 0 || nY >= CHUNK_SIZE_Y)
+                    continue;
+
+                int neighborValue = getLight(nX, nY, nZ, type);
+
+                if (neighborValue == 0)
+                    continue;
+
+                // Channels darker than the removed light might have been lit by it
+                int removed = neighborValue & LightColor.greaterMask(value, neighborValue);
+
+                if (removed != 0) {
+                    int remaining = neighborValue & ~removed;
+
+                    setLight(nX, nY, nZ, remaining, type);
+                    _decreaseQueue.add(pack(nX, nY, nZ, removed));
+
+                    // Light sources stay lit
+                    if (type == Chunk.LIGHT_TYPE.BLOCK) {
+                        int emitted = BlockRegistry.getLightColor(getBlock(nX, nY, nZ));
+
+                        if (emitted != 0) {
+                            setLight(nX, nY, nZ, LightColor.max(remaining, emitted), type);
+                            queueIncrease(nX, nY, nZ);
+                        }
+                    }
+                }
+
+                // The other channels are lit by another source, fill the gap from there
+                if ((neighborValue & ~removed & valueMask) != 0)
+                    queueIncrease(nX, nY, nZ);
+            }
+        }
+
+        while (!_increaseQueue.isEmpty()) {
+            long node = _increaseQueue.poll();
+
+            int x = unpackX(node), y = unpackY(node), z = unpackZ(node);
+            int newValue = LightColor.decrement(getLight(x, y, z, type));
+
+            if (newValue == 0)
+                continue;
+
+            for (int i = 0; i < 6; i++) {
+                int nX = x + DIR_X[i], nY = y + DIR_Y[i], nZ = z + DIR_Z[i];
+
+                if (nY < 0 || nY >= CHUNK_SIZE_Y)
+                    continue;
+
+                int neighborValue = getLight(nX, nY, nZ, type);
+
+                if (LightColor.greaterMask(newValue, neighborValue) != 0 && BlockRegistry.isTranslucent(getBlock(nX, nY, nZ))) {
+                    setLight(nX, nY, nZ, LightColor.max(neighborValue, newValue), type);
+                    queueIncrease(nX, nY, nZ);
+                }
+            }
+        }
+
+        invalidateTouchedChunks();
+    }
+
+    private void invalidateTouchedChunks() {
+        for (int i = 0; i < _touchedChunks.size(); i++) {
+            _touchedChunks.get(i).markDirty(_touchedEdges.get(i), _touchedSections.get(i));
+        }
+
+        _touchedChunks.clear();
+        _touchedEdges.resetQuick();
+        _touchedSections.resetQuick();
+
+        // Chunks might get disposed until the next propagation
+        _chunk = null;
+    }
+
+    private Chunk getChunk(int x, int z) {
+        int chunkX = _parent.calcChunkPosX(x);
+        int chunkZ = _parent.calcChunkPosZ(z);
+
+        if (_chunk == null || chunkX != _chunkX || chunkZ != _chunkZ) {
+            _chunk = _parent.getChunkCache().loadOrCreateChunk(chunkX, chunkZ);
+            _chunkX = chunkX;
+            _chunkZ = chunkZ;
+            _touchedIndex = _touchedChunks.indexOf(_chunk);
+        }
+
+        return _chunk;
+    }
+
+    private byte getBlock(int x, int y, int z) {
+        Chunk c = getChunk(x, z);
+        return c.getBlock(x - _chunkX * CHUNK_SIZE_X, y, z - _chunkZ * CHUNK_SIZE_Z);
+    }
+
+    private int getLight(int x, int y, int z, Chunk.LIGHT_TYPE type) {
+        Chunk c = getChunk(x, z);
+
+        // Chunks without terrain have not been lit yet; their implicit sections must not leak sunlight
+        if (c.isFresh())
+            return 0;
+
+        return c.getLightValue(x - _chunkX * CHUNK_SIZE_X, y, z - _chunkZ * CHUNK_SIZE_Z, type);
+    }
+
+    private void setLight(int x, int y, int z, int value, Chunk.LIGHT_TYPE type) {
+        Chunk c = getChunk(x, z);
+
+        int localX = x - _chunkX * CHUNK_SIZE_X;
+        int localZ = z - _chunkZ * CHUNK_SIZE_Z;
+
+        c.setLightRaw(localX, y, localZ, value, type);
+
+        if (_touchedIndex < 0) {
+            _touchedIndex = _touchedChunks.size();
+            _touchedChunks.add(c);
+            _touchedEdges.add(0);
+            _touchedSections.add(0);
+        }
+
+        _touchedEdges.set(_touchedIndex, _touchedEdges.get(_touchedIndex) | Chunk.calcEdgeMask(localX, localZ));
+        _touchedSections.set(_touchedIndex, _touchedSections.get(_touchedIndex) | Chunk.calcSectionMask(y));
+    }
+
+    /**
+     * Packs a node: 22 bits for the x and z axis each, 8 bits for the height and 12 bits for the packed light value.
+     */
+    private static long pack(int x, int y, int z, int value) {
+        return ((long) x << 42) | ((z & 0x3FFFFFL) << 20) | ((y & 0xFF) << 12) | (value & 0xFFF);
+    }
+
+    static int unpackX(long node) {
+        return (int) (node >> 42);
+    }
+
+    static int unpackY(long node) {
+        return (int) ((node >> 12) & 0xFF);
+    }
+
+    static int unpackZ(long node) {
+        return (int) ((node << 22) >> 42);
+    }
+
+    private static int unpackValue(long node) {
+        return (int) (node & 0xFFF);
+    }
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.world.light;
+
+import gnu.trove.list.array.TLongArrayList;
+import javolution.util.FastList;
+import javolution.util.FastSet;
+import org.continuum.main.Configuration;
+import org.continuum.main.Continuum;
+import org.continuum.world.WorldProvider;
+import org.continuum.world.chunk.Chunk;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.logging.Level;
+
+/**
+ * Runs light jobs on dedicated worker threads so that neither the main thread nor the
+ * chunk update threads have to run long light propagations.
+ * <p/>
+ * Each job is tagged with a world position. Workers always pick the pending job closest
+ * to the current origin (usually the player). The pending jobs are kept in a heap keyed by
+ * their distance to the origin, the keys are refreshed once the origin moved by a chunk.
+ * Jobs whose chunk was evicted from the cache in the meantime are dropped.
+ * <p/>
+ * While a job is pending, the chunks it may touch report {@link Chunk#hasPendingLightJobs()},
+ * which holds back their mesh generation until the light is complete.
+ */
+public final class LightScheduler {
+
+    private static final int MAX_THREADS = Math.max(Runtime.getRuntime().availableProcessors() / 2, 1);
+    private static final ThreadLocal<Boolean> _workerThread = ThreadLocal.withInitial(() -> false);
+
+    /**
+     * A unit of light work.
+     */
+    private abstract static class LightJob implements Comparable<LightJob> {
+        final Chunk chunk;
+        final int x, z;
+        final FastList<Chunk> affectedChunks;
+        final boolean initialLight;
+
+        /**
+         * The squared distance to the origin the queue is currently keyed by.
+         */
+        long distance;
+
+        LightJob(Chunk chunk, int x, int z, FastList<Chunk> affectedChunks, boolean initialLight) {
+            this.chunk = chunk;
+            this.initialLight = initialLight;
+            this.x = x;
+            this.z = z;
+            this.affectedChunks = affectedChunks;
+        }
+
+        abstract void run(LightPropagator propagator);
+
+        void updateDistance(int originX, int originZ) {
+            long dx = x - originX;
+            long dz = z - originZ;
+            distance = dx * dx + dz * dz;
+        }
+
+        public int compareTo(LightJob o) {
+            return Long.compare(distance, o.distance);
+        }
+    }
+
+    private final WorldProvider _parent;
+
+    private final Object _lock = new Object();
+    private PriorityQueue<LightJob> _jobs = new PriorityQueue<LightJob>();
+    private final FastSet<Chunk> _chunksQueuedForLight = new FastSet<Chunk>();
+
+    private volatile int _originX, _originZ;
+    private int _keyedOriginX, _keyedOriginZ;
+    private volatile boolean _running = true;
+
+    /**
+     * @param parent The world the light jobs are executed in
+     */
+    public LightScheduler(WorldProvider parent) {
+        _parent = parent;
+
+        for (int i = 0; i < MAX_THREADS; i++) {
+            Thread worker = new Thread(new Runnable() {
+                public void run() {
+                    _workerThread.set(true);
+                    processJobs();
+                }
+            }, "Light Worker " + i);
+
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * Returns true if the current thread is one of the light workers.
+     *
+     * @return True for light worker threads
+     */
+    public static boolean isWorkerThread() {
+        return _workerThread.get();
+    }
+
+    /**
+     * Runs the given task on the calling thread as if it were a light worker, so the light batches it closes are
+     * updated right away. Lets the tests time the light updates.
+     *
+     * @param task The task to run
+     */
+    static void runAsWorker(Runnable task) {
+        boolean worker = _workerThread.get();
+        _workerThread.set(true);
+
+        try {
+            task.run();
+        } finally {
+            _workerThread.set(worker);
+        }
+    }
+
+    /**
+     * Sets the position the jobs are prioritized by.
+     *
+     * @param x World position on the x-axis
+     * @param z World position on the z-axis
+     */
+    public void setOrigin(int x, int z) {
+        _originX = x;
+        _originZ = z;
+    }
+
+    /**
+     * Queues the initial light calculation of the given chunk. Chunks which are already queued are ignored.
+     *
+     * @param c The chunk
+     */
+    public void scheduleChunkLight(final Chunk c) {
+        synchronized (_lock) {
+            if (!_running || !_chunksQueuedForLight.add(c)) {
+                return;
+            }
+        }
+
+        int x = c.getBlockWorldPosX((int) Configuration.CHUNK_DIMENSIONS.x / 2);
+        int z = c.getBlockWorldPosZ((int) Configuration.CHUNK_DIMENSIONS.z / 2);
+
+        submit(new LightJob(c, x, z, collectNeighborhood((int) c.getPosition().x, (int) c.getPosition().z, null), true) {
+            @Override
+            void run(LightPropagator propagator) {
+                // Drop the job if the chunk was evicted in the meantime
+                if (chunk.isCached()) {
+                    chunk.updateLight();
+                }
+            }
+        });
+    }
+
+    /**
+     * Queues the light update for a batch of changed blocks.
+     *
+     * @param blocks The changed blocks, packed like the nodes of the {@link LightPropagator}
+     */
+    void scheduleBlockChanges(final long[] blocks) {
+        if (blocks.length == 0) {
+            return;
+        }
+
+        FastList<Chunk> affectedChunks = new FastList<Chunk>();
+
+        int lastChunkX = Integer.MIN_VALUE, lastChunkZ = Integer.MIN_VALUE;
+
+        for (long block : blocks) {
+            int chunkX = _parent.calcChunkPosX(LightPropagator.unpackX(block));
+            int chunkZ = _parent.calcChunkPosZ(LightPropagator.unpackZ(block));
+
+            // Large edits mostly consist of runs of blocks within the same chunk
+            if (chunkX == lastChunkX && chunkZ == lastChunkZ) {
+                continue;
+            }
+
+            lastChunkX = chunkX;
+            lastChunkZ = chunkZ;
+            collectNeighborhood(chunkX, chunkZ, affectedChunks);
+        }
+
+        int x = LightPropagator.unpackX(blocks[0]);
+        int z = LightPropagator.unpackZ(blocks[0]);
+        Chunk c = _parent.getChunkCache().loadOrCreateChunk(_parent.calcChunkPosX(x), _parent.calcChunkPosZ(z));
+
+        submit(new LightJob(c, x, z, affectedChunks, false) {
+            @Override
+            void run(LightPropagator propagator) {
+                propagator.updateBlockChanges(retainCachedBlocks(blocks, affectedChunks));
+            }
+        });
+    }
+
+    /**
+     * Removes the blocks of chunks which were evicted since the job was queued, their changes left with the chunk.
+     * The cached chunks around a removed block are marked light dirty, so their light is calculated again.
+     *
+     * @param blocks         The changed blocks
+     * @param affectedChunks The chunks around the changed blocks
+     * @return The blocks within cached chunks
+     */
+    private long[] retainCachedBlocks(long[] blocks, FastList<Chunk> affectedChunks) {
+        TLongArrayList retained = null;
+        Chunk c = null;
+
+        for (int i = 0; i < blocks.length; i++) {
+            int chunkX = _parent.calcChunkPosX(LightPropagator.unpackX(blocks[i]));
+            int chunkZ = _parent.calcChunkPosZ(LightPropagator.unpackZ(blocks[i]));
+
+            if (c == null || (int) c.getPosition().x != chunkX || (int) c.getPosition().z != chunkZ) {
+                c = findChunk(affectedChunks, chunkX, chunkZ);
+            }
+
+            if (c != null && c.isCached()) {
+                if (retained != null) {
+                    retained.add(blocks[i]);
+                }
+
+                continue;
+            }
+
+            if (retained == null) {
+                retained = new TLongArrayList(blocks.length);
+                retained.add(blocks, 0, i);
+            }
+
+            for (Chunk neighbor : affectedChunks) {
+                if (neighbor.isCached() && Math.abs((int) neighbor.getPosition().x - chunkX) <= 1 && Math.abs((int) neighbor.getPosition().z - chunkZ) <= 1) {
+                    neighbor.setLightDirty(true);
+                }
+            }
+        }
+
+        return retained != null ? retained.toArray() : blocks;
+    }
+
+    private static Chunk findChunk(FastList<Chunk> chunks, int chunkX, int chunkZ) {
+        for (Chunk c : chunks) {
+            if ((int) c.getPosition().x == chunkX && (int) c.getPosition().z == chunkZ) {
+                return c;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the amount of pending jobs.
+     *
+     * @return The amount of pending jobs
+     */
+    public int size() {
+        synchronized (_lock) {
+            return _jobs.size();
+        }
+    }
+
+    /**
+     * Stops the workers. Pending jobs are discarded.
+     */
+    public void shutdown() {
+        synchronized (_lock) {
+            _running = false;
+
+            while (!_jobs.isEmpty()) {
+                finish(_jobs.poll());
+            }
+
+            _lock.notifyAll();
+        }
+    }
+
+    private void submit(LightJob job) {
+        for (Chunk c : job.affectedChunks) {
+            c.addPendingLightJob();
+        }
+
+        synchronized (_lock) {
+            if (!_running) {
+                finish(job);
+                return;
+            }
+
+            job.updateDistance(_keyedOriginX, _keyedOriginZ);
+            _jobs.add(job);
+            _lock.notify();
+        }
+    }
+
+    private void processJobs() {
+        LightPropagator propagator = _parent.getLightPropagator();
+
+        while (true) {
+            LightJob job = takeNearestJob();
+
+            if (job == null) {
+                return;
+            }
+
+            try {
+                job.run(propagator);
+            } catch (RuntimeException e) {
+                Continuum.getInstance().getLogger().log(Level.SEVERE, "Light job failed.", e);
+            } finally {
+                synchronized (_lock) {
+                    finish(job);
+                }
+            }
+        }
+    }
+
+    private LightJob takeNearestJob() {
+        synchronized (_lock) {
+            while (_jobs.isEmpty()) {
+                if (!_running) {
+                    return null;
+                }
+
+                try {
+                    _lock.wait();
+                } catch (InterruptedException e) {
+                    return null;
+                }
+            }
+
+            if (!_running) {
+                return null;
+            }
+
+            int originX = _originX, originZ = _originZ;
+
+            if (Math.abs(originX - _keyedOriginX) >= Configuration.CHUNK_DIMENSIONS.x || Math.abs(originZ - _keyedOriginZ) >= Configuration.CHUNK_DIMENSIONS.z) {
+                rekeyJobs(originX, originZ);
+            }
+
+            return _jobs.poll();
+        }
+    }
+
+    /**
+     * Refreshes the distances of all pending jobs and rebuilds the heap. Has to be called while holding the job lock.
+     */
+    private void rekeyJobs(int originX, int originZ) {
+        _keyedOriginX = originX;
+        _keyedOriginZ = originZ;
+
+        for (LightJob job : _jobs) {
+            job.updateDistance(originX, originZ);
+        }
+
+        // Heapifying the unordered jobs takes linear time (a queue passed directly would keep its old order)
+        _jobs = new PriorityQueue<LightJob>(Arrays.asList(_jobs.toArray(new LightJob[_jobs.size()])));
+    }
+
+    /**
+     * Releases the chunks held back by the given job. Has to be called while holding the job lock.
+     */
+    private void finish(LightJob job) {
+        if (job.initialLight) {
+            _chunksQueuedForLight.remove(job.chunk);
+        }
+
+        for (Chunk c : job.affectedChunks) {
+            c.removePendingLightJob();
+        }
+    }
+
+    private FastList<Chunk> collectNeighborhood(int chunkX, int chunkZ, FastList<Chunk> chunks) {
+        if (chunks == null) {
+            chunks = new FastList<Chunk>();
+        }
+
+        for (int x = -1; x <= 1; x++) {
+            for (int z = -1; z <= 1; z++) {
+                Chunk c = _parent.getChunkCache().loadOrCreateChunk(chunkX + x, chunkZ + z);
+
+                if (!chunks.contains(c)) {
+                    chunks.add(c);
+                }
+            }
+        }
+
+        return chunks;
+    }
+}
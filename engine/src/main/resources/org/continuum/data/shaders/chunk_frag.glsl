@@ -1,12 +1,18 @@
 #version 120
 
 uniform sampler2D textureAtlas;
+uniform sampler2D tintPalette;
 uniform float daylight = 1.0;
 uniform int swimming = 0;
 uniform float animationOffset = 0;
 uniform int animationType = 0;
 
 varying float fog;
+varying float sunlight;
+varying vec3 blocklightColor;
+varying vec2 texTile;
+varying vec2 texLocal;
+varying float tintIndex;
 varying vec3 normal;
 
 vec4 srgbToLinear(vec4 color){
@@ -18,7 +24,8 @@ vec4 linearToSrgb(vec4 color){
 }
 
 void main(){
-    vec4 texCoord = gl_TexCoord[0];
+    // The texture is repeated for each face of a merged quad
+    vec4 texCoord = vec4((floor(texTile + 0.5) + fract(texLocal) * 0.9984) * 0.0625, 0.0, 1.0);
 
     // TEXTURE ANIMATION
     if (animationType == 1) {
@@ -34,24 +41,21 @@ void main(){
     if (color.a < 0.1)
         discard;
 
-    color.rgb *= gl_Color.rgb;
-    color.a *= gl_Color.a;
+    vec4 tint = texture2D(tintPalette, vec2((floor(tintIndex + 0.5) + 0.5) / 256.0, 0.5));
 
-    vec2 lightCoord = vec2(gl_TexCoord[1]);
+    color.rgb *= tint.rgb;
+    color.a *= tint.a;
 
-    float daylightValue = clamp(daylight + 0.4, 0.0, 1.0) * pow(0.82, (1.0-lightCoord.x)*15.0);
-
-    float blocklightValue = lightCoord.y;
+    float daylightValue = clamp(daylight + 0.4, 0.0, 1.0) * pow(0.82, (1.0-sunlight)*15.0);
 
     vec3 daylightColorValue = vec3(daylightValue);
-    vec3 blocklightColorValue = vec3(blocklightValue);
+    vec3 blocklightColorValue = blocklightColor;
 
     blocklightColorValue = clamp(blocklightColorValue,0.0,1.0);
     daylightColorValue = clamp(daylightColorValue, 0.0, 1.0);
 
-    blocklightColorValue.x *= 1.5;
-    blocklightColorValue.y *= 1.3;
-    blocklightColorValue.z *= 0.6;
+    // The colour of the block light is emitted by the light sources
+    blocklightColorValue *= 1.5;
 
     color.xyz *= daylightColorValue + blocklightColorValue * (1.0-daylightValue);
 
@@ -1,6 +1,14 @@
 #version 120
 
+// The brightness of a vertex is reduced by this amount per occluding block
+uniform float occlusionAmount = 0.0625;
+
 varying float fog;
+varying float sunlight;
+varying vec3 blocklightColor;
+varying vec2 texTile;
+varying vec2 texLocal;
+varying float tintIndex;
 
 float fogEyeRadial(vec4 eyePos) {
     return length(eyePos / eyePos.w);
@@ -8,13 +16,27 @@ float fogEyeRadial(vec4 eyePos) {
 
 void main()
 {
-	gl_Position = gl_ModelViewProjectionMatrix * gl_Vertex;
+    // The position within the chunk, the light is packed into the fourth component (see ChunkMesh)
+    vec4 position = vec4(gl_Vertex.xyz, 1.0);
+
+    float light = gl_Vertex.w < 0.0 ? gl_Vertex.w + 65536.0 : gl_Vertex.w;
+    vec4 lightNibbles = mod(floor(light / vec4(1.0, 16.0, 256.0, 4096.0)), 16.0);
+
+    // Texture, colour and occlusion are stored as unsigned bytes
+    vec4 attributes = floor(gl_Color * 255.0 + 0.5);
+    float occlusionLevel = floor(attributes.z / 32.0);
+    float occlusion = 1.0 - occlusionLevel * occlusionAmount;
+
+    texTile = vec2(mod(attributes.x, 16.0), floor(attributes.x / 16.0));
+    texLocal = vec2(attributes.z - occlusionLevel * 32.0, attributes.w);
+    tintIndex = attributes.y;
+
+    sunlight = lightNibbles.x / 15.0 * occlusion;
+    blocklightColor = lightNibbles.yzw / 15.0 * occlusion;
 
-	gl_TexCoord[0] = gl_MultiTexCoord0;
-    gl_TexCoord[1] = gl_MultiTexCoord1;
-    gl_FrontColor = gl_Color;
+	gl_Position = gl_ModelViewProjectionMatrix * position;
 
-    gl_FogFragCoord = fogEyeRadial(gl_ModelViewMatrix  * gl_Vertex);
+    gl_FogFragCoord = fogEyeRadial(gl_ModelViewMatrix * position);
 
     float fogScale = 1.0 / (gl_Fog.end - gl_Fog.start);
     fog = (gl_Fog.end - gl_FogFragCoord) * fogScale;
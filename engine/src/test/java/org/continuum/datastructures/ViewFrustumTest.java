@@ -0,0 +1,145 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.datastructures;
+
+import org.continuum.rendering.NullRenderDevice;
+import org.continuum.rendering.RenderDevice;
+import org.continuum.rendering.RenderDeviceManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.util.vector.Vector3f;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.lwjgl.opengl.GL11.GL_MODELVIEW;
+import static org.lwjgl.opengl.GL11.GL_PROJECTION;
+
+/**
+ * Tests the box tests of the view frustum against testing all eight corners of the boxes.
+ */
+public class ViewFrustumTest {
+
+    private static final int VIEWS = 100;
+    private static final int BOXES = 500;
+
+    private final Random _random = new Random(42);
+    private final ViewFrustum _frustum = new ViewFrustum();
+
+    @Before
+    public void setUp() {
+        RenderDevice device = new NullRenderDevice();
+        RenderDeviceManager.setDevice(device);
+
+        device.setMatrixMode(GL_PROJECTION);
+        device.loadIdentity();
+        device.perspective(80.0f, 16f / 9f, 0.1f, 1024f);
+        device.setMatrixMode(GL_MODELVIEW);
+        device.loadIdentity();
+    }
+
+    @Test
+    public void testFrustumOrientation() {
+        lookAt(0, 64, 0, 0, 64, 1);
+
+        assertTrue(_frustum.intersects(0, 64, 10));
+        assertTrue(_frustum.intersects(5, 60, 100));
+        assertFalse(_frustum.intersects(0, 64, -10));
+        assertFalse(_frustum.intersects(0, 64, 2000));
+        assertFalse(_frustum.intersects(100, 64, 10));
+    }
+
+    @Test
+    public void testClassify() {
+        for (int view = 0; view < VIEWS; view++) {
+            lookAtRandom();
+
+            for (int i = 0; i < BOXES; i++) {
+                double[] box = randomBox();
+                int planeMask = _random.nextBoolean() ? ViewFrustum.ALL_PLANES : _random.nextInt(ViewFrustum.ALL_PLANES + 1);
+
+                assertEquals(classifyCorners(box, planeMask), _frustum.classify(box[0], box[1], box[2], box[3], box[4], box[5], planeMask));
+            }
+        }
+    }
+
+    @Test
+    public void testIntersects() {
+        for (int view = 0; view < VIEWS; view++) {
+            lookAtRandom();
+
+            for (int i = 0; i < BOXES; i++) {
+                double[] box = randomBox();
+                Vector3f dimensions = new Vector3f((float) (box[3] - box[0]) / 2f, (float) (box[4] - box[1]) / 2f, (float) (box[5] - box[2]) / 2f);
+                Vector3f position = new Vector3f((float) box[0] + dimensions.x, (float) box[1] + dimensions.y, (float) box[2] + dimensions.z);
+
+                assertEquals(classifyCorners(box, ViewFrustum.ALL_PLANES) >= 0, _frustum.intersects(new AABB(position, dimensions)));
+            }
+        }
+    }
+
+    /**
+     * Classifies a box by testing all eight corners against each plane.
+     */
+    private int classifyCorners(double[] box, int planeMask) {
+        for (int i = 0; i < 6; i++) {
+            if ((planeMask & (1 << i)) == 0)
+                continue;
+
+            FrustumPlane plane = _frustum.getPlane(i);
+            int cornersInside = 0;
+
+            for (int corner = 0; corner < 8; corner++) {
+                double x = box[(corner & 1) == 0 ? 0 : 3];
+                double y = box[(corner & 2) == 0 ? 1 : 4];
+                double z = box[(corner & 4) == 0 ? 2 : 5];
+
+                if (plane.getA() * x + plane.getB() * y + plane.getC() * z + plane.getD() > 0)
+                    cornersInside++;
+            }
+
+            if (cornersInside == 0)
+                return -1;
+            if (cornersInside == 8)
+                planeMask &= ~(1 << i);
+        }
+
+        return planeMask;
+    }
+
+    /**
+     * Returns a box with integer bounds like the bounds of the chunks (min x, y, z, max x, y, z).
+     */
+    private double[] randomBox() {
+        double x = _random.nextInt(512) - 256, y = _random.nextInt(256), z = _random.nextInt(512) - 256;
+        return new double[]{x, y, z, x + 1 + _random.nextInt(128), y + 1 + _random.nextInt(64), z + 1 + _random.nextInt(128)};
+    }
+
+    private void lookAtRandom() {
+        float x = _random.nextFloat() * 256f - 128f, y = _random.nextFloat() * 200f, z = _random.nextFloat() * 256f - 128f;
+        lookAt(x, y, z, x + _random.nextFloat() * 2f - 1f, y + _random.nextFloat() * 2f - 1f, z + _random.nextFloat() * 2f - 1f);
+    }
+
+    private void lookAt(float eyeX, float eyeY, float eyeZ, float centerX, float centerY, float centerZ) {
+        RenderDevice device = RenderDeviceManager.getDevice();
+
+        device.loadIdentity();
+        device.lookAt(eyeX, eyeY, eyeZ, centerX, centerY, centerZ, 0, 1, 0);
+        _frustum.updateFrustum();
+    }
+}
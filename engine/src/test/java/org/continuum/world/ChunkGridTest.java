@@ -0,0 +1,118 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.world;
+
+import org.continuum.datastructures.ViewFrustum;
+import org.continuum.main.Configuration;
+import org.continuum.rendering.NullRenderDevice;
+import org.continuum.rendering.RenderDevice;
+import org.continuum.rendering.RenderDeviceManager;
+import org.continuum.world.chunk.Chunk;
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.util.vector.Vector3f;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.lwjgl.opengl.GL11.GL_MODELVIEW;
+import static org.lwjgl.opengl.GL11.GL_PROJECTION;
+
+/**
+ * Tests the quadtree culling of the chunk grid against testing every chunk on its own.
+ */
+public class ChunkGridTest {
+
+    /* The grid is not square and its sides are no powers of two, so uneven splits are covered */
+    private static final int ORIGIN_X = -11, ORIGIN_Z = -4;
+    private static final int SIZE_X = 22, SIZE_Z = 13;
+
+    private static final int VIEWS = 500;
+
+    private final Random _random = new Random(42);
+    private final ViewFrustum _frustum = new ViewFrustum();
+
+    private Chunk[] _chunks;
+    private ChunkGrid _grid;
+
+    @Before
+    public void setUp() {
+        RenderDevice device = new NullRenderDevice();
+        RenderDeviceManager.setDevice(device);
+
+        device.setMatrixMode(GL_PROJECTION);
+        device.loadIdentity();
+        device.perspective(80.0f, 16f / 9f, 0.1f, 512f);
+        device.setMatrixMode(GL_MODELVIEW);
+        device.loadIdentity();
+
+        _chunks = new Chunk[SIZE_X * SIZE_Z];
+        _grid = new ChunkGrid(ORIGIN_X, ORIGIN_Z, SIZE_X, SIZE_Z);
+
+        for (int x = 0; x < SIZE_X; x++) {
+            for (int z = 0; z < SIZE_Z; z++) {
+                Chunk c = new Chunk(null, new Vector3f(ORIGIN_X + x, 0, ORIGIN_Z + z));
+                _chunks[x * SIZE_Z + z] = c;
+                _grid.set(x, z, c);
+            }
+        }
+    }
+
+    @Test
+    public void testCull() {
+        long tests = 0;
+
+        for (int view = 0; view < VIEWS; view++) {
+            float x = (_random.nextFloat() * (SIZE_X + 8) + ORIGIN_X - 4) * Configuration.CHUNK_DIMENSIONS.x;
+            float y = _random.nextFloat() * 200f;
+            float z = (_random.nextFloat() * (SIZE_Z + 8) + ORIGIN_Z - 4) * Configuration.CHUNK_DIMENSIONS.z;
+
+            lookAt(x, y, z, x + _random.nextFloat() * 2f - 1f, y + _random.nextFloat() * 2f - 1f, z + _random.nextFloat() * 2f - 1f);
+
+            tests += _grid.cull(_frustum);
+
+            for (Chunk c : _chunks) {
+                assertEquals(c.toString(), _frustum.intersects(c.getAABB()), c.isVisible());
+            }
+        }
+
+        // The quadtree needs fewer tests than testing every chunk
+        assertTrue(tests < (long) VIEWS * _chunks.length);
+    }
+
+    @Test
+    public void testCullOutside() {
+        // Looking away from the grid, the whole grid is rejected with a single test
+        float z = (ORIGIN_Z - 2) * Configuration.CHUNK_DIMENSIONS.z;
+        lookAt(0, 64, z, 0, 64, z - 1);
+
+        assertEquals(1, _grid.cull(_frustum));
+
+        for (Chunk c : _chunks) {
+            assertFalse(c.isVisible());
+        }
+    }
+
+    private void lookAt(float eyeX, float eyeY, float eyeZ, float centerX, float centerY, float centerZ) {
+        RenderDevice device = RenderDeviceManager.getDevice();
+
+        device.loadIdentity();
+        device.lookAt(eyeX, eyeY, eyeZ, centerX, centerY, centerZ, 0, 1, 0);
+        _frustum.updateFrustum();
+    }
+}
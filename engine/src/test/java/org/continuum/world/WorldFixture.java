@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.world;
+
+import org.continuum.main.Configuration;
+import org.continuum.world.chunk.Chunk;
+
+/**
+ * Creates the sandboxed worlds of the benchmarks. The worlds are generated from a fixed seed, so every run
+ * measures the same terrain.
+ */
+public final class WorldFixture {
+
+    public static final String SEED = "Blockmania42";
+
+    private WorldFixture() {
+    }
+
+    /**
+     * Creates a world which is not saved to disk.
+     *
+     * @return The world
+     */
+    public static WorldProvider createWorld() {
+        Configuration.setSetting("SANDBOXED", true);
+        return new WorldProvider("Benchmark", SEED);
+    }
+
+    /**
+     * @param world The world
+     * @return The chunk containing the spawning point of the world
+     */
+    public static Chunk getSpawningChunk(WorldProvider world) {
+        int x = (int) world.getSpawningPoint().x, z = (int) world.getSpawningPoint().z;
+        return world.getChunkCache().loadOrCreateChunk(world.calcChunkPosX(x), world.calcChunkPosZ(z));
+    }
+
+    /**
+     * Generates the chunks around the given chunk and spreads their sunlight on the calling thread. Returns
+     * once the light workers relit the structures which were written across the borders of the chunks.
+     *
+     * @param chunk  The chunk in the center
+     * @param radius The amount of chunks generated in each direction
+     */
+    public static void generateAround(Chunk chunk, int radius) {
+        WorldProvider world = chunk.getParent();
+        int chunkX = (int) chunk.getPosition().x, chunkZ = (int) chunk.getPosition().z;
+
+        for (int x = -radius; x <= radius; x++) {
+            for (int z = -radius; z <= radius; z++) {
+                world.getChunkCache().loadOrCreateChunk(chunkX + x, chunkZ + z).generate();
+            }
+        }
+
+        for (int x = -radius; x <= radius; x++) {
+            for (int z = -radius; z <= radius; z++) {
+                world.getChunkCache().loadOrCreateChunk(chunkX + x, chunkZ + z).updateLight();
+            }
+        }
+
+        waitForLight(chunk, radius + 1);
+    }
+
+    /**
+     * Waits until no light jobs touching the chunks around the given chunk are pending.
+     *
+     * @param chunk  The chunk in the center
+     * @param radius The amount of chunks checked in each direction
+     */
+    public static void waitForLight(Chunk chunk, int radius) {
+        WorldProvider world = chunk.getParent();
+        int chunkX = (int) chunk.getPosition().x, chunkZ = (int) chunk.getPosition().z;
+
+        for (int x = -radius; x <= radius; x++) {
+            for (int z = -radius; z <= radius; z++) {
+                Chunk c = world.getChunkCache().loadOrCreateChunk(chunkX + x, chunkZ + z);
+
+                while (c.hasPendingLightJobs()) {
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+        }
+    }
+
+    public static void dispose(WorldProvider world) {
+        world.getLightScheduler().shutdown();
+    }
+}
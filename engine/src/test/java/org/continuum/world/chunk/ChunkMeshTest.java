@@ -0,0 +1,301 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.world.chunk;
+
+import org.continuum.blocks.Block;
+import org.continuum.blocks.BlockRegistry;
+import org.continuum.rendering.NullRenderDevice;
+import org.continuum.rendering.RenderDeviceManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the packed vertex format of the chunk meshes. The vertices are decoded the same way as by the chunk shader.
+ */
+public class ChunkMeshTest {
+
+    private static final int STRIDE = 12;
+    private static final int TOP = 256 * ChunkMesh.POSITION_SCALE;
+
+    private static final byte HIGH_GRASS = 11;
+    private static final byte TORCH = 13;
+
+    private NullRenderDevice _device;
+
+    @Before
+    public void setUp() {
+        _device = new NullRenderDevice();
+        RenderDeviceManager.setDevice(_device);
+    }
+
+    @Test
+    public void testPackAttributes() {
+        int[][] cases = {
+                {0, 0, 0, 0, 0},
+                {255, 255, 16, 255, 3},
+                {17, 3, 1, 0, 2},
+                {240, 128, 16, 16, 1},
+                {15, 1, 0, 255, 3}
+        };
+
+        for (int[] c : cases) {
+            Vertex v = decode(0, 0, 0, (short) 0, ChunkMesh.packAttributes(c[0], c[1], c[2], c[3], c[4]));
+
+            assertEquals(c[0] % 16, v.tileX);
+            assertEquals(c[0] / 16, v.tileY);
+            assertEquals(c[1], v.tint);
+            assertEquals(c[2], v.texU);
+            assertEquals(c[3], v.texV);
+            assertEquals(c[4], v.occlusion);
+        }
+    }
+
+    @Test
+    public void testVertexBuffer() throws IOException {
+        ChunkMesh.VertexElements[] vertexElements = createVertexElements();
+
+        // Light: sun 15, red 1, green 7, blue 14
+        int light = 0xF | (1 << 4) | (7 << 8) | (14 << 12);
+        addVertex(vertexElements[0], 0, 0, 0, light, 35, 2, 16, 1, 3);
+        addVertex(vertexElements[0], -8, TOP, 16 * ChunkMesh.POSITION_SCALE, 0xFFFF, 255, 255, 0, 255, 0);
+        addVertex(vertexElements[0], 8, 8, -8, 0x0001, 1, 0, 16, 0, 2);
+        addVertex(vertexElements[0], TOP, -8, TOP, 0xF000, 16, 1, 5, 9, 1);
+
+        ByteBuffer vertices = generateVertexBuffer(vertexElements, 0);
+
+        assertEquals(4 * STRIDE, vertices.remaining());
+
+        assertVertex(read(vertices), 0, 0, 0, 15, 1, 7, 14, 35, 2, 16, 1, 3);
+        assertVertex(read(vertices), -8, TOP, 16 * ChunkMesh.POSITION_SCALE, 15, 15, 15, 15, 255, 255, 0, 255, 0);
+        assertVertex(read(vertices), 8, 8, -8, 1, 0, 0, 0, 1, 0, 16, 0, 2);
+        assertVertex(read(vertices), TOP, -8, TOP, 0, 0, 0, 15, 16, 1, 5, 9, 1);
+    }
+
+    @Test
+    public void testBillboardVertices() {
+        ChunkMeshBillboards billboards = new ChunkMeshBillboards();
+
+        int light = 0x3 | (0xA << 4) | (0x5 << 8) | (0xC << 12);
+        billboards.add(0, 0, 15, HIGH_GRASS, 7, light);
+        billboards.add(15, 255, 0, TORCH, 255, 0xFFFF);
+
+        int[] records = billboards.toSortedArray();
+
+        // The torch emits light and is sorted to the front
+        assertEquals(1, ChunkMeshBillboards.countFixed(records));
+
+        ByteBuffer vertices = ByteBuffer.allocate(records.length / 2 * ChunkMeshBillboards.VERTICES_PER_BILLBOARD * STRIDE).order(ByteOrder.nativeOrder());
+        ChunkMeshBillboards.writeVertices(records, vertices);
+        vertices.flip();
+
+        assertBillboard(vertices, 15, 255, 0, TORCH, 255, 15, 15, 15, 15);
+        assertBillboard(vertices, 0, 0, 15, HIGH_GRASS, 7, 3, 10, 5, 12);
+
+        assertEquals(0, vertices.remaining());
+    }
+
+    @Test
+    public void testUploadAndRender() {
+        ChunkMesh.VertexElements[] vertexElements = createVertexElements();
+
+        // One opaque quad
+        addVertex(vertexElements[0], 0, 0, 0, 0xF, 1, 0, 0, 0, 0);
+        addVertex(vertexElements[0], 16, 0, 0, 0xF, 1, 0, 16, 0, 0);
+        addVertex(vertexElements[0], 16, 16, 0, 0xF, 1, 0, 16, 16, 0);
+        addVertex(vertexElements[0], 0, 16, 0, 0xF, 1, 0, 0, 16, 0);
+
+        ChunkMeshBillboards billboards = new ChunkMeshBillboards();
+        billboards.add(0, 0, 0, HIGH_GRASS, 0, 0xF);
+
+        ChunkMesh mesh = new ChunkMesh(vertexElements, billboards, new ChunkMeshTintPalette());
+        mesh.generateBuffers();
+
+        _device.reset();
+        mesh.generateVBOs();
+
+        int opaqueBytes = 4 * STRIDE + 6 * 4;
+        int billboardBytes = ChunkMeshBillboards.VERTICES_PER_BILLBOARD * STRIDE + ChunkMeshBillboards.VERTICES_PER_BILLBOARD / 4 * 6 * 4;
+
+        // Index and vertex buffer of the opaque quad and the billboard and the tint palette
+        assertEquals(5, _device.getUploads());
+        assertEquals(opaqueBytes + billboardBytes + ChunkMeshTintPalette.CAPACITY * 4, _device.getUploadedBytes());
+        assertEquals(0, _device.getDrawCalls());
+
+        _device.reset();
+        mesh.render(ChunkMesh.RENDER_TYPE.OPAQUE);
+
+        assertEquals(1, _device.getDrawCalls());
+        assertEquals(6, _device.getDrawnElements());
+        assertEquals(13, _device.getStateChanges());
+
+        _device.reset();
+        mesh.render(ChunkMesh.RENDER_TYPE.BILLBOARD_AND_TRANSLUCENT);
+
+        // Only the billboard buffer holds vertices, the translucent buffer is skipped
+        assertEquals(1, _device.getDrawCalls());
+        assertEquals(ChunkMeshBillboards.VERTICES_PER_BILLBOARD / 4 * 6, _device.getDrawnElements());
+        assertEquals(13 + 5, _device.getStateChanges());
+
+        _device.reset();
+        mesh.render(ChunkMesh.RENDER_TYPE.WATER);
+
+        assertEquals(0, _device.getDrawCalls());
+        assertEquals(0, _device.getUploads());
+
+        mesh.freeBuffers();
+    }
+
+    private static void assertBillboard(ByteBuffer vertices, int x, int y, int z, byte type, int tint, int sun, int red, int green, int blue) {
+        int h = ChunkMesh.POSITION_SCALE / 2;
+        int cx = x * ChunkMesh.POSITION_SCALE, cy = y * ChunkMesh.POSITION_SCALE, cz = z * ChunkMesh.POSITION_SCALE;
+
+        // Two quads crossing diagonally through the block, centered on the block position
+        int[][] corners = {
+                {-h, -h, h}, {h, -h, -h}, {h, h, -h}, {-h, h, h},
+                {-h, -h, -h}, {h, -h, h}, {h, h, h}, {-h, h, -h}
+        };
+        int[] texU = {0, 1, 1, 0};
+        int[] texV = {1, 1, 0, 0};
+
+        for (int quad = 0; quad < 2; quad++) {
+            int tile = BlockRegistry.getTextureTile(type, quad == 0 ? Block.SIDE.FRONT : Block.SIDE.BACK);
+
+            for (int i = 0; i < 4; i++) {
+                int[] corner = corners[quad * 4 + i];
+                assertVertex(read(vertices), cx + corner[0], cy + corner[1], cz + corner[2], sun, red, green, blue, tile, tint, texU[i], texV[i], 0);
+            }
+        }
+    }
+
+    private static void assertVertex(Vertex v, int x, int y, int z, int sun, int red, int green, int blue, int tile, int tint, int texU, int texV, int occlusion) {
+        assertEquals(x, v.x);
+        assertEquals(y, v.y);
+        assertEquals(z, v.z);
+        assertEquals(sun, v.sun);
+        assertEquals(red, v.red);
+        assertEquals(green, v.green);
+        assertEquals(blue, v.blue);
+        assertEquals(tile % 16, v.tileX);
+        assertEquals(tile / 16, v.tileY);
+        assertEquals(tint, v.tint);
+        assertEquals(texU, v.texU);
+        assertEquals(texV, v.texV);
+        assertEquals(occlusion, v.occlusion);
+    }
+
+    private static ChunkMesh.VertexElements[] createVertexElements() {
+        ChunkMesh.VertexElements[] vertexElements = new ChunkMesh.VertexElements[5];
+
+        for (int i = 0; i < vertexElements.length; i++) {
+            vertexElements[i] = new ChunkMesh.VertexElements();
+        }
+
+        return vertexElements;
+    }
+
+    /**
+     * Adds a vertex the same way as the mesh generator.
+     */
+    private static void addVertex(ChunkMesh.VertexElements vertexElements, int x, int y, int z, int light, int tile, int tint, int texU, int texV, int occlusion) {
+        vertexElements.positions.add((short) x);
+        vertexElements.positions.add((short) y);
+        vertexElements.positions.add((short) z);
+        vertexElements.positions.add((short) light);
+        vertexElements.attributes.add(ChunkMesh.packAttributes(tile, tint, texU, texV, occlusion));
+    }
+
+    /**
+     * Generates the buffers of a mesh and returns the vertices of the given buffer as written to the mesh cache.
+     */
+    private static ByteBuffer generateVertexBuffer(ChunkMesh.VertexElements[] vertexElements, int id) throws IOException {
+        ChunkMesh mesh = new ChunkMesh(vertexElements, new ChunkMeshBillboards(), new ChunkMeshTintPalette());
+        mesh.generateBuffers();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        mesh.writeTo(new DataOutputStream(bytes));
+        mesh.freeBuffers();
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+        for (int i = 0; ; i++) {
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+
+            if (i == id)
+                return ByteBuffer.wrap(data).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    private static Vertex read(ByteBuffer vertices) {
+        short x = vertices.getShort();
+        short y = vertices.getShort();
+        short z = vertices.getShort();
+        short light = vertices.getShort();
+
+        int attributes = 0;
+
+        for (int j = 0; j < 4; j++) {
+            attributes |= (vertices.get() & 0xFF) << (j * 8);
+        }
+
+        return decode(x, y, z, light, attributes);
+    }
+
+    /**
+     * Decodes a vertex like chunk_vert.glsl.
+     */
+    private static Vertex decode(int x, int y, int z, short light, int attributes) {
+        Vertex v = new Vertex();
+
+        v.x = x;
+        v.y = y;
+        v.z = z;
+
+        int unsignedLight = light < 0 ? light + 65536 : light;
+        v.sun = unsignedLight % 16;
+        v.red = (unsignedLight / 16) % 16;
+        v.green = (unsignedLight / 256) % 16;
+        v.blue = (unsignedLight / 4096) % 16;
+
+        int tile = attributes & 0xFF;
+        int attributeZ = (attributes >>> 16) & 0xFF;
+
+        v.tileX = tile % 16;
+        v.tileY = tile / 16;
+        v.tint = (attributes >>> 8) & 0xFF;
+        v.occlusion = attributeZ / 32;
+        v.texU = attributeZ - v.occlusion * 32;
+        v.texV = (attributes >>> 24) & 0xFF;
+
+        return v;
+    }
+
+    private static class Vertex {
+        int x, y, z;
+        int sun, red, green, blue;
+        int tileX, tileY, tint, texU, texV, occlusion;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014-2017 Gil Mendes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.continuum.world.chunk;
+
+import gnu.trove.list.array.TIntArrayList;
+import org.junit.Test;
+import org.lwjgl.util.vector.Vector3f;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests saving and loading a chunk which is not generated yet.
+ */
+public class ChunkTest {
+
+    @Test
+    public void testSaveParkedStructureWrites() throws IOException, ClassNotFoundException {
+        Chunk chunk = new Chunk(null, new Vector3f(3, 0, -5));
+        chunk.parkStructureWrites(new TIntArrayList(new int[]{0x1012345, 0x20F0F0, 7}));
+
+        byte[] saved = save(chunk);
+        Chunk loaded = load(saved);
+
+        assertTrue(loaded.isFresh());
+        assertTrue(loaded.hasParkedStructureWrites());
+        assertArrayEquals(saved, save(loaded));
+    }
+
+    private static byte[] save(Chunk chunk) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(chunk);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static Chunk load(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (Chunk) in.readObject();
+        }
+    }
+}